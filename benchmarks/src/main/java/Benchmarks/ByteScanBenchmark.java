@@ -0,0 +1,107 @@
+package Benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import CSV.ByteScanner;
+
+/**
+ * Compares the scalar and the SWAR {@link ByteScanner} on a 16MB buffer of synthetic pipe separated lines
+ * of typical sentence lengths (rowid|sentence|label).
+ *
+ * The score is the time to scan the whole buffer (16MB divided by the score is the throughput).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ByteScanBenchmark
+{
+    private static final String[] WORDS = new String[] { "der", "vertrag", "k\u00fcndigung", "bitte", "sofort",
+        "r\u00fcckerstattung", "nicht", "email-adresse", "Gr\u00f6\u00dfe", "Stra\u00dfe", "danke", "monat", "zum", "ende", "\u00c4RGER" };
+
+    private static final int BUFFER_SIZE = 16 * 1024 * 1024;
+
+    @Param({ "5", "12", "25", "60" })
+    public int wordsPerDoc;
+
+    @Param({ "scalar", "swar" })
+    public String mode;
+
+    private byte[] _Buffer;
+    private ByteScanner _Scanner;
+    private ByteScanner.Positions _Positions;
+
+    @Setup(Level.Trial)
+    public void Setup()
+    {
+        _Buffer = GenerateLines(wordsPerDoc, BUFFER_SIZE);
+        _Scanner = ByteScanner.Create(mode);
+        _Positions = new ByteScanner.Positions();
+
+        // Both scanners must find the same positions or the comparison is meaningless
+        ByteScanner.Positions expected = new ByteScanner.Positions();
+        ByteScanner.Create("scalar").Scan(_Buffer, _Buffer.length, (byte)'|', (byte)'\n', expected);
+        _Scanner.Scan(_Buffer, _Buffer.length, (byte)'|', (byte)'\n', _Positions);
+
+        if (expected.Count() != _Positions.Count())
+            throw new IllegalStateException(String.format("Scanners differ in count: %d vs %d", expected.Count(), _Positions.Count()));
+
+        for (int i = 0; i < expected.Count(); i++)
+        {
+            if (expected.Get(i) != _Positions.Get(i))
+                throw new IllegalStateException(String.format("Scanners differ at index %d: %d vs %d", i, expected.Get(i), _Positions.Get(i)));
+        }
+    }
+
+    @Benchmark
+    public int Scan()
+    {
+        _Scanner.Scan(_Buffer, _Buffer.length, (byte)'|', (byte)'\n', _Positions);
+        return _Positions.Count();
+    }
+
+    /**
+     * Generates pipe separated lines with the given number of words per sentence into a buffer of (about) {@param size} bytes.
+     * @param words
+     * @param size
+     * @return
+     */
+    private static byte[] GenerateLines(int words, int size)
+    {
+        Random rnd = new Random(words);
+        StringBuilder sb = new StringBuilder(size + 1024);
+
+        for (long row = 0; sb.length() < size; row++)
+        {
+            sb.append(row).append('|');
+            for (int w = 0; w < words; w++)
+            {
+                if (w > 0)
+                    sb.append(' ');
+
+                sb.append(WORDS[rnd.nextInt(WORDS.length)]);
+            }
+
+            sb.append("|label").append(row % 7).append('\n');
+        }
+
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
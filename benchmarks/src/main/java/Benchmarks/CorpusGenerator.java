@@ -0,0 +1,240 @@
+package Benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+
+import InvertedIndex.Tokenizer;
+
+/**
+ * Generates a reproducible pipe separated text file (id|sentence) with Zipf distributed words and a matching
+ * key file (regex|text) with phrase (0), regex (1) and bool AND (2) keys plus a config file to run PhraseTractor on both.
+ *
+ * Phrase keys are cut out of generated sentences (so most of them match) while bool AND keys combine words
+ * of different frequency and regex keys match word prefixes.
+ *
+ * Usage: java -cp benchmarks.jar Benchmarks.CorpusGenerator -out dir [-rows n] [-words n] [-vocabulary n]
+ *        [-zipf s] [-phraseKeys n] [-boolKeys n] [-regexKeys n] [-seed n]
+ */
+public class CorpusGenerator
+{
+    public static final String TEXT_FILE = "corpus.csv";
+    public static final String KEY_FILE = "corpus_keys.csv";
+    public static final String CONFIG_FILE = "corpus.config";
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    //region fields
+    private long _Rows = 1000000;
+    private int _Words = 12;
+    private int _Vocabulary = 50000;
+    private double _Zipf = 1.0;
+    private int _PhraseKeys = 200;
+    private int _BoolKeys = 50;
+    private int _RegexKeys = 10;
+    private long _Seed = 42;
+    //endregion fields
+
+    //region properties
+    public long getRows() { return _Rows; }
+    public void setRows(long rows) { _Rows = rows; }
+
+    /** Gets the average number of words per sentence (sentences have between words/2 and words*3/2 words). */
+    public int getWords() { return _Words; }
+    public void setWords(int words) { _Words = words; }
+
+    public int getVocabulary() { return _Vocabulary; }
+    public void setVocabulary(int vocabulary) { _Vocabulary = vocabulary; }
+
+    public double getZipf() { return _Zipf; }
+    public void setZipf(double zipf) { _Zipf = zipf; }
+
+    public int getPhraseKeys() { return _PhraseKeys; }
+    public void setPhraseKeys(int phraseKeys) { _PhraseKeys = phraseKeys; }
+
+    public int getBoolKeys() { return _BoolKeys; }
+    public void setBoolKeys(int boolKeys) { _BoolKeys = boolKeys; }
+
+    public int getRegexKeys() { return _RegexKeys; }
+    public void setRegexKeys(int regexKeys) { _RegexKeys = regexKeys; }
+
+    public long getSeed() { return _Seed; }
+    public void setSeed(long seed) { _Seed = seed; }
+    //endregion properties
+
+    //region methods
+    public static void main(String[] args) throws IOException
+    {
+        CorpusGenerator generator = new CorpusGenerator();
+        String outDir = null;
+
+        for (int i = 0; i < args.length; i++)
+        {
+            String value = (i + 1 < args.length ? args[i + 1] : null);
+            switch (args[i])
+            {
+                case "-out":        outDir = value; break;
+                case "-rows":       generator.setRows(Long.parseLong(value)); break;
+                case "-words":      generator.setWords(Integer.parseInt(value)); break;
+                case "-vocabulary": generator.setVocabulary(Integer.parseInt(value)); break;
+                case "-zipf":       generator.setZipf(Double.parseDouble(value)); break;
+                case "-phraseKeys": generator.setPhraseKeys(Integer.parseInt(value)); break;
+                case "-boolKeys":   generator.setBoolKeys(Integer.parseInt(value)); break;
+                case "-regexKeys":  generator.setRegexKeys(Integer.parseInt(value)); break;
+                case "-seed":       generator.setSeed(Long.parseLong(value)); break;
+
+                default:
+                    System.out.printf("ERROR: Unrecognized command line option '%s'\n", args[i]);
+                    return;
+            }
+
+            i++;
+        }
+
+        if (outDir == null)
+        {
+            System.out.printf("ERROR: Missing output directory (-out dir)\n");
+            return;
+        }
+
+        long start = System.nanoTime();
+        File dir = generator.Generate(new File(outDir));
+
+        System.out.printf("Generated %d rows in %.1f s into '%s'\n", generator.getRows(), (System.nanoTime() - start) / 1e9, dir.getAbsolutePath());
+    }
+
+    /**
+     * Writes the text file, the key file and a config file (see constants) into the given directory
+     * and returns the directory.
+     * @param dir
+     * @return
+     * @throws IOException
+     */
+    public File Generate(File dir) throws IOException
+    {
+        dir.mkdirs();
+
+        SyntheticText text = new SyntheticText(_Vocabulary, _Zipf, _Seed);
+        LinkedHashSet<String> phrases = new LinkedHashSet<String>();
+
+        // Sample phrase keys evenly over the generated rows
+        long sampleEvery = Math.max(1, _Rows / Math.max(1, _PhraseKeys * 4));
+
+        try (BufferedWriter writer = NewWriter(new File(dir, TEXT_FILE)))
+        {
+            writer.write("id|sentence\n");
+
+            int minWords = Math.max(1, _Words / 2);
+            int rangeWords = Math.max(1, _Words + 1);
+            for (long row = 0; row < _Rows; row++)
+            {
+                String[] words = text.NextDocument(minWords + text.NextInt(rangeWords));
+
+                writer.write(Long.toString(row));
+                writer.write('|');
+                for (int w = 0; w < words.length; w++)
+                {
+                    if (w > 0)
+                        writer.write(' ');
+
+                    if (w == 0)       // Start sentence with upper case letter to exercise lower casing
+                    {
+                        writer.write(Character.toUpperCase(words[0].charAt(0)));
+                        writer.write(words[0], 1, words[0].length() - 1);
+                    }
+                    else
+                        writer.write(words[w]);
+                }
+                writer.write(".\n");
+
+                if (row % sampleEvery == 0 && phrases.size() < _PhraseKeys && words.length >= 2)
+                {
+                    int len = Math.min(words.length, 2 + text.NextInt(2));
+                    int from = text.NextInt(words.length - len + 1);
+
+                    StringBuilder phrase = new StringBuilder();
+                    for (int w = from; w < from + len; w++)
+                        phrase.append(w > from ? " " : "").append(words[w]);
+
+                    phrases.add(phrase.toString());
+                }
+            }
+        }
+
+        WriteKeys(new File(dir, KEY_FILE), text, phrases);
+        WriteConfig(dir);
+
+        return dir;
+    }
+
+    /**
+     * Writes the key file with phrase, regex and bool AND keys.
+     * @param file
+     * @param text
+     * @param phrases
+     * @throws IOException
+     */
+    private void WriteKeys(File file, SyntheticText text, LinkedHashSet<String> phrases) throws IOException
+    {
+        LinkedHashSet<String> regexKeys = new LinkedHashSet<String>();
+        for (int i = 0; regexKeys.size() < _RegexKeys && i < _RegexKeys * 10; i++)
+        {
+            String word = text.NextWord();
+            regexKeys.add("\\b" + word.substring(0, Math.min(word.length(), 3)) + "[a-z]*" + (i % 2 == 0 ? "" : "o\\b"));
+        }
+
+        LinkedHashSet<String> boolKeys = new LinkedHashSet<String>();
+        for (int i = 0; boolKeys.size() < _BoolKeys && i < _BoolKeys * 10; i++)
+        {
+            String frequent = text.NextWord();
+            String rare = text.Word(text.NextInt(text.VocabularySize()));
+            if (frequent.equals(rare) == false && phrases.contains(frequent + " " + rare) == false)
+                boolKeys.add(frequent + " " + rare);
+        }
+
+        try (BufferedWriter writer = NewWriter(file))
+        {
+            writer.write("regex|text\n");
+
+            for (String phrase : phrases)
+                writer.write("0|" + phrase + "\n");
+
+            for (String regex : regexKeys)
+                writer.write("1|" + regex + "\n");
+
+            for (String bool : boolKeys)
+                writer.write("2|" + bool + "\n");
+        }
+    }
+
+    /**
+     * Writes a PhraseTractor config file for the generated files with results in an 'output' sub-directory.
+     * @param dir
+     * @throws IOException
+     */
+    private void WriteConfig(File dir) throws IOException
+    {
+        File outputDir = new File(dir, "output");
+        outputDir.mkdirs();
+
+        try (BufferedWriter writer = NewWriter(new File(dir, CONFIG_FILE)))
+        {
+            writer.write("TextFile          = " + new File(dir, TEXT_FILE).getAbsolutePath() + "\n");
+            writer.write("RowIDColumnName   = id\n");
+            writer.write("TextColumnName    = sentence\n");
+            writer.write("KeyFile           = " + new File(dir, KEY_FILE).getAbsolutePath() + "\n");
+            writer.write("OutputDir         = " + outputDir.getAbsolutePath() + File.separator + "\n");
+            writer.write("RegexMask         = " + Tokenizer.DEFAULT_REGEX_MASK + "\n");
+        }
+    }
+
+    private static BufferedWriter NewWriter(File file) throws IOException
+    {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+    //endregion methods
+}
@@ -0,0 +1,107 @@
+package Benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import CSV.ByteScanner;
+import CSV.FromCSV;
+import ProgramObjects.Errors.ErrorObject;
+
+/**
+ * Measures reading a synthetic pipe separated text file (rowid|sentence|label) with {@link FromCSV#ReadLine}
+ * using the sequential reader (readThreads = 1) or the parallel memory mapped reader (readThreads &gt; 1).
+ *
+ * The score is the time to read the whole file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FromCSVBenchmark
+{
+    @Param({ "200000" })
+    public int rows;
+
+    @Param({ "12", "60" })
+    public int wordsPerDoc;
+
+    @Param({ "1", "4" })
+    public int readThreads;
+
+    @Param({ "swar" })
+    public String byteScanMode;
+
+    private File _File;
+
+    @Setup(Level.Trial)
+    public void Setup() throws IOException
+    {
+        ByteScanner.Select(byteScanMode);
+
+        SyntheticText text = new SyntheticText(20000, 1.0, 42);
+        _File = File.createTempFile("FromCSVBenchmark", ".csv");
+        _File.deleteOnExit();
+
+        try (BufferedWriter writer = Files.newBufferedWriter(_File.toPath(), StandardCharsets.UTF_8))
+        {
+            writer.write("rowid|sentence|label\n");
+            for (int r = 0; r < rows; r++)
+            {
+                writer.write(Integer.toString(r));
+                writer.write('|');
+                writer.write(String.join(" ", text.NextDocument(wordsPerDoc)));
+                writer.write("|label");
+                writer.write(Integer.toString(r % 7));
+                writer.write('\n');
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void TearDown()
+    {
+        _File.delete();
+    }
+
+    @Benchmark
+    public int ReadLine(Blackhole bh) throws Exception
+    {
+        FromCSV df = new FromCSV(_File.getPath(), '|', true, readThreads);
+        ErrorObject err = df.OpenFile();
+        if (err != null)
+            throw new IllegalStateException(err.getMessage());
+
+        int count = 0;
+        HashMap<String, String> dataRow;
+        while ((dataRow = df.ReadLine()) != null)
+        {
+            bh.consume(dataRow);
+            count++;
+        }
+
+        df.Close();
+        return count;
+    }
+}
@@ -0,0 +1,94 @@
+package Benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import InvertedIndex.IIndex;
+import InvertedIndex.Nx.NxWord;
+import InvertedIndex.Postings.PostingArena;
+
+/**
+ * Measures building the inverted index ({@link IIndex#IndexDocument}) and the nextword index
+ * ({@link NxWord#IndexDocument}) from pre-tokenized synthetic documents.
+ *
+ * Each invocation indexes all documents into a new index (divide the score by {@code docs} for the time per document).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IndexDocumentBenchmark
+{
+    @Param({ "10000" })
+    public int docs;
+
+    @Param({ "12", "60" })
+    public int wordsPerDoc;
+
+    @Param({ "5000", "100000" })
+    public int vocabulary;
+
+    @Param({ "heap", "offheap" })
+    public String storage;
+
+    @Param({ "2" })
+    public int nGramLen;
+
+    private String[][] _Docs;
+    private PostingArena _Arena;
+
+    @Setup(Level.Trial)
+    public void Setup()
+    {
+        _Docs = new SyntheticText(vocabulary, 1.0, 42).NextDocuments(docs, wordsPerDoc);
+    }
+
+    @Setup(Level.Invocation)
+    public void NewArena()
+    {
+        _Arena = ("offheap".equals(storage) ? new PostingArena() : null);
+    }
+
+    @TearDown(Level.Invocation)
+    public void ReleaseArena()
+    {
+        if (_Arena != null)
+            _Arena.Release();
+    }
+
+    @Benchmark
+    public IIndex IIndexIndexDocument() throws IOException
+    {
+        IIndex iIndex = new IIndex(_Arena);
+        for (int d = 0; d < _Docs.length; d++)
+            iIndex.IndexDocument(d, _Docs[d]);
+
+        return iIndex;
+    }
+
+    @Benchmark
+    public NxWord NxWordIndexDocument() throws Exception
+    {
+        NxWord nxIndex = new NxWord(nGramLen, _Arena);
+        for (int d = 0; d < _Docs.length; d++)
+            nxIndex.IndexDocument(d, _Docs[d]);
+
+        return nxIndex;
+    }
+}
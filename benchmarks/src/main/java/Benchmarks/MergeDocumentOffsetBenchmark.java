@@ -0,0 +1,102 @@
+package Benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import InvertedIndex.WordDocumentOffests;
+import InvertedIndex.Cursors.PhraseCursor;
+import InvertedIndex.Cursors.PostingCursor;
+import InvertedIndex.Cursors.TermCursor;
+import InvertedIndex.Postings.PostingArena;
+
+/**
+ * Measures {@link WordDocumentOffests#MergeDocumentOffset} (the positional merge behind a phrase query)
+ * on 2 posting lists of different length and the same phrase evaluated with a {@link PhraseCursor}
+ * that only counts the occurrences instead of materializing them.
+ *
+ * The documents of the short list are spread over the documents of the long list and in {@code adjacent}
+ * percent of the shared documents the word of the short list is directly followed by the word of the long list.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MergeDocumentOffsetBenchmark
+{
+    @Param({ "1000", "100000" })
+    public int longPostings;
+
+    @Param({ "1", "100" })
+    public int lengthRatio;
+
+    @Param({ "50" })
+    public int adjacent;
+
+    @Param({ "heap", "offheap" })
+    public String storage;
+
+    private WordDocumentOffests<String> _First;
+    private WordDocumentOffests<String> _Second;
+    private PostingArena _Arena;
+
+    @Setup(Level.Trial)
+    public void Setup()
+    {
+        Random rnd = new Random(42);
+        int shortPostings = Math.max(1, longPostings / lengthRatio);
+
+        _Arena = ("offheap".equals(storage) ? new PostingArena() : null);
+        _First = new WordDocumentOffests<String>("first", _Arena, 0, 0);
+        _Second = new WordDocumentOffests<String>("second", _Arena, 0, 1);
+
+        // Second word: 1 posting per document at offset 5, first word: every lengthRatio-th document
+        for (int d = 1; d < longPostings; d++)
+        {
+            if (d % lengthRatio == 0 && d / lengthRatio < shortPostings)
+                _First.AddDocumentOffset(d, (rnd.nextInt(100) < adjacent ? 4 : 7));
+
+            _Second.AddDocumentOffset(d, 5);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void TearDown()
+    {
+        if (_Arena != null)
+            _Arena.Release();
+    }
+
+    @Benchmark
+    public WordDocumentOffests<String> MergeDocumentOffset()
+    {
+        return _First.MergeDocumentOffset(_Second, "first second");
+    }
+
+    @Benchmark
+    public long PhraseCursor()
+    {
+        PhraseCursor cursor = new PhraseCursor(new TermCursor(_First), new TermCursor(_Second));
+
+        long occurrences = 0;
+        while (cursor.NextDoc() != PostingCursor.NO_MORE_DOCS)
+            occurrences += cursor.Freq();
+
+        return occurrences;
+    }
+}
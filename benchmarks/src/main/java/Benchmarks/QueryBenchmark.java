@@ -0,0 +1,102 @@
+package Benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import InvertedIndex.IIndex;
+import InvertedIndex.Postings.PostingArena;
+
+/**
+ * Measures {@link IIndex#PhraseQuery} and {@link IIndex#BoolAndQuery} on an index of synthetic documents.
+ *
+ * Queries are phrases cut out of indexed documents (so each phrase query has at least one result) and
+ * the score is the time to evaluate all {@code queries} queries once.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBenchmark
+{
+    @Param({ "100000" })
+    public int docs;
+
+    @Param({ "20" })
+    public int wordsPerDoc;
+
+    @Param({ "20000" })
+    public int vocabulary;
+
+    @Param({ "2", "4" })
+    public int queryLength;
+
+    @Param({ "100" })
+    public int queries;
+
+    @Param({ "heap", "offheap" })
+    public String storage;
+
+    private IIndex _Index;
+    private PostingArena _Arena;
+    private String[][] _Queries;
+
+    @Setup(Level.Trial)
+    public void Setup() throws IOException
+    {
+        SyntheticText text = new SyntheticText(vocabulary, 1.0, 42);
+        String[][] documents = text.NextDocuments(docs, wordsPerDoc);
+
+        _Arena = ("offheap".equals(storage) ? new PostingArena() : null);
+        _Index = new IIndex(_Arena);
+        for (int d = 0; d < documents.length; d++)
+            _Index.IndexDocument(d, documents[d]);
+
+        _Queries = new String[queries][];
+        for (int q = 0; q < queries; q++)
+        {
+            String[] doc = documents[text.NextInt(documents.length)];
+            int start = text.NextInt(doc.length - queryLength + 1);
+
+            _Queries[q] = new String[queryLength];
+            System.arraycopy(doc, start, _Queries[q], 0, queryLength);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void TearDown()
+    {
+        if (_Arena != null)
+            _Arena.Release();
+    }
+
+    @Benchmark
+    public void PhraseQuery(Blackhole bh) throws Exception
+    {
+        for (String[] query : _Queries)
+            bh.consume(_Index.PhraseQuery(query));
+    }
+
+    @Benchmark
+    public void BoolAndQuery(Blackhole bh) throws Exception
+    {
+        for (String[] query : _Queries)
+            bh.consume(_Index.BoolAndQuery(query));
+    }
+}
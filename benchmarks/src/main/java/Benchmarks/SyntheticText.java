@@ -0,0 +1,139 @@
+package Benchmarks;
+
+import java.util.Random;
+
+/**
+ * Generates reproducible synthetic documents whose word frequencies follow a Zipf distribution
+ * (a few very frequent words and a long tail of rare words) like natural language text.
+ */
+public class SyntheticText
+{
+    //region fields
+    private final String[] _Vocabulary;
+    private final double[] _Cumulative;
+    private final Random _Rnd;
+    //endregion fields
+
+    //region ctors
+    /**
+     * Class constructor
+     * @param vocabularySize Number of distinct words
+     * @param zipfExponent Skew of the word distribution (1.0 is typical for natural language)
+     * @param seed Seed of the random generator so that equal parameters generate equal text
+     */
+    public SyntheticText(int vocabularySize, double zipfExponent, long seed)
+    {
+        _Rnd = new Random(seed);
+        _Vocabulary = new String[vocabularySize];
+        _Cumulative = new double[vocabularySize];
+
+        double sum = 0;
+        for (int i = 0; i < vocabularySize; i++)
+        {
+            _Vocabulary[i] = MakeWord(i);
+            sum += 1.0 / Math.pow(i + 1, zipfExponent);
+            _Cumulative[i] = sum;
+        }
+
+        for (int i = 0; i < vocabularySize; i++)
+            _Cumulative[i] /= sum;
+    }
+    //endregion ctors
+
+    //region properties
+    /**
+     * Gets the number of distinct words.
+     * @return
+     */
+    public int VocabularySize() { return _Vocabulary.length; }
+
+    /**
+     * Gets the word with the given frequency rank (0 is the most frequent word).
+     * @param rank
+     * @return
+     */
+    public String Word(int rank) { return _Vocabulary[rank]; }
+    //endregion properties
+
+    //region methods
+    /**
+     * Gets the next random word.
+     * @return
+     */
+    public String NextWord()
+    {
+        double u = _Rnd.nextDouble();
+        int lo = 0, hi = _Cumulative.length - 1;
+        while (lo < hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            if (_Cumulative[mid] < u)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+
+        return _Vocabulary[lo];
+    }
+
+    /**
+     * Gets the words of the next random document.
+     * @param wordCount
+     * @return
+     */
+    public String[] NextDocument(int wordCount)
+    {
+        String[] words = new String[wordCount];
+        for (int i = 0; i < wordCount; i++)
+            words[i] = NextWord();
+
+        return words;
+    }
+
+    /**
+     * Gets a number of random documents.
+     * @param docCount
+     * @param wordCount Words per document
+     * @return
+     */
+    public String[][] NextDocuments(int docCount, int wordCount)
+    {
+        String[][] docs = new String[docCount][];
+        for (int i = 0; i < docCount; i++)
+            docs[i] = NextDocument(wordCount);
+
+        return docs;
+    }
+
+    /**
+     * Gets a random integer in [0, bound).
+     * @param bound
+     * @return
+     */
+    public int NextInt(int bound) { return _Rnd.nextInt(bound); }
+
+    /**
+     * Builds a pronounceable lower case word for a rank (e.g. 'bakedo').
+     * @param rank
+     * @return
+     */
+    private static String MakeWord(int rank)
+    {
+        final String consonants = "bdfgklmnprstvz";
+        final String vowels = "aeiou";
+
+        StringBuilder sb = new StringBuilder();
+        int n = rank;
+        do
+        {
+            sb.append(consonants.charAt(n % consonants.length()));
+            n /= consonants.length();
+            sb.append(vowels.charAt(n % vowels.length()));
+            n /= vowels.length();
+        }
+        while (n > 0);
+
+        return sb.toString();
+    }
+    //endregion methods
+}
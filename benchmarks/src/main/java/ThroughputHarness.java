@@ -0,0 +1,174 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Map;
+
+import Benchmarks.CorpusGenerator;
+import ProgramObjects.ProgramArgs;
+import ProgramObjects.RunMetrics;
+
+/**
+ * Runs the complete PhraseTractor pipeline on generated corpora of one or more sizes and reports rows/s, MB/s,
+ * peak heap and the wall time of each processing phase (the tool also writes its full metrics report into
+ * the output directory of each corpus).
+ *
+ * Corpora are generated with {@link CorpusGenerator} into '&lt;dir&gt;/rows_&lt;n&gt;' (and re-used if they exist)
+ * and each result is appended to '&lt;dir&gt;/throughput.csv'. Additional config properties (e.g. ReadThreads=4)
+ * are passed with -set and all CorpusGenerator options (-words, -vocabulary, ...) are passed through.
+ *
+ * Usage: java -Xmx16g -cp benchmarks.jar ThroughputHarness -dir dir [-rows 1000000,10000000,100000000]
+ *        [-set Property=Value ...] [-regenerate] [-verbose] [CorpusGenerator options]
+ */
+public class ThroughputHarness
+{
+    public static void main(String[] args) throws Exception
+    {
+        CorpusGenerator generator = new CorpusGenerator();
+        ArrayList<String> properties = new ArrayList<String>();
+        String dir = null;
+        String rowCounts = "1000000";
+        boolean regenerate = false, verbose = false;
+
+        for (int i = 0; i < args.length; i++)
+        {
+            String value = (i + 1 < args.length ? args[i + 1] : null);
+            switch (args[i])
+            {
+                case "-dir":        dir = value; i++; break;
+                case "-rows":       rowCounts = value; i++; break;
+                case "-set":        properties.add(value); i++; break;
+                case "-regenerate": regenerate = true; break;
+                case "-verbose":    verbose = true; break;
+                case "-words":      generator.setWords(Integer.parseInt(value)); i++; break;
+                case "-vocabulary": generator.setVocabulary(Integer.parseInt(value)); i++; break;
+                case "-zipf":       generator.setZipf(Double.parseDouble(value)); i++; break;
+                case "-phraseKeys": generator.setPhraseKeys(Integer.parseInt(value)); i++; break;
+                case "-boolKeys":   generator.setBoolKeys(Integer.parseInt(value)); i++; break;
+                case "-regexKeys":  generator.setRegexKeys(Integer.parseInt(value)); i++; break;
+                case "-seed":       generator.setSeed(Long.parseLong(value)); i++; break;
+
+                default:
+                    System.out.printf("ERROR: Unrecognized command line option '%s'\n", args[i]);
+                    return;
+            }
+        }
+
+        if (dir == null)
+        {
+            System.out.printf("ERROR: Missing working directory (-dir dir)\n");
+            return;
+        }
+
+        for (String rowCount : rowCounts.split(","))
+        {
+            generator.setRows(Long.parseLong(rowCount.trim()));
+            File corpusDir = new File(dir, "rows_" + generator.getRows());
+
+            if (regenerate || new File(corpusDir, CorpusGenerator.TEXT_FILE).exists() == false)
+            {
+                System.out.printf("Generating %d rows into '%s'\n", generator.getRows(), corpusDir.getPath());
+                generator.Generate(corpusDir);
+            }
+
+            File config = WriteConfig(corpusDir, properties);
+            RunOnce(config, generator.getRows(), new File(corpusDir, CorpusGenerator.TEXT_FILE).length(), new File(dir, "throughput.csv"), verbose);
+        }
+    }
+
+    /**
+     * Writes the config of the generated corpus plus the additional properties into a harness config file.
+     * @param corpusDir
+     * @param properties
+     * @return
+     * @throws IOException
+     */
+    private static File WriteConfig(File corpusDir, ArrayList<String> properties) throws IOException
+    {
+        byte[] generated = java.nio.file.Files.readAllBytes(new File(corpusDir, CorpusGenerator.CONFIG_FILE).toPath());
+        File config = new File(corpusDir, "harness.config");
+
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(config), StandardCharsets.UTF_8)))
+        {
+            writer.write(new String(generated, StandardCharsets.UTF_8));
+            for (String property : properties)
+                writer.write(property + "\n");
+        }
+
+        return config;
+    }
+
+    /**
+     * Runs PhraseTractor once on a config file, prints the results and appends them to the results CSV file.
+     * @param config
+     * @param rows
+     * @param bytes
+     * @param resultFile
+     * @param verbose
+     * @throws Exception
+     */
+    private static void RunOnce(File config, long rows, long bytes, File resultFile, boolean verbose) throws Exception
+    {
+        PrintStream console = System.out;
+        if (verbose == false)     // Silence the progress output of the tool
+        {
+            System.setOut(new PrintStream(new OutputStream() { @Override public void write(int b) { } }));
+        }
+
+        RunMetrics metrics = new RunMetrics();
+        int exitCode;
+        long peakHeap;
+        try
+        {
+            ProgramArgs progArgs = ProgramArgs.readConfigFromPropertiesFile(new String[] { "-config", config.getPath() });
+            if (progArgs.getError() != null)
+            {
+                System.setOut(console);
+                progArgs.getError().printDetails();
+                return;
+            }
+
+            System.gc();
+
+            exitCode = PhraseTractor.Run(progArgs, metrics);
+            peakHeap = metrics.getPeakHeapBytes();
+        }
+        finally
+        {
+            System.setOut(console);
+        }
+
+        double seconds = metrics.getTotalNanos() / 1e9;
+        double megaBytes = bytes / (1024.0 * 1024.0);
+
+        System.out.printf("\n%,d rows (%.1f MB) from '%s'%s\n", rows, megaBytes, config.getPath(), (exitCode == 0 ? "" : " FAILED with exit code " + exitCode));
+        System.out.printf("  %-22s %10.2f s\n", "Total", seconds);
+        for (Map.Entry<String, Long> phase : metrics.getPhaseNanos().entrySet())
+            System.out.printf("  %-22s %10.2f s\n", phase.getKey(), phase.getValue() / 1e9);
+
+        System.out.printf("  %-22s %,10.0f\n", "Rows/s", rows / seconds);
+        System.out.printf("  %-22s %10.1f\n", "MB/s", megaBytes / seconds);
+        System.out.printf("  %-22s %10.1f MB\n", "Peak heap", peakHeap / (1024.0 * 1024.0));
+        System.out.printf("  %-22s %10.2f s (%d collections)\n", "GC", metrics.getGcNanos() / 1e9, metrics.getGcCount());
+
+        boolean header = (resultFile.exists() == false);
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(resultFile, true), StandardCharsets.UTF_8)))
+        {
+            if (header)
+                writer.write("rows|bytes|exit_code|total_s|rows_per_s|mb_per_s|peak_heap_mb|phases\n");
+
+            StringBuilder phases = new StringBuilder();
+            for (Map.Entry<String, Long> phase : metrics.getPhaseNanos().entrySet())
+                phases.append(phases.length() > 0 ? "," : "").append(phase.getKey()).append('=').append(String.format(Locale.ROOT, "%.3f", phase.getValue() / 1e9));
+
+            writer.write(String.format(Locale.ROOT, "%d|%d|%d|%.3f|%.0f|%.2f|%.1f|%s\n", rows, bytes, exitCode, seconds, rows / seconds, megaBytes / seconds,
+                                       peakHeap / (1024.0 * 1024.0), phases));
+        }
+    }
+}
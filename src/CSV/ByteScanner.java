@@ -0,0 +1,171 @@
+package CSV;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Locates the positions of up to 2 structural bytes (e.g. separator and newline) in a buffer of UTF-8 bytes.
+ *
+ * Two implementations are available and one is selected once at program startup via {@link #Select(String)}:
+ * <ul>
+ * <li>"swar" (default) tests 8 bytes at a time in a 64-bit word (SIMD within a register),</li>
+ * <li>"scalar" tests one byte at a time.</li>
+ * </ul>
+ * Both implementations are exact and return identical positions.
+ */
+public abstract class ByteScanner
+{
+    private static ByteScanner _Selected = new SwarScanner();
+
+    //region methods
+    /**
+     * Gets the name of this implementation.
+     * @return
+     */
+    public abstract String getName();
+
+    /**
+     * Scans {@param buf} in the range [0, len) for bytes equal to {@param a} or {@param b}
+     * and stores their positions in ascending order in {@param positions}.
+     * @param buf
+     * @param len
+     * @param a
+     * @param b
+     * @param positions Reusable buffer that receives the positions (previous content is cleared).
+     */
+    public abstract void Scan(byte[] buf, int len, byte a, byte b, Positions positions);
+
+    /**
+     * Gets the implementation selected for this run.
+     * @return
+     */
+    public static ByteScanner Get() { return _Selected; }
+
+    /**
+     * Selects the implementation used for this run ("swar" or "scalar") or the default
+     * if {@param mode} is null or empty.
+     * @param mode
+     * @throws IllegalArgumentException
+     */
+    public static void Select(String mode) throws IllegalArgumentException
+    {
+        _Selected = Create(mode);
+    }
+
+    /**
+     * Creates an implementation by its name ("swar" or "scalar") or the default if {@param mode} is null or empty.
+     * @param mode
+     * @return
+     * @throws IllegalArgumentException
+     */
+    public static ByteScanner Create(String mode) throws IllegalArgumentException
+    {
+        if (mode == null || mode.trim().length() == 0)
+            return new SwarScanner();
+
+        switch (mode.trim().toLowerCase())
+        {
+            case "swar":
+                return new SwarScanner();
+
+            case "scalar":
+                return new ScalarScanner();
+
+            default: throw new IllegalArgumentException(String.format("Unknown byte scan mode '%s' (expected 'swar' or 'scalar').", mode));
+        }
+    }
+    //endregion methods
+
+    /** Growable list of byte positions that is reused between scans. */
+    public static final class Positions
+    {
+        private int[] _Items = new int[1024];
+        private int _Count = 0;
+
+        /** Gets the number of positions found by the last scan. */
+        public int Count() { return _Count; }
+
+        /** Gets the position at index {@param i}. */
+        public int Get(int i) { return _Items[i]; }
+
+        void Clear() { _Count = 0; }
+
+        void Add(int pos)
+        {
+            if (_Count == _Items.length)
+                _Items = Arrays.copyOf(_Items, _Count * 2);
+
+            _Items[_Count++] = pos;
+        }
+    }
+
+    /** Tests one byte at a time. */
+    static final class ScalarScanner extends ByteScanner
+    {
+        @Override
+        public String getName() { return "scalar"; }
+
+        @Override
+        public void Scan(byte[] buf, int len, byte a, byte b, Positions positions)
+        {
+            positions.Clear();
+            for (int i = 0; i < len; i++)
+            {
+                byte c = buf[i];
+                if (c == a || c == b)
+                    positions.Add(i);
+            }
+        }
+    }
+
+    /** Tests 8 bytes at a time by reading a 64-bit word and computing an exact per byte match mask. */
+    static final class SwarScanner extends ByteScanner
+    {
+        private static final long LOW7 = 0x7F7F7F7F7F7F7F7FL;
+        private static final long ONES = 0x0101010101010101L;
+
+        @Override
+        public String getName() { return "swar"; }
+
+        @Override
+        public void Scan(byte[] buf, int len, byte a, byte b, Positions positions)
+        {
+            positions.Clear();
+            final ByteBuffer words = ByteBuffer.wrap(buf).order(ByteOrder.LITTLE_ENDIAN);
+            final long patternA = (a & 0xFFL) * ONES;
+            final long patternB = (b & 0xFFL) * ONES;
+
+            int i = 0;
+            for (int end = len - 7; i < end; i += 8)
+            {
+                long w = words.getLong(i);
+                long mask = ZeroBytes(w ^ patternA) | ZeroBytes(w ^ patternB);
+
+                while (mask != 0)   // High bit of each matching byte is set
+                {
+                    positions.Add(i + (Long.numberOfTrailingZeros(mask) >>> 3));
+                    mask &= mask - 1;
+                }
+            }
+
+            for (; i < len; i++)    // Remaining tail bytes
+            {
+                byte c = buf[i];
+                if (c == a || c == b)
+                    positions.Add(i);
+            }
+        }
+
+        /**
+         * Gets a mask with the high bit set in each byte of {@param x} that is zero (exact, no false positives).
+         * @param x
+         * @return
+         */
+        private static long ZeroBytes(long x)
+        {
+            long t = (x & LOW7) + LOW7;
+            return ~(t | x | LOW7);
+        }
+    }
+}
@@ -15,8 +15,11 @@ public class FromCSV
     private final String _Filename;
     private final char _Separator;
     private final boolean _Header;
+    private final int _ReadThreads;
+    private final Reader _Source;
 
     private BufferedReader _bufreader = null;
+    private MappedChunkReader _mappedreader = null;
     private int _lineNumber = 0;
     private String[] _HeaderRow;
 
@@ -25,12 +28,44 @@ public class FromCSV
      * @param fileName
      * @param separator
      * @param header
+     * @param readThreads Number of threads used to decode the file. A value larger than 1 memory maps the file
+     * and decodes newline aligned chunks in parallel (see {@link MappedChunkReader}) while rows are still returned
+     * in file order.
      */
-    public FromCSV(String fileName, char separator, boolean header)
+    public FromCSV(String fileName, char separator, boolean header, int readThreads)
     {
         _Filename = fileName;
         _Separator = separator;
         _Header = header;
+        _ReadThreads = readThreads;
+        _Source = null;
+    }
+
+    /**
+     * Class constructor from parameters.
+     * @param fileName
+     * @param separator
+     * @param header
+     */
+    public FromCSV(String fileName, char separator, boolean header)
+    {
+        this(fileName, separator, header, 1);
+    }
+
+    /**
+     * Class constructor on a text that is not stored in a file (e.g. the body of a request).
+     * The text can be read only once.
+     * @param source
+     * @param separator
+     * @param header
+     */
+    public FromCSV(Reader source, char separator, boolean header)
+    {
+        _Filename = null;
+        _Separator = separator;
+        _Header = header;
+        _ReadThreads = 1;
+        _Source = source;
     }
 
     /** Class destructor */
@@ -56,8 +91,8 @@ public class FromCSV
     {
         try  // Sanity check for existance of file to be processed
         {
-            File file = new File(_Filename);
-            if(file.exists() == false)
+            File file = (_Source == null ? new File(_Filename) : null);
+            if(file != null && file.exists() == false)
                 return (new ErrorObject(String.format("ERROR file '%s' does not exist in file system or cannot be accessed.", _Filename)
                                                     , ErrorSeverity.ERROR));
         }
@@ -66,9 +101,25 @@ public class FromCSV
         try {
                 this.Close();
                 
-                if (_bufreader == null) // create a reader
+                if (_ReadThreads > 1) // create a parallel reader on a memory mapped file
                 {
-                    _bufreader = Files.newBufferedReader(Paths.get(_Filename), StandardCharsets.UTF_8);
+                    _mappedreader = new MappedChunkReader(_Filename, _Separator, _ReadThreads);
+                    _HeaderRow = null;
+
+                    if (_Header) // Read the header and skip it for output since users usually want the data rows :-)
+                    {
+                        String[] tokens;
+                        if ((tokens = _mappedreader.NextRow()) != null)
+                        {
+                            _HeaderRow = tokens;
+                            _lineNumber++;
+                        }
+                    }
+                }
+                else if (_bufreader == null) // create a reader
+                {
+                    _bufreader = (_Source != null ? new BufferedReader(_Source)
+                                                  : Files.newBufferedReader(Paths.get(_Filename), StandardCharsets.UTF_8));
                     _HeaderRow = null;
 
                     if (_Header) // Read the header and skip it for output since users usually want the data rows :-)
@@ -76,7 +127,7 @@ public class FromCSV
                         String line;
                         if ((line = _bufreader.readLine()) != null)
                         {
-                            _HeaderRow = line.split(String.valueOf((_Separator == '|' ? "\\|" : _Separator)));
+                            _HeaderRow = line.split(SplitExpression(_Separator));
                             _lineNumber++;
                         }
                     }
@@ -149,13 +200,19 @@ public class FromCSV
 
         // read the file line by line
         String line="-1";
+        String[] tokens = null;
         try
         {
-            if ((line = _bufreader.readLine()) != null)
+            if (_mappedreader != null)
+                tokens = _mappedreader.NextRow();
+            else if ((line = _bufreader.readLine()) != null)
             {
-                    // convert line into tokens based on separator (escape pipe for Regex if present)
-                    String[] tokens = line.split(String.valueOf((_Separator == '|' ? "\\|" : _Separator)));
+                // convert line into tokens based on separator (escape pipe for Regex if present)
+                tokens = line.split(SplitExpression(_Separator));
+            }
 
+            if (tokens != null)
+            {
                     if (_HeaderRow == null) // Generate artificial header if none was given
                     {
                         _HeaderRow = new String[tokens.length];
@@ -176,6 +233,9 @@ public class FromCSV
         {
             System.out.printf("An exception occurred in FromCSV.ReadLine() when reading line %d\n", _lineNumber);
 
+            if (_mappedreader != null && tokens != null)
+                line = String.join(String.valueOf(_Separator), tokens);
+
             System.out.printf("Header content: ");
             for (int i=0; i< _HeaderRow.length; i++)
                 System.out.printf("'%s' ", _HeaderRow[i]);
@@ -200,5 +260,24 @@ public class FromCSV
             _lineNumber = 0;
             _HeaderRow = null;
         }
+
+        if (_mappedreader != null)
+        {
+            _mappedreader.Close();
+            _mappedreader = null;
+            _lineNumber = 0;
+            _HeaderRow = null;
+        }
+    }
+
+    /**
+     * Gets the regular expression that is used to split a line of text on the given separator
+     * (escape pipe for Regex if present).
+     * @param separator
+     * @return
+     */
+    public static String SplitExpression(char separator)
+    {
+        return String.valueOf((separator == '|' ? "\\|" : separator));
     }
 }
\ No newline at end of file
@@ -0,0 +1,313 @@
+package CSV;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import ProgramObjects.Events.CsvReadChunkEvent;
+
+/**
+ * Reads a (very large) CSV file by memory mapping it and splitting it into newline aligned chunks
+ * which are decoded and split into tokens by a pool of worker threads.
+ *
+ * A line ends at a line feed ('\n'), a carriage return ('\r') or a carriage return followed by a line feed
+ * as in BufferedReader.readLine() and a chunk never ends between the two bytes of a CR/LF pair.
+ * Chunks are always handed out in file order (see {@link #NextRow()}) - so the rows observed by
+ * the caller are identical to reading the file line by line with a BufferedReader.
+ */
+public class MappedChunkReader
+{
+    /** Default size of a chunk that is decoded by one worker thread. */
+    public static final int DEFAULT_CHUNK_SIZE = 16 * 1024 * 1024;
+
+    /** Size of the window that is mapped when searching for the end of a line at a chunk boundary. */
+    private static final int SCAN_WINDOW_SIZE = 64 * 1024;
+
+    //region fields
+    private final String _FileName;
+    private final FileChannel _Channel;
+    private final long _FileSize;
+    private final char _Separator;
+    private final int _ChunkSize;
+    private final int _MaxPendingChunks;
+    private final ExecutorService _Pool;
+    private final ArrayDeque<Future<String[][]>> _Pending;
+
+    private long _NextChunkStart = 0;
+    private String[][] _CurrentRows = null;
+    private int _CurrentRowIdx = 0;
+    //endregion fields
+
+    //region ctors
+    /**
+     * Class constructor from parameters.
+     * @param fileName
+     * @param separator
+     * @param threads Number of worker threads used to decode chunks in parallel.
+     * @param chunkSize Approximate number of bytes per chunk (chunks are extended to the next line terminator).
+     * @throws IOException
+     */
+    public MappedChunkReader(String fileName, char separator, int threads, int chunkSize) throws IOException
+    {
+        _FileName = fileName;
+        _Channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+        _FileSize = _Channel.size();
+        _Separator = separator;
+        _ChunkSize = Math.max(chunkSize, SCAN_WINDOW_SIZE);
+        _MaxPendingChunks = 2 * Math.max(threads, 1);   // Bound memory to a few decoded chunks per thread
+        _Pending = new ArrayDeque<Future<String[][]>>();
+        _Pool = Executors.newFixedThreadPool(Math.max(threads, 1), new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "MappedChunkReader");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Class constructor from parameters with default chunk size.
+     * @param fileName
+     * @param separator
+     * @param threads
+     * @throws IOException
+     */
+    public MappedChunkReader(String fileName, char separator, int threads) throws IOException
+    {
+        this(fileName, separator, threads, DEFAULT_CHUNK_SIZE);
+    }
+    //endregion ctors
+
+    //region methods
+    /**
+     * Gets the tokens of the next line in the file (split on separator in the same way as
+     * String.split() would do it) or null if the end of the file is reached.
+     * @return
+     * @throws IOException
+     */
+    public String[] NextRow() throws IOException
+    {
+        while (_CurrentRows == null || _CurrentRowIdx >= _CurrentRows.length)
+        {
+            FillPending();
+
+            Future<String[][]> next = _Pending.poll();
+            if (next == null)
+                return null;     // End of file reached and all chunks are consumed
+
+            try
+            {
+                _CurrentRows = next.get();
+                _CurrentRowIdx = 0;
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            catch (ExecutionException e)
+            {
+                throw new IOException("Error decoding chunk in MappedChunkReader", e.getCause());
+            }
+        }
+
+        return _CurrentRows[_CurrentRowIdx++];
+    }
+
+    /**
+     * Close the file and stop all worker threads.
+     * @throws IOException
+     */
+    public void Close() throws IOException
+    {
+        _Pool.shutdownNow();
+        _Pending.clear();
+        _CurrentRows = null;
+        _Channel.close();
+    }
+
+    /**
+     * Submits chunks to the worker pool until the maximum number of pending chunks is reached.
+     * @throws IOException
+     */
+    private void FillPending() throws IOException
+    {
+        while (_Pending.size() < _MaxPendingChunks && _NextChunkStart < _FileSize)
+        {
+            final long start = _NextChunkStart;
+            final long end = FindChunkEnd(start);
+            _NextChunkStart = end;
+
+            _Pending.add(_Pool.submit(new Callable<String[][]>()
+            {
+                @Override
+                public String[][] call() throws Exception
+                {
+                    return DecodeChunk(start, end);
+                }
+            }));
+        }
+    }
+
+    /**
+     * Finds the end (exclusive) of a chunk starting at {@param start} such that it ends right after a line
+     * terminator (LF, CR or CR/LF) or at the end of the file.
+     * @param start
+     * @return
+     * @throws IOException
+     */
+    private long FindChunkEnd(long start) throws IOException
+    {
+        long pos = start + _ChunkSize;
+        if (pos >= _FileSize)
+            return _FileSize;
+
+        while (pos < _FileSize)
+        {
+            int len = (int)Math.min(SCAN_WINDOW_SIZE, _FileSize - pos);
+            int mapped = (int)Math.min(len + 1, _FileSize - pos);   // Look one byte ahead to keep a CR/LF pair together
+            MappedByteBuffer window = _Channel.map(FileChannel.MapMode.READ_ONLY, pos, mapped);
+
+            for (int i = 0; i < len; i++)
+            {
+                byte b = window.get(i);
+                if (b == '\n')
+                    return pos + i + 1;
+
+                if (b == '\r')
+                    return pos + i + (i + 1 < mapped && window.get(i + 1) == '\n' ? 2 : 1);
+            }
+
+            pos += len;
+        }
+
+        return _FileSize;
+    }
+
+    /**
+     * Maps and decodes one chunk of the file into lines of tokens.
+     * @param start
+     * @param end
+     * @return
+     * @throws IOException
+     */
+    private String[][] DecodeChunk(long start, long end) throws IOException
+    {
+        CsvReadChunkEvent event = new CsvReadChunkEvent();
+        event.begin();
+
+        int len = (int)(end - start);
+        byte[] buf = new byte[len];
+        MappedByteBuffer mapped = _Channel.map(FileChannel.MapMode.READ_ONLY, start, len);
+        mapped.get(buf, 0, len);
+
+        // Locate all separators and line feeds in one pass and all carriage returns in another pass over the chunk
+        final boolean byteSeparator = (_Separator < 0x80);
+        final byte sep = (byteSeparator ? (byte)_Separator : (byte)'\n');
+        ByteScanner.Positions positions = new ByteScanner.Positions();
+        ByteScanner.Get().Scan(buf, len, sep, (byte)'\n', positions);
+        ByteScanner.Positions returns = new ByteScanner.Positions();
+        ByteScanner.Get().Scan(buf, len, (byte)'\r', (byte)'\r', returns);
+
+        ArrayList<String[]> rows = new ArrayList<String[]>();
+        ArrayList<String> fields = new ArrayList<String>();
+        int lineStart = 0;
+        int fieldStart = 0;
+        for (int p = 0, r = 0, count = positions.Count(), crs = returns.Count(); lineStart < len; )
+        {
+            int pos = (p < count ? positions.Get(p) : len);
+            int cr = (r < crs ? returns.Get(r) : len);
+            if (cr < pos)   // Merge both lists of positions in ascending order
+            {
+                pos = cr;
+                r++;
+            }
+            else
+                p++;
+
+            if (pos < len && buf[pos] != '\n' && buf[pos] != '\r')   // Separator inside of the current line
+            {
+                fields.add(Decode(buf, fieldStart, pos));
+                fieldStart = pos + 1;
+                continue;
+            }
+
+            if (byteSeparator)
+                rows.add(SplitLine(buf, lineStart, fieldStart, pos, fields));
+            else
+                rows.add(Decode(buf, lineStart, pos).split(FromCSV.SplitExpression(_Separator)));
+
+            fields.clear();
+            if (pos + 1 < len && buf[pos] == '\r' && buf[pos + 1] == '\n')   // CR/LF ends one line like BufferedReader.readLine()
+            {
+                pos++;
+                p++;    // The line feed is the next position in the list of separators and line feeds
+            }
+
+            lineStart = fieldStart = pos + 1;
+        }
+
+        event.end();
+        if (event.shouldCommit())
+        {
+            event.file = _FileName;
+            event.offset = start;
+            event.bytes = len;
+            event.rows = rows.size();
+            event.commit();
+        }
+
+        return rows.toArray(new String[rows.size()][]);
+    }
+
+    /**
+     * Completes the split of one line with the same semantics as String.split()
+     * (trailing empty tokens are removed, a line without separator results in 1 token).
+     * @param buf
+     * @param lineStart
+     * @param fieldStart Start of the last field in the line
+     * @param lineEnd
+     * @param fields Tokens decoded before the last separator in this line
+     * @return
+     */
+    private static String[] SplitLine(byte[] buf, int lineStart, int fieldStart, int lineEnd, ArrayList<String> fields)
+    {
+        if (fields.size() == 0)    // No separator found returns line 'as is'
+            return new String[] { Decode(buf, lineStart, lineEnd) };
+
+        fields.add(Decode(buf, fieldStart, lineEnd));
+
+        int count = fields.size();
+        while (count > 0 && fields.get(count - 1).length() == 0)
+            count--;
+
+        return fields.subList(0, count).toArray(new String[count]);
+    }
+
+    /**
+     * Decodes a range of UTF-8 bytes into a String.
+     * @param buf
+     * @param start
+     * @param end
+     * @return
+     */
+    private static String Decode(byte[] buf, int start, int end)
+    {
+        return new String(buf, start, end - start, StandardCharsets.UTF_8);
+    }
+    //endregion methods
+}
@@ -3,15 +3,24 @@ package CSV;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 
+import ProgramObjects.Events.OutputWriteEvent;
+
 /** Store tabulated data in a CSV file. */
 public class ToCSV
 {
+	/** Size of the buffer that is written to a streamed file when it is full */
+	private static final int STREAM_BUFFER_SIZE = 1024 * 1024;
+
 	private final char _deli;
 	private final String[] _headers;
 	private final java.lang.StringBuilder _CSVcontent;
 	private boolean _headerWritten;
 	private int _lines = 0;
 
+	private BufferedWriter _writer = null;
+	private String _filename = null;
+	private OutputWriteEvent _event = null;
+
 	/**
 	 * Class constructor
 	 * @param headers
@@ -24,6 +33,25 @@ public class ToCSV
 		_CSVcontent = new java.lang.StringBuilder();
 	}
 
+	/**
+	 * Class constructor for a file that is written while lines are added (instead of buffering
+	 * the complete file in memory). The file is complete after calling {@link #Close()}.
+	 * @param headers
+	 * @param deli
+	 * @param filename
+	 * @throws IOException
+	 */
+	public ToCSV(String[] headers, char deli, String filename) throws IOException
+	{
+		this(headers, deli);
+
+		_event = new OutputWriteEvent();
+		_event.begin();
+
+		_filename = filename;
+		_writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(filename), StandardCharsets.UTF_8));
+	}
+
 	/**
 	 * Class constructor
 	 * @param headers
@@ -55,6 +83,9 @@ public class ToCSV
 	 */
 	public void WriteFile(String filename) throws IOException
 	{
+		OutputWriteEvent event = new OutputWriteEvent();
+		event.begin();
+
 		BufferedWriter writer = null;
 		try
 		{
@@ -72,6 +103,15 @@ public class ToCSV
 				writer = null;
 			}
 		}
+
+		event.end();
+		if (event.shouldCommit())
+		{
+			event.file = filename;
+			event.lines = _lines;
+			event.bytes = new File(filename).length();
+			event.commit();
+		}
 	}
 
 	/**
@@ -93,6 +133,51 @@ public class ToCSV
 
 		_CSVcontent.append('\n');
 		_lines++;
+
+		if (_writer != null && _CSVcontent.length() >= STREAM_BUFFER_SIZE)
+		{
+			try
+			{
+				_writer.write(_CSVcontent.toString());
+			}
+			catch (IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+
+			_CSVcontent.setLength(0);
+		}
+	}
+
+	/**
+	 * Writes the remaining lines and closes a file that is written while lines are added
+	 * (see {@link #ToCSV(String[], char, String)}).
+	 * @throws IOException
+	 */
+	public void Close() throws IOException
+	{
+		if (_writer == null)
+			return;
+
+		try
+		{
+			_writer.write(_CSVcontent.toString());
+			_CSVcontent.setLength(0);
+		}
+		finally
+		{
+			_writer.close();
+			_writer = null;
+		}
+
+		_event.end();
+		if (_event.shouldCommit())
+		{
+			_event.file = _filename;
+			_event.lines = _lines;
+			_event.bytes = new File(_filename).length();
+			_event.commit();
+		}
 	}
 
 	/**
@@ -1,17 +1,49 @@
 package Documents;
 
-import java.util.HashSet;
-import java.util.TreeMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 
+/**
+ * Stores the queries (labels) that matched each document (identified by its dense document id, see {@link RowIds}).
+ *
+ * Each distinct query string is stored once and is referenced by a dense query id. Matches are
+ * collected as (document id, query id) pairs and are compacted on demand into a sorted array of
+ * distinct document ids that points into a sorted array of query ids per document. The comma joined
+ * query string of a document is only built when it is written into the output.
+ *
+ * All methods are synchronized so that keywords can be evaluated by several threads that record their
+ * matches in the same collection (pairs are sorted on compaction, so the order of the calls does not matter).
+ */
 public class DocQueries {
     //#region fields
-    private final TreeMap<Long, HashSet<String>>  _DocQs;
+    private final ArrayList<String> _Queries;
+    private final HashMap<String, Integer> _QueryIds;
+
+    // Pairs added since the last compaction
+    private int[] _PendingDocs;
+    private int[] _PendingQueries;
+    private int _PendingCount;
+
+    // Compacted pairs: query ids of document _DocIds[i] are _QueryRefs[_Starts[i] .. _Starts[i+1]-1]
+    private int[] _DocIds;
+    private int[] _Starts;
+    private int[] _QueryRefs;
     //#endregion fields
 
     //#region ctor
     public DocQueries()
     {
-        _DocQs = new TreeMap<Long, HashSet<String>>(); //new AscDuplicateKeyComparer<long>()
+        _Queries = new ArrayList<String>();
+        _QueryIds = new HashMap<String, Integer>();
+
+        _PendingDocs = new int[1024];
+        _PendingQueries = new int[1024];
+        _PendingCount = 0;
+
+        _DocIds = new int[0];
+        _Starts = new int[] { 0 };
+        _QueryRefs = new int[0];
     }
     //#endregion ctor
 
@@ -20,34 +52,232 @@ public class DocQueries {
      * Get Number of document Ids stored in this collection
      * @return
      */
-    public long DocumentCount() { return _DocQs.size(); };
+    public synchronized long DocumentCount() { Compact(); return _DocIds.length; };
+
+    /**
+     * Gets the number of distinct query strings stored in this collection.
+     * @return
+     */
+    public synchronized int QueryCount() { return _Queries.size(); }
     //#endregion properties
 
     //#region methods
-    public void AddDocumentQuery(long docId, String query)
+    /**
+     * Gets the dense id of a query string and registers the query string if it was not seen before.
+     * @param query
+     * @return
+     */
+    public synchronized int QueryId(String query)
     {
-        if (_DocQs.containsKey(docId))
+        Integer queryId = _QueryIds.get(query);
+        if (queryId == null)
         {
-            HashSet<String> docQ;
-            docQ = _DocQs.get(docId);
+            queryId = _Queries.size();
+            _Queries.add(query);
+            _QueryIds.put(query, queryId);
+        }
+
+        return queryId;
+    }
+
+    /**
+     * Gets the query string of a dense query id.
+     * @param queryId
+     * @return
+     */
+    public synchronized String Query(int queryId) { return _Queries.get(queryId); }
+
+    /**
+     * Records that the given query string matched the given document
+     * (the query gets a dense id on its first use, see {@link #QueryId(String)}).
+     * @param docId
+     * @param query
+     */
+    public void AddDocumentQuery(int docId, String query)
+    {
+        AddDocumentQuery(docId, QueryId(query));
+    }
 
-            if (docQ.contains(query) == false)
-                docQ.add(query);
+    /**
+     * Records that the query with the given id matched the given document
+     * (adding the same pair more than once has no effect).
+     * @param docId
+     * @param queryId
+     */
+    public synchronized void AddDocumentQuery(int docId, int queryId)
+    {
+        if (_PendingCount == _PendingDocs.length)
+        {
+            _PendingDocs = Arrays.copyOf(_PendingDocs, _PendingCount * 2);
+            _PendingQueries = Arrays.copyOf(_PendingQueries, _PendingCount * 2);
         }
-        else
+
+        _PendingDocs[_PendingCount] = docId;
+        _PendingQueries[_PendingCount] = queryId;
+        _PendingCount++;
+    }
+
+    /**
+     * Records that the query with the given id matched each of the given documents
+     * (takes the lock once for all documents of a query result).
+     * @param docIds
+     * @param queryId
+     */
+    public synchronized void AddDocumentQueries(int[] docIds, int queryId)
+    {
+        int required = _PendingCount + docIds.length;
+        if (required > _PendingDocs.length)
         {
-            HashSet<String> queries = new HashSet<String>();
-            queries.add(query);
-            _DocQs.put(docId, queries);
+            int capacity = Math.max(required, _PendingDocs.length * 2);
+            _PendingDocs = Arrays.copyOf(_PendingDocs, capacity);
+            _PendingQueries = Arrays.copyOf(_PendingQueries, capacity);
         }
+
+        System.arraycopy(docIds, 0, _PendingDocs, _PendingCount, docIds.length);
+        Arrays.fill(_PendingQueries, _PendingCount, required, queryId);
+        _PendingCount = required;
     }
 
-    public HashSet<String> TryGetDocumentQuery(long docId)
+    /**
+     * Gets the index of a document in the (sorted) collection of documents with matches or a negative value
+     * if the document has no match.
+     * @param docId
+     * @return
+     */
+    public synchronized int DocumentIndex(int docId)
     {
-        if (_DocQs.containsKey(docId) == false)
+        Compact();
+        return Arrays.binarySearch(_DocIds, docId);
+    }
+
+    /**
+     * Gets the document id at {@param docIndex} in the collection of documents with matches (ascending order).
+     * @param docIndex
+     * @return
+     */
+    public synchronized int DocumentAt(int docIndex) { Compact(); return _DocIds[docIndex]; }
+
+    /**
+     * Gets the number of distinct queries that matched the document at {@param docIndex}.
+     * @param docIndex
+     * @return
+     */
+    public synchronized int QueryCountAt(int docIndex) { Compact(); return _Starts[docIndex + 1] - _Starts[docIndex]; }
+
+    /**
+     * Gets the j-th query id (in ascending order) that matched the document at {@param docIndex}.
+     * @param docIndex
+     * @param j
+     * @return
+     */
+    public synchronized int QueryIdAt(int docIndex, int j) { Compact(); return _QueryRefs[_Starts[docIndex] + j]; }
+
+    /**
+     * Gets all query strings that matched a document joined by {@param delimiter}
+     * or null if the document was not matched by any query.
+     * @param docId
+     * @param delimiter
+     * @return
+     */
+    public synchronized String TryGetDocumentQuery(int docId, char delimiter)
+    {
+        int docIndex = DocumentIndex(docId);
+        if (docIndex < 0)
             return null;
 
-        return _DocQs.get(docId);
+        StringBuilder sb = new StringBuilder();
+        for (int i = _Starts[docIndex]; i < _Starts[docIndex + 1]; i++)
+        {
+            if (sb.length() > 0)
+                sb.append(delimiter);
+
+            sb.append(_Queries.get(_QueryRefs[i]));
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Merges all pending (document, query) pairs into the sorted and de-duplicated arrays.
+     */
+    private void Compact()
+    {
+        if (_PendingCount == 0)
+            return;
+
+        // Collect all pairs (compacted and pending) in one list
+        int total = _QueryRefs.length + _PendingCount;
+        int[] docs = new int[total];
+        int[] queries = new int[total];
+
+        int n = 0;
+        for (int d = 0; d < _DocIds.length; d++)
+        {
+            for (int i = _Starts[d]; i < _Starts[d + 1]; i++, n++)
+            {
+                docs[n] = _DocIds[d];
+                queries[n] = _QueryRefs[i];
+            }
+        }
+
+        System.arraycopy(_PendingDocs, 0, docs, n, _PendingCount);
+        System.arraycopy(_PendingQueries, 0, queries, n, _PendingCount);
+        _PendingCount = 0;
+
+        SortPairs(docs, queries);
+
+        // Count distinct documents and distinct pairs
+        int docCount = 0, pairCount = 0;
+        for (int i = 0; i < total; i++)
+        {
+            if (i == 0 || docs[i] != docs[i - 1])
+            {
+                docCount++;
+                pairCount++;
+            }
+            else if (queries[i] != queries[i - 1])
+                pairCount++;
+        }
+
+        _DocIds = new int[docCount];
+        _Starts = new int[docCount + 1];
+        _QueryRefs = new int[pairCount];
+
+        int d = -1, p = 0;
+        for (int i = 0; i < total; i++)
+        {
+            if (i == 0 || docs[i] != docs[i - 1])
+            {
+                d++;
+                _DocIds[d] = docs[i];
+                _Starts[d] = p;
+                _QueryRefs[p++] = queries[i];
+            }
+            else if (queries[i] != queries[i - 1])
+                _QueryRefs[p++] = queries[i];
+        }
+
+        _Starts[docCount] = p;
+    }
+
+    /**
+     * Sorts pairs of document id and query id by document id and then query id.
+     * @param docs
+     * @param queries
+     */
+    private static void SortPairs(int[] docs, int[] queries)
+    {
+        long[] packed = new long[docs.length];     // Sort both ids packed into one primitive long
+        for (int i = 0; i < docs.length; i++)
+            packed[i] = ((long)docs[i] << 32) | queries[i];
+
+        Arrays.sort(packed);
+
+        for (int i = 0; i < docs.length; i++)
+        {
+            docs[i] = (int)(packed[i] >>> 32);
+            queries[i] = (int)packed[i];
+        }
     }
     //#endregion methods
-}
\ No newline at end of file
+}
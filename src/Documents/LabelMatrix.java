@@ -0,0 +1,319 @@
+package Documents;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import CSV.ToCSV;
+import ProgramObjects.Events.OutputWriteEvent;
+
+/**
+ * Exports the document x query (label) assignments in {@link DocQueries} as a sparse matrix for machine learning.
+ *
+ * Rows are all indexed documents in dense document id order (the order of the text file, see {@link RowIds})
+ * and columns are the query ids of {@link DocQueries}. Documents without a match are empty rows. Supported formats are:
+ * <ul>
+ * <li>"csr" - binary compressed sparse row (little endian) that can be memory mapped:
+ *     magic "PTCSR001", int32 rows, int32 cols, int64 nnz, int64 indptr[rows+1], int32 indices[nnz]</li>
+ * <li>"libsvm" - one line per row: the 0-based row index followed by 1-based column:1 entries</li>
+ * <li>"mtx" - Matrix Market coordinate pattern format with 1-based row and column indices</li>
+ * </ul>
+ * Each export also writes a '_Columns.csv' file (column index to query string) and a '_Rows.csv' file
+ * (row index to external row id).
+ */
+public class LabelMatrix
+{
+    private static final byte[] CSR_MAGIC = "PTCSR001".getBytes(StandardCharsets.US_ASCII);
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    //region fields
+    private final DocQueries _DocQueries;
+    private final RowIds _RowIds;
+    //endregion fields
+
+    //region ctors
+    /**
+     * Class constructor
+     * @param docQueries
+     * @param rowIds
+     */
+    public LabelMatrix(DocQueries docQueries, RowIds rowIds)
+    {
+        _DocQueries = docQueries;
+        _RowIds = rowIds;
+    }
+    //endregion ctors
+
+    //region properties
+    /**
+     * Gets the number of rows (indexed documents).
+     * @return
+     */
+    public int Rows() { return _RowIds.Count(); }
+
+    /**
+     * Gets the number of columns (distinct queries).
+     * @return
+     */
+    public int Columns() { return _DocQueries.QueryCount(); }
+
+    /**
+     * Gets the number of non-zero entries (document, query assignments).
+     * @return
+     */
+    public long NonZeros()
+    {
+        long nnz = 0;
+        for (int d = 0, docs = (int)_DocQueries.DocumentCount(); d < docs; d++)
+            nnz += _DocQueries.QueryCountAt(d);
+
+        return nnz;
+    }
+    //endregion properties
+
+    //region methods
+    /**
+     * Writes the label matrix in each of the given formats with the given base file name (without extension).
+     * @param baseFileName
+     * @param formats Comma separated list of formats ("csr", "libsvm", "mtx")
+     * @throws IOException
+     */
+    public void Write(String baseFileName, String formats) throws IOException
+    {
+        boolean written = false;
+        for (String format : formats.split(","))
+        {
+            OutputWriteEvent event = new OutputWriteEvent();
+            event.begin();
+
+            String fileName;
+            switch (format.trim().toLowerCase())
+            {
+                case "csr":
+                    WriteCSR(fileName = baseFileName + ".csr");
+                break;
+
+                case "libsvm":
+                    WriteLibSvm(fileName = baseFileName + ".libsvm");
+                break;
+
+                case "mtx":
+                    WriteMatrixMarket(fileName = baseFileName + ".mtx");
+                break;
+
+                case "":
+                    continue;
+
+                default: throw new IllegalArgumentException(String.format("Unknown label matrix format '%s' (expected csr, libsvm or mtx).", format));
+            }
+
+            CommitEvent(event, fileName, Rows());
+            written = true;
+        }
+
+        if (written)
+        {
+            WriteColumns(baseFileName + "_Columns.csv");
+
+            OutputWriteEvent event = new OutputWriteEvent();
+            event.begin();
+            WriteRows(baseFileName + "_Rows.csv");
+            CommitEvent(event, baseFileName + "_Rows.csv", Rows());
+        }
+    }
+
+    /**
+     * Ends an output event and commits it with the size of the written file (if the event is recorded).
+     * @param event
+     * @param fileName
+     * @param lines
+     */
+    private static void CommitEvent(OutputWriteEvent event, String fileName, long lines)
+    {
+        event.end();
+        if (event.shouldCommit())
+        {
+            event.file = fileName;
+            event.lines = lines;
+            event.bytes = new File(fileName).length();
+            event.commit();
+        }
+    }
+
+    /**
+     * Writes the matrix in binary compressed sparse row format (see class description).
+     * @param fileName
+     * @throws IOException
+     */
+    public void WriteCSR(String fileName) throws IOException
+    {
+        final int rows = Rows();
+        final long nnz = NonZeros();
+
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+        {
+            ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+            buf.put(CSR_MAGIC);
+            buf.putInt(rows);
+            buf.putInt(Columns());
+            buf.putLong(nnz);
+
+            long ptr = 0;
+            PutLong(channel, buf, ptr);
+            for (int r = 0; r < rows; r++)
+            {
+                int d = _DocQueries.DocumentIndex(r);
+                if (d >= 0)
+                    ptr += _DocQueries.QueryCountAt(d);
+
+                PutLong(channel, buf, ptr);
+            }
+
+            // Matched documents are sorted by document id so that their queries follow in row order
+            for (int d = 0, docs = (int)_DocQueries.DocumentCount(); d < docs; d++)
+            {
+                for (int j = 0, count = _DocQueries.QueryCountAt(d); j < count; j++)
+                {
+                    if (buf.remaining() < 4)
+                        Flush(channel, buf);
+
+                    buf.putInt(_DocQueries.QueryIdAt(d, j));
+                }
+            }
+
+            Flush(channel, buf);
+        }
+    }
+
+    /**
+     * Writes the matrix in libsvm text format with the 0-based row index in the place of the target value
+     * and 1-based column indices (e.g. '1042 3:1 17:1'). The target is always numeric since external row ids
+     * can be any text - the row index maps to the external row id in the '_Rows.csv' file.
+     * @param fileName
+     * @throws IOException
+     */
+    public void WriteLibSvm(String fileName) throws IOException
+    {
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(fileName), StandardCharsets.UTF_8), BUFFER_SIZE))
+        {
+            for (int r = 0, rows = Rows(); r < rows; r++)
+            {
+                writer.write(Integer.toString(r));
+
+                int d = _DocQueries.DocumentIndex(r);
+                for (int j = 0, count = (d < 0 ? 0 : _DocQueries.QueryCountAt(d)); j < count; j++)
+                {
+                    writer.write(' ');
+                    writer.write(Integer.toString(_DocQueries.QueryIdAt(d, j) + 1));
+                    writer.write(":1");
+                }
+
+                writer.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Writes the matrix in Matrix Market coordinate pattern format (1-based indices).
+     * @param fileName
+     * @throws IOException
+     */
+    public void WriteMatrixMarket(String fileName) throws IOException
+    {
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(fileName), StandardCharsets.UTF_8), BUFFER_SIZE))
+        {
+            final int rows = Rows();
+
+            writer.write("%%MatrixMarket matrix coordinate pattern general\n");
+            writer.write("% rows: documents (see _Rows.csv), columns: queries (see _Columns.csv)\n");
+            writer.write(String.format("%d %d %d\n", rows, Columns(), NonZeros()));
+
+            for (int d = 0, docs = (int)_DocQueries.DocumentCount(); d < docs; d++)
+            {
+                String row = Integer.toString(_DocQueries.DocumentAt(d) + 1);
+                for (int j = 0, count = _DocQueries.QueryCountAt(d); j < count; j++)
+                {
+                    writer.write(row);
+                    writer.write(' ');
+                    writer.write(Integer.toString(_DocQueries.QueryIdAt(d, j) + 1));
+                    writer.write('\n');
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the (0-based) column index and query string of each column.
+     * @param fileName
+     * @throws IOException
+     */
+    public void WriteColumns(String fileName) throws IOException
+    {
+        ToCSV csvOut = new ToCSV(new String[] { "column", "query" });
+        for (int c = 0, cols = Columns(); c < cols; c++)
+            csvOut.WriteLine(new String[] { String.valueOf(c), _DocQueries.Query(c) });
+
+        csvOut.WriteFile(fileName);
+    }
+
+    /**
+     * Writes the (0-based) row index and external row id of each row.
+     * @param fileName
+     * @throws IOException
+     */
+    public void WriteRows(String fileName) throws IOException
+    {
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(fileName), StandardCharsets.UTF_8), BUFFER_SIZE))
+        {
+            writer.write("row|rowid\n");
+            for (int r = 0, rows = Rows(); r < rows; r++)
+            {
+                writer.write(Integer.toString(r));
+                writer.write('|');
+                writer.write(_RowIds.ExternalId(r));
+                writer.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Appends a long value to the buffer and flushes the buffer to the channel if it is full.
+     * @param channel
+     * @param buf
+     * @param value
+     * @throws IOException
+     */
+    private static void PutLong(FileChannel channel, ByteBuffer buf, long value) throws IOException
+    {
+        if (buf.remaining() < 8)
+            Flush(channel, buf);
+
+        buf.putLong(value);
+    }
+
+    /**
+     * Writes the content of the buffer to the channel and clears the buffer.
+     * @param channel
+     * @param buf
+     * @throws IOException
+     */
+    private static void Flush(FileChannel channel, ByteBuffer buf) throws IOException
+    {
+        buf.flip();
+        while (buf.hasRemaining())
+            channel.write(buf);
+
+        buf.clear();
+    }
+    //endregion methods
+}
@@ -0,0 +1,201 @@
+package Documents;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Assigns dense internal document ids (0, 1, 2, ...) in the order in which documents are indexed
+ * and stores the external row id of each document compactly for translation at output time.
+ *
+ * External row ids are stored in the most compact of 3 representations and the representation is
+ * upgraded when the first row id is added that does not fit:
+ * <ol>
+ * <li>identity - row id equals the dense id (generated row ids), nothing is stored,</li>
+ * <li>numeric - canonical long numbers are stored in a primitive array,</li>
+ * <li>string pool - arbitrary row ids (e.g. UUIDs) are stored as UTF-8 bytes in large pages.</li>
+ * </ol>
+ */
+public class RowIds
+{
+    private static final int PAGE_BITS = 20;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+    //region fields
+    private int _Count = 0;
+
+    private long[] _Numbers = null;             // numeric representation (null while identity)
+
+    private ArrayList<byte[]> _Pages = null;    // string pool representation (null while numeric)
+    private long[] _Addresses = null;           // page << PAGE_BITS | offset of each row id
+    private int _PageOffset = 0;
+    //endregion fields
+
+    //region ctors
+    /** Class constructor */
+    public RowIds()
+    {
+    }
+    //endregion ctors
+
+    //region properties
+    /**
+     * Gets the number of documents (dense ids) stored in this collection.
+     * @return
+     */
+    public int Count() { return _Count; }
+
+    /**
+     * Gets whether all external row ids are canonical numbers.
+     * @return
+     */
+    public boolean IsNumeric() { return _Pages == null; }
+    //endregion properties
+
+    //region methods
+    /**
+     * Adds the external row id of the next document and returns its dense document id.
+     * @param rowId
+     * @return
+     */
+    public int Add(String rowId)
+    {
+        if (_Pages == null)
+        {
+            long number = ParseCanonicalLong(rowId);
+            if (number >= 0)
+                return Add(number);
+
+            ConvertToStringPool();
+        }
+
+        AddString(rowId);
+        return _Count++;
+    }
+
+    /**
+     * Adds the numeric external row id of the next document and returns its dense document id.
+     * @param rowId
+     * @return
+     */
+    public int Add(long rowId)
+    {
+        if (_Pages != null)
+        {
+            AddString(Long.toString(rowId));
+            return _Count++;
+        }
+
+        if (_Numbers == null)
+        {
+            if (rowId == _Count)    // Still an identity mapping
+                return _Count++;
+
+            _Numbers = new long[Math.max(16, _Count * 2)];
+            for (int i = 0; i < _Count; i++)
+                _Numbers[i] = i;
+        }
+
+        if (_Count == _Numbers.length)
+            _Numbers = Arrays.copyOf(_Numbers, _Count * 2);
+
+        _Numbers[_Count] = rowId;
+        return _Count++;
+    }
+
+    /**
+     * Gets the external row id of a dense document id.
+     * @param docId
+     * @return
+     */
+    public String ExternalId(int docId)
+    {
+        if (docId < 0 || docId >= _Count)
+            throw new IndexOutOfBoundsException(String.format("Document id %d is not in range [0, %d).", docId, _Count));
+
+        if (_Pages != null)
+        {
+            long address = _Addresses[docId];
+            byte[] page = _Pages.get((int)(address >>> PAGE_BITS));
+            int offset = (int)(address & (PAGE_SIZE - 1));
+            int len = ((page[offset] & 0xFF) << 8) | (page[offset + 1] & 0xFF);
+
+            return new String(page, offset + 2, len, StandardCharsets.UTF_8);
+        }
+
+        if (_Numbers != null)
+            return Long.toString(_Numbers[docId]);
+
+        return Integer.toString(docId);
+    }
+
+    /**
+     * Appends a row id to the string pool.
+     * @param rowId
+     */
+    private void AddString(String rowId)
+    {
+        byte[] bytes = rowId.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF)
+            throw new IllegalArgumentException(String.format("Row id of %d bytes is too long (maximum is 65535 bytes).", bytes.length));
+
+        int needed = bytes.length + 2;
+        if (_Pages.size() == 0 || _PageOffset + needed > PAGE_SIZE)
+        {
+            _Pages.add(new byte[PAGE_SIZE]);
+            _PageOffset = 0;
+        }
+
+        byte[] page = _Pages.get(_Pages.size() - 1);
+        page[_PageOffset] = (byte)(bytes.length >>> 8);
+        page[_PageOffset + 1] = (byte)bytes.length;
+        System.arraycopy(bytes, 0, page, _PageOffset + 2, bytes.length);
+
+        if (_Count == _Addresses.length)
+            _Addresses = Arrays.copyOf(_Addresses, _Count * 2);
+
+        _Addresses[_Count] = ((long)(_Pages.size() - 1) << PAGE_BITS) | _PageOffset;
+        _PageOffset += needed;
+    }
+
+    /**
+     * Moves all row ids stored so far into the string pool representation.
+     */
+    private void ConvertToStringPool()
+    {
+        int count = _Count;
+        _Pages = new ArrayList<byte[]>();
+        _Addresses = new long[Math.max(16, count * 2)];
+
+        for (_Count = 0; _Count < count; _Count++)
+            AddString(_Numbers == null ? Integer.toString(_Count) : Long.toString(_Numbers[_Count]));
+
+        _Numbers = null;
+    }
+
+    /**
+     * Parses a non-negative number that is written in canonical form (no sign, no leading zeros)
+     * so that it can be written back exactly as it was read - or returns -1 if this is not possible.
+     * @param s
+     * @return
+     */
+    private static long ParseCanonicalLong(String s)
+    {
+        int len = s.length();
+        if (len == 0 || len > 18 || (len > 1 && s.charAt(0) == '0'))
+            return -1;
+
+        long value = 0;
+        for (int i = 0; i < len; i++)
+        {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9')
+                return -1;
+
+            value = value * 10 + (c - '0');
+        }
+
+        return value;
+    }
+    //endregion methods
+}
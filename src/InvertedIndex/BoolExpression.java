@@ -0,0 +1,274 @@
+package InvertedIndex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Models a boolean query expression over words and phrases, e.g.
+ * <pre>refund and not "no refund"</pre>
+ * <pre>(kündigung or storno) vertrag</pre>
+ *
+ * An expression combines words, phrases in double quotes and sub expressions in parentheses with the operators
+ * 'and', 'or' and 'not' (in any case). 'not' binds stronger than 'and' which binds stronger than 'or' and
+ * operands without an operator between them are combined with 'and'. The words of a phrase (or of a word that the
+ * RegexMask splits into several words) must occur at consecutive positions. Write an operator in double quotes
+ * to search for it as a word.
+ */
+public class BoolExpression
+{
+    public enum Operator
+    {
+         TERM
+
+        ,PHRASE
+
+        ,AND
+
+        ,OR
+
+        ,NOT
+    }
+
+    //region fields
+    private final Operator _Operator;
+    private final String[] _Words;                    // Words of a term or phrase
+    private final List<BoolExpression> _Operands;     // Operands of and, or, not
+    //endregion fields
+
+    //region ctors
+    /**
+     * Class constructor of a term or phrase.
+     * @param words
+     */
+    private BoolExpression(String[] words)
+    {
+        _Operator = (words.length == 1 ? Operator.TERM : Operator.PHRASE);
+        _Words = words;
+        _Operands = Collections.emptyList();
+    }
+
+    /**
+     * Class constructor of an operator.
+     * @param operator
+     * @param operands
+     */
+    private BoolExpression(Operator operator, List<BoolExpression> operands)
+    {
+        _Operator = operator;
+        _Words = new String[0];
+        _Operands = operands;
+    }
+    //endregion ctors
+
+    //region properties
+    public Operator getOperator() { return _Operator; }
+
+    /**
+     * Gets the words of a term (one word) or phrase (empty for operators).
+     * @return
+     */
+    public String[] getWords() { return _Words; }
+
+    /**
+     * Gets the operands of an operator (one operand for 'not', empty for terms and phrases).
+     * @return
+     */
+    public List<BoolExpression> getOperands() { return _Operands; }
+    //endregion properties
+
+    //region methods
+    /**
+     * Parses a boolean query expression.
+     * @param text
+     * @param pattern Compiled RegexMask that splits terms and phrases into words.
+     * @return
+     * @throws IllegalArgumentException if the expression is not valid.
+     */
+    public static BoolExpression Parse(String text, Pattern pattern)
+    {
+        Parser parser = new Parser(text, pattern);
+        BoolExpression expression = parser.ParseOr();
+
+        if (parser.Peek() != null)
+            throw new IllegalArgumentException(String.format("Unexpected '%s' in boolean query '%s'.", parser.Peek(), text));
+
+        return expression;
+    }
+
+    /**
+     * Gets the distinct words of all terms and phrases of this expression.
+     * @return
+     */
+    public List<String> Words()
+    {
+        LinkedHashSet<String> words = new LinkedHashSet<String>();
+        AddWords(words);
+
+        return new ArrayList<String>(words);
+    }
+
+    private void AddWords(LinkedHashSet<String> words)
+    {
+        Collections.addAll(words, _Words);
+        for (BoolExpression operand : _Operands)
+            operand.AddWords(words);
+    }
+
+    @Override
+    public String toString()
+    {
+        switch (_Operator)
+        {
+            case TERM:   return _Words[0];
+            case PHRASE: return "\"" + String.join(" ", _Words) + "\"";
+            case NOT:    return "not " + _Operands.get(0);
+            default:
+                StringBuilder sb = new StringBuilder("(");
+                for (int i = 0; i < _Operands.size(); i++)
+                    sb.append(i > 0 ? (_Operator == Operator.AND ? " and " : " or ") : "").append(_Operands.get(i));
+
+                return sb.append(')').toString();
+        }
+    }
+    //endregion methods
+
+    /**
+     * Recursive descent parser of an expression (one token of look ahead).
+     */
+    private static class Parser
+    {
+        private final String _Text;
+        private final Pattern _Pattern;
+        private final ArrayList<String> _Tokens = new ArrayList<String>();    // Phrases keep their opening quote
+        private int _Next = 0;
+
+        Parser(String text, Pattern pattern)
+        {
+            _Text = text;
+            _Pattern = pattern;
+
+            int i = 0;
+            while (i < text.length())
+            {
+                char c = text.charAt(i);
+                if (Character.isWhitespace(c))
+                    i++;
+                else if (c == '(' || c == ')')
+                    _Tokens.add(String.valueOf(text.charAt(i++)));
+                else if (c == '"')
+                {
+                    int end = text.indexOf('"', i + 1);
+                    if (end < 0)
+                        throw new IllegalArgumentException(String.format("Missing closing '\"' in boolean query '%s'.", text));
+
+                    _Tokens.add(text.substring(i, end));
+                    i = end + 1;
+                }
+                else
+                {
+                    int start = i;
+                    while (i < text.length() && Character.isWhitespace(text.charAt(i)) == false && "()\"".indexOf(text.charAt(i)) < 0)
+                        i++;
+
+                    _Tokens.add(text.substring(start, i));
+                }
+            }
+        }
+
+        String Peek() { return (_Next < _Tokens.size() ? _Tokens.get(_Next) : null); }
+
+        BoolExpression ParseOr()
+        {
+            ArrayList<BoolExpression> operands = new ArrayList<BoolExpression>();
+            operands.add(ParseAnd());
+
+            while (IsOperator(Peek(), "or"))
+            {
+                _Next++;
+                operands.add(ParseAnd());
+            }
+
+            return (operands.size() == 1 ? operands.get(0) : new BoolExpression(Operator.OR, operands));
+        }
+
+        BoolExpression ParseAnd()
+        {
+            ArrayList<BoolExpression> operands = new ArrayList<BoolExpression>();
+            operands.add(ParseNot());
+
+            for (String token; (token = Peek()) != null && token.equals(")") == false && IsOperator(token, "or") == false; )
+            {
+                if (IsOperator(token, "and"))
+                    _Next++;
+
+                operands.add(ParseNot());
+            }
+
+            return (operands.size() == 1 ? operands.get(0) : new BoolExpression(Operator.AND, operands));
+        }
+
+        BoolExpression ParseNot()
+        {
+            if (IsOperator(Peek(), "not"))
+            {
+                _Next++;
+                return new BoolExpression(Operator.NOT, Collections.singletonList(ParseNot()));
+            }
+
+            return ParsePrimary();
+        }
+
+        BoolExpression ParsePrimary()
+        {
+            String token = Peek();
+            if (token == null)
+                throw new IllegalArgumentException(String.format("Boolean query '%s' ends with an operator or is empty.", _Text));
+
+            if (token.equals(")") || IsOperator(token, "and") || IsOperator(token, "or"))
+                throw new IllegalArgumentException(String.format("Missing operand before '%s' in boolean query '%s'.", token, _Text));
+
+            _Next++;
+            if (token.equals("("))
+            {
+                BoolExpression expression = ParseOr();
+                if (")".equals(Peek()) == false)
+                    throw new IllegalArgumentException(String.format("Missing closing ')' in boolean query '%s'.", _Text));
+
+                _Next++;
+                return expression;
+            }
+
+            boolean phrase = token.startsWith("\"");
+            String[] words = Words(phrase ? token.substring(1) : token);
+            if (words.length == 0)
+                throw new IllegalArgumentException(String.format("'%s' of boolean query '%s' has no words.", (phrase ? token + "\"" : token), _Text));
+
+            return new BoolExpression(words);
+        }
+
+        /**
+         * Splits a term or phrase into words with the RegexMask (as in {@link QueryEngine#QueryWords(String, Pattern)}).
+         * @param text
+         * @return
+         */
+        private String[] Words(String text)
+        {
+            ArrayList<String> words = new ArrayList<String>();
+            for (String word : QueryEngine.QueryWords(text, _Pattern))
+            {
+                if (word.length() > 0)
+                    words.add(word);
+            }
+
+            return words.toArray(new String[words.size()]);
+        }
+
+        private static boolean IsOperator(String token, String operator)
+        {
+            return operator.equalsIgnoreCase(token);
+        }
+    }
+}
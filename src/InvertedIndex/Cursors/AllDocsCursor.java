@@ -0,0 +1,62 @@
+package InvertedIndex.Cursors;
+
+/**
+ * Iterates all documents of a range of document ids (the documents a 'not' query is subtracted from).
+ * Documents have no positions (the frequency of a document is 0).
+ */
+public class AllDocsCursor extends PostingCursor
+{
+    //region fields
+    private final long _From;
+    private final long _To;
+    private long _DocId = -1;
+    //endregion fields
+
+    //region ctors
+    /**
+     * Class constructor
+     * @param fromDocId First document id of the range (inclusive).
+     * @param toDocId Last document id of the range (exclusive).
+     */
+    public AllDocsCursor(long fromDocId, long toDocId)
+    {
+        _From = fromDocId;
+        _To = Math.max(fromDocId, toDocId);
+    }
+    //endregion ctors
+
+    //region properties
+    @Override
+    public long DocId() { return _DocId; }
+
+    @Override
+    public int Freq() { return 0; }
+
+    @Override
+    public long Cost() { return _To - _From; }
+    //endregion properties
+
+    //region methods
+    @Override
+    public long NextDoc()
+    {
+        return Advance(_DocId + 1);
+    }
+
+    @Override
+    public long Advance(long target)
+    {
+        if (_DocId == NO_MORE_DOCS)
+            return NO_MORE_DOCS;
+
+        long docId = Math.max(target, _From);
+        return (_DocId = (docId < _To ? docId : NO_MORE_DOCS));
+    }
+
+    @Override
+    public long NextPosition()
+    {
+        return NO_POSITION;
+    }
+    //endregion methods
+}
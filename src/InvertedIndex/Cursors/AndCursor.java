@@ -0,0 +1,48 @@
+package InvertedIndex.Cursors;
+
+/**
+ * Iterates the documents that are on all of its child cursors (bool AND query). Each document counts once,
+ * the positions of the child cursors are not read (the frequency of a document is 0).
+ */
+public class AndCursor extends ConjunctionCursor
+{
+    //region ctors
+    /**
+     * Class constructor
+     * @param cursors
+     */
+    public AndCursor(PostingCursor... cursors)
+    {
+        super(cursors);
+    }
+
+    /**
+     * Class constructor
+     * @param planned true if the cursors are in the order they should lead instead of ascending order of costs.
+     * @param cursors
+     */
+    public AndCursor(boolean planned, PostingCursor... cursors)
+    {
+        super(cursors, planned);
+    }
+    //endregion ctors
+
+    //region properties
+    @Override
+    public int Freq() { return 0; }
+    //endregion properties
+
+    //region methods
+    @Override
+    public long NextPosition()
+    {
+        return NO_POSITION;
+    }
+
+    @Override
+    protected boolean Matches()
+    {
+        return true;
+    }
+    //endregion methods
+}
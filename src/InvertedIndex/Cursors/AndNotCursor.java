@@ -0,0 +1,77 @@
+package InvertedIndex.Cursors;
+
+/**
+ * Iterates the documents of a required cursor that are not on an excluded cursor ('and not' of a boolean query).
+ * The excluded cursor only advances to the documents of the required cursor, so it skips over its other documents.
+ */
+public class AndNotCursor extends PostingCursor
+{
+    //region fields
+    private final PostingCursor _Required;
+    private final PostingCursor _Excluded;
+    private long _DocId = -1;
+    //endregion fields
+
+    //region ctors
+    /**
+     * Class constructor
+     * @param required
+     * @param excluded
+     */
+    public AndNotCursor(PostingCursor required, PostingCursor excluded)
+    {
+        _Required = required;
+        _Excluded = excluded;
+    }
+    //endregion ctors
+
+    //region properties
+    @Override
+    public long DocId() { return _DocId; }
+
+    @Override
+    public int Freq() { return _Required.Freq(); }
+
+    @Override
+    public long Cost() { return _Required.Cost(); }
+    //endregion properties
+
+    //region methods
+    @Override
+    public long NextDoc()
+    {
+        return (_DocId == NO_MORE_DOCS ? NO_MORE_DOCS : Exclude(_Required.NextDoc()));
+    }
+
+    @Override
+    public long Advance(long target)
+    {
+        return (_DocId == NO_MORE_DOCS ? NO_MORE_DOCS : Exclude(_Required.Advance(target)));
+    }
+
+    @Override
+    public long NextPosition()
+    {
+        return _Required.NextPosition();
+    }
+
+    /**
+     * Moves the required cursor from {@param doc} to its first document that is not on the excluded cursor.
+     * @param doc
+     * @return
+     */
+    private long Exclude(long doc)
+    {
+        while (doc != NO_MORE_DOCS)
+        {
+            long excluded = (_Excluded.DocId() < doc ? _Excluded.Advance(doc) : _Excluded.DocId());
+            if (excluded != doc)
+                break;
+
+            doc = _Required.NextDoc();
+        }
+
+        return (_DocId = doc);
+    }
+    //endregion methods
+}
@@ -0,0 +1,125 @@
+package InvertedIndex.Cursors;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Iterates the documents that are on all of its child cursors (leapfrog intersection): the cheapest cursor
+ * (or the first cursor of a planned order) leads and all other cursors advance to its document - a cursor
+ * that overshoots becomes the next target.
+ *
+ * Sub classes can reject a document on which all child cursors agree (e.g. if the positions do not match).
+ */
+public abstract class ConjunctionCursor extends PostingCursor
+{
+    //region fields
+    protected final PostingCursor[] _Cursors;   // Child cursors in query order
+    private final PostingCursor[] _ByCost;      // Child cursors in ascending order of costs
+    private long _DocId = -1;
+    private long _Candidates = 0;
+    //endregion fields
+
+    //region ctors
+    /**
+     * Class constructor
+     * @param cursors Child cursors (at least one) in query order.
+     */
+    protected ConjunctionCursor(PostingCursor[] cursors)
+    {
+        this(cursors, false);
+    }
+
+    /**
+     * Class constructor
+     * @param cursors Child cursors (at least one) in query order.
+     * @param planned true if the child cursors are in the order they should lead (e.g. rarest first by a {@link InvertedIndex.QueryPlan}).
+     */
+    protected ConjunctionCursor(PostingCursor[] cursors, boolean planned)
+    {
+        _Cursors = cursors;
+        _ByCost = Arrays.copyOf(cursors, cursors.length);
+        if (planned)
+            return;
+
+        Arrays.sort(_ByCost, new Comparator<PostingCursor>()
+        {
+            @Override
+            public int compare(PostingCursor a, PostingCursor b)
+            {
+                return Long.compare(a.Cost(), b.Cost());
+            }
+        });
+    }
+    //endregion ctors
+
+    //region properties
+    @Override
+    public long DocId() { return _DocId; }
+
+    @Override
+    public long Cost() { return _ByCost[0].Cost(); }
+
+    /**
+     * Gets the number of documents found on all child cursors so far (including the documents rejected by {@link #Matches()}).
+     * @return
+     */
+    public long getCandidates() { return _Candidates; }
+    //endregion properties
+
+    //region methods
+    @Override
+    public long NextDoc()
+    {
+        return (_DocId == NO_MORE_DOCS ? NO_MORE_DOCS : Align(_ByCost[0].NextDoc()));
+    }
+
+    @Override
+    public long Advance(long target)
+    {
+        return (_DocId == NO_MORE_DOCS ? NO_MORE_DOCS : Align(_ByCost[0].Advance(Math.max(target, _DocId + 1))));
+    }
+
+    /**
+     * Moves all child cursors to the first document from {@param doc} (the document of the leading cursor)
+     * that is on all child cursors and is accepted by {@link #Matches()}.
+     * @param doc
+     * @return
+     */
+    private long Align(long doc)
+    {
+        final PostingCursor lead = _ByCost[0];
+
+        while (doc != NO_MORE_DOCS)
+        {
+            int i = 1;
+            for ( ; i < _ByCost.length; i++)
+            {
+                PostingCursor cursor = _ByCost[i];
+                long other = (cursor.DocId() < doc ? cursor.Advance(doc) : cursor.DocId());
+                if (other > doc)
+                {
+                    doc = lead.Advance(other);    // Leapfrog: the lead catches up with the cursor ahead
+                    break;
+                }
+            }
+
+            if (i < _ByCost.length)
+                continue;
+
+            _Candidates++;
+            if (Matches())
+                return (_DocId = doc);
+
+            doc = lead.NextDoc();
+        }
+
+        return (_DocId = NO_MORE_DOCS);
+    }
+
+    /**
+     * Determines whether the document all child cursors are positioned on is part of the result.
+     * @return
+     */
+    protected abstract boolean Matches();
+    //endregion methods
+}
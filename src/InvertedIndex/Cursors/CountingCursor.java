@@ -0,0 +1,67 @@
+package InvertedIndex.Cursors;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the documents another cursor moves to (the actual size of a clause when a query plan is explained).
+ * The counter can be shared by the cursors of several partitions.
+ */
+public class CountingCursor extends PostingCursor
+{
+    //region fields
+    private final PostingCursor _Cursor;
+    private final AtomicLong _Documents;
+    //endregion fields
+
+    //region ctors
+    /**
+     * Class constructor
+     * @param cursor
+     * @param documents Counter of the documents.
+     */
+    public CountingCursor(PostingCursor cursor, AtomicLong documents)
+    {
+        _Cursor = cursor;
+        _Documents = documents;
+    }
+    //endregion ctors
+
+    //region properties
+    @Override
+    public long DocId() { return _Cursor.DocId(); }
+
+    @Override
+    public int Freq() { return _Cursor.Freq(); }
+
+    @Override
+    public long Cost() { return _Cursor.Cost(); }
+    //endregion properties
+
+    //region methods
+    @Override
+    public long NextDoc()
+    {
+        return Count(_Cursor.NextDoc());
+    }
+
+    @Override
+    public long Advance(long target)
+    {
+        return Count(_Cursor.Advance(target));
+    }
+
+    @Override
+    public long NextPosition()
+    {
+        return _Cursor.NextPosition();
+    }
+
+    private long Count(long docId)
+    {
+        if (docId != NO_MORE_DOCS)
+            _Documents.incrementAndGet();
+
+        return docId;
+    }
+    //endregion methods
+}
@@ -0,0 +1,190 @@
+package InvertedIndex.Cursors;
+
+import java.util.Arrays;
+
+/**
+ * Iterates the documents that contain the words of its child cursors close to each other: all words occur
+ * within a window of at most {@code window} positions between the first and the last word (in query order
+ * if the cursor is ordered). The positions of this cursor are the positions that complete a match - the
+ * position of the last word of each match - so an ordered window of n - 1 words over n words is a phrase.
+ *
+ * The positions of all words of a document are merged in one pass (sliding window): a position completes a
+ * match if the latest position of each other word is still inside the window that ends at this position.
+ * A word that occurs several times in an unordered query has one cursor and needs a different position for
+ * each of its occurrences inside the window.
+ */
+public class NearCursor extends ConjunctionCursor
+{
+    //region fields
+    private final int _Window;
+    private final boolean _Ordered;
+    private long[][] _WordPositions;    // Positions of each word in the current document
+    private final int[] _Counts;
+    private final int[] _Read;
+    private final int[] _Repeats;       // Number of occurrences of each word in the query (unordered)
+    private final long[][] _Recent;     // Latest positions of each word (ring of _Repeats[i] positions)
+    private final int[] _Oldest;        // Index of the oldest of the latest positions of each word
+    private long[] _Positions = new long[16];
+    private int _Freq = 0;
+    private int _Next = 0;
+    //endregion fields
+
+    //region ctors
+    /**
+     * Class constructor
+     * @param window Maximum distance between the first and the last word of a match.
+     * @param ordered true if the words must occur in query order.
+     * @param cursors Cursors of the words in query order.
+     */
+    public NearCursor(int window, boolean ordered, PostingCursor... cursors)
+    {
+        this(window, ordered, null, cursors);
+    }
+
+    /**
+     * Class constructor
+     * @param window Maximum distance between the first and the last word of a match.
+     * @param ordered true if the words must occur in query order.
+     * @param repeats Number of occurrences of each word in an unordered query (null if each word occurs once).
+     * @param cursors Cursors of the words in query order (of the distinct words if {@param repeats} is given).
+     */
+    public NearCursor(int window, boolean ordered, int[] repeats, PostingCursor... cursors)
+    {
+        super(cursors);
+        _Window = window;
+        _Ordered = ordered;
+        _WordPositions = new long[cursors.length][16];
+        _Counts = new int[cursors.length];
+        _Read = new int[cursors.length];
+        _Repeats = new int[cursors.length];
+        _Recent = new long[cursors.length][];
+        _Oldest = new int[cursors.length];
+
+        for (int i = 0; i < cursors.length; i++)
+        {
+            _Repeats[i] = (repeats == null ? 1 : repeats[i]);
+            _Recent[i] = new long[_Repeats[i]];
+        }
+    }
+    //endregion ctors
+
+    //region properties
+    @Override
+    public int Freq() { return _Freq; }
+    //endregion properties
+
+    //region methods
+    @Override
+    public long NextPosition()
+    {
+        return _Positions[_Next++];
+    }
+
+    @Override
+    protected boolean Matches()
+    {
+        final int n = _Cursors.length;
+        for (int i = 0; i < n; i++)
+        {
+            final PostingCursor cursor = _Cursors[i];
+            final int freq = cursor.Freq();
+            if (_WordPositions[i].length < freq)
+                _WordPositions[i] = new long[Math.max(freq, _WordPositions[i].length * 2)];
+
+            for (int k = 0; k < freq; k++)
+                _WordPositions[i][k] = cursor.NextPosition();
+
+            _Counts[i] = freq;
+        }
+
+        _Freq = (_Ordered ? MatchOrdered() : MatchUnordered());
+        _Next = 0;
+        return (_Freq > 0);
+    }
+
+    /**
+     * Records each position of the last word that ends a match of the words in query order: the previous
+     * words take their latest positions before the next word, so the first word is as close as possible.
+     * @return The number of matches.
+     */
+    private int MatchOrdered()
+    {
+        final int n = _Cursors.length;
+        final int last = n - 1;
+        Arrays.fill(_Read, 0);
+
+        int count = 0;
+        for (int r = 0; r < _Counts[last]; r++)
+        {
+            long pos = _WordPositions[last][r];
+            int i = last - 1;
+            for ( ; i >= 0; i--)
+            {
+                // Word i ends at its latest position before word i + 1 (these only move forward with pos)
+                while (_Read[i] < _Counts[i] && _WordPositions[i][_Read[i]] < pos)
+                    _Read[i]++;
+
+                if (_Read[i] == 0)
+                    break;
+
+                pos = _WordPositions[i][_Read[i] - 1];
+            }
+
+            if (i < 0 && _WordPositions[last][r] - pos <= _Window)
+                count = Add(count, _WordPositions[last][r]);
+        }
+
+        return count;
+    }
+
+    /**
+     * Merges the positions of all words in ascending order and records each position at which
+     * the latest positions of all words (as many as the word occurs in the query) are within the window.
+     * @return The number of matches.
+     */
+    private int MatchUnordered()
+    {
+        final int n = _Cursors.length;
+        Arrays.fill(_Read, 0);
+        Arrays.fill(_Oldest, 0);
+        for (long[] recent : _Recent)
+            Arrays.fill(recent, Long.MIN_VALUE);
+
+        int count = 0;
+        while (true)
+        {
+            int word = -1;
+            for (int i = 0; i < n; i++)
+            {
+                if (_Read[i] < _Counts[i] && (word < 0 || _WordPositions[i][_Read[i]] < _WordPositions[word][_Read[word]]))
+                    word = i;
+            }
+
+            if (word < 0)
+                break;
+
+            long pos = _WordPositions[word][_Read[word]++];
+            _Recent[word][_Oldest[word]] = pos;
+            _Oldest[word] = (_Oldest[word] + 1) % _Repeats[word];
+
+            int i = 0;
+            for (long oldest; i < n && (oldest = _Recent[i][_Oldest[i]]) != Long.MIN_VALUE && pos - oldest <= _Window; )
+                i++;
+
+            if (i == n && (count == 0 || _Positions[count - 1] != pos))
+                count = Add(count, pos);
+        }
+
+        return count;
+    }
+
+    private int Add(int count, long pos)
+    {
+        if (count == _Positions.length)
+            _Positions = Arrays.copyOf(_Positions, count * 2);
+
+        _Positions[count] = pos;
+        return count + 1;
+    }
+    //endregion methods
+}
@@ -0,0 +1,167 @@
+package InvertedIndex.Cursors;
+
+import java.util.Arrays;
+
+/**
+ * Iterates the documents that are on any of its child cursors (e.g. all terms a fuzzy query word expands to).
+ * The positions of a document are the positions of all child cursors on that document in ascending order,
+ * so an OR cursor can stand for one word of a phrase.
+ *
+ * The child cursors are kept in a binary heap by document id. The positions of a document are only merged
+ * when they are read, so an OR cursor over cursors without positions (e.g. of a boolean query) is allowed.
+ */
+public class OrCursor extends PostingCursor
+{
+    //region fields
+    private final PostingCursor[] _Heap;
+    private int _Size;                 // Number of child cursors that are not exhausted
+    private long _DocId = -1;
+    private long[] _Positions = new long[16];
+    private int _Freq = 0;
+    private int _Next = 0;
+    private boolean _Merged = false;
+    private final long _Cost;
+    //endregion fields
+
+    //region ctors
+    /**
+     * Class constructor
+     * @param cursors Child cursors (positioned before their first document).
+     */
+    public OrCursor(PostingCursor... cursors)
+    {
+        _Heap = Arrays.copyOf(cursors, cursors.length);
+        _Size = 0;
+
+        long cost = 0;
+        for (PostingCursor cursor : cursors)
+            cost += cursor.Cost();
+
+        _Cost = cost;
+    }
+    //endregion ctors
+
+    //region properties
+    @Override
+    public long DocId() { return _DocId; }
+
+    @Override
+    public int Freq()
+    {
+        if (_Merged == false)
+            MergePositions();
+
+        return _Freq;
+    }
+
+    @Override
+    public long Cost() { return _Cost; }
+    //endregion properties
+
+    //region methods
+    @Override
+    public long NextDoc()
+    {
+        return Advance(_DocId + 1);
+    }
+
+    @Override
+    public long Advance(long target)
+    {
+        if (_DocId == NO_MORE_DOCS)
+            return NO_MORE_DOCS;
+
+        if (_DocId < 0)
+        {
+            // First move: position all children and build the heap
+            for (PostingCursor cursor : _Heap.clone())
+            {
+                if (cursor.Advance(target) != NO_MORE_DOCS)
+                    _Heap[_Size++] = cursor;
+            }
+
+            for (int i = _Size / 2 - 1; i >= 0; i--)
+                SiftDown(i);
+        }
+        else
+        {
+            while (_Size > 0 && _Heap[0].DocId() < target)
+            {
+                if (_Heap[0].Advance(target) == NO_MORE_DOCS)
+                    _Heap[0] = _Heap[--_Size];
+
+                SiftDown(0);
+            }
+        }
+
+        if (_Size == 0)
+            return (_DocId = NO_MORE_DOCS);
+
+        _Merged = false;
+        return (_DocId = _Heap[0].DocId());
+    }
+
+    @Override
+    public long NextPosition()
+    {
+        if (_Merged == false)
+            MergePositions();
+
+        return _Positions[_Next++];
+    }
+
+    /**
+     * Merges the positions of all child cursors on the current document into one ascending list.
+     */
+    private void MergePositions()
+    {
+        _Freq = 0;
+        _Next = 0;
+        _Merged = true;
+
+        if (MergePositions(0) > 1)
+            Arrays.sort(_Positions, 0, _Freq);
+    }
+
+    /**
+     * Adds the positions of the child cursor at heap index {@param i} and its descendants that are on the current document
+     * (descendants of a cursor on a later document are on later documents too).
+     * @param i
+     * @return The number of child cursors on the current document.
+     */
+    private int MergePositions(int i)
+    {
+        if (i >= _Size || _Heap[i].DocId() != _DocId)
+            return 0;
+
+        PostingCursor cursor = _Heap[i];
+        int freq = cursor.Freq();
+        if (_Freq + freq > _Positions.length)
+            _Positions = Arrays.copyOf(_Positions, Math.max(_Freq + freq, _Positions.length * 2));
+
+        for (int k = 0; k < freq; k++)
+            _Positions[_Freq++] = cursor.NextPosition();
+
+        return 1 + MergePositions(2 * i + 1) + MergePositions(2 * i + 2);
+    }
+
+    private void SiftDown(int i)
+    {
+        PostingCursor cursor = _Heap[i];
+        long docId = cursor.DocId();
+
+        for (int child; (child = 2 * i + 1) < _Size; i = child)
+        {
+            if (child + 1 < _Size && _Heap[child + 1].DocId() < _Heap[child].DocId())
+                child++;
+
+            if (_Heap[child].DocId() >= docId)
+                break;
+
+            _Heap[i] = _Heap[child];
+        }
+
+        _Heap[i] = cursor;
+    }
+    //endregion methods
+}
@@ -0,0 +1,90 @@
+package InvertedIndex.Cursors;
+
+/**
+ * Iterates the documents that contain the words of its child cursors as a phrase (in the given order
+ * and at consecutive positions). The positions of this cursor are the positions of the last word of
+ * each occurrence of the phrase - the same postings a merge of the word lists produces.
+ *
+ * The positions of a document are intersected in one buffer that is reused for all documents.
+ */
+public class PhraseCursor extends ConjunctionCursor
+{
+    //region fields
+    private long[] _Positions = new long[16];
+    private int _Freq = 0;
+    private int _Next = 0;
+    //endregion fields
+
+    //region ctors
+    /**
+     * Class constructor
+     * @param cursors Cursors of the words of the phrase in phrase order.
+     */
+    public PhraseCursor(PostingCursor... cursors)
+    {
+        super(cursors);
+    }
+    //endregion ctors
+
+    //region properties
+    @Override
+    public int Freq() { return _Freq; }
+    //endregion properties
+
+    //region methods
+    @Override
+    public long NextPosition()
+    {
+        return _Positions[_Next++];
+    }
+
+    /**
+     * Intersects the positions of the words shifted to the position of the last word
+     * (word i of n at position p ends a phrase at p + n - 1 - i).
+     * @return
+     */
+    @Override
+    protected boolean Matches()
+    {
+        final int n = _Cursors.length;
+        final PostingCursor first = _Cursors[0];
+
+        int count = first.Freq();
+        if (_Positions.length < count)
+            _Positions = new long[Math.max(count, _Positions.length * 2)];
+
+        for (int k = 0; k < count; k++)
+            _Positions[k] = first.NextPosition() + (n - 1);
+
+        for (int i = 1; i < n && count > 0; i++)
+        {
+            final PostingCursor cursor = _Cursors[i];
+            final int freq = cursor.Freq();
+            final long shift = n - 1 - i;
+
+            int kept = 0, read = 0;
+            long pos = Long.MIN_VALUE;
+            for (int k = 0; k < count; k++)
+            {
+                long candidate = _Positions[k];
+                while (pos < candidate && read < freq)
+                {
+                    pos = cursor.NextPosition() + shift;
+                    read++;
+                }
+
+                if (pos == candidate)
+                    _Positions[kept++] = candidate;
+                else if (pos < candidate)
+                    break;       // All positions of this word are read
+            }
+
+            count = kept;
+        }
+
+        _Freq = count;
+        _Next = 0;
+        return (count > 0);
+    }
+    //endregion methods
+}
@@ -0,0 +1,102 @@
+package InvertedIndex.Cursors;
+
+import java.util.Collection;
+
+import InvertedIndex.WordDocumentOffests;
+
+/**
+ * Iterates the documents (ascending document ids) and the word positions within each document of a
+ * posting list or of a query over several posting lists without materializing intermediate results.
+ *
+ * Cursors are composed into operator trees (e.g. a {@link PhraseCursor} over {@link TermCursor}s)
+ * and only the documents of the root cursor are collected into the final result of a query.
+ *
+ * A cursor is positioned before its first document when it is created and can only move forward.
+ */
+public abstract class PostingCursor
+{
+    /**
+     * Document id of a cursor that has moved past its last document.
+     */
+    public static final long NO_MORE_DOCS = Long.MAX_VALUE;
+
+    /**
+     * Position returned by {@link #NextPosition()} of a cursor that iterates documents only (its frequency is 0).
+     */
+    public static final long NO_POSITION = -1;
+
+    //region properties
+    /**
+     * Gets the id of the current document, -1 before the first document or {@link #NO_MORE_DOCS} after the last document.
+     * @return
+     */
+    public abstract long DocId();
+
+    /**
+     * Gets the number of positions of the current document
+     * (0 for a cursor that iterates documents only, e.g. of a bool AND query).
+     * @return
+     */
+    public abstract int Freq();
+
+    /**
+     * Gets an upper bound of the number of postings this cursor can visit
+     * (cheap cursors should lead when several cursors are intersected).
+     * @return
+     */
+    public abstract long Cost();
+    //endregion properties
+
+    //region methods
+    /**
+     * Moves to the next document.
+     * @return The id of the next document or {@link #NO_MORE_DOCS}.
+     */
+    public abstract long NextDoc();
+
+    /**
+     * Moves to the first document with an id of at least {@param target} (always beyond the current document).
+     * @param target
+     * @return The id of the document or {@link #NO_MORE_DOCS}.
+     */
+    public abstract long Advance(long target);
+
+    /**
+     * Gets the next position (ascending) of the current document. Can be called {@link #Freq()} times per document
+     * (a cursor that iterates documents only returns {@link #NO_POSITION}).
+     * @return
+     */
+    public abstract long NextPosition();
+
+    /**
+     * Moves this cursor over all remaining documents and adds each document id/position pair to {@param target}.
+     * @param target
+     * @return The number of documents.
+     */
+    public long CollectPositions(WordDocumentOffests<String> target)
+    {
+        long docs = 0;
+        for (long docId = NextDoc(); docId != NO_MORE_DOCS; docId = NextDoc(), docs++)
+        {
+            for (int i = 0, freq = Freq(); i < freq; i++)
+                target.AddDocumentOffset(docId, NextPosition());
+        }
+
+        return docs;
+    }
+
+    /**
+     * Moves this cursor over all remaining documents and adds each document id to {@param target}.
+     * @param target
+     * @return The number of documents.
+     */
+    public long CollectDocIds(Collection<Long> target)
+    {
+        long docs = 0;
+        for (long docId = NextDoc(); docId != NO_MORE_DOCS; docId = NextDoc(), docs++)
+            target.add(docId);
+
+        return docs;
+    }
+    //endregion methods
+}
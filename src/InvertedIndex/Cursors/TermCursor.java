@@ -0,0 +1,128 @@
+package InvertedIndex.Cursors;
+
+import InvertedIndex.WordDocumentOffests;
+
+/**
+ * Iterates the postings of one word (optionally restricted to a range of document ids) in place.
+ *
+ * {@link #Advance(long)} gallops over the postings of the documents it skips
+ * instead of reading each of them.
+ */
+public class TermCursor extends PostingCursor
+{
+    //region fields
+    private final WordDocumentOffests<String> _Postings;
+    private final int _Begin;        // First posting in range
+    private final int _End;          // End of the postings in range (exclusive)
+    private int _DocStart;           // First posting of the current document
+    private int _DocEnd;             // End of the postings of the current document (exclusive)
+    private int _Position;           // Next posting returned by NextPosition()
+    private long _DocId = -1;
+    private long _NextDocId;         // Document id of the posting at _DocEnd (or NO_MORE_DOCS)
+    //endregion fields
+
+    //region ctors
+    /**
+     * Class constructor
+     * @param postings
+     */
+    public TermCursor(WordDocumentOffests<String> postings)
+    {
+        this(postings, 0, NO_MORE_DOCS);
+    }
+
+    /**
+     * Class constructor
+     * @param postings
+     * @param fromDocId First document id of the range (inclusive).
+     * @param toDocId Last document id of the range (exclusive).
+     */
+    public TermCursor(WordDocumentOffests<String> postings, long fromDocId, long toDocId)
+    {
+        _Postings = postings;
+        _Begin = postings.LowerBound(fromDocId);
+        _End = (toDocId == NO_MORE_DOCS ? (int)postings.CountOffsets() : postings.LowerBound(toDocId));
+        _DocStart = _DocEnd = _Position = _Begin;
+        _NextDocId = (_Begin < _End ? postings.DocId(_Begin) : NO_MORE_DOCS);
+    }
+    //endregion ctors
+
+    //region properties
+    @Override
+    public long DocId() { return _DocId; }
+
+    @Override
+    public int Freq() { return _DocEnd - _DocStart; }
+
+    @Override
+    public long Cost() { return _End - _Begin; }
+    //endregion properties
+
+    //region methods
+    @Override
+    public long NextDoc()
+    {
+        return Enter(_DocEnd, _NextDocId);
+    }
+
+    @Override
+    public long Advance(long target)
+    {
+        if (_NextDocId >= target)
+            return Enter(_DocEnd, _NextDocId);
+
+        // Gallop (1, 2, 4, ... postings) until a posting of the target is passed, then search that window
+        int lo = _DocEnd + 1, hi = lo, step = 1;
+        while (hi < _End && _Postings.DocId(hi) < target)
+        {
+            lo = hi + 1;
+            hi = lo + step;
+            step <<= 1;
+        }
+
+        if (hi > _End)
+            hi = _End;
+
+        while (lo < hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            if (_Postings.DocId(mid) < target)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+
+        return Enter(lo, (lo < _End ? _Postings.DocId(lo) : NO_MORE_DOCS));
+    }
+
+    @Override
+    public long NextPosition()
+    {
+        return _Postings.Offset(_Position++);
+    }
+
+    /**
+     * Makes the document of the posting at index {@param i} the current document.
+     * @param i
+     * @param docId Document id of the posting at index {@param i} (NO_MORE_DOCS if {@param i} is the end of the range).
+     * @return
+     */
+    private long Enter(int i, long docId)
+    {
+        _DocId = docId;
+        _DocStart = _DocEnd = _Position = i;
+        if (docId == NO_MORE_DOCS)
+            return docId;
+
+        long next = NO_MORE_DOCS;
+        while (++_DocEnd < _End)
+        {
+            if ((next = _Postings.DocId(_DocEnd)) != docId)
+                break;
+        }
+
+        _NextDocId = (_DocEnd < _End ? next : NO_MORE_DOCS);
+        return docId;
+    }
+    //endregion methods
+}
@@ -0,0 +1,484 @@
+package InvertedIndex.Disk;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import InvertedIndex.WordDocumentOffests;
+import InvertedIndex.Postings.MappedPostingList;
+import InvertedIndex.Postings.PostingArena;
+
+/**
+ * An inverted index on disk that is merged from sorted {@link PostingRun} files (SPIMI index build).
+ *
+ * The postings of all terms are stored with a fixed size in one file that is memory mapped and a dictionary
+ * file lists each term with its number of postings and documents and the index of its first posting. Only every
+ * {@value #BLOCK_TERMS}th term of the dictionary is held in memory, so the heap needed to query the index is
+ * a small fraction of its vocabulary and independent of the number of postings. A queried term is a
+ * {@link MappedPostingList} view on the mapped file that cursors read in place (nothing is copied onto the heap).
+ */
+public class DiskIndex
+{
+    /** Maximum number of runs merged at once (more runs are merged in several passes) */
+    private static final int MAX_FAN_IN = 64;
+
+    /** Number of dictionary entries per block of the in-memory sparse dictionary */
+    private static final int BLOCK_TERMS = 64;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Reads the dictionary of a disk index term by term (in ascending term order). */
+    public class TermCursor
+    {
+        private final DataInputStream _In;
+        private long _Remaining = _WordCount;
+        private String _Term = null;
+        private int _Count = 0;
+
+        private TermCursor() throws IOException
+        {
+            _In = new DataInputStream(new BufferedInputStream(new FileInputStream(_TermsFile), BUFFER_SIZE));
+        }
+
+        public String Term() { return _Term; }
+
+        /**
+         * Gets the number of postings of the current term.
+         * @return
+         */
+        public int Count() { return _Count; }
+
+        /**
+         * Moves to the next term of the dictionary.
+         * @return false if all terms were read (the cursor is closed then).
+         * @throws IOException
+         */
+        public boolean Next() throws IOException
+        {
+            if (_Remaining <= 0)
+            {
+                Close();
+                return false;
+            }
+
+            byte[] bytes = new byte[(int)PostingRun.ReadVarLong(_In)];
+            _In.readFully(bytes);
+
+            _Term = new String(bytes, StandardCharsets.UTF_8);
+            _Count = (int)PostingRun.ReadVarLong(_In);
+            PostingRun.ReadVarLong(_In);      // Number of documents and index of the first posting
+            PostingRun.ReadVarLong(_In);
+            _Remaining--;
+
+            return true;
+        }
+
+        public void Close() throws IOException
+        {
+            _In.close();
+        }
+    }
+
+    //region fields
+    private final File _Dir;
+    private final File _PostingsFile;
+    private final File _TermsFile;
+    private final FileChannel _Postings;
+    private final FileChannel _Terms;
+    private final MappedByteBuffer[] _Slabs;
+
+    private final String[] _BlockTerms;
+    private final long[] _BlockOffsets;
+    private final long _TermsBytes;
+    private final long _WordCount;
+    private final long _PostingCount;
+    //endregion fields
+
+    //region ctors
+    /**
+     * Class constructor
+     * @param dir
+     * @param blockTerms
+     * @param blockOffsets
+     * @param termsBytes
+     * @param wordCount
+     * @param postingCount
+     * @throws IOException
+     */
+    private DiskIndex(File dir, String[] blockTerms, long[] blockOffsets, long termsBytes, long wordCount, long postingCount) throws IOException
+    {
+        _Dir = dir;
+        _PostingsFile = new File(dir, "index.postings");
+        _TermsFile = new File(dir, "index.terms");
+        _Postings = FileChannel.open(_PostingsFile.toPath(), StandardOpenOption.READ);
+        _Terms = FileChannel.open(_TermsFile.toPath(), StandardOpenOption.READ);
+
+        long slabBytes = (long)MappedPostingList.SLAB_POSTINGS * MappedPostingList.ENTRY_BYTES;
+        long size = _Postings.size();
+        _Slabs = new MappedByteBuffer[(int)((size + slabBytes - 1) / slabBytes)];
+        for (int i = 0; i < _Slabs.length; i++)
+            _Slabs[i] = _Postings.map(FileChannel.MapMode.READ_ONLY, i * slabBytes, Math.min(slabBytes, size - i * slabBytes));
+
+        _BlockTerms = blockTerms;
+        _BlockOffsets = blockOffsets;
+        _TermsBytes = termsBytes;
+        _WordCount = wordCount;
+        _PostingCount = postingCount;
+    }
+    //endregion ctors
+
+    //region properties
+    /**
+     * Gets the number of distinct terms in this index.
+     * @return
+     */
+    public long WordCount() { return _WordCount; }
+
+    /**
+     * Gets the number of postings in this index.
+     * @return
+     */
+    public long PostingCount() { return _PostingCount; }
+
+    /**
+     * Gets the size of the postings and dictionary files in bytes.
+     * @return
+     */
+    public long DiskBytes() { return _PostingsFile.length() + _TermsFile.length(); }
+    //endregion properties
+
+    //region methods
+    /**
+     * Merges sorted run files (in the order of their document ids) into a disk index in the given directory
+     * and deletes the run files.
+     * @param runs
+     * @param dir
+     * @return
+     * @throws IOException
+     */
+    public static DiskIndex Merge(List<File> runs, File dir) throws IOException
+    {
+        ArrayList<File> pending = new ArrayList<File>(runs);
+
+        // Merge groups of consecutive runs until all runs can be merged at once (keeps the number of open files bounded)
+        for (int pass = 0; pending.size() > MAX_FAN_IN; pass++)
+        {
+            ArrayList<File> merged = new ArrayList<File>();
+            for (int i = 0; i < pending.size(); i += MAX_FAN_IN)
+            {
+                List<File> group = pending.subList(i, Math.min(i + MAX_FAN_IN, pending.size()));
+                if (group.size() == 1)
+                {
+                    merged.add(group.get(0));
+                    continue;
+                }
+
+                File file = new File(dir, String.format("merge_%d_%d.run", pass, merged.size()));
+                PostingRun.Writer writer = new PostingRun.Writer(file);
+                MergeRuns(group, writer, null);
+                writer.Close();
+
+                Delete(group);
+                merged.add(file);
+            }
+
+            pending = merged;
+        }
+
+        IndexWriter index = new IndexWriter(new File(dir, "index.postings"), new File(dir, "index.terms"));
+        MergeRuns(pending, null, index);
+        index.Close();
+        Delete(pending);
+
+        return new DiskIndex(dir, index._BlockTerms.toArray(new String[index._BlockTerms.size()]), ToArray(index._BlockOffsets),
+                             index._Position, index._WordCount, index._PostingCount);
+    }
+
+    /**
+     * Gets the postings of a term as a read-only view on the mapped postings file
+     * or null if the term is not part of this index.
+     * @param term
+     * @return
+     * @throws IOException
+     */
+    public WordDocumentOffests<String> Postings(String term) throws IOException
+    {
+        int block = FindBlock(term);
+        if (block < 0)
+            return null;
+
+        long blockEnd = (block + 1 < _BlockOffsets.length ? _BlockOffsets[block + 1] : _TermsBytes);
+        ByteBuffer entries = Read(_Terms, _BlockOffsets[block], (int)(blockEnd - _BlockOffsets[block]));
+
+        while (entries.hasRemaining())  // Scan the block of the dictionary for the term
+        {
+            byte[] bytes = new byte[(int)PostingRun.ReadVarLong(entries)];
+            entries.get(bytes);
+
+            int count = (int)PostingRun.ReadVarLong(entries);
+            int documents = (int)PostingRun.ReadVarLong(entries);
+            long first = PostingRun.ReadVarLong(entries);
+
+            int cmp = new String(bytes, StandardCharsets.UTF_8).compareTo(term);
+            if (cmp > 0)
+                break;
+
+            if (cmp == 0)
+                return new WordDocumentOffests<String>(term, new MappedPostingList(_Slabs, first, count, documents));
+        }
+
+        return null;
+    }
+
+    /**
+     * Gets a cursor over all terms of the dictionary in ascending order.
+     * @return
+     * @throws IOException
+     */
+    public TermCursor Terms() throws IOException
+    {
+        return new TermCursor();
+    }
+
+    /**
+     * Closes and deletes the files of this index. The index cannot be queried after calling this.
+     * @throws IOException
+     */
+    public void Delete() throws IOException
+    {
+        for (MappedByteBuffer slab : _Slabs)    // Unmap the postings file (a mapped file cannot be deleted on Windows)
+            PostingArena.FreeDirectBuffer(slab);
+
+        _Postings.close();
+        _Terms.close();
+
+        Delete(Arrays.asList(_PostingsFile, _TermsFile));
+        _Dir.delete();
+    }
+
+    /**
+     * Merges runs term by term into a run writer or (for the final merge) into the files of the index.
+     * @param runs
+     * @param writer Run writer of an intermediate merge (null for the final merge).
+     * @param index Writer of the index files for the final merge (null for an intermediate merge).
+     * @throws IOException
+     */
+    private static void MergeRuns(List<File> runs, PostingRun.Writer writer, IndexWriter index) throws IOException
+    {
+        // Order by term and by run for equal terms (so document ids of a term stay ascending)
+        PriorityQueue<PostingRun.Reader> queue = new PriorityQueue<PostingRun.Reader>(Math.max(1, runs.size()), new Comparator<PostingRun.Reader>()
+        {
+            @Override
+            public int compare(PostingRun.Reader a, PostingRun.Reader b)
+            {
+                int cmp = a.Term().compareTo(b.Term());
+                return (cmp != 0 ? cmp : Integer.compare(a.getIndex(), b.getIndex()));
+            }
+        });
+
+        for (int i = 0; i < runs.size(); i++)
+        {
+            PostingRun.Reader reader = new PostingRun.Reader(runs.get(i), i);
+            if (reader.NextTerm())
+                queue.add(reader);
+            else
+                reader.Close();
+        }
+
+        ArrayList<PostingRun.Reader> current = new ArrayList<PostingRun.Reader>();
+        while (queue.isEmpty() == false)
+        {
+            String term = queue.peek().Term();
+            int count = 0;
+
+            current.clear();
+            while (queue.isEmpty() == false && queue.peek().Term().equals(term))
+            {
+                PostingRun.Reader reader = queue.poll();
+                current.add(reader);
+                count += reader.Count();
+            }
+
+            if (index != null)
+                index.StartTerm(term, count);
+            else
+                writer.StartTerm(term, count);
+
+            for (PostingRun.Reader reader : current)
+            {
+                while (reader.NextPosting())
+                {
+                    if (index != null)
+                        index.AddPosting(reader.DocId(), reader.Offset());
+                    else
+                        writer.Add(reader.DocId(), reader.Offset());
+                }
+
+                if (reader.NextTerm())
+                    queue.add(reader);
+                else
+                    reader.Close();
+            }
+
+            if (index != null)
+                index.EndTerm();
+        }
+    }
+
+    /**
+     * Gets the index of the dictionary block that may contain a term or -1 if the term is before the first block.
+     * @param term
+     * @return
+     */
+    private int FindBlock(String term)
+    {
+        int idx = Arrays.binarySearch(_BlockTerms, term);
+
+        return (idx >= 0 ? idx : -idx - 2);
+    }
+
+    /**
+     * Reads {@param length} bytes at position {@param start} of a file (thread-safe positional read).
+     * @param channel
+     * @param start
+     * @param length
+     * @return
+     * @throws IOException
+     */
+    private static ByteBuffer Read(FileChannel channel, long start, int length) throws IOException
+    {
+        ByteBuffer buf = ByteBuffer.allocate(length);
+        while (buf.hasRemaining())
+        {
+            if (channel.read(buf, start + buf.position()) < 0)
+                throw new EOFException(String.format("Unexpected end of disk index file at position %d.", start + buf.position()));
+        }
+
+        buf.flip();
+        return buf;
+    }
+
+    private static long[] ToArray(List<Long> values)
+    {
+        long[] array = new long[values.size()];
+        for (int i = 0; i < array.length; i++)
+            array[i] = values.get(i);
+
+        return array;
+    }
+
+    private static void Delete(List<File> files) throws IOException
+    {
+        for (File file : files)
+        {
+            if (file.exists() && file.delete() == false)
+                throw new IOException(String.format("Cannot delete index file '%s'.", file.getPath()));
+        }
+    }
+    //endregion methods
+
+    /**
+     * Writes the fixed size postings and the dictionary file of the index and collects the first term of each block
+     * for the in-memory sparse dictionary.
+     */
+    private static class IndexWriter
+    {
+        private final DataOutputStream _Postings;
+        private final DataOutputStream _Out;
+        private final ArrayList<String> _BlockTerms = new ArrayList<String>();
+        private final ArrayList<Long> _BlockOffsets = new ArrayList<Long>();
+        private long _Position = 0;
+        private long _WordCount = 0;
+        private long _PostingCount = 0;
+
+        private String _Term = null;        // Current term
+        private int _Count = 0;
+        private int _Documents = 0;
+        private long _First = 0;
+        private long _LastDocId = -1;
+
+        private IndexWriter(File postings, File terms) throws IOException
+        {
+            _Postings = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(postings), BUFFER_SIZE));
+            _Out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(terms), BUFFER_SIZE));
+        }
+
+        /**
+         * Starts the next term (terms must be written in ascending order) whose postings are added next.
+         * @param term
+         * @param count
+         */
+        private void StartTerm(String term, int count)
+        {
+            _Term = term;
+            _Count = count;
+            _Documents = 0;
+            _First = _PostingCount;
+            _LastDocId = -1;
+        }
+
+        /**
+         * Adds the next posting of the current term in the layout of a {@link MappedPostingList}
+         * and counts the distinct documents of the term.
+         * @param docId
+         * @param offset
+         * @throws IOException
+         */
+        private void AddPosting(long docId, long offset) throws IOException
+        {
+            _Postings.writeLong(docId);
+            _Postings.writeInt((int)offset);
+
+            if (docId != _LastDocId)
+                _Documents++;
+
+            _LastDocId = docId;
+        }
+
+        /**
+         * Writes the dictionary entry of the current term once all of its postings were added.
+         * @throws IOException
+         */
+        private void EndTerm() throws IOException
+        {
+            if (_WordCount % BLOCK_TERMS == 0)
+            {
+                _BlockTerms.add(_Term);
+                _BlockOffsets.add(_Position);
+            }
+
+            byte[] bytes = _Term.getBytes(StandardCharsets.UTF_8);
+            _Position += PostingRun.WriteVarLong(_Out, bytes.length);
+            _Out.write(bytes);
+            _Position += bytes.length;
+            _Position += PostingRun.WriteVarLong(_Out, _Count);
+            _Position += PostingRun.WriteVarLong(_Out, _Documents);
+            _Position += PostingRun.WriteVarLong(_Out, _First);    // Index of the first posting
+
+            _WordCount++;
+            _PostingCount += _Count;
+        }
+
+        private void Close() throws IOException
+        {
+            _Postings.close();
+            _Out.close();
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package InvertedIndex.Disk;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import InvertedIndex.Keyword;
+
+/**
+ * Results of the keywords of a previous run (frequency and matching documents per keyword text and type of query)
+ * together with a fingerprint of the text collection they were evaluated on and the words of its index.
+ *
+ * A run with an unchanged text collection can take the results of all keywords that did not change from this
+ * cache and only needs to evaluate keywords that were added or edited in the key file since the last run.
+ *
+ * File layout: magic, version, fingerprint (settings, size, modification time and checksum of the text file),
+ * number of documents, the words (ascending) and one entry per keyword (type, text, frequency and document ids
+ * as variable length deltas).
+ */
+public class KeyResultCache
+{
+    private static final int MAGIC = 0x4B455943;     // KEYC
+    private static final int VERSION = 2;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Frequency and matching documents of one keyword. */
+    public static class CachedResult
+    {
+        private final long _Frequency;
+        private final int[] _DocIds;
+
+        /**
+         * Class constructor
+         * @param frequency
+         * @param docIds Dense document ids in ascending order.
+         */
+        public CachedResult(long frequency, int[] docIds)
+        {
+            _Frequency = frequency;
+            _DocIds = docIds;
+        }
+
+        /**
+         * Gets the frequency as it is reported in the keyword frequency file.
+         * @return
+         */
+        public long getFrequency() { return _Frequency; }
+
+        /**
+         * Gets the dense ids of the matching documents in ascending order.
+         * @return
+         */
+        public int[] getDocIds() { return _DocIds; }
+    }
+
+    /**
+     * Identifies a text collection by the size, modification time and CRC32 checksum of its text file and the settings
+     * that determine the documents and words of its index (row id and text column and RegexMask).
+     *
+     * The checksum is computed (one pass over the text file) only when it is needed: a cache written for a text file
+     * of the same size and modification time takes the checksum of the cache without reading the text file.
+     */
+    public static class TextFingerprint
+    {
+        private final File _TextFile;
+        private final String _Settings;
+        private final long _Length;
+        private final long _Modified;
+        private long _Checksum = -1;
+        private long _BytesHashed = 0;
+
+        /**
+         * Class constructor
+         * @param textFile
+         * @param rowIdColumn Row id column or null if row ids are generated.
+         * @param textColumn
+         * @param regexMask
+         */
+        public TextFingerprint(String textFile, String rowIdColumn, String textColumn, String regexMask)
+        {
+            _TextFile = new File(textFile);
+            _Settings = String.format("%s|%s|%s", (rowIdColumn == null ? "" : rowIdColumn), textColumn, regexMask);
+            _Length = _TextFile.length();
+            _Modified = _TextFile.lastModified();
+        }
+
+        /**
+         * Gets the number of bytes of the text file that were read to compute the checksum (0 if it was not computed).
+         * @return
+         */
+        public long getBytesHashed() { return _BytesHashed; }
+
+        /**
+         * Gets the CRC32 checksum of the text file (computed on first use unless it was taken from a cache).
+         * @return
+         * @throws IOException
+         */
+        public long Checksum() throws IOException
+        {
+            if (_Checksum >= 0)
+                return _Checksum;
+
+            CRC32 crc = new CRC32();
+            try (InputStream in = new FileInputStream(_TextFile))
+            {
+                byte[] buf = new byte[BUFFER_SIZE];
+                for (int n; (n = in.read(buf)) > 0; _BytesHashed += n)
+                    crc.update(buf, 0, n);
+            }
+
+            return (_Checksum = crc.getValue());
+        }
+
+        /**
+         * Determines whether a cache was written for this text collection: the settings and the size of the text file
+         * must be equal and either its modification time or (if the file was touched) its checksum.
+         * @param settings
+         * @param length
+         * @param modified
+         * @param checksum
+         * @return
+         * @throws IOException
+         */
+        private boolean Matches(String settings, long length, long modified, long checksum) throws IOException
+        {
+            if (settings.equals(_Settings) == false || length != _Length)
+                return false;
+
+            if (modified == _Modified && _Checksum < 0)
+            {
+                _Checksum = checksum;   // Unchanged file, no need to read it
+                return true;
+            }
+
+            return (Checksum() == checksum);
+        }
+
+        private void Write(DataOutputStream out) throws IOException
+        {
+            WriteString(out, _Settings);
+            out.writeLong(_Length);
+            out.writeLong(_Modified);
+            out.writeLong(Checksum());
+        }
+    }
+
+    //region fields
+    private final TextFingerprint _Fingerprint;
+    private long _Documents = 0;
+    private List<String> _Words = new ArrayList<String>();
+    private final HashMap<String, CachedResult> _Results = new HashMap<String, CachedResult>();
+    //endregion fields
+
+    //region ctors
+    /**
+     * Class constructor
+     * @param fingerprint Fingerprint of the text collection.
+     */
+    public KeyResultCache(TextFingerprint fingerprint)
+    {
+        _Fingerprint = fingerprint;
+    }
+    //endregion ctors
+
+    //region properties
+    public TextFingerprint getFingerprint() { return _Fingerprint; }
+
+    /**
+     * Gets the number of documents (text rows) of the text collection.
+     * @return
+     */
+    public long getDocuments() { return _Documents; }
+
+    /**
+     * Gets all words of the index on the text collection in ascending order.
+     * @return
+     */
+    public List<String> getWords() { return _Words; }
+
+    /**
+     * Gets the number of keywords with results in this cache.
+     * @return
+     */
+    public int Count() { return _Results.size(); }
+    //endregion properties
+
+    //region methods
+    /**
+     * Sets the number of documents and the words (in ascending order) of the index on the text collection.
+     * @param documents
+     * @param words
+     */
+    public void SetCollection(long documents, List<String> words)
+    {
+        _Documents = documents;
+        _Words = words;
+    }
+
+    /**
+     * Gets the cached result of a keyword or null if the keyword (text and type) was not evaluated before.
+     * @param keyword
+     * @return
+     */
+    public synchronized CachedResult Get(Keyword keyword)
+    {
+        return _Results.get(keyword.Key());
+    }
+
+    /**
+     * Stores the result of a keyword (keywords can be evaluated and stored by several threads at once).
+     * @param keyword
+     * @param frequency
+     * @param docIds Dense document ids in ascending order.
+     */
+    public synchronized void Put(Keyword keyword, long frequency, int[] docIds)
+    {
+        _Results.put(keyword.Key(), new CachedResult(frequency, docIds));
+    }
+
+    /**
+     * Removes the results of all keywords that are not part of the given keys (e.g. keys removed from the key file).
+     * @param keys
+     */
+    public void Retain(Iterable<Keyword> keys)
+    {
+        HashSet<String> current = new HashSet<String>();
+        for (Keyword item : keys)
+            current.add(item.Key());
+
+        _Results.keySet().retainAll(current);
+    }
+
+    /**
+     * Reads a cache file and returns null if the file does not exist, cannot be read or was written
+     * for another text collection (fingerprint).
+     * @param file
+     * @param fingerprint
+     * @return
+     */
+    public static KeyResultCache Load(File file, TextFingerprint fingerprint)
+    {
+        if (file.exists() == false)
+            return null;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE)))
+        {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+            {
+                System.out.printf("Ignoring key cache '%s' (unknown format).\n", file.getPath());
+                return null;
+            }
+
+            if (fingerprint.Matches(ReadString(in), in.readLong(), in.readLong(), in.readLong()) == false)
+            {
+                System.out.printf("Ignoring key cache '%s' (text collection or its settings changed).\n", file.getPath());
+                return null;
+            }
+
+            KeyResultCache cache = new KeyResultCache(fingerprint);
+            cache._Documents = PostingRun.ReadVarLong(in);
+
+            int wordCount = (int)PostingRun.ReadVarLong(in);
+            ArrayList<String> words = new ArrayList<String>(wordCount);
+            for (int i = 0; i < wordCount; i++)
+                words.add(ReadString(in));
+
+            cache._Words = words;
+
+            int entries = (int)PostingRun.ReadVarLong(in);
+            for (int i = 0; i < entries; i++)
+            {
+                String key = ReadString(in);
+                long frequency = PostingRun.ReadVarLong(in);
+                int[] docIds = new int[(int)PostingRun.ReadVarLong(in)];
+
+                int docId = 0;
+                for (int j = 0; j < docIds.length; j++)
+                {
+                    docId += (int)PostingRun.ReadVarLong(in);
+                    docIds[j] = docId;
+                }
+
+                cache._Results.put(key, new CachedResult(frequency, docIds));
+            }
+
+            return cache;
+        }
+        catch (IOException e)
+        {
+            System.out.printf("Ignoring key cache '%s' (%s).\n", file.getPath(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes this cache into a file (the file is replaced only after it was written completely).
+     * @param file
+     * @throws IOException
+     */
+    public void Save(File file) throws IOException
+    {
+        File tmpFile = new File(file.getPath() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile), BUFFER_SIZE)))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            _Fingerprint.Write(out);
+            PostingRun.WriteVarLong(out, _Documents);
+
+            PostingRun.WriteVarLong(out, _Words.size());
+            for (String word : _Words)
+                WriteString(out, word);
+
+            PostingRun.WriteVarLong(out, _Results.size());
+            for (Map.Entry<String, CachedResult> entry : _Results.entrySet())
+            {
+                int[] docIds = entry.getValue().getDocIds();
+
+                WriteString(out, entry.getKey());
+                PostingRun.WriteVarLong(out, entry.getValue().getFrequency());
+                PostingRun.WriteVarLong(out, docIds.length);
+
+                int prevDocId = 0;
+                for (int docId : docIds)
+                {
+                    PostingRun.WriteVarLong(out, docId - prevDocId);
+                    prevDocId = docId;
+                }
+            }
+        }
+
+        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void WriteString(DataOutputStream out, String s) throws IOException
+    {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        PostingRun.WriteVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String ReadString(DataInputStream in) throws IOException
+    {
+        byte[] bytes = new byte[(int)PostingRun.ReadVarLong(in)];
+        in.readFully(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    //endregion methods
+}
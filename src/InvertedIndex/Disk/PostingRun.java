@@ -0,0 +1,259 @@
+package InvertedIndex.Disk;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A sorted run of postings in a file: the terms of a (partial) index in ascending order, each one followed by
+ * its postings (document id delta and word offset as variable length integers).
+ *
+ * Runs are written when the in-memory index reaches its memory budget and merged into a {@link DiskIndex}
+ * once all documents are indexed. Document ids grow from run to run, so the postings of a term in all runs
+ * are simply concatenated in run order when runs are merged.
+ *
+ * File layout per term: varint (term length + 1), UTF-8 term bytes, varint posting count and the postings.
+ * The run ends with a varint 0.
+ */
+public class PostingRun
+{
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Writes a run file term by term. */
+    public static class Writer
+    {
+        //region fields
+        private final DataOutputStream _Out;
+        private long _Position = 0;
+        private long _PrevDocId = 0;
+        //endregion fields
+
+        /**
+         * Class constructor
+         * @param file
+         * @throws IOException
+         */
+        public Writer(File file) throws IOException
+        {
+            _Out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+        }
+
+        /**
+         * Gets the number of bytes written so far.
+         * @return
+         */
+        public long getPosition() { return _Position; }
+
+        /**
+         * Starts the postings of the next term (terms must be written in ascending order) and
+         * returns the file position of its first posting.
+         * @param term
+         * @param count Number of postings that will be added for this term.
+         * @return
+         * @throws IOException
+         */
+        public long StartTerm(String term, int count) throws IOException
+        {
+            byte[] bytes = term.getBytes(StandardCharsets.UTF_8);
+
+            _Position += WriteVarLong(_Out, bytes.length + 1);
+            _Out.write(bytes);
+            _Position += bytes.length;
+            _Position += WriteVarLong(_Out, count);
+            _PrevDocId = 0;
+
+            return _Position;
+        }
+
+        /**
+         * Adds the next posting of the current term (postings must be added in ascending document id order).
+         * @param docId
+         * @param offset
+         * @throws IOException
+         */
+        public void Add(long docId, long offset) throws IOException
+        {
+            _Position += WriteVarLong(_Out, docId - _PrevDocId);
+            _Position += WriteVarLong(_Out, offset);
+            _PrevDocId = docId;
+        }
+
+        /**
+         * Writes the end marker and closes the file.
+         * @throws IOException
+         */
+        public void Close() throws IOException
+        {
+            _Position += WriteVarLong(_Out, 0);
+            _Out.close();
+        }
+    }
+
+    /** Reads a run file term by term and posting by posting. */
+    public static class Reader
+    {
+        //region fields
+        private final DataInputStream _In;
+        private final int _Index;
+        private String _Term = null;
+        private int _Count = 0;
+        private int _Read = 0;
+        private long _DocId = 0;
+        private long _Offset = 0;
+        //endregion fields
+
+        /**
+         * Class constructor
+         * @param file
+         * @param index Position of this run in the order of runs (used to keep document ids ascending when merging).
+         * @throws IOException
+         */
+        public Reader(File file, int index) throws IOException
+        {
+            _In = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+            _Index = index;
+        }
+
+        //region properties
+        public int getIndex() { return _Index; }
+
+        /**
+         * Gets the current term or null if the end of the run was reached.
+         * @return
+         */
+        public String Term() { return _Term; }
+
+        /**
+         * Gets the number of postings of the current term.
+         * @return
+         */
+        public int Count() { return _Count; }
+
+        public long DocId() { return _DocId; }
+
+        public long Offset() { return _Offset; }
+        //endregion properties
+
+        //region methods
+        /**
+         * Skips the remaining postings of the current term and moves to the next term.
+         * @return false if the end of the run was reached.
+         * @throws IOException
+         */
+        public boolean NextTerm() throws IOException
+        {
+            while (NextPosting())
+                ;
+
+            int len = (int)ReadVarLong(_In);
+            if (len == 0)
+            {
+                _Term = null;
+                _Count = _Read = 0;
+                return false;
+            }
+
+            byte[] bytes = new byte[len - 1];
+            _In.readFully(bytes);
+
+            _Term = new String(bytes, StandardCharsets.UTF_8);
+            _Count = (int)ReadVarLong(_In);
+            _Read = 0;
+            _DocId = 0;
+
+            return true;
+        }
+
+        /**
+         * Moves to the next posting of the current term.
+         * @return false if all postings of the current term were read.
+         * @throws IOException
+         */
+        public boolean NextPosting() throws IOException
+        {
+            if (_Read >= _Count)
+                return false;
+
+            _DocId += ReadVarLong(_In);
+            _Offset = ReadVarLong(_In);
+            _Read++;
+
+            return true;
+        }
+
+        public void Close() throws IOException
+        {
+            _In.close();
+        }
+        //endregion methods
+    }
+
+    //region methods
+    /**
+     * Writes a non-negative value as variable length integer (7 bits per byte, least significant group first).
+     * @param out
+     * @param value
+     * @return Number of bytes written.
+     * @throws IOException
+     */
+    static int WriteVarLong(DataOutput out, long value) throws IOException
+    {
+        int bytes = 1;
+        while ((value & ~0x7FL) != 0)
+        {
+            out.writeByte((int)((value & 0x7F) | 0x80));
+            value >>>= 7;
+            bytes++;
+        }
+
+        out.writeByte((int)value);
+        return bytes;
+    }
+
+    /**
+     * Reads a variable length integer written by {@link #WriteVarLong(DataOutput, long)}.
+     * @param in
+     * @return
+     * @throws IOException
+     */
+    static long ReadVarLong(DataInput in) throws IOException
+    {
+        long value = 0;
+        for (int shift = 0; ; shift += 7)
+        {
+            byte b = in.readByte();
+            value |= (long)(b & 0x7F) << shift;
+
+            if (b >= 0)
+                return value;
+        }
+    }
+
+    /**
+     * Reads a variable length integer from the current position of a buffer.
+     * @param buf
+     * @return
+     */
+    static long ReadVarLong(ByteBuffer buf)
+    {
+        long value = 0;
+        for (int shift = 0; ; shift += 7)
+        {
+            byte b = buf.get();
+            value |= (long)(b & 0x7F) << shift;
+
+            if (b >= 0)
+                return value;
+        }
+    }
+    //endregion methods
+}
@@ -1,33 +1,144 @@
 package InvertedIndex;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import CSV.FromCSV;
 import CSV.ToCSV;
-import Documents.DocQueries;
+import Documents.RowIds;
+import ProgramObjects.Events.IndexBatchEvent;
+import InvertedIndex.Cursors.AndCursor;
+import InvertedIndex.Cursors.ConjunctionCursor;
+import InvertedIndex.Cursors.NearCursor;
+import InvertedIndex.Cursors.OrCursor;
+import InvertedIndex.Cursors.PhraseCursor;
+import InvertedIndex.Cursors.PostingCursor;
+import InvertedIndex.Cursors.TermCursor;
+import InvertedIndex.Disk.DiskIndex;
+import InvertedIndex.Disk.PostingRun;
 import InvertedIndex.Nx.NxWord;
+import InvertedIndex.Postings.PostingArena;
 
 /***
  * Build an inverted index to query word occurences and resolve them<
+ *
+ * An index with a memory budget is built in the manner of SPIMI (single-pass in-memory indexing): postings are
+ * collected in memory until the budget is reached and then written as a sorted {@link PostingRun} into a
+ * temporary directory. Once all documents are indexed ({@link #CompleteBuild()}) the runs are merged into
+ * a {@link DiskIndex} that answers all queries - an index that never reached its budget stays in memory.
+ * The budget bounds the postings only: the term dictionary of the tokenizer, the word-pair index ({@link NxWord})
+ * and the row ids of the documents grow with the vocabulary and the number of documents and stay on the heap.
  */
 public class IIndex
 {
+    /** Estimated heap bytes per distinct term in memory (map entry, offset collection and posting list objects) */
+    private static final int TERM_OVERHEAD_BYTES = 160;
+
     private final HashMap<String, WordDocumentOffests<String>> _iindex;
+    private final PostingArena _Arena;
+
+    private final long _MemoryBudget;
+    private final File _SpillDir;
+    private final ArrayList<File> _Runs = new ArrayList<File>();
+    private File _RunDir = null;
+    private long _BufferedBytes = 0;
+    private DiskIndex _Disk = null;
+    private long _DocCount = 0;
+    private IndexPartitions _Partitions = null;
+    private SortedTerms _SortedTerms = null;
+
+    /**
+     * Class constructor
+     * @param arena Stores postings off-heap in this arena or on the Java heap if null.
+     * @param memoryBudget Number of heap bytes for postings before they are written into a run file (0 = no limit).
+     * @param spillDir Parent directory of the temporary run and index files (system temp directory if null).
+     */
+    public IIndex(PostingArena arena, long memoryBudget, File spillDir)
+    {
+        _iindex = new HashMap<String, WordDocumentOffests<String>>();
+        _Arena = (memoryBudget > 0 ? null : arena);   // Budget is measured on the heap
+        _MemoryBudget = memoryBudget;
+        _SpillDir = spillDir;
+    }
+
+    /**
+     * Class constructor
+     * @param arena Stores postings off-heap in this arena or on the Java heap if null.
+     */
+    public IIndex(PostingArena arena)
+    {
+        this(arena, 0, null);
+    }
 
     /** Class  constructor */
     public IIndex()
     {
-        _iindex = new HashMap<String, WordDocumentOffests<String>>();
+        this(null);
     }
 
     /**
      * Gets the number of words indexed in this collection
      * @return
      */
-    public long WordCount() { return _iindex.size(); }
+    public long WordCount() { return (_Disk != null ? _Disk.WordCount() : _iindex.size()); }
+
+    /**
+     * Gets the number of documents indexed in this collection (dense document ids 0 .. count - 1).
+     * @return
+     */
+    public long DocumentCount() { return _DocCount; }
+
+    /**
+     * Gets the number of postings (indexed word occurrences) in this collection.
+     * @return
+     */
+    public long PostingCount()
+    {
+        if (_Disk != null)
+            return _Disk.PostingCount();
+
+        long count = 0;
+        for (WordDocumentOffests<String> item : _iindex.values())
+            count += item.CountOffsets();
+
+        return count;
+    }
+
+    /**
+     * Gets the number of bytes reserved to store the postings of this collection (on disk for a disk index).
+     * @return
+     */
+    public long PostingBytes()
+    {
+        if (_Disk != null)
+            return _Disk.DiskBytes();
+
+        long bytes = 0;
+        for (WordDocumentOffests<String> item : _iindex.values())
+            bytes += item.ReservedBytes();
+
+        return bytes;
+    }
+
+    /**
+     * Gets the number of sorted runs that were written because the memory budget was reached.
+     * @return
+     */
+    public int SpilledRuns() { return _Runs.size(); }
+
+    /**
+     * Gets whether this index was merged into a disk index.
+     * @return
+     */
+    public boolean IsOnDisk() { return _Disk != null; }
+
+    /**
+     * Gets the number of document id ranges that are queried in parallel (1 if the index is not partitioned).
+     * @return
+     */
+    public int PartitionCount() { return (_Partitions != null ? _Partitions.Count() : 1); }
 
     //region methods
     /**
@@ -37,25 +148,37 @@ public class IIndex
      * @param textColumn
      * @param rowIdColumn
      * @param regexMask
-     * @param docQueries
-     * @param keys
+     * @param keys Keywords of all key sets - regular expressions are matched on each document and record the
+     *             documents they matched (see {@link Keyword#getMatchedDocIds()}).
      * @param mainKeyWord
      * @param mainKeys
      * @param iindex
      * @param createNextWordIndex
+     * @param arena Stores postings off-heap in this arena or on the Java heap if null.
+     * @param memoryBudget Number of heap bytes for postings before they are spilled to disk (0 = in-memory index).
+     * @param spillDir Parent directory of temporary index files (system temp directory if null).
      */
     public static IndexDocumentResult IndexDocuments(
         FromCSV df,
         String rowIdColumn, String textColumn, 
         String regexMask,
-        DocQueries docQueries,
-        HashMap<String, Keyword> keys,
-        boolean createNextWordIndex
+        Collection<Keyword> keys,
+        boolean createNextWordIndex,
+        PostingArena arena,
+        long memoryBudget,
+        File spillDir
         )
         throws IOException, Exception
     {
-        IIndex iIndex = new IIndex();
-        NxWord nxIndex = (createNextWordIndex ? new NxWord(2) : null);
+        IIndex iIndex = new IIndex(arena, memoryBudget, spillDir);
+        NxWord nxIndex = (createNextWordIndex ? new NxWord(2, arena) : null);
+        Tokenizer tokenizer = new Tokenizer(regexMask);
+        RowIds rowIds = new RowIds();
+        long regexNanos = 0, regexMatches = 0;
+
+        IndexBatchEvent batchEvent = new IndexBatchEvent();  // Flight Recorder event per batch of documents
+        long batchRegexBase = 0;
+        batchEvent.begin();
         
         HashMap<String, String> dataRow;
         long docRow = 0;                      // Parse all documents
@@ -66,45 +189,92 @@ public class IIndex
             if (docText == null)
                 continue;
 
-            String rowId;
+            int docId;                        // Assign a dense document id and remember the external row id
             if (rowIdColumn != null)
-                rowId = dataRow.get(rowIdColumn);
+            {
+                String rowId = dataRow.get(rowIdColumn);
+                if (rowId == null)
+                    throw new IllegalArgumentException(String.format("Row id column '%s' not found in line %d.", rowIdColumn, df.getLineNumber()));
+
+                docId = rowIds.Add(rowId);
+            }
             else
-                rowId = String.valueOf(docRow);
+                docId = rowIds.Add(docRow);
 
             String input = (IsNullOrEmpty(docText) ? "" : docText);
             
             // Loop through keyword entries and attempt to match Regex Expressions on document 'as is'
             if (keys != null)
             {
-                for (Keyword item : keys.values())
+                long regexStart = System.nanoTime();
+                for (Keyword item : keys)
                 {
                     if (item.getRegex() == true)
                     {
+                        QueryProfile profile = item.getProfile();
+                        long keyStart = (profile != null ? System.nanoTime() : 0);
+
                         if (item.getRegexEpression().matcher(docText).find())
                         {
-                            docQueries.AddDocumentQuery(Long.parseLong(rowId), item.getWord());
-                            item.IncrementMatchedDocuments();
+                            item.AddMatchedDocument(docId);
+                            regexMatches++;
+                        }
+
+                        if (profile != null)
+                        {
+                            profile.AddNanos(System.nanoTime() - keyStart);
+                            profile.AddDocumentScanned();
                         }
                     }                
                 }
+                regexNanos += System.nanoTime() - regexStart;
             }
 
             // Parse document and emit a list of words representing the content of this document
-            // get a matcher object
-            Pattern pattern = Pattern.compile(regexMask);
-            Matcher matcher = pattern.matcher(input); 
-            String textAlphaOnlyIn = matcher.replaceAll(" ");
-            
-            String[] words = textAlphaOnlyIn.toLowerCase().trim().split("\\s+");
+            String[] words = tokenizer.Tokenize(input);
 
-    	    iIndex.IndexDocument(Long.parseLong(rowId), words);      // Build an inverted index
+    	    iIndex.IndexDocument(docId, words);      // Build an inverted index
 
             if (createNextWordIndex)
-                nxIndex.IndexDocument(Long.parseLong(rowId), words);    // Build a nextword index for phrase browsing
+                nxIndex.IndexDocument(docId, words);    // Build a nextword index for phrase browsing
+
+            batchEvent.documents++;
+            batchEvent.tokens += words.length;
+            if (batchEvent.documents == IndexBatchEvent.BATCH_SIZE)
+            {
+                CommitBatch(batchEvent, docId, regexMatches - batchRegexBase);
+                batchRegexBase = regexMatches;
+                batchEvent = new IndexBatchEvent();
+                batchEvent.begin();
+            }
         }
 
-        return new IndexDocumentResult(iIndex, nxIndex, docRow, true);
+        if (batchEvent.documents > 0)
+            CommitBatch(batchEvent, rowIds.Count() - 1, regexMatches - batchRegexBase);
+
+        iIndex.CompleteBuild();
+
+        IndexDocumentResult result = new IndexDocumentResult(iIndex, nxIndex, docRow, true, arena, rowIds);
+        result.SetRegexStatistics(regexNanos, regexMatches);
+
+        return result;
+    }
+
+    /**
+     * Commits a batch event that ended with document {@param lastDocId}.
+     * @param batchEvent
+     * @param lastDocId
+     * @param regexMatches
+     */
+    private static void CommitBatch(IndexBatchEvent batchEvent, int lastDocId, long regexMatches)
+    {
+        batchEvent.end();
+        if (batchEvent.shouldCommit())
+        {
+            batchEvent.firstDocument = lastDocId - batchEvent.documents + 1;
+            batchEvent.regexMatches = regexMatches;
+            batchEvent.commit();
+        }
     }
 
     /***
@@ -122,9 +292,12 @@ public class IIndex
      * Add the text content of a given document word by word into the inverted index.
      * @param docKey
      * @param words
+     * @throws IOException
      */
-    public void IndexDocument(long docKey, String[] words)
+    public void IndexDocument(long docKey, String[] words) throws IOException
     {
+        _DocCount = Math.max(_DocCount, docKey + 1);
+
         if (words.length <= 0)  // String does not have enough words for nGram process
             return;
 
@@ -136,14 +309,113 @@ public class IIndex
             if (_iindex.containsKey(wordKey))
             {
                 WordDocumentOffests<String> docOffItem = _iindex.get(wordKey);
-                docOffItem.AddDocumentOffset(docKey, docOffset);
+
+                if (_MemoryBudget > 0)
+                {
+                    long reserved = docOffItem.ReservedBytes();
+                    docOffItem.AddDocumentOffset(docKey, docOffset);
+                    _BufferedBytes += docOffItem.ReservedBytes() - reserved;
+                }
+                else
+                    docOffItem.AddDocumentOffset(docKey, docOffset);
             }
             else
             {
-                WordDocumentOffests<String> newItem = new WordDocumentOffests<String>(wordKey, docKey, docOffset);
+                WordDocumentOffests<String> newItem = new WordDocumentOffests<String>(wordKey, _Arena, docKey, docOffset);
                 _iindex.put(wordKey, newItem);
+
+                if (_MemoryBudget > 0)
+                    _BufferedBytes += TERM_OVERHEAD_BYTES + 2L * wordKey.length() + newItem.ReservedBytes();
             }
         }
+
+        if (_MemoryBudget > 0 && _BufferedBytes >= _MemoryBudget)
+            Spill();
+    }
+
+    /**
+     * Completes the index build: if postings were spilled to disk, the remaining postings are spilled and all
+     * runs are merged into a disk index (otherwise the index stays in memory).
+     * @throws IOException
+     */
+    public void CompleteBuild() throws IOException
+    {
+        if (_Runs.isEmpty() || _Disk != null)
+            return;
+
+        Spill();
+        _Disk = DiskIndex.Merge(_Runs, _RunDir);
+    }
+
+    /**
+     * Deletes the temporary files of a disk index (if any). The index cannot be queried after calling this.
+     * @throws IOException
+     */
+    public void Release() throws IOException
+    {
+        if (_Partitions != null)
+        {
+            _Partitions.Close();
+            _Partitions = null;
+        }
+
+        _SortedTerms = null;
+        if (_Disk != null)
+        {
+            _Disk.Delete();
+            _Disk = null;
+        }
+    }
+
+    /**
+     * Splits the documents of this index into {@param partitions} ranges of document ids so that each phrase
+     * and bool AND query with more than one word is evaluated on all ranges at the same time (see {@link IndexPartitions}).
+     * Call this once all documents are indexed.
+     * @param partitions Number of document id ranges (1 = evaluate each query on one thread).
+     * @param threads Number of threads that evaluate partitions of queries from callers outside of a fork-join pool.
+     */
+    public void Partition(int partitions, int threads)
+    {
+        if (_Partitions != null)
+            _Partitions.Close();
+
+        _Partitions = (partitions > 1 ? new IndexPartitions(_DocCount, partitions, threads) : null);
+    }
+
+    /**
+     * Writes the postings in memory as sorted run into the temporary directory and clears them from memory.
+     * @throws IOException
+     */
+    private void Spill() throws IOException
+    {
+        if (_iindex.isEmpty())
+            return;
+
+        if (_RunDir == null)
+        {
+            _RunDir = (_SpillDir == null ? Files.createTempDirectory("PhraseTractor").toFile()
+                                         : Files.createTempDirectory(_SpillDir.toPath(), "PhraseTractor").toFile());
+            _RunDir.deleteOnExit();
+        }
+
+        String[] terms = _iindex.keySet().toArray(new String[_iindex.size()]);
+        Arrays.sort(terms);
+
+        File file = new File(_RunDir, String.format("run_%d.run", _Runs.size()));
+        PostingRun.Writer writer = new PostingRun.Writer(file);
+        for (String term : terms)
+        {
+            WordDocumentOffests<String> docOffsets = _iindex.get(term);
+
+            writer.StartTerm(term, (int)docOffsets.CountOffsets());
+            for (int i = 0, count = (int)docOffsets.CountOffsets(); i < count; i++)
+                writer.Add(docOffsets.DocId(i), docOffsets.Offset(i));
+        }
+        writer.Close();
+
+        _Runs.add(file);
+        _iindex.clear();
+        _BufferedBytes = 0;
     }
 
     /**
@@ -154,41 +426,118 @@ public class IIndex
      */
     public WordDocumentOffests<String> PhraseQuery(String[] words) throws Exception
     {
-        WordDocumentOffests<String> dicItem = null;
-        String queryResolution = "";
+        return PhraseQuery(words, null);
+    }
 
+    /**
+     * Gets the Document Offset collection associated with the specified words and records
+     * the postings touched and intermediate result sizes in {@param profile} (if not null).
+     * @param words
+     * @param profile
+     * @return
+     * @throws Exception
+     */
+    public WordDocumentOffests<String> PhraseQuery(String[] words, QueryProfile profile) throws Exception
+    {
         if (words == null || words.length == 0)
             throw new Exception("The number of words in a query cannot be zero.");
 
-        dicItem = this.QueryDocumentOffests(words[0]); // Resolve first word in query
+        if (words.length == 1)
+        {
+            WordDocumentOffests<String> dicItem = this.QueryDocumentOffests(words[0]);
+            if (profile != null)
+                profile.AddIntermediateSize(Touch(profile, dicItem));
 
-        // We are done because we either have
-        // 1) only 1 word to query for or
-        // 2) we could not find the first word
-        if (words.length == 1 || dicItem == null)
             return dicItem;
+        }
 
-        queryResolution = words[0];
+        List<List<WordDocumentOffests<String>>> lists = ResolveWords(words, profile);
+        if (lists == null)
+            return null;     // A word could not be resolved so we return empty handed
 
-        // Merge occurrances of each word in the given query
-        for (int i = 1; i < words.length; i++)
-        {
-            WordDocumentOffests<String> secondDocOffsets = null;
+        return EvaluatePhrase(lists, String.join(" ", words), profile);
+    }
 
-            secondDocOffsets = QueryDocumentOffests(words[i]);
-            if (secondDocOffsets == null)
-                return null;     // Next Word could not be resolved so we return empty handed
+    /**
+     * Gets the Document Offset collection of a phrase in which each word also matches all indexed words
+     * within {@param maxEdits} insertions, deletions or substitutions of characters (fuzzy phrase query).
+     * @param words
+     * @param maxEdits
+     * @param profile Records the postings touched and intermediate result sizes (if not null).
+     * @return
+     * @throws Exception
+     */
+    public WordDocumentOffests<String> FuzzyPhraseQuery(String[] words, int maxEdits, QueryProfile profile) throws Exception
+    {
+        if (words == null || words.length == 0)
+            throw new Exception("The number of words in a query cannot be zero.");
 
-            // Merge 2 Document Offset lists to generate a third result list to be returned or used in next loop
-            queryResolution = queryResolution + " " + words[i];
-            WordDocumentOffests<String> resolvedDocOffsets;
-            if ((resolvedDocOffsets = dicItem.MergeDocumentOffset(secondDocOffsets, queryResolution)).CountOffsets() == 0)
-                return null;     // Next Word could not be resolved so we return empty handed
+        List<List<WordDocumentOffests<String>>> lists = ExpandWords(words, maxEdits, profile);
+        if (lists == null)
+            return null;     // A word has no similar indexed word so we return empty handed
 
-            dicItem = resolvedDocOffsets; // setup for next loop's merge operation
-        }
+        return EvaluatePhrase(lists, String.join(" ", words) + "~" + maxEdits, profile);
+    }
+
+    /**
+     * Gets the Document Offset collection of a phrase in which words can contain the wildcards '*' (any characters)
+     * and '?' (one character) to match all indexed words that start with the characters before the first wildcard.
+     * @param words Words of the phrase (a word must not start with a wildcard).
+     * @param profile Records the postings touched and intermediate result sizes (if not null).
+     * @return
+     * @throws Exception
+     */
+    public WordDocumentOffests<String> WildcardPhraseQuery(String[] words, QueryProfile profile) throws Exception
+    {
+        if (words == null || words.length == 0)
+            throw new Exception("The number of words in a query cannot be zero.");
 
-        return dicItem;
+        SortedTerms terms = Terms();
+        ArrayList<List<String>> expansions = new ArrayList<List<String>>();
+        for (String word : words)
+            expansions.add(terms.Wildcard(word));
+
+        List<List<WordDocumentOffests<String>>> lists = TermPostings(expansions, profile);
+        if (lists == null)
+            return null;     // A word matches no indexed word so we return empty handed
+
+        return EvaluatePhrase(lists, String.join(" ", words), profile);
+    }
+
+    /**
+     * Gets the Document Offset collection of the words of a query that occur within a window of {@param window}
+     * positions between the first and the last word (proximity query). Each match is recorded with the position
+     * of its last word.
+     * @param words
+     * @param window Maximum distance between the first and the last word of a match.
+     * @param ordered true if the words must occur in query order.
+     * @param profile Records the postings touched and intermediate result sizes (if not null).
+     * @return
+     * @throws Exception
+     */
+    public WordDocumentOffests<String> NearQuery(String[] words, int window, boolean ordered, QueryProfile profile) throws Exception
+    {
+        if (words == null || words.length == 0)
+            throw new Exception("The number of words in a query cannot be zero.");
+
+        List<List<WordDocumentOffests<String>>> lists = ResolveWords(words, profile);
+        if (lists == null)
+            return null;     // A word could not be resolved so we return empty handed
+
+        return EvaluatePositions(lists, String.join(ordered ? " pre/" + window + " " : " w/" + window + " ", words), window, ordered, profile);
+    }
+
+    /**
+     * Gets the terms of this index in ascending order (created on first use - call this once all documents are indexed).
+     * @return
+     * @throws IOException
+     */
+    public synchronized SortedTerms Terms() throws IOException
+    {
+        if (_SortedTerms == null)
+            _SortedTerms = new SortedTerms(WordsSortedByAlpha());
+
+        return _SortedTerms;
     }
 
     /**
@@ -200,8 +549,17 @@ public class IIndex
     {
         // Sort by positiv frequencies and output result
         Lists.SortedList<Long, String> slist = new Lists.SortedList<Long, String>(new Lists.LongDescOrder());
-        for (Map.Entry<String, WordDocumentOffests<String>> item : _iindex.entrySet())
-            slist.add(item.getValue().CountOffsets(), item.getValue().WordKey());
+        if (_Disk != null)
+        {
+            DiskIndex.TermCursor cursor = _Disk.Terms();
+            while (cursor.Next())
+                slist.add((long)cursor.Count(), cursor.Term());
+        }
+        else
+        {
+            for (Map.Entry<String, WordDocumentOffests<String>> item : _iindex.entrySet())
+                slist.add(item.getValue().CountOffsets(), item.getValue().WordKey());
+        }
 
         ToCSV csvOut = new ToCSV(new String[] { "frequency", "word" });
         for (Map.Entry<Long,List<String>> entry : slist.getColl().entrySet())
@@ -222,25 +580,53 @@ public class IIndex
      */
     public void WriteWordsSortedByAlpha2CSV(String fileName, HashMap<String, Keyword> keys) throws IOException
     {
-        // Sort by alphanumeric string value and output result
-        Lists.SortedList<String, String> slist = new Lists.SortedList<String, String>();
-        for (Map.Entry<String, WordDocumentOffests<String>> item : _iindex.entrySet())
-            slist.add(item.getValue().WordKey(), item.getValue().WordKey());
+        WriteWordsSortedByAlpha2CSV(fileName, WordsSortedByAlpha(), keys);
+    }
+
+    /***
+     * Write a given list of words (sorted by their alphanumeric value) and whether
+     * they're alread being keyed/used in a CSV file query (1) or not (0).
+     * @param fileName
+     * @param words
+     * @param keys
+     * @throws IOException
+     */
+    public static void WriteWordsSortedByAlpha2CSV(String fileName, List<String> words, HashMap<String, Keyword> keys) throws IOException
+    {
+        HashSet<String> keyed = new HashSet<String>();
+        for (Keyword key : keys.values())
+            keyed.add(key.getWord());
 
         ToCSV csvOut = new ToCSV(new String[] { "keyed", "word" });
-        for (Map.Entry<String,List<String>> entry : slist.getColl().entrySet())
+        for (String s : words)
+            csvOut.WriteLine(new String[] { (keyed.contains(s) ? "1" : "0"), s });
+
+        csvOut.WriteFile(fileName);
+    }
+
+    /**
+     * Gets all indexed words sorted by their alphanumeric value.
+     * @return
+     * @throws IOException
+     */
+    public List<String> WordsSortedByAlpha() throws IOException
+    {
+        ArrayList<String> words = new ArrayList<String>();
+        if (_Disk != null)
         {
-            String sWordOut = "0";
-            for (String s : entry.getValue())
-            {
-                if (keys.containsKey(s))
-                    sWordOut = "1";
+            DiskIndex.TermCursor cursor = _Disk.Terms();   // Terms are stored in ascending order
+            while (cursor.Next())
+                words.add(cursor.Term());
+        }
+        else
+        {
+            for (WordDocumentOffests<String> item : _iindex.values())
+                words.add(item.WordKey());
 
-                csvOut.WriteLine(new String[] { sWordOut, s });
-            }
+            Collections.sort(words);
         }
 
-        csvOut.WriteFile(fileName);
+        return words;
     }
 
     /**
@@ -252,72 +638,346 @@ public class IIndex
      */
 	public HashSet<Long> BoolAndQuery(String[] words) throws Exception
     {
-        HashSet<Long> dicItem = null;
-        String queryResolution = "";
+        return BoolAndQuery(words, null);
+    }
 
+    /**
+     * Performs a relaxed phrase query (boolean AND query) and records the postings touched
+     * and intermediate result sizes in {@param profile} (if not null).
+     * @param words
+     * @param profile
+     * @return
+     * @throws Exception
+     */
+	public HashSet<Long> BoolAndQuery(String[] words, QueryProfile profile) throws Exception
+    {
         if (words == null || words.length == 0)
             throw new Exception("The number of words in a query cannot be zero.");
 
-        dicItem = this.QueryDocuments(words[0]); // Resolve first word in query
+        if (words.length == 1)
+        {
+            HashSet<Long> dicItem = this.QueryDocuments(words[0], profile);
+            if (profile != null)
+                profile.AddIntermediateSize(dicItem == null ? 0 : dicItem.size());
 
-        // We are done because we either have
-        // 1) only 1 word to query for or
-        // 2) we could not find the first word
-        if (words.length == 1 || dicItem == null)
             return dicItem;
+        }
 
-        queryResolution = words[0];
+        List<List<WordDocumentOffests<String>>> lists = ResolveWords(words, profile);
+        if (lists == null)
+            return null;     // A word could not be resolved so we return empty handed
+
+        return EvaluateBoolAnd(lists, profile);
+	}
+
+    /**
+     * Performs a bool AND query in which each word also matches all indexed words within
+     * {@param maxEdits} insertions, deletions or substitutions of characters (fuzzy bool AND query).
+     * @param words
+     * @param maxEdits
+     * @param profile Records the postings touched and intermediate result sizes (if not null).
+     * @return
+     * @throws Exception
+     */
+    public HashSet<Long> FuzzyBoolAndQuery(String[] words, int maxEdits, QueryProfile profile) throws Exception
+    {
+        if (words == null || words.length == 0)
+            throw new Exception("The number of words in a query cannot be zero.");
 
-        // Merge occurrances of each word in the given query
-        for (int i = 1; i < words.length; i++)
+        List<List<WordDocumentOffests<String>>> lists = ExpandWords(words, maxEdits, profile);
+        if (lists == null)
+            return null;     // A word has no similar indexed word so we return empty handed
+
+        return EvaluateBoolAnd(lists, profile);
+    }
+
+    /**
+     * Performs a boolean query expression ('and', 'or', 'not' over words and phrases) with one cursor over the
+     * postings of its words in the order of its {@link QueryPlan}, so only the documents of the whole expression are collected.
+     * @param expression
+     * @param profile Records the postings touched and intermediate result sizes (if not null).
+     * @return The ids of the matching documents or null if there is none.
+     * @throws IOException
+     */
+    public HashSet<Long> BoolQuery(BoolExpression expression, QueryProfile profile) throws IOException
+    {
+        return BoolQuery(Plan(expression, false, profile), profile);
+    }
+
+    /**
+     * Plans a boolean query expression on the document frequencies of its words (see {@link QueryPlan}).
+     * @param expression
+     * @param analyze true to count the actual number of documents of each clause when the plan is evaluated.
+     * @param profile Records the postings touched (if not null).
+     * @return
+     * @throws IOException
+     */
+    public QueryPlan Plan(BoolExpression expression, boolean analyze, QueryProfile profile) throws IOException
+    {
+        HashMap<String, WordDocumentOffests<String>> postings = new HashMap<String, WordDocumentOffests<String>>();
+        for (String word : expression.Words())
         {
-            HashSet<Long> secondDocOffsets = null;
+            WordDocumentOffests<String> docOffsets = QueryDocumentOffests(word);
+            if (profile != null)
+                Touch(profile, docOffsets);
 
-            secondDocOffsets = QueryDocuments(words[i]);
-            if (secondDocOffsets == null)
-                return null;     // Next Word could not be resolved so we return empty handed
+            if (docOffsets != null)
+                postings.put(word, docOffsets);
+        }
 
-            // Merge 2 Document Offset lists to generate a third result list to be returned or used in next loop
-            queryResolution = queryResolution + " " + words[i];
+        return QueryPlan.Create(expression, postings, _DocCount, analyze);
+    }
 
-            HashSet<Long> resolvedDocOffsets = IntersectDocumentIds(dicItem, secondDocOffsets);
-            if (resolvedDocOffsets.size() == 0)
-                return null;
-            else
-                dicItem = resolvedDocOffsets;
+    /**
+     * Evaluates the plan of a boolean query expression (an empty plan is not evaluated).
+     * @param plan
+     * @param profile Records the intermediate result sizes (if not null).
+     * @return The ids of the matching documents or null if there is none.
+     */
+    public HashSet<Long> BoolQuery(QueryPlan plan, QueryProfile profile)
+    {
+        HashSet<Long> docIds;
+        if (plan.IsEmpty())
+        {
+            docIds = new HashSet<Long>();
+            RecordCandidates(profile, 0, 0);
+        }
+        else if (_Partitions != null)
+            docIds = _Partitions.BoolQuery(plan, _DocCount, profile);
+        else
+        {
+            PostingCursor cursor = plan.Cursor(0, _DocCount);
+            docIds = new HashSet<Long>();
+            cursor.CollectDocIds(docIds);
+            RecordCandidates(profile, cursor.Cost(), docIds.size());
         }
 
-        return dicItem;
-	}
+        return (docIds.size() == 0 ? null : docIds);
+    }
+
+    /**
+     * Evaluates a phrase on the postings of the terms each word of the phrase matches
+     * (only the occurrences of the whole phrase are materialized).
+     * @param lists Postings of the terms of each word (in phrase order).
+     * @param query
+     * @param profile
+     * @return The postings of the last word of each occurrence of the phrase or null if there is none.
+     */
+    private WordDocumentOffests<String> EvaluatePhrase(List<List<WordDocumentOffests<String>>> lists, String query, QueryProfile profile)
+    {
+        return EvaluatePositions(lists, query, lists.size() - 1, true, profile);
+    }
+
+    /**
+     * Evaluates a proximity query on the postings of the terms each word of the query matches.
+     * @param lists Postings of the terms of each word (in query order).
+     * @param query
+     * @param window Maximum distance between the first and the last word of a match.
+     * @param ordered true if the words must occur in query order.
+     * @param profile
+     * @return The postings of the last word of each match or null if there is none.
+     */
+    private WordDocumentOffests<String> EvaluatePositions(List<List<WordDocumentOffests<String>>> lists, String query, int window, boolean ordered, QueryProfile profile)
+    {
+        WordDocumentOffests<String> dicItem;
+        if (_Partitions != null)
+            dicItem = _Partitions.PositionQuery(lists, query, window, ordered, profile);
+        else
+        {
+            ConjunctionCursor cursor = PositionCursor(lists, 0, PostingCursor.NO_MORE_DOCS, window, ordered);
+            dicItem = new WordDocumentOffests<String>(query);
+            cursor.CollectPositions(dicItem);
+            RecordCandidates(profile, cursor.Cost(), cursor.getCandidates());
+        }
+
+        return (dicItem.CountOffsets() == 0 ? null : dicItem);
+    }
+
+    /**
+     * Evaluates a bool AND query on the postings of the terms each word of the query matches.
+     * @param lists Postings of the terms of each word.
+     * @param profile
+     * @return The ids of the documents that contain all words or null if there is none.
+     */
+    private HashSet<Long> EvaluateBoolAnd(List<List<WordDocumentOffests<String>>> lists, QueryProfile profile)
+    {
+        HashSet<Long> docIds;
+        if (_Partitions != null)
+            docIds = _Partitions.BoolAndQuery(lists, profile);
+        else
+        {
+            AndCursor cursor = new AndCursor(WordCursors(lists, 0, PostingCursor.NO_MORE_DOCS));
+            docIds = new HashSet<Long>();
+            cursor.CollectDocIds(docIds);
+            RecordCandidates(profile, cursor.Cost(), cursor.getCandidates());
+        }
+
+        return (docIds.size() == 0 ? null : docIds);
+    }
 
     /**
-     * Intersects document Ids and returns the intersection of both collections.
-     * @param firstDoc
-     * @param secDoc
+     * Gets the cursor of a proximity query in a range of document ids (a {@link PhraseCursor} if the words must be
+     * adjacent in query order). An unordered query gets one cursor per distinct word, so a word that occurs several
+     * times in the query must occur as often inside the window.
+     * @param lists Postings of the terms of each word (in query order).
+     * @param fromDocId First document id of the range (inclusive).
+     * @param toDocId Last document id of the range (exclusive).
+     * @param window Maximum distance between the first and the last word of a match.
+     * @param ordered true if the words must occur in query order.
      * @return
      */
-    private HashSet<Long> IntersectDocumentIds(HashSet<Long> firstDoc, HashSet<Long> secDoc)
+    static ConjunctionCursor PositionCursor(List<List<WordDocumentOffests<String>>> lists, long fromDocId, long toDocId,
+                                            int window, boolean ordered)
     {
-        HashSet<Long> ret = new HashSet<Long>();
+        if (ordered)
+        {
+            PostingCursor[] cursors = WordCursors(lists, fromDocId, toDocId);
+            return (window == cursors.length - 1 ? new PhraseCursor(cursors) : new NearCursor(window, true, cursors));
+        }
+
+        LinkedHashMap<List<String>, Integer> words = new LinkedHashMap<List<String>, Integer>();
+        ArrayList<List<WordDocumentOffests<String>>> distinct = new ArrayList<List<WordDocumentOffests<String>>>();
+        for (List<WordDocumentOffests<String>> terms : lists)
+        {
+            ArrayList<String> key = new ArrayList<String>();
+            for (WordDocumentOffests<String> term : terms)
+                key.add(term.WordKey());
 
-        if (secDoc.size() < firstDoc.size()) // optimize execution for size of either collection       
+            Integer repeats = words.get(key);
+            if (repeats == null)
+                distinct.add(terms);
+
+            words.put(key, (repeats == null ? 1 : repeats + 1));
+        }
+
+        int[] repeats = new int[distinct.size()];
+        int i = 0;
+        for (Integer count : words.values())
+            repeats[i++] = count;
+
+        return new NearCursor(window, false, repeats, WordCursors(distinct, fromDocId, toDocId));
+    }
+
+    /**
+     * Gets a cursor for each query word over the postings of its terms in a range of document ids
+     * (a word that matches several terms gets an {@link OrCursor} over all of them).
+     * @param lists Postings of the terms of each word.
+     * @param fromDocId First document id of the range (inclusive).
+     * @param toDocId Last document id of the range (exclusive).
+     * @return
+     */
+    static PostingCursor[] WordCursors(List<List<WordDocumentOffests<String>>> lists, long fromDocId, long toDocId)
+    {
+        PostingCursor[] cursors = new PostingCursor[lists.size()];
+        for (int i = 0; i < cursors.length; i++)
         {
-            for (Long docId : secDoc)
+            List<WordDocumentOffests<String>> terms = lists.get(i);
+            if (terms.size() == 1)
             {
-                if (firstDoc.contains(docId))
-                    ret.add(docId);
+                cursors[i] = new TermCursor(terms.get(0), fromDocId, toDocId);
+                continue;
             }
+
+            PostingCursor[] alternatives = new PostingCursor[terms.size()];
+            for (int t = 0; t < alternatives.length; t++)
+                alternatives[t] = new TermCursor(terms.get(t), fromDocId, toDocId);
+
+            cursors[i] = new OrCursor(alternatives);
         }
-        else
+
+        return cursors;
+    }
+
+    /**
+     * Gets the postings of each query word or null if a word is not indexed.
+     * @param words
+     * @param profile Counts the postings of the resolved words (if not null).
+     * @return
+     * @throws IOException
+     */
+    private List<List<WordDocumentOffests<String>>> ResolveWords(String[] words, QueryProfile profile) throws IOException
+    {
+        ArrayList<List<WordDocumentOffests<String>>> lists = new ArrayList<List<WordDocumentOffests<String>>>();
+        for (String word : words)
         {
-            for (Long docId : firstDoc)
+            WordDocumentOffests<String> docOffsets = QueryDocumentOffests(word);
+            if (profile != null)
+                Touch(profile, docOffsets);
+
+            if (docOffsets == null)
+                return null;
+
+            lists.add(Collections.singletonList(docOffsets));
+        }
+
+        return lists;
+    }
+
+    /**
+     * Gets the postings of the indexed terms within {@param maxEdits} edits of each query word
+     * or null if there is no such term for a word.
+     * @param words
+     * @param maxEdits
+     * @param profile Counts the postings of the terms (if not null).
+     * @return
+     * @throws IOException
+     */
+    private List<List<WordDocumentOffests<String>>> ExpandWords(String[] words, int maxEdits, QueryProfile profile) throws IOException
+    {
+        SortedTerms terms = Terms();
+        ArrayList<List<String>> expansions = new ArrayList<List<String>>();
+        for (String word : words)
+            expansions.add(terms.Fuzzy(word, maxEdits));
+
+        return TermPostings(expansions, profile);
+    }
+
+    /**
+     * Gets the postings of the indexed terms each query word expands to or null if a word has no term.
+     * @param expansions Terms of each query word.
+     * @param profile Counts the postings of the terms (if not null).
+     * @return
+     * @throws IOException
+     */
+    private List<List<WordDocumentOffests<String>>> TermPostings(List<List<String>> expansions, QueryProfile profile) throws IOException
+    {
+        ArrayList<List<WordDocumentOffests<String>>> lists = new ArrayList<List<WordDocumentOffests<String>>>();
+        for (List<String> expansion : expansions)
+        {
+            ArrayList<WordDocumentOffests<String>> termLists = new ArrayList<WordDocumentOffests<String>>();
+            for (String term : expansion)
             {
-                if (secDoc.contains(docId))
-                    ret.add(docId);
+                WordDocumentOffests<String> docOffsets = QueryDocumentOffests(term);
+                if (profile != null)
+                    Touch(profile, docOffsets);
+
+                if (docOffsets != null)
+                    termLists.add(docOffsets);
             }
+
+            if (termLists.isEmpty())
+                return null;
+
+            lists.add(termLists);
         }
 
-        return ret;
+        return lists;
+    }
+
+    /**
+     * Records the postings of the cheapest query word (the word that leads the evaluation) and
+     * the number of documents that contain all query words as intermediate sizes in {@param profile}.
+     * @param profile
+     * @param cost
+     * @param candidates
+     */
+    static void RecordCandidates(QueryProfile profile, long cost, long candidates)
+    {
+        if (profile == null)
+            return;
+
+        profile.AddIntermediateSize(cost);
+        profile.AddIntermediateSize(candidates);
     }
 
     /***
@@ -325,9 +985,13 @@ public class IIndex
      * in which the specified word is contained.
      * @param Word
      * @return
+     * @throws IOException
      */
-    protected WordDocumentOffests<String> QueryDocumentOffests(String Word)
+    protected WordDocumentOffests<String> QueryDocumentOffests(String Word) throws IOException
     {
+        if (_Disk != null)
+            return _Disk.Postings(Word);
+
         if (_iindex.containsKey(Word))
             return _iindex.get(Word);
 
@@ -339,17 +1003,48 @@ public class IIndex
      * and return all document Ids of the documents in which the given word is contained.
      * @param Word
      * @return
+     * @throws IOException
      */
-    protected HashSet<Long> QueryDocuments(String Word)
+    protected HashSet<Long> QueryDocuments(String Word) throws IOException
     {
-        if (_iindex.containsKey(Word))
+        return QueryDocuments(Word, null);
+    }
+
+    /**
+     * Resolve a query for the occurrence of a word in the text collection and return all document Ids
+     * of the documents in which the given word is contained while counting the postings read in {@param profile}.
+     * @param Word
+     * @param profile
+     * @return
+     * @throws IOException
+     */
+    protected HashSet<Long> QueryDocuments(String Word, QueryProfile profile) throws IOException
+    {
+        WordDocumentOffests<String> docOffsets = QueryDocumentOffests(Word);
+        if (docOffsets != null)
         {
-            WordDocumentOffests<String> docOffsets = _iindex.get(Word);
+            if (profile != null)
+                Touch(profile, docOffsets);
+
             return docOffsets.DocumentIds();
         }
 
         return null;
     }
+
+    /**
+     * Counts the postings of a document offset collection as touched and returns their number.
+     * @param profile
+     * @param docOffsets
+     * @return
+     */
+    private static long Touch(QueryProfile profile, WordDocumentOffests<String> docOffsets)
+    {
+        long postings = (docOffsets == null ? 0 : docOffsets.CountOffsets());
+        profile.AddPostingsTouched(postings);
+
+        return postings;
+    }
     //endregion methods
 }
 
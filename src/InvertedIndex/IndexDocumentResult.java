@@ -1,6 +1,10 @@
 package InvertedIndex;
 
+import java.io.IOException;
+
 import InvertedIndex.Nx.NxWord;
+import InvertedIndex.Postings.PostingArena;
+import Documents.RowIds;
 
 /***
  * This type of object contains result information (indexes and others) when building an index on a given colleciton of text.
@@ -11,20 +15,40 @@ public class IndexDocumentResult
     private final long _DocsParsed;
     private final boolean _Success;
     private final NxWord _NxIndex;
+    private final PostingArena _Arena;
+    private final RowIds _RowIds;
+    private long _RegexNanos = 0;
+    private long _RegexMatches = 0;
 
     /**
-     * Class constructor from parameters including nextword index.
+     * Class constructor from parameters including nextword index, off-heap posting storage and row ids.
      * @param iindex
      * @param nxIndex
      * @param docsParsed
      * @param success
+     * @param arena
+     * @param rowIds
      */
-    public IndexDocumentResult(IIndex iindex, NxWord nxIndex, long docsParsed, boolean success)
+    public IndexDocumentResult(IIndex iindex, NxWord nxIndex, long docsParsed, boolean success, PostingArena arena, RowIds rowIds)
     {
         _Iindex = iindex;
         _NxIndex = nxIndex;
         _DocsParsed = docsParsed;
         _Success = success;
+        _Arena = arena;
+        _RowIds = rowIds;
+    }
+
+    /**
+     * Class constructor from parameters including nextword index.
+     * @param iindex
+     * @param nxIndex
+     * @param docsParsed
+     * @param success
+     */
+    public IndexDocumentResult(IIndex iindex, NxWord nxIndex, long docsParsed, boolean success)
+    {
+        this(iindex, nxIndex, docsParsed, success, null, null);
     }
 
     /***
@@ -62,4 +86,53 @@ public class IndexDocumentResult
      * @return
      */
     public boolean getSuccess() { return _Success; }
+
+    /**
+     * Gets the arena that holds the postings off-heap (if any) or null if postings are stored on the Java heap.
+     * @return
+     */
+    public PostingArena getArena() { return _Arena; }
+
+    /**
+     * Gets the mapping of dense document ids (as used in the indexes) to external row ids.
+     * @return
+     */
+    public RowIds getRowIds() { return _RowIds; }
+
+    /**
+     * Gets the time in nanoseconds spent on matching regular expression keys against documents during index build.
+     * @return
+     */
+    public long getRegexNanos() { return _RegexNanos; }
+
+    /**
+     * Gets the number of document matches of regular expression keys during index build.
+     * @return
+     */
+    public long getRegexMatches() { return _RegexMatches; }
+
+    /**
+     * Sets the statistics of regular expression matching during index build.
+     * @param regexNanos
+     * @param regexMatches
+     */
+    void SetRegexStatistics(long regexNanos, long regexMatches)
+    {
+        _RegexNanos = regexNanos;
+        _RegexMatches = regexMatches;
+    }
+
+    /**
+     * Frees the off-heap memory and deletes the temporary disk index files (if any) held by the indexes.
+     * The indexes cannot be queried after calling this.
+     * @throws IOException
+     */
+    public void Release() throws IOException
+    {
+        if (_Arena != null)
+            _Arena.Release();
+
+        if (_Iindex != null)
+            _Iindex.Release();
+    }
 }
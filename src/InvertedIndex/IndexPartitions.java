@@ -0,0 +1,258 @@
+package InvertedIndex;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import InvertedIndex.Cursors.AndCursor;
+import InvertedIndex.Cursors.ConjunctionCursor;
+import InvertedIndex.Cursors.PostingCursor;
+
+/**
+ * Splits the documents of an index into ranges of document ids (partitions) and evaluates one query
+ * on all partitions at the same time: each partition runs the cursors of the query over its documents only
+ * and the results of the partitions are concatenated in document order. This bounds the time of very frequent
+ * phrase, proximity and boolean queries by the number of threads instead of running them on one core.
+ *
+ * Queries that are evaluated on a fork-join pool already (e.g. keywords evaluated in parallel) run their
+ * partitions on that pool, all other callers (console, query server) use the pool of this object.
+ */
+public class IndexPartitions
+{
+    //region fields
+    private final long[] _Bounds;    // Partition p holds the documents _Bounds[p] .. _Bounds[p + 1] - 1
+    private final ForkJoinPool _Pool;
+    //endregion fields
+
+    //region ctors
+    /**
+     * Class constructor
+     * @param documents Number of documents (dense document ids 0 .. documents - 1).
+     * @param partitions Number of partitions (document ranges of about the same size).
+     * @param threads Number of threads that evaluate partitions for callers outside of a fork-join pool.
+     */
+    public IndexPartitions(long documents, int partitions, int threads)
+    {
+        _Bounds = new long[partitions + 1];
+        for (int p = 1; p < partitions; p++)
+            _Bounds[p] = documents * p / partitions;
+
+        _Bounds[partitions] = Long.MAX_VALUE;
+        _Pool = new ForkJoinPool(Math.max(threads, 1));
+    }
+    //endregion ctors
+
+    //region properties
+    /**
+     * Gets the number of partitions.
+     * @return
+     */
+    public int Count() { return _Bounds.length - 1; }
+    //endregion properties
+
+    //region methods
+    /**
+     * Evaluates a phrase or proximity query on all partitions.
+     * @param lists Postings of the terms of each word of the query (in query order).
+     * @param query Query string of the result.
+     * @param window Maximum distance between the first and the last word of a match (number of words - 1 for a phrase).
+     * @param ordered true if the words must occur in query order.
+     * @param profile Records the costs and candidate documents summed over all partitions (if not null).
+     * @return The postings of the last word of each match (can be empty).
+     */
+    public WordDocumentOffests<String> PositionQuery(final List<List<WordDocumentOffests<String>>> lists, final String query,
+                                                     final int window, final boolean ordered, final QueryProfile profile)
+    {
+        final int partitions = Count();
+        final ArrayList<WordDocumentOffests<String>> results = new ArrayList<WordDocumentOffests<String>>();
+        final ConjunctionCursor[] cursors = new ConjunctionCursor[partitions];
+
+        ArrayList<RecursiveAction> tasks = new ArrayList<RecursiveAction>();
+        for (int p = 0; p < partitions; p++)
+        {
+            final int partition = p;
+            results.add(null);
+            tasks.add(new RecursiveAction()
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute()
+                {
+                    ConjunctionCursor cursor = IIndex.PositionCursor(lists, _Bounds[partition], _Bounds[partition + 1], window, ordered);
+                    WordDocumentOffests<String> part = new WordDocumentOffests<String>(query);
+                    cursor.CollectPositions(part);
+
+                    cursors[partition] = cursor;
+                    results.set(partition, part);
+                }
+            });
+        }
+
+        Invoke(tasks);
+
+        // Concatenate the partitions in document order
+        WordDocumentOffests<String> resolved = new WordDocumentOffests<String>(query);
+        for (int p = 0; p < partitions; p++)
+        {
+            WordDocumentOffests<String> part = results.get(p);
+            for (int i = 0, count = (int)part.CountOffsets(); i < count; i++)
+                resolved.AddDocumentOffset(part.DocId(i), part.Offset(i));
+        }
+
+        RecordCandidates(profile, cursors);
+        return resolved;
+    }
+
+    /**
+     * Evaluates a bool AND query on all partitions.
+     * @param lists Postings of the terms of each word of the query (in query order).
+     * @param profile Records the costs and candidate documents summed over all partitions (if not null).
+     * @return The ids of the documents that contain all words (can be empty).
+     */
+    public HashSet<Long> BoolAndQuery(final List<List<WordDocumentOffests<String>>> lists, final QueryProfile profile)
+    {
+        final int partitions = Count();
+        final ArrayList<ArrayList<Long>> results = new ArrayList<ArrayList<Long>>();
+        final ConjunctionCursor[] cursors = new ConjunctionCursor[partitions];
+
+        ArrayList<RecursiveAction> tasks = new ArrayList<RecursiveAction>();
+        for (int p = 0; p < partitions; p++)
+        {
+            final int partition = p;
+            results.add(null);
+            tasks.add(new RecursiveAction()
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute()
+                {
+                    AndCursor cursor = new AndCursor(IIndex.WordCursors(lists, _Bounds[partition], _Bounds[partition + 1]));
+                    ArrayList<Long> part = new ArrayList<Long>();
+                    cursor.CollectDocIds(part);
+
+                    cursors[partition] = cursor;
+                    results.set(partition, part);
+                }
+            });
+        }
+
+        Invoke(tasks);
+
+        int count = 0;
+        for (int p = 0; p < partitions; p++)
+            count += results.get(p).size();
+
+        HashSet<Long> docs = new HashSet<Long>(Math.max(16, (int)(count / 0.75f) + 1));
+        for (int p = 0; p < partitions; p++)
+            docs.addAll(results.get(p));
+
+        RecordCandidates(profile, cursors);
+        return docs;
+    }
+
+    /**
+     * Evaluates the plan of a boolean query expression on all partitions.
+     * @param plan A plan that is not empty.
+     * @param documents Number of documents of the index (the documents a 'not' is subtracted from).
+     * @param profile Records the costs and matching documents summed over all partitions (if not null).
+     * @return The ids of the matching documents (can be empty).
+     */
+    public HashSet<Long> BoolQuery(final QueryPlan plan, final long documents, final QueryProfile profile)
+    {
+        final int partitions = Count();
+        final ArrayList<ArrayList<Long>> results = new ArrayList<ArrayList<Long>>();
+        final long[] costs = new long[partitions];
+
+        ArrayList<RecursiveAction> tasks = new ArrayList<RecursiveAction>();
+        for (int p = 0; p < partitions; p++)
+        {
+            final int partition = p;
+            results.add(null);
+            tasks.add(new RecursiveAction()
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute()
+                {
+                    PostingCursor cursor = plan.Cursor(_Bounds[partition], Math.min(_Bounds[partition + 1], documents));
+                    ArrayList<Long> part = new ArrayList<Long>();
+                    cursor.CollectDocIds(part);
+                    costs[partition] = cursor.Cost();
+
+                    results.set(partition, part);
+                }
+            });
+        }
+
+        Invoke(tasks);
+
+        int count = 0;
+        long cost = 0;
+        for (int p = 0; p < partitions; p++)
+        {
+            count += results.get(p).size();
+            cost += costs[p];
+        }
+
+        HashSet<Long> docs = new HashSet<Long>(Math.max(16, (int)(count / 0.75f) + 1));
+        for (int p = 0; p < partitions; p++)
+            docs.addAll(results.get(p));
+
+        IIndex.RecordCandidates(profile, cost, count);
+        return docs;
+    }
+
+    /**
+     * Stops the threads of this object (queries of callers outside of a fork-join pool cannot be evaluated afterwards).
+     */
+    public void Close()
+    {
+        _Pool.shutdown();
+    }
+
+    /**
+     * Runs the tasks of all partitions on the fork-join pool of the caller or on the pool of this object.
+     * @param tasks
+     */
+    private void Invoke(final List<RecursiveAction> tasks)
+    {
+        if (ForkJoinTask.inForkJoinPool())
+        {
+            ForkJoinTask.invokeAll(tasks);
+            return;
+        }
+
+        _Pool.invoke(new RecursiveAction()
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void compute()
+            {
+                invokeAll(tasks);
+            }
+        });
+    }
+
+    private static void RecordCandidates(QueryProfile profile, ConjunctionCursor[] cursors)
+    {
+        if (profile == null)
+            return;
+
+        long cost = 0, candidates = 0;
+        for (ConjunctionCursor cursor : cursors)
+        {
+            cost += cursor.Cost();
+            candidates += cursor.getCandidates();
+        }
+
+        IIndex.RecordCandidates(profile, cost, candidates);
+    }
+    //endregion methods
+}
@@ -0,0 +1,132 @@
+package InvertedIndex;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+
+import CSV.FromCSV;
+import Documents.DocQueries;
+import InvertedIndex.Disk.KeyResultCache;
+import ProgramObjects.FileImpl;
+
+/**
+ * The keywords of one key file together with the documents they matched and the names of the output files
+ * of this key file (all outputs of a key file start with the name of the key file without its extension).
+ *
+ * Several key sets can be evaluated on one index in one run.
+ */
+public class KeySet
+{
+    /** Separator of the columns of a key file */
+    public static final char SEPARATOR = '|';
+
+    //region fields
+    private final FileImpl _KeyFile;
+    private final HashMap<String, Keyword> _Keys;
+    private final DocQueries _DocQueries = new DocQueries();
+    private final String _OutputPrefix;
+    private KeyResultCache _Cache = null;
+    //endregion fields
+
+    //region ctors
+    /**
+     * Class constructor
+     * @param keyFile
+     * @param keys Keywords of the key file (by {@link Keyword#Key()}).
+     * @param baseOutputDir
+     */
+    public KeySet(FileImpl keyFile, HashMap<String, Keyword> keys, String baseOutputDir)
+    {
+        _KeyFile = keyFile;
+        _Keys = keys;
+        _OutputPrefix = baseOutputDir + keyFile.getFileInNameWithoutExtension();
+    }
+    //endregion ctors
+
+    //region properties
+    public FileImpl getKeyFile() { return _KeyFile; }
+
+    /**
+     * Gets the keywords of the key file by {@link Keyword#Key()}.
+     * @return
+     */
+    public HashMap<String, Keyword> getKeys() { return _Keys; }
+
+    /**
+     * Gets the queries (labels) of this key set that matched each document.
+     * @return
+     */
+    public DocQueries getDocQueries() { return _DocQueries; }
+
+    /**
+     * Gets the cache for the results of the keywords or null if results are not cached.
+     * @return
+     */
+    public KeyResultCache getCache() { return _Cache; }
+
+    public void setCache(KeyResultCache cache) { _Cache = cache; }
+
+    /**
+     * Gets the file in which the results of the keywords are cached between runs.
+     * @return
+     */
+    public File getCacheFile() { return new File(OutputFileName("_KeyCache.bin")); }
+    //endregion properties
+
+    //region methods
+    /**
+     * Gets the path and name of an output file of this key set.
+     * @param suffix Suffix of the file name (e.g. "_Keyword_Frequs.csv").
+     * @return
+     */
+    public String OutputFileName(String suffix)
+    {
+        return _OutputPrefix + suffix;
+    }
+
+    /**
+     * Reads the keywords of an opened key file. Keys are lower cased and a key that occurs more than once
+     * replaces the earlier key (with a warning).
+     * @param srcCSV
+     * @param regexColumnName Column with the query type of a key.
+     * @param dataColumnName Column with the query text of a key.
+     * @param fuzzyMaxEdits Maximum number of edits of the fuzzy queries in the key file.
+     * @param proximityWindow Window of the proximity queries in the key file.
+     * @return Keywords by {@link Keyword#Key()} with the line number (without header) as id.
+     * @throws IOException
+     * @throws IllegalArgumentException if a line has no value for one of the columns or an invalid query type.
+     */
+    public static HashMap<String, Keyword> ReadKeys(FromCSV srcCSV, String regexColumnName, String dataColumnName,
+                                                    int fuzzyMaxEdits, int proximityWindow) throws IOException, IllegalArgumentException
+    {
+        HashMap<String, Keyword> keys = new HashMap<String, Keyword>();
+        HashMap<String, String> dataRow;
+
+        for (long rowId = 1; (dataRow = srcCSV.ReadLine()) != null; rowId++)
+        {
+            String regex = dataRow.get(regexColumnName);
+            String text = dataRow.get(dataColumnName);
+
+            if (regex == null || text == null)
+                throw new IllegalArgumentException(String.format("Cannot retrieve values for '%s'='%s' or '%s'='%s' column in line %d. Make sure column names are correct and present in CSV file.",
+                                                                 regexColumnName, regex, dataColumnName, text, rowId));
+
+            int queryTypeId;
+            try
+            {
+                queryTypeId = Integer.parseInt(regex.trim());
+            }
+            catch (NumberFormatException e)
+            {
+                throw new IllegalArgumentException(String.format("Query type '%s' in line %d is not a number.", regex, rowId));
+            }
+
+            Keyword key = new Keyword(rowId, queryTypeId, text.toLowerCase(), fuzzyMaxEdits, proximityWindow);
+            if (keys.put(key.Key(), key) != null)
+                System.out.printf("WARNING: Key '%s|%s' in line %d repeats an earlier key and replaces it.\n", regex, text, rowId);
+        }
+
+        return keys;
+    }
+    //endregion methods
+}
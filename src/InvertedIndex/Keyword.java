@@ -1,23 +1,50 @@
 package InvertedIndex;
 
 //import java.util.regex.Matcher;
+import java.util.Arrays;
 import java.util.regex.Pattern;
 
 /**
  * Model different types of queries againt an index. This can be either:
  * 1) a string of words (phrase query) or
  * 2) a regular expression or
- * 3) a relaxed query with all words present in any order in a document (boolean AND query)
+ * 3) a relaxed query with all words present in any order in a document (boolean AND query) or
+ * 4) a phrase or boolean AND query in which each word also matches all indexed words
+ *    within a maximum number of edits (fuzzy query) or
+ * 5) a phrase in which words can contain the wildcards '*' (any characters) and '?' (one character)
+ *    to match all indexed words with a common prefix (wildcard phrase query) or
+ * 6) all words within a window of a few words in any order or in query order (proximity query) or
+ * 7) words and phrases combined with and, or and not (boolean query, see {@link BoolExpression})
  * 
  * to be matched in a document collection.
  */
 public class Keyword
 {
     private long _MatchedDocuments;
+    private int[] _MatchedDocIds = new int[0];
     private QueryType _TypeOfQuery = QueryType.PHRASE_QUERY;
     private final String _Word;
     private final  Pattern _RegexEpression;
     private final long _IdKeyword;
+    private final int _MaxEdits;
+    private final int _Window;
+    private QueryProfile _Profile = null;
+
+    /**
+     * Identifiers of the types of query as they are used in the key file (see {@link #getQueryTypeId()}).
+     */
+    public static final String QUERY_TYPES = "0 = phrase, 1 = regex, 2 = bool AND, 3 = fuzzy phrase, 4 = fuzzy bool AND, "
+                                           + "5 = wildcard phrase, 6 = near, 7 = ordered near, 8 = boolean expression";
+
+    /**
+     * Maximum number of edits of a fuzzy query if it is not configured.
+     */
+    public static final int DEFAULT_MAX_EDITS = 1;
+
+    /**
+     * Maximum distance between the first and the last word of a proximity query if it is not configured.
+     */
+    public static final int DEFAULT_WINDOW = 3;
 
     /**
      * Class constructor
@@ -26,6 +53,31 @@ public class Keyword
      * @param keyword
      */
     public Keyword(long idKeyword, int queryTypeID, String keyword)
+    {
+        this(idKeyword, queryTypeID, keyword, DEFAULT_MAX_EDITS);
+    }
+
+    /**
+     * Class constructor
+     * @param idKeyword
+     * @param queryTypeID
+     * @param keyword
+     * @param maxEdits Maximum number of edits between a word of a fuzzy query and the indexed words it matches.
+     */
+    public Keyword(long idKeyword, int queryTypeID, String keyword, int maxEdits)
+    {
+        this(idKeyword, queryTypeID, keyword, maxEdits, DEFAULT_WINDOW);
+    }
+
+    /**
+     * Class constructor
+     * @param idKeyword
+     * @param queryTypeID
+     * @param keyword
+     * @param maxEdits Maximum number of edits between a word of a fuzzy query and the indexed words it matches.
+     * @param window Maximum distance between the first and the last word of a match of a proximity query.
+     */
+    public Keyword(long idKeyword, int queryTypeID, String keyword, int maxEdits, int window)
     {
         _IdKeyword = idKeyword;
         _Word = keyword;
@@ -41,6 +93,24 @@ public class Keyword
             case 2: _TypeOfQuery = QueryType.BOOL_AND_QUERY;
             break;
 
+            case 3: _TypeOfQuery = QueryType.FUZZY_PHRASE_QUERY;
+            break;
+
+            case 4: _TypeOfQuery = QueryType.FUZZY_BOOL_AND_QUERY;
+            break;
+
+            case 5: _TypeOfQuery = QueryType.WILDCARD_PHRASE_QUERY;
+            break;
+
+            case 6: _TypeOfQuery = QueryType.NEAR_QUERY;
+            break;
+
+            case 7: _TypeOfQuery = QueryType.ORDERED_NEAR_QUERY;
+            break;
+
+            case 8: _TypeOfQuery = QueryType.BOOL_QUERY;
+            break;
+
             default: throw new IllegalArgumentException(String.format("Unknown type of query identifier %d in Keyword class constructor.", queryTypeID));
         }
 
@@ -48,6 +118,9 @@ public class Keyword
             _RegexEpression = Pattern.compile(keyword.replace("_pipe_", "|"), Pattern.CASE_INSENSITIVE);
         else
             _RegexEpression = null;
+
+        _MaxEdits = (getFuzzy() ? maxEdits : 0);
+        _Window = (getNear() ? window : 0);
     }
 
     /** Class constructor */
@@ -69,12 +142,100 @@ public class Keyword
      */
     public boolean getRegex() { return _TypeOfQuery == QueryType.REGULAR_EXPRESSION; }
 
+    /**
+     * Is the keyword a fuzzy query (each word also matches the indexed words within {@link #getMaxEdits()} edits).
+     * @return
+     */
+    public boolean getFuzzy() { return _TypeOfQuery == QueryType.FUZZY_PHRASE_QUERY || _TypeOfQuery == QueryType.FUZZY_BOOL_AND_QUERY; }
+
+    /**
+     * Is the keyword a wildcard query (words can contain '*' and '?' to match several indexed words).
+     * @return
+     */
+    public boolean getWildcard() { return _TypeOfQuery == QueryType.WILDCARD_PHRASE_QUERY; }
+
+    /**
+     * Is the keyword a proximity query (all words within {@link #getWindow()} positions).
+     * @return
+     */
+    public boolean getNear() { return _TypeOfQuery == QueryType.NEAR_QUERY || _TypeOfQuery == QueryType.ORDERED_NEAR_QUERY; }
+
+    /**
+     * Is the keyword a boolean query expression (see {@link BoolExpression}).
+     * @return
+     */
+    public boolean getBoolExpression() { return _TypeOfQuery == QueryType.BOOL_QUERY; }
+
+    /**
+     * Gets the maximum distance between the first and the last word of a match of a proximity query (0 for other queries).
+     * @return
+     */
+    public int getWindow() { return _Window; }
+
+    /**
+     * Gets the maximum number of edits between a word of a fuzzy query and the indexed words it matches (0 for other queries).
+     * @return
+     */
+    public int getMaxEdits() { return _MaxEdits; }
+
     /**
      * Gets the type of query that should be implemented to satisfy this object's content.
      * @return
      */
     public QueryType getTypeOfQuery() { return _TypeOfQuery; }
 
+    /**
+     * Gets the identifier of the type of query as it is used in the key file ({@value #QUERY_TYPES}).
+     * @return
+     */
+    public int getQueryTypeId()
+    {
+        switch (_TypeOfQuery)
+        {
+            case REGULAR_EXPRESSION:    return 1;
+            case BOOL_AND_QUERY:        return 2;
+            case FUZZY_PHRASE_QUERY:    return 3;
+            case FUZZY_BOOL_AND_QUERY:  return 4;
+            case WILDCARD_PHRASE_QUERY: return 5;
+            case NEAR_QUERY:            return 6;
+            case ORDERED_NEAR_QUERY:    return 7;
+            case BOOL_QUERY:            return 8;
+            default:                    return 0;
+        }
+    }
+
+    /**
+     * Gets the query string of this keyword from its words (as parsed with the RegexMask). The query string
+     * of a fuzzy query ends with '~' and the maximum number of edits (e.g. 'kündigung~1'), the words of a
+     * proximity query are joined with 'w/' (any order) or 'pre/' (query order) and the window (e.g. 'kündigung w/3 vertrag').
+     * The query string of a boolean query is its expression.
+     * @param words
+     * @return
+     */
+    public String Query(String[] words)
+    {
+        if (getBoolExpression())
+            return String.join(" ", _Word.trim().split("\\s+"));
+
+        if (getNear())
+            return String.join((_TypeOfQuery == QueryType.ORDERED_NEAR_QUERY ? " pre/" : " w/") + _Window + " ", words);
+
+        String query = String.join(" ", words);
+
+        return (getFuzzy() ? query + "~" + _MaxEdits : query);
+    }
+
+    /**
+     * Gets the key of this keyword in a key set or key cache: type of query, maximum edits of a fuzzy query or
+     * window of a proximity query and keyword text (e.g. '3~1|kündigung vertrag'), so that keys of different types
+     * of queries on the same text are kept apart.
+     * @return
+     */
+    public String Key()
+    {
+        return getQueryTypeId() + (getFuzzy() ? "~" + _MaxEdits : "") + (getNear() ? "/" + _Window : "") + "|" + _Word;
+    }
+
     /**
      * Keyword extracted from text to identify keyphrases for a certain class of labels
      * @return
@@ -99,6 +260,38 @@ public class Keyword
      * (this is used durring query evaluation to keep track of statistics on hits). */
     public void IncrementMatchedDocuments() {_MatchedDocuments += 1; }
 
+    /**
+     * Records a document that matched this (regular expression) query and increments the number of matched documents.
+     * @param docId Dense document id (documents are added in ascending order).
+     */
+    public void AddMatchedDocument(int docId)
+    {
+        if (_MatchedDocuments == _MatchedDocIds.length)
+            _MatchedDocIds = Arrays.copyOf(_MatchedDocIds, Math.max(16, _MatchedDocIds.length * 2));
+
+        _MatchedDocIds[(int)_MatchedDocuments] = docId;
+        _MatchedDocuments += 1;
+    }
+
+    /**
+     * Gets the dense ids of the documents recorded with {@link #AddMatchedDocument(int)} in ascending order.
+     * @return
+     */
+    public int[] getMatchedDocIds() { return Arrays.copyOf(_MatchedDocIds, (int)_MatchedDocuments); }
+
+    /**
+     * Gets the cost profile of this keyword or null if profiling is not enabled for this keyword.
+     * @return
+     */
+    public QueryProfile getProfile() { return _Profile; }
+
+    /** Enables collecting a cost profile (time, postings touched, ...) when this keyword is evaluated. */
+    public void EnableProfile()
+    {
+        if (_Profile == null)
+            _Profile = new QueryProfile();
+    }
+
     @Override
     public String toString()
     {
@@ -0,0 +1,512 @@
+package InvertedIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import CSV.FromCSV;
+import Documents.RowIds;
+
+/**
+ * Evaluates a (small) set of keywords with one pass over the documents of a text file without building an index.
+ *
+ * Documents get the same dense ids and are split into the same words as in {@link IIndex#IndexDocuments}, so the
+ * results are identical to the results of the queries on the index: phrase queries count the occurrences of their
+ * word sequence, proximity queries count the positions that complete a match of their words within the window,
+ * bool AND queries and regular expressions count the matching documents. The words of fuzzy and
+ * wildcard queries are expanded against the vocabulary of the text file (as indexed in an earlier run) before the scan.
+ *
+ * Each document is only checked against the keywords whose first word occurs in the document
+ * (regular expressions and boolean queries are matched against each document).
+ */
+public class KeywordScan
+{
+    //region fields
+    private final List<Keyword> _Keywords;
+    private final Tokenizer _Tokenizer;
+    private final String[] _Queries;
+    private final int[][][] _QueryWordIds;         // Ids of the words each query word matches (one id unless fuzzy or wildcard)
+    private final boolean[] _BoolAnd;
+    private final int[] _Checked;                  // Document (+ 1) a keyword was checked against last
+    private final HashMap<String, Integer> _WordIds = new HashMap<String, Integer>();
+    private final ArrayList<ArrayList<Integer>> _KeysByFirstWord = new ArrayList<ArrayList<Integer>>();
+    private final ArrayList<Integer> _RegexKeys = new ArrayList<Integer>();
+    private final ArrayList<Integer> _ExpressionKeys = new ArrayList<Integer>();
+    private final BoolExpression[] _Expressions;
+    private final IdentityHashMap<BoolExpression, int[][]> _PhraseWordIds = new IdentityHashMap<BoolExpression, int[][]>();
+
+    private final long[] _Frequencies;
+    private final int[][] _DocIds;
+    private final int[] _DocCounts;
+
+    private RowIds _RowIds = new RowIds();
+    private long _DocsParsed = 0;
+    private long _Nanos = 0;
+    //endregion fields
+
+    //region ctors
+    /**
+     * Class constructor
+     * @param keywords
+     * @param regexMask RegexMask that is used to split documents and queries into words.
+     * @param vocabulary All words of the text file (needed to expand the words of fuzzy and wildcard queries only).
+     * @throws Exception
+     */
+    public KeywordScan(List<Keyword> keywords, String regexMask, List<String> vocabulary) throws Exception
+    {
+        Pattern pattern = Pattern.compile(regexMask);
+        SortedTerms terms = null;
+
+        _Keywords = keywords;
+        _Tokenizer = new Tokenizer(regexMask);
+        _Queries = new String[keywords.size()];
+        _QueryWordIds = new int[keywords.size()][][];
+        _BoolAnd = new boolean[keywords.size()];
+        _Expressions = new BoolExpression[keywords.size()];
+        _Checked = new int[keywords.size()];
+        _Frequencies = new long[keywords.size()];
+        _DocIds = new int[keywords.size()][];
+        _DocCounts = new int[keywords.size()];
+
+        for (int k = 0; k < keywords.size(); k++)
+        {
+            Keyword keyword = keywords.get(k);
+            _DocIds[k] = new int[16];
+
+            if (keyword.getRegex())
+            {
+                _Queries[k] = keyword.getWord();
+                _RegexKeys.add(k);
+                continue;
+            }
+
+            String[] words = QueryEngine.QueryWords(keyword, pattern);
+            if (words.length == 0)
+                throw new Exception("The number of words in a query cannot be zero.");
+
+            if (keyword.getBoolExpression())
+            {
+                _Queries[k] = keyword.Query(words);
+                _Expressions[k] = BoolExpression.Parse(keyword.getWord(), pattern);
+                RegisterWords(_Expressions[k]);
+                _ExpressionKeys.add(k);
+                continue;
+            }
+
+            if ((keyword.getFuzzy() || keyword.getWildcard()) && terms == null)
+                terms = new SortedTerms(vocabulary);
+
+            _Queries[k] = keyword.Query(words);
+            _BoolAnd[k] = (keyword.getTypeOfQuery() == QueryType.BOOL_AND_QUERY || keyword.getTypeOfQuery() == QueryType.FUZZY_BOOL_AND_QUERY);
+            _QueryWordIds[k] = new int[words.length][];
+            for (int i = 0; i < words.length; i++)
+            {
+                List<String> matches;
+                if (keyword.getFuzzy())
+                    matches = terms.Fuzzy(words[i], keyword.getMaxEdits());
+                else if (keyword.getWildcard())
+                    matches = terms.Wildcard(words[i]);
+                else
+                    matches = Arrays.asList(words[i]);
+
+                _QueryWordIds[k][i] = new int[matches.size()];
+                for (int m = 0; m < matches.size(); m++)
+                    _QueryWordIds[k][i][m] = WordId(matches.get(m));
+            }
+
+            for (int wordId : _QueryWordIds[k][0])
+                _KeysByFirstWord.get(wordId).add(k);
+        }
+    }
+    //endregion ctors
+
+    //region properties
+    /**
+     * Gets the mapping of dense document ids to external row ids of the documents scanned.
+     * @return
+     */
+    public RowIds getRowIds() { return _RowIds; }
+
+    /**
+     * Gets the number of rows read from the text file.
+     * @return
+     */
+    public long getDocsParsed() { return _DocsParsed; }
+    //endregion properties
+
+    //region methods
+    /**
+     * Reads all documents of an opened text file and evaluates the keywords on each document.
+     * @param df
+     * @param rowIdColumn Row id column or null to generate row ids.
+     * @param textColumn
+     * @throws Exception
+     */
+    public void Scan(FromCSV df, String rowIdColumn, String textColumn) throws Exception
+    {
+        long start = System.nanoTime();
+        int wordCount = _WordIds.size();
+        int[] firstPositions = new int[wordCount];
+        Arrays.fill(firstPositions, -1);
+        int[] touched = new int[wordCount];
+        int[] docWordIds = new int[64];
+
+        Matcher[] matchers = new Matcher[_RegexKeys.size()];
+        for (int r = 0; r < matchers.length; r++)
+            matchers[r] = _Keywords.get(_RegexKeys.get(r)).getRegexEpression().matcher("");
+
+        _RowIds = new RowIds();
+
+        HashMap<String, String> dataRow;
+        long docRow = 0;
+        for ( ; (dataRow = df.ReadLine()) != null; docRow++)
+        {
+            String docText = dataRow.get(textColumn);
+            if (docText == null)
+                continue;
+
+            int docId;                        // Same dense document ids as in the index build
+            if (rowIdColumn != null)
+            {
+                String rowId = dataRow.get(rowIdColumn);
+                if (rowId == null)
+                    throw new IllegalArgumentException(String.format("Row id column '%s' not found in line %d.", rowIdColumn, df.getLineNumber()));
+
+                docId = _RowIds.Add(rowId);
+            }
+            else
+                docId = _RowIds.Add(docRow);
+
+            for (int r = 0; r < matchers.length; r++)
+            {
+                if (matchers[r].reset(docText).find())
+                    AddDocument(_RegexKeys.get(r), docId, 1);
+            }
+
+            if (wordCount == 0)
+                continue;
+
+            // Remember the query word id at each position and the first position of each query word in this document
+            String[] words = _Tokenizer.Tokenize(docText);
+            if (docWordIds.length < words.length)
+                docWordIds = new int[Math.max(words.length, docWordIds.length * 2)];
+
+            int touchedCount = 0;
+            for (int pos = 0; pos < words.length; pos++)
+            {
+                Integer wordId = _WordIds.get(words[pos]);
+                docWordIds[pos] = (wordId == null ? -1 : wordId);
+                if (wordId != null && firstPositions[wordId] < 0)
+                {
+                    firstPositions[wordId] = pos;
+                    touched[touchedCount++] = wordId;
+                }
+            }
+
+            // Evaluate the keywords that start with one of these words (once per document)
+            for (int t = 0; t < touchedCount; t++)
+            {
+                for (int k : _KeysByFirstWord.get(touched[t]))
+                {
+                    if (_Checked[k] == docId + 1)
+                        continue;
+
+                    _Checked[k] = docId + 1;
+                    Keyword keyword = _Keywords.get(k);
+                    long frequency;
+                    if (_BoolAnd[k])
+                        frequency = (ContainsAll(_QueryWordIds[k], firstPositions) ? 1 : 0);
+                    else if (keyword.getNear())
+                        frequency = CountNear(_QueryWordIds[k], docWordIds, words.length, keyword.getWindow(),
+                                              keyword.getTypeOfQuery() == QueryType.ORDERED_NEAR_QUERY);
+                    else
+                        frequency = CountPhrase(_QueryWordIds[k], docWordIds, words.length, FirstPosition(_QueryWordIds[k][0], firstPositions));
+
+                    if (frequency > 0)
+                        AddDocument(k, docId, frequency);
+                }
+            }
+
+            for (int k : _ExpressionKeys)
+            {
+                if (Matches(_Expressions[k], docWordIds, words.length, firstPositions))
+                    AddDocument(k, docId, 1);
+            }
+
+            for (int t = 0; t < touchedCount; t++)
+                firstPositions[touched[t]] = -1;
+        }
+
+        _DocsParsed = docRow;
+        _Nanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Gets the results of all keywords in the order of the keywords given to the constructor.
+     * @return
+     */
+    public List<QueryResult> Results()
+    {
+        ArrayList<QueryResult> results = new ArrayList<QueryResult>();
+        for (int k = 0; k < _Keywords.size(); k++)
+            results.add(new QueryResult(_Keywords.get(k), _Queries[k], _Frequencies[k], Arrays.copyOf(_DocIds[k], _DocCounts[k]), _Nanos));
+
+        return results;
+    }
+
+    /**
+     * Gets the id of a query word (new words get the next id).
+     * @param word
+     * @return
+     */
+    private int WordId(String word)
+    {
+        Integer wordId = _WordIds.get(word);
+        if (wordId == null)
+        {
+            wordId = _WordIds.size();
+            _WordIds.put(word, wordId);
+            _KeysByFirstWord.add(new ArrayList<Integer>());
+        }
+
+        return wordId;
+    }
+
+    /**
+     * Assigns word ids to the words of a boolean query and stores the word ids of its phrases.
+     * @param expression
+     */
+    private void RegisterWords(BoolExpression expression)
+    {
+        String[] words = expression.getWords();
+        int[][] wordIds = new int[words.length][];
+        for (int i = 0; i < words.length; i++)
+            wordIds[i] = new int[] { WordId(words[i]) };
+
+        if (expression.getOperator() == BoolExpression.Operator.PHRASE)
+            _PhraseWordIds.put(expression, wordIds);
+
+        for (BoolExpression operand : expression.getOperands())
+            RegisterWords(operand);
+    }
+
+    /**
+     * Determines whether a document matches a boolean query.
+     * @param expression
+     * @param docWordIds Query word id at each position of the document (-1 for other words).
+     * @param length Number of words of the document.
+     * @param firstPositions First position of each query word in the document (-1 if it does not occur).
+     * @return
+     */
+    private boolean Matches(BoolExpression expression, int[] docWordIds, int length, int[] firstPositions)
+    {
+        switch (expression.getOperator())
+        {
+            case TERM:
+                return (firstPositions[_WordIds.get(expression.getWords()[0])] >= 0);
+
+            case PHRASE:
+                int[][] wordIds = _PhraseWordIds.get(expression);
+                int first = FirstPosition(wordIds[0], firstPositions);
+                return (first >= 0 && CountPhrase(wordIds, docWordIds, length, first) > 0);
+
+            case NOT:
+                return (Matches(expression.getOperands().get(0), docWordIds, length, firstPositions) == false);
+
+            case AND:
+                for (BoolExpression operand : expression.getOperands())
+                {
+                    if (Matches(operand, docWordIds, length, firstPositions) == false)
+                        return false;
+                }
+
+                return true;
+
+            default:    // OR
+                for (BoolExpression operand : expression.getOperands())
+                {
+                    if (Matches(operand, docWordIds, length, firstPositions))
+                        return true;
+                }
+
+                return false;
+        }
+    }
+
+    private static boolean ContainsAll(int[][] queryWordIds, int[] firstPositions)
+    {
+        for (int[] wordIds : queryWordIds)
+        {
+            if (FirstPosition(wordIds, firstPositions) < 0)
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Gets the first position of any of the given words in the document (-1 if none occurs).
+     * @param wordIds
+     * @param firstPositions
+     * @return
+     */
+    private static int FirstPosition(int[] wordIds, int[] firstPositions)
+    {
+        int first = -1;
+        for (int wordId : wordIds)
+        {
+            if (firstPositions[wordId] >= 0 && (first < 0 || firstPositions[wordId] < first))
+                first = firstPositions[wordId];
+        }
+
+        return first;
+    }
+
+    /**
+     * Counts the occurrences of a phrase in the words of a document.
+     * @param queryWordIds Ids of the words each word of the phrase matches.
+     * @param docWordIds Query word id at each position of the document (-1 for other words).
+     * @param length Number of words of the document.
+     * @param firstPos First position of the first word of the phrase in the document.
+     * @return
+     */
+    private static int CountPhrase(int[][] queryWordIds, int[] docWordIds, int length, int firstPos)
+    {
+        int count = 0;
+        for (int pos = firstPos; pos + queryWordIds.length <= length; pos++)
+        {
+            int i = 0;
+            while (i < queryWordIds.length && Contains(queryWordIds[i], docWordIds[pos + i]))
+                i++;
+
+            if (i == queryWordIds.length)
+                count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * Counts the positions of a document that complete a match of a proximity query: all words occur within
+     * {@param window} positions up to this position (in query order if {@param ordered}).
+     * @param queryWordIds Ids of the words each word of the query matches.
+     * @param docWordIds Query word id at each position of the document (-1 for other words).
+     * @param length Number of words of the document.
+     * @param window
+     * @param ordered
+     * @return
+     */
+    private static int CountNear(int[][] queryWordIds, int[] docWordIds, int length, int window, boolean ordered)
+    {
+        final int n = queryWordIds.length;
+        final int[] repeats = (ordered ? null : Repeats(queryWordIds));
+        int count = 0;
+        for (int pos = 0; pos < length; pos++)
+        {
+            if (docWordIds[pos] < 0)
+                continue;
+
+            int from = Math.max(0, pos - window);
+            boolean match;
+            if (ordered)
+            {
+                // The last word ends the match, the other words take their latest positions before the next word
+                int i = n - 1;
+                if (Contains(queryWordIds[i], docWordIds[pos]))
+                {
+                    i--;
+                    for (int p = pos - 1; p >= from && i >= 0; p--)
+                    {
+                        if (Contains(queryWordIds[i], docWordIds[p]))
+                            i--;
+                    }
+                }
+
+                match = (i < 0);
+            }
+            else
+            {
+                // Any word can end the match, all words must occur in the window that ends here
+                // (a word that occurs several times in the query at as many positions)
+                int i = 0;
+                while (i < n && Contains(queryWordIds[i], docWordIds[pos]) == false)
+                    i++;
+
+                match = (i < n);
+                for (i = 0; i < n && match; i++)
+                    match = (Occurrences(queryWordIds[i], docWordIds, from, pos, repeats[i]) >= repeats[i]);
+            }
+
+            if (match)
+                count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * Counts the positions {@param from} .. {@param to} of a document at which any of the given words occurs.
+     * @param wordIds
+     * @param docWordIds
+     * @param from
+     * @param to
+     * @param max Stops counting at this number of positions.
+     * @return
+     */
+    private static int Occurrences(int[] wordIds, int[] docWordIds, int from, int to, int max)
+    {
+        int count = 0;
+        for (int p = to; p >= from && count < max; p--)
+        {
+            if (Contains(wordIds, docWordIds[p]))
+                count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * Gets the number of times each word of a query occurs in the query.
+     * @param queryWordIds Ids of the words each word of the query matches.
+     * @return
+     */
+    private static int[] Repeats(int[][] queryWordIds)
+    {
+        int[] repeats = new int[queryWordIds.length];
+        for (int i = 0; i < queryWordIds.length; i++)
+        {
+            for (int[] wordIds : queryWordIds)
+            {
+                if (Arrays.equals(wordIds, queryWordIds[i]))
+                    repeats[i]++;
+            }
+        }
+
+        return repeats;
+    }
+
+    private static boolean Contains(int[] wordIds, int wordId)
+    {
+        for (int id : wordIds)
+        {
+            if (id == wordId)
+                return true;
+        }
+
+        return false;
+    }
+
+    private void AddDocument(int k, int docId, long frequency)
+    {
+        if (_DocCounts[k] == _DocIds[k].length)
+            _DocIds[k] = Arrays.copyOf(_DocIds[k], _DocCounts[k] * 2);
+
+        _DocIds[k][_DocCounts[k]++] = docId;
+        _Frequencies[k] += frequency;
+    }
+    //endregion methods
+}
@@ -0,0 +1,87 @@
+package InvertedIndex;
+
+/**
+ * Accepts all terms within a maximum number of edits (insertions, deletions and substitutions of one character)
+ * of a word. A state of the automaton is the last row of the edit distance table between the word and the
+ * characters read so far (capped at maxEdits + 1), so states are computed on the fly instead of building the
+ * whole deterministic automaton up front.
+ *
+ * A state is dead if no extension of the characters read can be accepted - all terms that start with these
+ * characters can be skipped without reading them (see {@link SortedTerms#Fuzzy}).
+ */
+public class LevenshteinAutomaton
+{
+    //region fields
+    private final String _Word;
+    private final int _MaxEdits;
+    //endregion fields
+
+    //region ctors
+    /**
+     * Class constructor
+     * @param word
+     * @param maxEdits
+     */
+    public LevenshteinAutomaton(String word, int maxEdits)
+    {
+        _Word = word;
+        _MaxEdits = maxEdits;
+    }
+    //endregion ctors
+
+    //region properties
+    public String getWord() { return _Word; }
+
+    public int getMaxEdits() { return _MaxEdits; }
+
+    /**
+     * Gets the number of values of a state (one per prefix of the word including the empty prefix).
+     * @return
+     */
+    public int StateSize() { return _Word.length() + 1; }
+    //endregion properties
+
+    //region methods
+    /**
+     * Writes the start state (no character read) into {@param state}.
+     * @param state
+     */
+    public void Start(int[] state)
+    {
+        for (int j = 0; j <= _Word.length(); j++)
+            state[j] = Math.min(j, _MaxEdits + 1);
+    }
+
+    /**
+     * Computes the state after reading {@param c} in state {@param from} and writes it into {@param to}.
+     * @param from
+     * @param c
+     * @param to
+     * @return false if the new state is dead (no term with the characters read so far is accepted).
+     */
+    public boolean Step(int[] from, char c, int[] to)
+    {
+        final int cap = _MaxEdits + 1;
+        int min = to[0] = Math.min(from[0] + 1, cap);
+
+        for (int j = 1; j <= _Word.length(); j++)
+        {
+            int edits = Math.min(Math.min(from[j] + 1, to[j - 1] + 1), from[j - 1] + (_Word.charAt(j - 1) == c ? 0 : 1));
+            to[j] = Math.min(edits, cap);
+            min = Math.min(min, to[j]);
+        }
+
+        return (min <= _MaxEdits);
+    }
+
+    /**
+     * Determines whether the characters read up to {@param state} are accepted.
+     * @param state
+     * @return
+     */
+    public boolean IsAccepted(int[] state)
+    {
+        return (state[_Word.length()] <= _MaxEdits);
+    }
+    //endregion methods
+}
@@ -1,10 +1,14 @@
 package InvertedIndex.Nx;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import InvertedIndex.WordDocumentOffests;
+import InvertedIndex.Postings.PostingArena;
 import CSV.ToCSV;
 
 public class NxWord
@@ -12,16 +16,28 @@ public class NxWord
     //region fields
     private HashMap<NGram, WordDocumentOffests<NGram>> _iindex = null;
     private int _NGramLen = -1;
+    private final PostingArena _Arena;
     //endregion fields
 
     /**
      * Class constructor
      * @param NGramLen
+     * @param arena Stores postings off-heap in this arena or on the Java heap if null.
      */
-    public NxWord(int NGramLen)
+    public NxWord(int NGramLen, PostingArena arena)
     {
         _NGramLen = NGramLen;
         _iindex = new HashMap<NGram, WordDocumentOffests<NGram>>();
+        _Arena = arena;
+    }
+
+    /**
+     * Class constructor
+     * @param NGramLen
+     */
+    public NxWord(int NGramLen)
+    {
+        this(NGramLen, null);
     }
 
     //region properties
@@ -33,6 +49,32 @@ public class NxWord
     public long WordCount() { return _iindex.size(); }
 
     public int NGramLen() { return _NGramLen; }
+
+    /**
+     * Gets the number of postings (indexed word occurrences) in this collection.
+     * @return
+     */
+    public long PostingCount()
+    {
+        long count = 0;
+        for (WordDocumentOffests<NGram> item : _iindex.values())
+            count += item.CountOffsets();
+
+        return count;
+    }
+
+    /**
+     * Gets the number of bytes reserved to store the postings of this collection.
+     * @return
+     */
+    public long PostingBytes()
+    {
+        long bytes = 0;
+        for (WordDocumentOffests<NGram> item : _iindex.values())
+            bytes += item.ReservedBytes();
+
+        return bytes;
+    }
     //endregion properties
 
     //region methods
@@ -65,7 +107,7 @@ public class NxWord
                 }
                 else
                 {
-                    WordDocumentOffests<NGram> newItem = new WordDocumentOffests<NGram>(wordKey.getWordsString(), docKey, docOffset);
+                    WordDocumentOffests<NGram> newItem = new WordDocumentOffests<NGram>(wordKey.getWordsString(), _Arena, docKey, docOffset);
                     _iindex.put(wordKey, newItem);
                 }
             }
@@ -144,6 +186,46 @@ public class NxWord
         return dicItem;
     }
 
+    /**
+     * Gets the NGrams that continue the given words (the last n-1 words of <paramref name="words"/> are
+     * the leading words of each NGram) with the most frequent continuation first.
+     * 
+     * This scans all NGrams of the collection and is meant for interactive use only.
+     * @param words
+     * @param limit Maximum number of NGrams returned.
+     * @return NGrams with their frequencies.
+     */
+    public List<NGram> Continuations(String[] words, int limit)
+    {
+        ArrayList<NGram> result = new ArrayList<NGram>();
+        int prefixLen = _NGramLen - 1;
+        if (words == null || words.length < prefixLen)
+            return result;
+
+        for (Map.Entry<NGram, WordDocumentOffests<NGram>> item : _iindex.entrySet())
+        {
+            String[] gram = item.getKey().getWords();
+            boolean isMatch = true;
+            for (int i = 0; i < prefixLen && isMatch; i++)
+                isMatch = gram[i].equals(words[words.length - prefixLen + i]);
+
+            if (isMatch)
+                result.add(new NGram(gram, (int)item.getValue().CountOffsets()));
+        }
+
+        Collections.sort(result, new Comparator<NGram>()
+        {
+            @Override
+            public int compare(NGram a, NGram b)
+            {
+                int cmp = Integer.compare(b.getFrequency(), a.getFrequency());
+                return (cmp != 0 ? cmp : a.getWordsString().compareTo(b.getWordsString()));
+            }
+        });
+
+        return (result.size() > limit ? new ArrayList<NGram>(result.subList(0, limit)) : result);
+    }
+
     /**
      * Write a list of indexed words sorted by their frequencies to a CSV file
      * 
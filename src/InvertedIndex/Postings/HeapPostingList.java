@@ -0,0 +1,60 @@
+package InvertedIndex.Postings;
+
+import java.util.Arrays;
+
+/**
+ * Stores postings in 2 primitive arrays on the Java heap (instead of one small object per posting).
+ */
+public class HeapPostingList extends PostingList
+{
+    //region fields
+    private long[] _DocIds;
+    private int[] _Offsets;
+    private int _Count = 0;
+    private int _Documents = 0;
+    //endregion fields
+
+    //region ctors
+    /** Class constructor */
+    public HeapPostingList()
+    {
+        _DocIds = new long[2];
+        _Offsets = new int[2];
+    }
+    //endregion ctors
+
+    //region methods
+    @Override
+    public void Add(long docId, long offset)
+    {
+        if (_Count == _DocIds.length)
+        {
+            int capacity = _Count + (_Count >> 1) + 2;
+            _DocIds = Arrays.copyOf(_DocIds, capacity);
+            _Offsets = Arrays.copyOf(_Offsets, capacity);
+        }
+
+        if (_Count == 0 || _DocIds[_Count - 1] != docId)
+            _Documents++;
+
+        _DocIds[_Count] = docId;
+        _Offsets[_Count] = (int)offset;
+        _Count++;
+    }
+
+    @Override
+    public int Count() { return _Count; }
+
+    @Override
+    public int Documents() { return _Documents; }
+
+    @Override
+    public long DocId(int i) { return _DocIds[i]; }
+
+    @Override
+    public long Offset(int i) { return _Offsets[i]; }
+
+    @Override
+    public long ReservedBytes() { return (long)_DocIds.length * 8 + (long)_Offsets.length * 4; }
+    //endregion methods
+}
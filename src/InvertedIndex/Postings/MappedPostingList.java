@@ -0,0 +1,83 @@
+package InvertedIndex.Postings;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A read-only view on the postings of one word in a memory mapped postings file (see {@link InvertedIndex.Disk.DiskIndex}).
+ *
+ * Postings are stored with a fixed size of {@value #ENTRY_BYTES} bytes (document id and word offset) in a
+ * sequence of mapped slabs of {@value #SLAB_POSTINGS} postings each, so posting i is read in constant time and
+ * cursors can skip over postings without reading them. Nothing of the postings is copied onto the Java heap -
+ * the operating system pages them in when they are read.
+ */
+public class MappedPostingList extends PostingList
+{
+    /** Bytes per posting: document id (long) and word offset (int) */
+    public static final int ENTRY_BYTES = 12;
+
+    /** Number of postings per mapped slab (a posting never spans two slabs) */
+    public static final int SLAB_POSTINGS = 1 << 26;
+
+    //region fields
+    private final ByteBuffer[] _Slabs;
+    private final long _First;
+    private final int _Count;
+    private final int _Documents;
+    //endregion fields
+
+    //region ctors
+    /**
+     * Class constructor
+     * @param slabs Mapped slabs of the postings file.
+     * @param first Index of the first posting of this list in the postings file.
+     * @param count Number of postings of this list.
+     * @param documents Number of distinct documents of this list.
+     */
+    public MappedPostingList(ByteBuffer[] slabs, long first, int count, int documents)
+    {
+        _Slabs = slabs;
+        _First = first;
+        _Count = count;
+        _Documents = documents;
+    }
+    //endregion ctors
+
+    //region methods
+    /**
+     * The postings of a mapped file cannot be changed.
+     * @throws IllegalStateException always.
+     */
+    @Override
+    public void Add(long docId, long offset)
+    {
+        throw new IllegalStateException("The postings of a disk index are read-only.");
+    }
+
+    @Override
+    public int Count() { return _Count; }
+
+    @Override
+    public int Documents() { return _Documents; }
+
+    @Override
+    public long DocId(int i)
+    {
+        long posting = _First + i;
+        return _Slabs[(int)(posting / SLAB_POSTINGS)].getLong((int)(posting % SLAB_POSTINGS) * ENTRY_BYTES);
+    }
+
+    @Override
+    public long Offset(int i)
+    {
+        long posting = _First + i;
+        return _Slabs[(int)(posting / SLAB_POSTINGS)].getInt((int)(posting % SLAB_POSTINGS) * ENTRY_BYTES + 8);
+    }
+
+    /**
+     * Gets 0 since the postings are part of a mapped file and reserve neither heap nor off-heap memory.
+     * @return
+     */
+    @Override
+    public long ReservedBytes() { return 0; }
+    //endregion methods
+}
@@ -0,0 +1,127 @@
+package InvertedIndex.Postings;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Stores postings in a chain of chunks allocated in a {@link PostingArena} outside of the Java heap.
+ *
+ * Chunk sizes double from {@value #FIRST_CHUNK} up to {@value #MAX_CHUNK} postings, so rare words
+ * waste little memory while the position of posting i is still computed in constant time.
+ * Only the (short) array of chunk addresses lives on the heap.
+ */
+public class OffHeapPostingList extends PostingList
+{
+    /** Bytes per posting: document id (long) and word offset (int) */
+    private static final int ENTRY_BYTES = 12;
+
+    private static final int FIRST_CHUNK = 4;
+    private static final int MAX_CHUNK_LOG = 11;
+    private static final int MAX_CHUNK = FIRST_CHUNK << MAX_CHUNK_LOG;
+
+    /** Number of postings held by all doubling chunks before the first chunk of maximum size */
+    private static final int DOUBLING_CAPACITY = FIRST_CHUNK * ((1 << MAX_CHUNK_LOG) - 1);
+
+    //region fields
+    private final PostingArena _Arena;
+    private long[] _Chunks = new long[2];
+    private int _ChunkCount = 0;
+    private int _Count = 0;
+    private int _Documents = 0;
+    private long _LastDocId = -1;
+    //endregion fields
+
+    //region ctors
+    /**
+     * Class constructor
+     * @param arena
+     */
+    public OffHeapPostingList(PostingArena arena)
+    {
+        _Arena = arena;
+    }
+    //endregion ctors
+
+    //region methods
+    @Override
+    public void Add(long docId, long offset)
+    {
+        long address = Address(_Count);
+        ByteBuffer slab = _Arena.Slab(address);
+        int pos = PostingArena.SlabOffset(address);
+
+        slab.putLong(pos, docId);
+        slab.putInt(pos + 8, (int)offset);
+        _Count++;
+
+        if (docId != _LastDocId)
+            _Documents++;
+
+        _LastDocId = docId;
+    }
+
+    @Override
+    public int Count() { return _Count; }
+
+    @Override
+    public int Documents() { return _Documents; }
+
+    @Override
+    public long DocId(int i)
+    {
+        long address = Address(i);
+        return _Arena.Slab(address).getLong(PostingArena.SlabOffset(address));
+    }
+
+    @Override
+    public long Offset(int i)
+    {
+        long address = Address(i);
+        return _Arena.Slab(address).getInt(PostingArena.SlabOffset(address) + 8);
+    }
+
+    @Override
+    public long ReservedBytes()
+    {
+        long capacity;
+        if (_ChunkCount <= MAX_CHUNK_LOG)
+            capacity = FIRST_CHUNK * ((1L << _ChunkCount) - 1);
+        else
+            capacity = DOUBLING_CAPACITY + (long)(_ChunkCount - MAX_CHUNK_LOG) * MAX_CHUNK;
+
+        return capacity * ENTRY_BYTES;
+    }
+
+    /**
+     * Gets the arena address of posting {@param i} and allocates a new chunk if i is the first posting of
+     * a chunk that does not exist yet.
+     * @param i
+     * @return
+     */
+    private long Address(int i)
+    {
+        int chunk, within;
+        if (i < DOUBLING_CAPACITY)
+        {
+            chunk = 31 - Integer.numberOfLeadingZeros(i / FIRST_CHUNK + 1);
+            within = i - FIRST_CHUNK * ((1 << chunk) - 1);
+        }
+        else
+        {
+            chunk = MAX_CHUNK_LOG + (i - DOUBLING_CAPACITY) / MAX_CHUNK;
+            within = (i - DOUBLING_CAPACITY) % MAX_CHUNK;
+        }
+
+        if (chunk == _ChunkCount)  // Append a new chunk to the chain
+        {
+            if (_ChunkCount == _Chunks.length)
+                _Chunks = Arrays.copyOf(_Chunks, _ChunkCount * 2);
+
+            int capacity = (chunk < MAX_CHUNK_LOG ? FIRST_CHUNK << chunk : MAX_CHUNK);
+            _Chunks[_ChunkCount++] = _Arena.Allocate(capacity * ENTRY_BYTES);
+        }
+
+        return _Chunks[chunk] + (long)within * ENTRY_BYTES;
+    }
+    //endregion methods
+}
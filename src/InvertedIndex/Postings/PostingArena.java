@@ -0,0 +1,166 @@
+package InvertedIndex.Postings;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+
+/**
+ * Allocates chunks of postings outside of the Java heap in large direct ByteBuffers (slabs).
+ *
+ * Chunks are allocated with a bump pointer and are never freed individually - all memory is
+ * returned at once with {@link #Release()} at the end of a run. This keeps millions of postings
+ * out of the reach of the garbage collector and allows an index that is larger than a sane heap size
+ * (the JVM limit for direct memory can be raised with -XX:MaxDirectMemorySize).
+ */
+public class PostingArena
+{
+    /** Default size of one slab in MB. */
+    public static final int DEFAULT_SLAB_MB = 64;
+
+    /** Maximum size of one slab in MB (offsets within a slab are ints). */
+    public static final int MAX_SLAB_MB = 1024;
+
+    //region fields
+    private final int _SlabSize;
+    private final ArrayList<ByteBuffer> _Slabs;
+    private ByteBuffer _Current = null;
+    private int _CurrentSlab = -1;
+    private long _AllocatedBytes = 0;
+    private boolean _Released = false;
+    //endregion fields
+
+    //region ctors
+    /**
+     * Class constructor
+     * @param slabMB Size of one direct ByteBuffer slab in MB (1 .. {@link #MAX_SLAB_MB}).
+     * @throws IllegalArgumentException if the slab size is out of range.
+     */
+    public PostingArena(int slabMB)
+    {
+        if (slabMB < 1 || slabMB > MAX_SLAB_MB)
+            throw new IllegalArgumentException(String.format("Slab size of %d MB must be between 1 and %d MB.", slabMB, MAX_SLAB_MB));
+
+        _SlabSize = slabMB * 1024 * 1024;
+        _Slabs = new ArrayList<ByteBuffer>();
+    }
+
+    /** Class constructor */
+    public PostingArena()
+    {
+        this(DEFAULT_SLAB_MB);
+    }
+    //endregion ctors
+
+    //region properties
+    /**
+     * Gets the number of bytes reserved off-heap by this arena.
+     * @return
+     */
+    public long getReservedBytes() { return (long)_Slabs.size() * _SlabSize; }
+
+    /**
+     * Gets the number of bytes handed out in chunks by this arena.
+     * @return
+     */
+    public long getAllocatedBytes() { return _AllocatedBytes; }
+    //endregion properties
+
+    //region methods
+    /**
+     * Allocates a chunk of {@param bytes} bytes and returns its address (slab index in the upper 32 bits
+     * and offset within the slab in the lower 32 bits).
+     * @param bytes
+     * @return
+     */
+    public long Allocate(int bytes)
+    {
+        if (_Released)
+            throw new IllegalStateException("PostingArena was already released.");
+
+        if (bytes > _SlabSize)
+            throw new IllegalArgumentException(String.format("Cannot allocate chunk of %d bytes in slab of %d bytes.", bytes, _SlabSize));
+
+        if (_Current == null || _Current.remaining() < bytes)
+        {
+            _Current = ByteBuffer.allocateDirect(_SlabSize).order(ByteOrder.nativeOrder());
+            _Slabs.add(_Current);
+            _CurrentSlab = _Slabs.size() - 1;
+        }
+
+        int offset = _Current.position();
+        _Current.position(offset + bytes);
+        _AllocatedBytes += bytes;
+
+        return ((long)_CurrentSlab << 32) | offset;
+    }
+
+    /**
+     * Gets the slab that contains the chunk at the given address.
+     * @param address
+     * @return
+     */
+    public ByteBuffer Slab(long address)
+    {
+        return _Slabs.get((int)(address >>> 32));
+    }
+
+    /**
+     * Gets the offset within its slab of the chunk at the given address.
+     * @param address
+     * @return
+     */
+    public static int SlabOffset(long address)
+    {
+        return (int)address;
+    }
+
+    /**
+     * Frees all off-heap memory held by this arena. Posting lists allocated in this arena
+     * must not be used after calling this method.
+     */
+    public void Release()
+    {
+        if (_Released)
+            return;
+
+        _Released = true;
+        for (ByteBuffer slab : _Slabs)
+            FreeDirectBuffer(slab);
+
+        _Slabs.clear();
+        _Current = null;
+    }
+
+    /**
+     * Frees the native memory of a direct (or memory mapped) ByteBuffer right away instead of waiting for the garbage collector.
+     * This is best effort: if neither the Java 9+ nor the Java 8 mechanism is accessible the memory is freed
+     * when the buffer is collected.
+     * @param buffer
+     */
+    public static void FreeDirectBuffer(ByteBuffer buffer)
+    {
+        try   // Java 9+
+        {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            return;
+        }
+        catch (Exception e) {}
+
+        try   // Java 8
+        {
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null)
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+        }
+        catch (Exception e) {}
+    }
+    //endregion methods
+}
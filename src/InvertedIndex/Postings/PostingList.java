@@ -0,0 +1,59 @@
+package InvertedIndex.Postings;
+
+/**
+ * Stores the postings (pairs of document id and word offset) of one word in the order in which they were added.
+ */
+public abstract class PostingList
+{
+    /**
+     * Appends another document id/offset pair to this list.
+     * @param docId
+     * @param offset
+     */
+    public abstract void Add(long docId, long offset);
+
+    /**
+     * Gets the number of postings in this list.
+     * @return
+     */
+    public abstract int Count();
+
+    /**
+     * Gets the number of distinct documents in this list (counted when postings are added).
+     * @return
+     */
+    public abstract int Documents();
+
+    /**
+     * Gets the document id of the posting at index {@param i}.
+     * @param i
+     * @return
+     */
+    public abstract long DocId(int i);
+
+    /**
+     * Gets the word offset of the posting at index {@param i}.
+     * @param i
+     * @return
+     */
+    public abstract long Offset(int i);
+
+    /**
+     * Gets the number of bytes reserved to store the postings of this list (including unused capacity).
+     * @return
+     */
+    public abstract long ReservedBytes();
+
+    /**
+     * Creates a new empty posting list in the given arena or on the Java heap if {@param arena} is null.
+     * @param arena
+     * @return
+     */
+    public static PostingList Create(PostingArena arena)
+    {
+        if (arena == null)
+            return new HeapPostingList();
+
+        return new OffHeapPostingList(arena);
+    }
+}
@@ -0,0 +1,381 @@
+package InvertedIndex;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import CSV.FromCSV;
+import Documents.RowIds;
+import InvertedIndex.Nx.NxWord;
+import ProgramObjects.Errors.ErrorObject;
+
+/**
+ * Evaluates keywords on an index that stays resident after the index build (e.g. for the query server).
+ *
+ * Phrase and bool AND queries are answered from the inverted index. Document texts are not kept in memory,
+ * so regular expressions are matched by reading the text file again - all regular expressions of one call
+ * to {@link #EvaluateAll(List)} share one pass over the file.
+ *
+ * An engine can be used by several threads at once since it never modifies the index.
+ */
+public class QueryEngine
+{
+    //region fields
+    private final IIndex _Index;
+    private final NxWord _NxIndex;
+    private final RowIds _RowIds;
+    private final String _TextFile;
+    private final String _TextColumn;
+    private final int _ReadThreads;
+    private final Pattern _Mask;
+    private final int _FuzzyMaxEdits;
+    private final int _ProximityWindow;
+    //endregion fields
+
+    //region ctors
+    /**
+     * Class constructor
+     * @param index Result of the index build on {@param textFile}.
+     * @param textFile
+     * @param textColumn
+     * @param regexMask
+     * @param readThreads
+     * @param fuzzyMaxEdits Maximum number of edits of fuzzy queries that are created for this engine.
+     * @param proximityWindow Window of proximity queries that are created for this engine.
+     */
+    public QueryEngine(IndexDocumentResult index, String textFile, String textColumn, String regexMask, int readThreads,
+                       int fuzzyMaxEdits, int proximityWindow)
+    {
+        _Index = index.getInvertedIIndex();
+        _NxIndex = index.getNextWordIndex();
+        _RowIds = index.getRowIds();
+        _TextFile = textFile;
+        _TextColumn = textColumn;
+        _ReadThreads = readThreads;
+        _Mask = Pattern.compile(regexMask);
+        _FuzzyMaxEdits = fuzzyMaxEdits;
+        _ProximityWindow = proximityWindow;
+    }
+    //endregion ctors
+
+    //region properties
+    public IIndex getIndex() { return _Index; }
+
+    /**
+     * Gets the word pair index or null if it was not built (WordPairFrequency = false).
+     * @return
+     */
+    public NxWord getNextWordIndex() { return _NxIndex; }
+
+    /**
+     * Gets the mapping of dense document ids (as used in query results) to external row ids.
+     * @return
+     */
+    public RowIds getRowIds() { return _RowIds; }
+
+    /**
+     * Gets the maximum number of edits for fuzzy queries (as configured for the key files).
+     * @return
+     */
+    public int getFuzzyMaxEdits() { return _FuzzyMaxEdits; }
+
+    /**
+     * Gets the maximum distance between the first and the last word of proximity queries (as configured for the key files).
+     * @return
+     */
+    public int getProximityWindow() { return _ProximityWindow; }
+    //endregion properties
+
+    //region methods
+    /**
+     * Evaluates one keyword.
+     * @param keyword
+     * @return
+     * @throws Exception
+     */
+    public QueryResult Evaluate(Keyword keyword) throws Exception
+    {
+        return EvaluateAll(Collections.singletonList(keyword)).get(0);
+    }
+
+    /**
+     * Evaluates a list of keywords and returns their results in the same order.
+     * @param keywords
+     * @return
+     * @throws Exception
+     */
+    public List<QueryResult> EvaluateAll(List<Keyword> keywords) throws Exception
+    {
+        QueryResult[] results = new QueryResult[keywords.size()];
+        ArrayList<Integer> regexKeys = new ArrayList<Integer>();
+
+        for (int i = 0; i < results.length; i++)
+        {
+            Keyword keyword = keywords.get(i);
+            if (keyword.getRegex())
+                regexKeys.add(i);
+            else
+                results[i] = EvaluateIndexed(keyword);
+        }
+
+        if (regexKeys.isEmpty() == false)
+            MatchRegularExpressions(keywords, regexKeys, results);
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Plans and evaluates a boolean query expression and counts the documents of each clause of the plan.
+     * @param expression
+     * @return The analyzed plan (see {@link QueryPlan#Explain()}).
+     * @throws IOException
+     */
+    public QueryPlan Explain(String expression) throws IOException
+    {
+        QueryPlan plan = _Index.Plan(BoolExpression.Parse(expression, _Mask), true, null);
+        _Index.BoolQuery(plan, null);
+
+        return plan;
+    }
+
+    /**
+     * Reads the texts of the first <paramref name="limit"/> documents of a query result from the text file
+     * (the file is read up to the last of these documents only).
+     * @param docIds Dense document ids in ascending order.
+     * @param limit
+     * @return Document texts in the order of <paramref name="docIds"/>.
+     * @throws Exception
+     */
+    public List<String> ReadDocuments(int[] docIds, int limit) throws Exception
+    {
+        ArrayList<String> texts = new ArrayList<String>();
+        int count = Math.min(limit, docIds.length);
+        if (count <= 0)
+            return texts;
+
+        FromCSV df = new FromCSV(_TextFile, '|', true, _ReadThreads);
+        ErrorObject err = df.OpenFile();
+        if (err != null)
+            throw new IOException(err.getMessage());
+
+        try
+        {
+            HashMap<String, String> dataRow;
+            int docId = 0;
+            while (texts.size() < count && (dataRow = df.ReadLine()) != null)
+            {
+                String docText = dataRow.get(_TextColumn);
+                if (docText == null)
+                    continue;
+
+                if (docId == docIds[texts.size()])
+                    texts.add(docText);
+
+                docId++;
+            }
+        }
+        finally
+        {
+            df.Close();
+        }
+
+        return texts;
+    }
+
+    /**
+     * Parses the query string of a keyword with the same regex expression as it was used for document/word split.
+     * @param word
+     * @param pattern Compiled RegexMask
+     * @return
+     */
+    public static String[] QueryWords(String word, Pattern pattern)
+    {
+        Matcher matcher = pattern.matcher((word == null ? "" : word));
+        String textAlphaOnlyIn = matcher.replaceAll(" ");
+
+        return textAlphaOnlyIn.toLowerCase().split("\\s+");
+    }
+
+    /**
+     * Parses the query string of a keyword into its words (see {@link #QueryWords(String, Pattern)}).
+     * The words of a wildcard query keep their wildcards and must not start with a wildcard.
+     * The words of a boolean query are the distinct words of its expression.
+     * @param keyword
+     * @param pattern Compiled RegexMask
+     * @return
+     */
+    public static String[] QueryWords(Keyword keyword, Pattern pattern)
+    {
+        if (keyword.getBoolExpression())
+        {
+            List<String> words = BoolExpression.Parse(keyword.getWord(), pattern).Words();
+            return words.toArray(new String[words.size()]);
+        }
+
+        if (keyword.getWildcard() == false)
+            return QueryWords(keyword.getWord(), pattern);
+
+        String text = keyword.getWord();
+        StringBuilder sb = new StringBuilder(text.length());
+        Matcher matcher = pattern.matcher(text);
+        int last = 0;
+        while (matcher.find())
+        {
+            sb.append(text, last, matcher.start());
+            for (int i = matcher.start(); i < matcher.end(); i++)
+                sb.append(SortedTerms.IsWildcard(text.charAt(i)) ? text.charAt(i) : ' ');
+
+            last = matcher.end();
+        }
+
+        sb.append(text, last, text.length());
+
+        String[] words = sb.toString().toLowerCase().split("\\s+");
+        for (String word : words)
+        {
+            if (word.length() > 0 && SortedTerms.IsWildcard(word.charAt(0)))
+                throw new IllegalArgumentException(String.format("Word '%s' of wildcard query '%s' must not start with a wildcard.", word, text));
+        }
+
+        return words;
+    }
+
+    /**
+     * Gets a collection of document ids as array in ascending order.
+     * @param docIds
+     * @return
+     */
+    public static int[] SortedIds(Collection<Long> docIds)
+    {
+        int[] ids = new int[docIds.size()];
+        int i = 0;
+        for (long docId : docIds)
+            ids[i++] = (int)docId;
+
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    /**
+     * Evaluates a (fuzzy or wildcard) phrase, proximity, bool AND or boolean query on the inverted index.
+     * @param keyword
+     * @return
+     * @throws Exception
+     */
+    private QueryResult EvaluateIndexed(Keyword keyword) throws Exception
+    {
+        long start = System.nanoTime();
+        String[] words = QueryWords(keyword, _Mask);
+        String query = keyword.Query(words);
+        WordDocumentOffests<String> dicItem;
+        Collection<Long> docIds;
+
+        switch (keyword.getTypeOfQuery())
+        {
+            case PHRASE_QUERY:
+            case FUZZY_PHRASE_QUERY:
+                dicItem = (keyword.getFuzzy() ? _Index.FuzzyPhraseQuery(words, keyword.getMaxEdits(), keyword.getProfile())
+                                              : _Index.PhraseQuery(words, keyword.getProfile()));
+                if (dicItem == null)
+                    return new QueryResult(keyword, query, 0, new int[0], System.nanoTime() - start);
+
+                return new QueryResult(keyword, query, dicItem.CountOffsets(), SortedIds(dicItem.DocumentIds()), System.nanoTime() - start);
+
+            case WILDCARD_PHRASE_QUERY:
+                dicItem = _Index.WildcardPhraseQuery(words, keyword.getProfile());
+                if (dicItem == null)
+                    return new QueryResult(keyword, query, 0, new int[0], System.nanoTime() - start);
+
+                return new QueryResult(keyword, query, dicItem.CountOffsets(), SortedIds(dicItem.DocumentIds()), System.nanoTime() - start);
+
+            case NEAR_QUERY:
+            case ORDERED_NEAR_QUERY:
+                dicItem = _Index.NearQuery(words, keyword.getWindow(), keyword.getTypeOfQuery() == QueryType.ORDERED_NEAR_QUERY, keyword.getProfile());
+                if (dicItem == null)
+                    return new QueryResult(keyword, query, 0, new int[0], System.nanoTime() - start);
+
+                return new QueryResult(keyword, query, dicItem.CountOffsets(), SortedIds(dicItem.DocumentIds()), System.nanoTime() - start);
+
+            case BOOL_QUERY:
+                docIds = _Index.BoolQuery(BoolExpression.Parse(keyword.getWord(), _Mask), keyword.getProfile());
+                if (docIds == null)
+                    return new QueryResult(keyword, query, 0, new int[0], System.nanoTime() - start);
+
+                return new QueryResult(keyword, query, docIds.size(), SortedIds(docIds), System.nanoTime() - start);
+
+            case BOOL_AND_QUERY:
+            case FUZZY_BOOL_AND_QUERY:
+                docIds = (keyword.getFuzzy() ? _Index.FuzzyBoolAndQuery(words, keyword.getMaxEdits(), keyword.getProfile())
+                                             : _Index.BoolAndQuery(words, keyword.getProfile()));
+                if (docIds == null)
+                    return new QueryResult(keyword, query, 0, new int[0], System.nanoTime() - start);
+
+                return new QueryResult(keyword, query, docIds.size(), SortedIds(docIds), System.nanoTime() - start);
+
+            default: throw new IllegalArgumentException(String.format("Encountered unknown type of query '%s'", keyword.getTypeOfQuery()));
+        }
+    }
+
+    /**
+     * Matches the regular expression keywords at the given positions against all documents of the text file
+     * (in one pass) and stores their results at the same positions.
+     * @param keywords
+     * @param regexKeys
+     * @param results
+     * @throws Exception
+     */
+    private void MatchRegularExpressions(List<Keyword> keywords, List<Integer> regexKeys, QueryResult[] results) throws Exception
+    {
+        long start = System.nanoTime();
+        FromCSV df = new FromCSV(_TextFile, '|', true, _ReadThreads);
+        ErrorObject err = df.OpenFile();
+        if (err != null)
+            throw new IOException(err.getMessage());
+
+        Matcher[] matchers = new Matcher[regexKeys.size()];
+        ArrayList<ArrayList<Integer>> matches = new ArrayList<ArrayList<Integer>>();
+        for (int k = 0; k < matchers.length; k++)
+        {
+            matchers[k] = keywords.get(regexKeys.get(k)).getRegexEpression().matcher("");
+            matches.add(new ArrayList<Integer>());
+        }
+
+        // Documents get the same dense ids as in the index build (rows without text are skipped)
+        HashMap<String, String> dataRow;
+        int docId = 0;
+        while ((dataRow = df.ReadLine()) != null)
+        {
+            String docText = dataRow.get(_TextColumn);
+            if (docText == null)
+                continue;
+
+            for (int k = 0; k < matchers.length; k++)
+            {
+                if (matchers[k].reset(docText).find())
+                    matches.get(k).add(docId);
+            }
+
+            docId++;
+        }
+
+        long nanos = System.nanoTime() - start;
+        for (int k = 0; k < matchers.length; k++)
+        {
+            Keyword keyword = keywords.get(regexKeys.get(k));
+            ArrayList<Integer> docIds = matches.get(k);
+
+            int[] ids = new int[docIds.size()];
+            for (int i = 0; i < ids.length; i++)
+                ids[i] = docIds.get(i);
+
+            results[regexKeys.get(k)] = new QueryResult(keyword, keyword.getWord(), ids.length, ids, nanos);
+        }
+    }
+    //endregion methods
+}
@@ -0,0 +1,400 @@
+package InvertedIndex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import InvertedIndex.Cursors.AllDocsCursor;
+import InvertedIndex.Cursors.AndCursor;
+import InvertedIndex.Cursors.AndNotCursor;
+import InvertedIndex.Cursors.CountingCursor;
+import InvertedIndex.Cursors.OrCursor;
+import InvertedIndex.Cursors.PhraseCursor;
+import InvertedIndex.Cursors.PostingCursor;
+import InvertedIndex.Cursors.TermCursor;
+
+/**
+ * Plans the evaluation of a {@link BoolExpression} from the document frequencies of its words: each clause gets
+ * an estimated number of documents (words are assumed to occur independently of each other), nested clauses of the
+ * same operator are flattened, the operands of 'and' are ordered rarest first so the rarest clause leads the
+ * intersection and the 'not' operands of 'and' are applied last as filters on the documents of the other operands.
+ *
+ * A clause that cannot match any document (e.g. a word that is not indexed) is empty: an 'and' with an empty operand
+ * and an 'or' of empty operands are empty too and are not evaluated at all.
+ *
+ * A plan that is analyzed counts the documents each clause actually moves to when it is evaluated, so that
+ * {@link #Explain()} can show the estimated and actual sizes of all clauses. The operands of an 'and' only move to
+ * the documents of the clause that leads, so their actual size can be smaller than the number of documents they match.
+ */
+public class QueryPlan
+{
+    //region fields
+    private final BoolExpression.Operator _Operator;
+    private final String[] _Words;                          // Words of a term or phrase
+    private final WordDocumentOffests<String>[] _Postings;  // Postings of the words of a term or phrase
+    private final List<QueryPlan> _Operands;                // 'and' operands rarest first, 'or' operands, operand of a 'not'
+    private final List<QueryPlan> _Filters;                 // Clauses an 'and' excludes (its 'not' operands)
+    private final long _Estimate;
+    private final boolean _Empty;
+    private final AtomicLong _Actual;                       // Null unless the plan is analyzed, -1 until evaluated
+    //endregion fields
+
+    //region ctors
+    /**
+     * Class constructor of a term or phrase.
+     * @param words
+     * @param postings
+     * @param estimate
+     * @param empty
+     * @param analyze
+     */
+    private QueryPlan(String[] words, WordDocumentOffests<String>[] postings, long estimate, boolean empty, boolean analyze)
+    {
+        _Operator = (words.length == 1 ? BoolExpression.Operator.TERM : BoolExpression.Operator.PHRASE);
+        _Words = words;
+        _Postings = postings;
+        _Operands = Collections.emptyList();
+        _Filters = Collections.emptyList();
+        _Estimate = estimate;
+        _Empty = empty;
+        _Actual = (analyze ? new AtomicLong(-1) : null);
+    }
+
+    /**
+     * Class constructor of an operator.
+     * @param operator
+     * @param operands
+     * @param filters
+     * @param estimate
+     * @param empty
+     * @param analyze
+     */
+    private QueryPlan(BoolExpression.Operator operator, List<QueryPlan> operands, List<QueryPlan> filters,
+                      long estimate, boolean empty, boolean analyze)
+    {
+        _Operator = operator;
+        _Words = new String[0];
+        _Postings = null;
+        _Operands = operands;
+        _Filters = filters;
+        _Estimate = estimate;
+        _Empty = empty;
+        _Actual = (analyze ? new AtomicLong(-1) : null);
+    }
+    //endregion ctors
+
+    //region properties
+    public BoolExpression.Operator getOperator() { return _Operator; }
+
+    /**
+     * Gets the estimated number of documents of this clause.
+     * @return
+     */
+    public long getEstimate() { return _Estimate; }
+
+    /**
+     * Gets whether this clause cannot match any document (it is not evaluated).
+     * @return
+     */
+    public boolean IsEmpty() { return _Empty; }
+
+    /**
+     * Gets the number of documents this clause moved to while it was evaluated (-1 if the plan is not analyzed or
+     * the clause was not evaluated).
+     * @return
+     */
+    public long getActual() { return (_Actual == null ? -1 : _Actual.get()); }
+    //endregion properties
+
+    //region methods
+    /**
+     * Plans a boolean query expression.
+     * @param expression
+     * @param postings Postings of the words of the expression (words that are not indexed are missing).
+     * @param documents Number of documents of the index.
+     * @param analyze true to count the actual number of documents of each clause when the plan is evaluated.
+     * @return
+     */
+    public static QueryPlan Create(BoolExpression expression, Map<String, WordDocumentOffests<String>> postings,
+                                   long documents, boolean analyze)
+    {
+        return new Planner(postings, documents, analyze).Plan(expression);
+    }
+
+    /**
+     * Gets the cursor of this plan in a range of document ids.
+     * @param fromDocId First document id of the range (inclusive).
+     * @param toDocId Last document id of the range (exclusive, at most the number of documents).
+     * @return The cursor or null if this clause is empty.
+     */
+    public PostingCursor Cursor(long fromDocId, long toDocId)
+    {
+        if (_Empty)
+            return null;
+
+        if (_Actual != null)
+            _Actual.compareAndSet(-1, 0);
+
+        PostingCursor cursor;
+        switch (_Operator)
+        {
+            case TERM:
+            case PHRASE:
+                PostingCursor[] cursors = new PostingCursor[_Postings.length];
+                for (int i = 0; i < cursors.length; i++)
+                    cursors[i] = new TermCursor(_Postings[i], fromDocId, toDocId);
+
+                cursor = (cursors.length == 1 ? cursors[0] : new PhraseCursor(cursors));
+            break;
+
+            case OR:
+                cursor = Or(_Operands, fromDocId, toDocId);
+            break;
+
+            case NOT:
+                cursor = Exclude(new AllDocsCursor(fromDocId, toDocId), _Operands, fromDocId, toDocId);
+            break;
+
+            default:    // AND
+                ArrayList<PostingCursor> required = new ArrayList<PostingCursor>();
+                for (QueryPlan operand : _Operands)
+                    required.add(operand.Cursor(fromDocId, toDocId));
+
+                if (required.isEmpty())
+                    cursor = new AllDocsCursor(fromDocId, toDocId);
+                else if (required.size() == 1)
+                    cursor = required.get(0);
+                else
+                    cursor = new AndCursor(true, required.toArray(new PostingCursor[required.size()]));
+
+                cursor = Exclude(cursor, _Filters, fromDocId, toDocId);
+            break;
+        }
+
+        return (_Actual == null ? cursor : new CountingCursor(cursor, _Actual));
+    }
+
+    /**
+     * Gets the plan as lines of an indented tree (clause, estimated and actual number of documents).
+     * @return
+     */
+    public List<String> Explain()
+    {
+        ArrayList<String> lines = new ArrayList<String>();
+        lines.add(String.format(Locale.ROOT, "%-40s %12s %12s", "clause", "estimated", "actual"));
+        Explain(lines, "", "");
+
+        return lines;
+    }
+
+    private void Explain(List<String> lines, String indent, String prefix)
+    {
+        String actual = (_Empty ? "empty" : (getActual() < 0 ? "-" : String.valueOf(getActual())));
+        lines.add(String.format(Locale.ROOT, "%-40s %12d %12s", indent + prefix + Label(), _Estimate, actual));
+
+        for (QueryPlan operand : _Operands)
+            operand.Explain(lines, indent + "  ", "");
+
+        for (QueryPlan filter : _Filters)
+            filter.Explain(lines, indent + "  ", "excluded ");
+    }
+
+    private String Label()
+    {
+        switch (_Operator)
+        {
+            case TERM:   return _Words[0];
+            case PHRASE: return "\"" + String.join(" ", _Words) + "\"";
+            default:     return _Operator.name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * Merges the cursors of the clauses that are not empty.
+     * @param clauses
+     * @param fromDocId
+     * @param toDocId
+     * @return The cursor or null if all clauses are empty.
+     */
+    private static PostingCursor Or(List<QueryPlan> clauses, long fromDocId, long toDocId)
+    {
+        ArrayList<PostingCursor> cursors = new ArrayList<PostingCursor>();
+        for (QueryPlan clause : clauses)
+        {
+            PostingCursor cursor = clause.Cursor(fromDocId, toDocId);
+            if (cursor != null)
+                cursors.add(cursor);
+        }
+
+        if (cursors.isEmpty())
+            return null;
+
+        return (cursors.size() == 1 ? cursors.get(0) : new OrCursor(cursors.toArray(new PostingCursor[cursors.size()])));
+    }
+
+    /**
+     * Removes the documents of the clauses that are not empty from the documents of a cursor.
+     * @param cursor
+     * @param clauses
+     * @param fromDocId
+     * @param toDocId
+     * @return
+     */
+    private static PostingCursor Exclude(PostingCursor cursor, List<QueryPlan> clauses, long fromDocId, long toDocId)
+    {
+        PostingCursor excluded = Or(clauses, fromDocId, toDocId);
+
+        return (excluded == null ? cursor : new AndNotCursor(cursor, excluded));
+    }
+    //endregion methods
+
+    /**
+     * Builds the plan of an expression bottom up.
+     */
+    private static class Planner
+    {
+        private final Map<String, WordDocumentOffests<String>> _Postings;
+        private final long _Documents;
+        private final boolean _Analyze;
+
+        Planner(Map<String, WordDocumentOffests<String>> postings, long documents, boolean analyze)
+        {
+            _Postings = postings;
+            _Documents = documents;
+            _Analyze = analyze;
+        }
+
+        QueryPlan Plan(BoolExpression expression)
+        {
+            switch (expression.getOperator())
+            {
+                case TERM:
+                case PHRASE:
+                    return Words(expression.getWords());
+
+                case OR:
+                    return Or(expression);
+
+                case NOT:
+                    QueryPlan operand = Plan(expression.getOperands().get(0));
+                    return new QueryPlan(BoolExpression.Operator.NOT, Collections.singletonList(operand), Collections.<QueryPlan>emptyList(),
+                                         _Documents - operand.getEstimate(), _Documents == 0, _Analyze);
+
+                default:
+                    return And(expression);
+            }
+        }
+
+        /**
+         * Plans a term or phrase: a phrase matches at most the documents of its rarest word
+         * (document frequencies are counted at build time, so planning does not read any postings).
+         * @param words
+         * @return
+         */
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        private QueryPlan Words(String[] words)
+        {
+            WordDocumentOffests<String>[] postings = new WordDocumentOffests[words.length];
+            long estimate = _Documents;
+            boolean empty = false;
+
+            for (int i = 0; i < words.length; i++)
+            {
+                postings[i] = _Postings.get(words[i]);
+                if (postings[i] == null)
+                    empty = true;
+                else
+                    estimate = Math.min(estimate, postings[i].CountDocuments());
+            }
+
+            return new QueryPlan(words, postings, (empty ? 0 : estimate), empty, _Analyze);
+        }
+
+        /**
+         * Plans an 'or' of the (flattened) operands of {@param expression}.
+         * @param expression
+         * @return
+         */
+        private QueryPlan Or(BoolExpression expression)
+        {
+            ArrayList<QueryPlan> operands = new ArrayList<QueryPlan>();
+            Flatten(expression, BoolExpression.Operator.OR, operands, null);
+
+            double missed = 1.0;    // Probability that a document matches no operand
+            boolean empty = true;
+            for (QueryPlan operand : operands)
+            {
+                missed *= 1.0 - Probability(operand);
+                empty &= operand.IsEmpty();
+            }
+
+            return new QueryPlan(BoolExpression.Operator.OR, operands, Collections.<QueryPlan>emptyList(),
+                                 (empty ? 0 : Math.round(_Documents * (1.0 - missed))), empty, _Analyze);
+        }
+
+        /**
+         * Plans an 'and' of the (flattened) operands of {@param expression}: the required operands rarest
+         * first and the operands of its 'not' operands as filters.
+         * @param expression
+         * @return
+         */
+        private QueryPlan And(BoolExpression expression)
+        {
+            ArrayList<QueryPlan> operands = new ArrayList<QueryPlan>();
+            ArrayList<QueryPlan> filters = new ArrayList<QueryPlan>();
+            Flatten(expression, BoolExpression.Operator.AND, operands, filters);
+
+            Collections.sort(operands, new Comparator<QueryPlan>()
+            {
+                @Override
+                public int compare(QueryPlan a, QueryPlan b)
+                {
+                    return Long.compare(a.getEstimate(), b.getEstimate());
+                }
+            });
+
+            double matched = 1.0;   // Probability that a document matches all operands and no filter
+            boolean empty = (_Documents == 0);
+            for (QueryPlan operand : operands)
+            {
+                matched *= Probability(operand);
+                empty |= operand.IsEmpty();
+            }
+
+            for (QueryPlan filter : filters)
+                matched *= 1.0 - Probability(filter);
+
+            return new QueryPlan(BoolExpression.Operator.AND, operands, filters,
+                                 (empty ? 0 : Math.round(_Documents * matched)), empty, _Analyze);
+        }
+
+        /**
+         * Plans the operands of {@param expression} and of its operands with the same operator.
+         * @param expression
+         * @param operator
+         * @param operands
+         * @param filters Receives the operands of 'not' operands (null to plan 'not' operands as operands).
+         */
+        private void Flatten(BoolExpression expression, BoolExpression.Operator operator, List<QueryPlan> operands, List<QueryPlan> filters)
+        {
+            for (BoolExpression operand : expression.getOperands())
+            {
+                if (operand.getOperator() == operator)
+                    Flatten(operand, operator, operands, filters);
+                else if (filters != null && operand.getOperator() == BoolExpression.Operator.NOT)
+                    filters.add(Plan(operand.getOperands().get(0)));
+                else
+                    operands.add(Plan(operand));
+            }
+        }
+
+        private double Probability(QueryPlan clause)
+        {
+            return (_Documents == 0 ? 0.0 : Math.min(1.0, (double)clause.getEstimate() / _Documents));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package InvertedIndex;
+
+import java.util.ArrayList;
+
+/**
+ * Collects the cost of evaluating one {@link Keyword}: the evaluation time, the number of postings
+ * read from the index, the number of documents scanned (regular expressions) and the size of each
+ * intermediate result while the words of a query are merged.
+ */
+public class QueryProfile
+{
+    //region fields
+    private long _Nanos = 0;
+    private long _PostingsTouched = 0;
+    private long _DocumentsScanned = 0;
+    private long _ResultSize = 0;
+    private final ArrayList<Long> _IntermediateSizes = new ArrayList<Long>();
+    //endregion fields
+
+    //region properties
+    /**
+     * Gets the time spent evaluating the keyword in nanoseconds.
+     * @return
+     */
+    public long getNanos() { return _Nanos; }
+
+    /**
+     * Gets the number of postings (document/offset pairs) read from the index.
+     * @return
+     */
+    public long getPostingsTouched() { return _PostingsTouched; }
+
+    /**
+     * Gets the number of documents a regular expression was matched against.
+     * @return
+     */
+    public long getDocumentsScanned() { return _DocumentsScanned; }
+
+    /**
+     * Gets the size of the final result (offsets for a phrase query, documents otherwise).
+     * @return
+     */
+    public long getResultSize() { return _ResultSize; }
+
+    /**
+     * Gets the size of each intermediate result in the order of evaluation (e.g. '1200>85>3').
+     * @return
+     */
+    public String getIntermediateSizes()
+    {
+        StringBuilder sb = new StringBuilder();
+        for (Long size : _IntermediateSizes)
+            sb.append(sb.length() > 0 ? ">" : "").append(size);
+
+        return sb.toString();
+    }
+    //endregion properties
+
+    //region methods
+    public void AddNanos(long nanos) { _Nanos += nanos; }
+
+    public void AddPostingsTouched(long postings) { _PostingsTouched += postings; }
+
+    public void AddDocumentScanned() { _DocumentsScanned++; }
+
+    public void AddIntermediateSize(long size) { _IntermediateSizes.add(size); }
+
+    public void SetResultSize(long size) { _ResultSize = size; }
+    //endregion methods
+}
@@ -0,0 +1,64 @@
+package InvertedIndex;
+
+/**
+ * Result of evaluating one {@link Keyword} on a resident index: the frequency as it is reported in the
+ * keyword frequency file (word offsets for phrase queries, documents otherwise) and the dense ids
+ * of the matching documents in ascending order.
+ */
+public class QueryResult
+{
+    //region fields
+    private final Keyword _Keyword;
+    private final String _Query;
+    private final long _Frequency;
+    private final int[] _DocIds;
+    private final long _Nanos;
+    //endregion fields
+
+    //region ctors
+    /**
+     * Class constructor
+     * @param keyword
+     * @param query Normalized query string (words split with the RegexMask or the regular expression).
+     * @param frequency
+     * @param docIds
+     * @param nanos
+     */
+    public QueryResult(Keyword keyword, String query, long frequency, int[] docIds, long nanos)
+    {
+        _Keyword = keyword;
+        _Query = query;
+        _Frequency = frequency;
+        _DocIds = docIds;
+        _Nanos = nanos;
+    }
+    //endregion ctors
+
+    //region properties
+    public Keyword getKeyword() { return _Keyword; }
+
+    /**
+     * Gets the normalized query string (words split with the RegexMask or the regular expression).
+     * @return
+     */
+    public String getQuery() { return _Query; }
+
+    /**
+     * Gets the number of word offsets (phrase query) or documents (regular expression, bool AND query) found.
+     * @return
+     */
+    public long getFrequency() { return _Frequency; }
+
+    /**
+     * Gets the dense ids of the matching documents in ascending order.
+     * @return
+     */
+    public int[] getDocIds() { return _DocIds; }
+
+    /**
+     * Gets the evaluation time in nanoseconds.
+     * @return
+     */
+    public long getNanos() { return _Nanos; }
+    //endregion properties
+}
@@ -7,4 +7,16 @@ public enum QueryType
     ,REGULAR_EXPRESSION
 
     ,BOOL_AND_QUERY
+
+    ,FUZZY_PHRASE_QUERY
+
+    ,FUZZY_BOOL_AND_QUERY
+
+    ,WILDCARD_PHRASE_QUERY
+
+    ,NEAR_QUERY
+
+    ,ORDERED_NEAR_QUERY
+
+    ,BOOL_QUERY
 }
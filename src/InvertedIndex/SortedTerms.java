@@ -0,0 +1,240 @@
+package InvertedIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Stores the terms of an index in ascending order to expand query words into the terms they match
+ * (e.g. all terms within a number of edits of a misspelled word or all terms that match a wildcard pattern).
+ *
+ * Expansions walk the terms in order and share the work for a common prefix of consecutive terms.
+ * Once a prefix cannot match, all terms with that prefix are skipped with a binary search, so an expansion
+ * reads only a small part of a large vocabulary. The terms that start with a prefix are one range of the
+ * sorted terms and are found with two binary searches.
+ */
+public class SortedTerms
+{
+    //region fields
+    private final String[] _Terms;
+    //endregion fields
+
+    //region ctors
+    /**
+     * Class constructor
+     * @param terms Distinct terms (in any order).
+     */
+    public SortedTerms(Collection<String> terms)
+    {
+        _Terms = terms.toArray(new String[terms.size()]);
+        Arrays.sort(_Terms);
+    }
+    //endregion ctors
+
+    //region properties
+    /**
+     * Gets the number of terms.
+     * @return
+     */
+    public int Count() { return _Terms.length; }
+    //endregion properties
+
+    //region methods
+    /**
+     * Gets the term at index {@param i} (ascending order).
+     * @param i
+     * @return
+     */
+    public String Term(int i) { return _Terms[i]; }
+
+    /**
+     * Gets the index of the first term that is not less than {@param term} (or the number of terms).
+     * @param term
+     * @return
+     */
+    public int LowerBound(String term)
+    {
+        int lo = 0, hi = _Terms.length;
+        while (lo < hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            if (_Terms[mid].compareTo(term) < 0)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+
+        return lo;
+    }
+
+    /**
+     * Gets all terms that match a wildcard pattern in ascending order: '*' matches any number of characters
+     * and '?' matches one character. Only the terms that start with the characters before the first wildcard
+     * are read, so the pattern should not start with a wildcard.
+     * @param pattern
+     * @return
+     */
+    public List<String> Wildcard(String pattern)
+    {
+        int literal = 0;
+        while (literal < pattern.length() && IsWildcard(pattern.charAt(literal)) == false)
+            literal++;
+
+        String prefix = pattern.substring(0, literal);
+        ArrayList<String> matches = new ArrayList<String>();
+
+        for (int i = LowerBound(prefix), end = PrefixEnd(prefix); i < end; i++)
+        {
+            if (Matches(pattern, _Terms[i], literal))
+                matches.add(_Terms[i]);
+        }
+
+        return matches;
+    }
+
+    /**
+     * Determines whether {@param c} is a wildcard character of {@link #Wildcard(String)} ('*' or '?').
+     * @param c
+     * @return
+     */
+    public static boolean IsWildcard(char c) { return c == '*' || c == '?'; }
+
+    /**
+     * Gets all terms within {@param maxEdits} insertions, deletions or substitutions of {@param word} in ascending order
+     * (except the empty term).
+     * @param word
+     * @param maxEdits
+     * @return
+     */
+    public List<String> Fuzzy(String word, int maxEdits)
+    {
+        LevenshteinAutomaton automaton = new LevenshteinAutomaton(word, maxEdits);
+        ArrayList<String> matches = new ArrayList<String>();
+
+        // states[d] is the state after the first d characters of the previous term
+        int[][] states = new int[16][automaton.StateSize()];
+        automaton.Start(states[0]);
+        String previous = "";
+        int depth = 0;          // Number of valid states after the start state
+
+        for (int i = 0; i < _Terms.length; )
+        {
+            String term = _Terms[i];
+            int d = CommonPrefix(previous, term, depth);
+
+            if (term.length() >= states.length)
+                states = Grow(states, term.length() + 1, automaton.StateSize());
+
+            boolean dead = false;
+            for ( ; d < term.length() && dead == false; d++)
+                dead = !automaton.Step(states[d], term.charAt(d), states[d + 1]);
+
+            previous = term;
+            depth = d;
+
+            if (dead)
+            {
+                i = Skip(term, d, i);    // No term with the first d characters of this term can match
+                continue;
+            }
+
+            // The empty term stands for documents without words and is no word a query can be similar to
+            if (automaton.IsAccepted(states[d]) && term.length() > 0)
+                matches.add(term);
+
+            i++;
+        }
+
+        return matches;
+    }
+
+    /**
+     * Gets the index of the first term after {@param i} that does not start with the first {@param length} characters of {@param term}.
+     * @param term
+     * @param length
+     * @param i
+     * @return
+     */
+    private int Skip(String term, int length, int i)
+    {
+        return Math.max(PrefixEnd(term.substring(0, length)), i + 1);
+    }
+
+    /**
+     * Gets the index of the first term after all terms that start with {@param prefix} (or the number of terms).
+     * @param prefix
+     * @return
+     */
+    private int PrefixEnd(String prefix)
+    {
+        int length = prefix.length();
+        while (length > 0 && prefix.charAt(length - 1) == Character.MAX_VALUE)
+            length--;
+
+        if (length == 0)
+            return _Terms.length;
+
+        return LowerBound(prefix.substring(0, length - 1) + (char)(prefix.charAt(length - 1) + 1));
+    }
+
+    /**
+     * Matches a term against a wildcard pattern from index {@param from} (both start with the same characters before).
+     * A '*' that is followed by a mismatch is retried with one more character of the term.
+     * @param pattern
+     * @param term
+     * @param from
+     * @return
+     */
+    private static boolean Matches(String pattern, String term, int from)
+    {
+        int p = from, t = from;
+        int star = -1, retry = 0;
+
+        while (t < term.length())
+        {
+            if (p < pattern.length() && (pattern.charAt(p) == '?' || pattern.charAt(p) == term.charAt(t)))
+            {
+                p++;
+                t++;
+            }
+            else if (p < pattern.length() && pattern.charAt(p) == '*')
+            {
+                star = p++;
+                retry = t;
+            }
+            else if (star >= 0)
+            {
+                p = star + 1;
+                t = ++retry;
+            }
+            else
+                return false;
+        }
+
+        while (p < pattern.length() && pattern.charAt(p) == '*')
+            p++;
+
+        return (p == pattern.length());
+    }
+
+    private static int CommonPrefix(String a, String b, int max)
+    {
+        int n = Math.min(max, Math.min(a.length(), b.length()));
+        int i = 0;
+        while (i < n && a.charAt(i) == b.charAt(i))
+            i++;
+
+        return i;
+    }
+
+    private static int[][] Grow(int[][] states, int length, int stateSize)
+    {
+        int[][] grown = Arrays.copyOf(states, Math.max(length, states.length * 2));
+        for (int d = states.length; d < grown.length; d++)
+            grown[d] = new int[stateSize];
+
+        return grown;
+    }
+    //endregion methods
+}
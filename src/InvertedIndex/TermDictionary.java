@@ -0,0 +1,147 @@
+package InvertedIndex;
+
+import java.util.Arrays;
+
+/**
+ * Maps the characters of a term to a dense integer term id without creating a String for each lookup.
+ * A String instance is created only once for each distinct term (when it is added) and is shared
+ * between all occurrences of that term.
+ */
+public class TermDictionary
+{
+    //region fields
+    private int[] _Table;           // open addressing hash table of term id + 1 (0 = empty slot)
+    private int[] _Hashes;          // hash code per term id
+    private String[] _Terms;        // term string per term id
+    private int _Count = 0;
+    //endregion fields
+
+    //region ctors
+    /** Class constructor */
+    public TermDictionary()
+    {
+        _Table = new int[1024];
+        _Hashes = new int[512];
+        _Terms = new String[512];
+    }
+    //endregion ctors
+
+    //region properties
+    /**
+     * Gets the number of distinct terms stored in this dictionary.
+     * @return
+     */
+    public int Count() { return _Count; }
+    //endregion properties
+
+    //region methods
+    /**
+     * Gets the term string for a given term id.
+     * @param termId
+     * @return
+     */
+    public String Term(int termId) { return _Terms[termId]; }
+
+    /**
+     * Gets the term id of the term in {@param buf} or adds it to the dictionary if it was not seen before.
+     * @param buf
+     * @param off
+     * @param len
+     * @param hash Hash code computed over the characters of the term in the same way as String.hashCode().
+     * @return
+     */
+    public int GetOrAdd(char[] buf, int off, int len, int hash)
+    {
+        int mask = _Table.length - 1;
+        int slot = Mix(hash) & mask;
+
+        for (int entry; (entry = _Table[slot]) != 0; slot = (slot + 1) & mask)
+        {
+            int termId = entry - 1;
+            if (_Hashes[termId] == hash && Equals(_Terms[termId], buf, off, len))
+                return termId;
+        }
+
+        int termId = _Count++;
+        if (termId == _Terms.length)
+        {
+            _Terms = Arrays.copyOf(_Terms, _Terms.length * 2);
+            _Hashes = Arrays.copyOf(_Hashes, _Hashes.length * 2);
+        }
+
+        _Terms[termId] = new String(buf, off, len);
+        _Hashes[termId] = hash;
+        _Table[slot] = termId + 1;
+
+        if (_Count * 2 > _Table.length)   // Keep load factor below 0.5
+            Rehash();
+
+        return termId;
+    }
+
+    /**
+     * Gets the term id of a given term string or adds it to the dictionary if it was not seen before.
+     * @param term
+     * @return
+     */
+    public int GetOrAdd(String term)
+    {
+        char[] buf = term.toCharArray();
+
+        return GetOrAdd(buf, 0, buf.length, term.hashCode());
+    }
+
+    /**
+     * Doubles the size of the hash table and re-inserts all term ids.
+     */
+    private void Rehash()
+    {
+        int[] table = new int[_Table.length * 2];
+        int mask = table.length - 1;
+
+        for (int termId = 0; termId < _Count; termId++)
+        {
+            int slot = Mix(_Hashes[termId]) & mask;
+            while (table[slot] != 0)
+                slot = (slot + 1) & mask;
+
+            table[slot] = termId + 1;
+        }
+
+        _Table = table;
+    }
+
+    /**
+     * Spreads the bits of a String hash code since String hashes of short terms cluster in the low bits.
+     * @param hash
+     * @return
+     */
+    private static int Mix(int hash)
+    {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Compares a term string with a range of characters.
+     * @param term
+     * @param buf
+     * @param off
+     * @param len
+     * @return
+     */
+    private static boolean Equals(String term, char[] buf, int off, int len)
+    {
+        if (term.length() != len)
+            return false;
+
+        for (int i = 0; i < len; i++)
+        {
+            if (term.charAt(i) != buf[off + i])
+                return false;
+        }
+
+        return true;
+    }
+    //endregion methods
+}
@@ -0,0 +1,153 @@
+package InvertedIndex;
+
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * Splits the text of a document into lower case words (tokens) as defined by a RegexMask.
+ *
+ * The default RegexMask (ASCII letters, digits, '-', '_', '#', '!' and the German umlauts/sharp s) is evaluated
+ * with a single pass over the characters of the text which folds case in the same pass and maps each
+ * token to a shared String instance via a {@link TermDictionary}. This avoids the regular expression replace,
+ * the lower case copy, the split and the String allocation per token of the general path, which is used
+ * for any other RegexMask.
+ */
+public class Tokenizer
+{
+    /** Default mask of characters that are NOT part of a word. */
+    public static final String DEFAULT_REGEX_MASK = "[^a-zA-Z0-9-\u00e4\u00fc\u00f6\u00c4\u00dc\u00d6\u00df_#!]+";
+
+    /** Lower case character per Latin-1 character or 0 if the character separates words. */
+    private static final char[] FOLD = new char[256];
+
+    private static final String[] EMPTY_DOCUMENT = new String[] { "" };
+
+    static
+    {
+        for (char c = 'a'; c <= 'z'; c++)
+            FOLD[c] = c;
+
+        for (char c = 'A'; c <= 'Z'; c++)
+            FOLD[c] = (char)(c + ('a' - 'A'));
+
+        for (char c = '0'; c <= '9'; c++)
+            FOLD[c] = c;
+
+        for (char c : new char[] { '-', '_', '#', '!', '\u00e4', '\u00f6', '\u00fc', '\u00df' })
+            FOLD[c] = c;
+
+        FOLD['\u00c4'] = '\u00e4';    // Umlauts A, O, U
+        FOLD['\u00d6'] = '\u00f6';
+        FOLD['\u00dc'] = '\u00fc';
+    }
+
+    //region fields
+    private final Pattern _Mask;        // null if the fast path is used
+    private final TermDictionary _Terms;
+    private char[] _Buffer = new char[256];
+    private String[] _Words = new String[64];
+    //endregion fields
+
+    //region ctors
+    /**
+     * Class constructor
+     * @param regexMask Regular expression that matches all characters that are NOT part of a word.
+     */
+    public Tokenizer(String regexMask)
+    {
+        _Mask = (IsFastPathMask(regexMask) ? null : Pattern.compile(regexMask));
+        _Terms = new TermDictionary();
+    }
+    //endregion ctors
+
+    //region properties
+    /**
+     * Gets whether this tokenizer uses the single pass implementation instead of the regular expression.
+     * @return
+     */
+    public boolean getFastPath() { return _Mask == null; }
+
+    /**
+     * Gets the number of distinct words seen by the single pass implementation.
+     * @return
+     */
+    public int TermCount() { return _Terms.Count(); }
+    //endregion properties
+
+    //region methods
+    /**
+     * Determines whether a given RegexMask can be evaluated by the single pass implementation.
+     * @param regexMask
+     * @return
+     */
+    public static boolean IsFastPathMask(String regexMask)
+    {
+        return DEFAULT_REGEX_MASK.equals(regexMask);
+    }
+
+    /**
+     * Splits a document text into lower case words. The result is identical to:
+     * <pre>
+     * pattern.matcher(text).replaceAll(" ").toLowerCase().trim().split("\\s+")
+     * </pre>
+     * which includes returning one empty word for a text without any word.
+     * @param text
+     * @return
+     */
+    public String[] Tokenize(String text)
+    {
+        if (_Mask != null)
+            return _Mask.matcher(text).replaceAll(" ").toLowerCase().trim().split("\\s+");
+
+        final int len = text.length();
+        if (_Buffer.length < len)
+            _Buffer = new char[Math.max(len, _Buffer.length * 2)];
+
+        final char[] buf = _Buffer;
+        int count = 0;
+
+        for (int i = 0; i < len; )
+        {
+            // Skip separators
+            char c = text.charAt(i);
+            char f;
+            while ((f = (c < 256 ? FOLD[c] : 0)) == 0)
+            {
+                if (++i >= len)
+                    break;
+
+                c = text.charAt(i);
+            }
+
+            if (f == 0)
+                break;
+
+            // Copy and fold word characters while computing the String hash code
+            int start = i;
+            int hash = 0;
+            do
+            {
+                buf[i] = f;
+                hash = 31 * hash + f;
+
+                if (++i >= len)
+                    break;
+
+                c = text.charAt(i);
+                f = (c < 256 ? FOLD[c] : 0);
+            }
+            while (f != 0);
+
+            if (count == _Words.length)
+                _Words = Arrays.copyOf(_Words, count * 2);
+
+            _Words[count++] = _Terms.Term(_Terms.GetOrAdd(buf, start, i - start, hash));
+        }
+
+        if (count == 0)
+            return EMPTY_DOCUMENT.clone();
+
+        return Arrays.copyOf(_Words, count);
+    }
+    //endregion methods
+}
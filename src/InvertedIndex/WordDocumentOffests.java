@@ -2,12 +2,15 @@ package InvertedIndex;
 
 import java.util.*;
 
+import InvertedIndex.Postings.PostingArena;
+import InvertedIndex.Postings.PostingList;
+
 /// <summary>Models an inverted indes list (the occurrence of words in Documents and their Offsets).</summary>
 public class WordDocumentOffests<T>
 {
     //region fields
     private final String _WordKey;
-    private final ArrayList<long[]> _DocumentOffsets;
+    private final PostingList _DocumentOffsets;
     //endregion fields
 
     //region ctors
@@ -20,13 +23,38 @@ public class WordDocumentOffests<T>
     /// <param name="offset"></param>
     public WordDocumentOffests(final String wordKey, final long docKey, final long offset)
     {
-        _DocumentOffsets = new ArrayList<long[]>();
+        this(wordKey, null, docKey, offset);
+    }
+
+    /// <summary>
+    /// Using this constructor garanties that the resulting document offset list
+    /// will never be empty. The document offsets are stored off-heap in <paramref name="arena"/>
+    /// or on the Java heap if <paramref name="arena"/> is null.
+    /// </summary>
+    /// <param name="wordKey"></param>
+    /// <param name="arena"></param>
+    /// <param name="docKey"></param>
+    /// <param name="offset"></param>
+    public WordDocumentOffests(final String wordKey, final PostingArena arena, final long docKey, final long offset)
+    {
+        _DocumentOffsets = PostingList.Create(arena);
         this._WordKey = wordKey;
 
         if (docKey >= 0 && offset >= 0)
             AddDocumentOffset(docKey, offset);
     }
 
+    /// <summary>
+    /// Wraps an existing list of document offsets (e.g. a read-only view on the postings of a disk index).
+    /// </summary>
+    /// <param name="wordKey"></param>
+    /// <param name="postings"></param>
+    public WordDocumentOffests(final String wordKey, final PostingList postings)
+    {
+        _DocumentOffsets = postings;
+        this._WordKey = wordKey;
+    }
+
     /// <summary>Using this constructor CANNOT garanty that the resulting document offset list will never be empty.</summary>
     /// <param name="wordKey"></param>
     /// <param name="docKey"></param>
@@ -55,7 +83,27 @@ public class WordDocumentOffests<T>
      * Get number of document offsets hosted in this collection.
      * @return
      */
-    public long CountOffsets() { return _DocumentOffsets.size(); }
+    public long CountOffsets() { return _DocumentOffsets.Count(); }
+
+    /**
+     * Gets the number of bytes reserved to store the document offsets of this collection.
+     * @return
+     */
+    public long ReservedBytes() { return _DocumentOffsets.ReservedBytes(); }
+
+    /**
+     * Gets the document id of the document/offset pair at index {@param i}.
+     * @param i
+     * @return
+     */
+    public long DocId(int i) { return _DocumentOffsets.DocId(i); }
+
+    /**
+     * Gets the word offset of the document/offset pair at index {@param i}.
+     * @param i
+     * @return
+     */
+    public long Offset(int i) { return _DocumentOffsets.Offset(i); }
     //endregion properties
 
     //region methods
@@ -67,7 +115,7 @@ public class WordDocumentOffests<T>
      */
     public void AddDocumentOffset(final long docKey, final long offset)
     {
-        _DocumentOffsets.add(new long[] { docKey, offset });
+        _DocumentOffsets.Add(docKey, offset);
     }
 
     /**
@@ -85,21 +133,28 @@ public class WordDocumentOffests<T>
         final WordDocumentOffests<T> resolvedDocOffsets = new WordDocumentOffests<T>(mergedWords);
 
         // Merging empty lists will result in... empty list
-        if (other == null || other._DocumentOffsets.size() == 0 || _DocumentOffsets.size() == 0)
+        if (other == null || other._DocumentOffsets.Count() == 0 || _DocumentOffsets.Count() == 0)
             return resolvedDocOffsets;
 
+        final PostingList thisList = _DocumentOffsets;
+        final PostingList otherList = other._DocumentOffsets;
+        final int thisCount = thisList.Count();
+        final int otherCount = otherList.Count();
         int otherIdx = 0;
 
-        for (int i = 0; i < _DocumentOffsets.size() && otherIdx < other._DocumentOffsets.size(); )
+        for (int i = 0; i < thisCount && otherIdx < otherCount; )
         {
-            long[] thisDoc = _DocumentOffsets.get(i);
-            long[] otherDoc = other._DocumentOffsets.get(otherIdx);
+            long thisDoc = thisList.DocId(i);
+            long otherDoc = otherList.DocId(otherIdx);
 
             // Attempt to match document and word offest sequence to find occurrance of
             // current word pair
-            if (thisDoc[0] == otherDoc[0]) {
-                if ((thisDoc[1] + 1) == otherDoc[1]) {
-                    resolvedDocOffsets.AddDocumentOffset(otherDoc[0], otherDoc[1]);
+            if (thisDoc == otherDoc) {
+                long thisOffset = thisList.Offset(i);
+                long otherOffset = otherList.Offset(otherIdx);
+
+                if ((thisOffset + 1) == otherOffset) {
+                    resolvedDocOffsets.AddDocumentOffset(otherDoc, otherOffset);
 
                     otherIdx++;
                     i++;
@@ -108,11 +163,11 @@ public class WordDocumentOffests<T>
                     // Either increment left or right offset once but continue loop below in anyway
                     // to re-check current state of Document Ids when increment was done on either
                     // side
-                    if ((thisDoc[1] + 1) < otherDoc[1]) {
-                        if (i < _DocumentOffsets.size())
+                    if ((thisOffset + 1) < otherOffset) {
+                        if (i < thisCount)
                             i++;
                     } else {
-                        if (otherIdx < other._DocumentOffsets.size())
+                        if (otherIdx < otherCount)
                             otherIdx++;
                     }
 
@@ -120,28 +175,19 @@ public class WordDocumentOffests<T>
                 }
             }
 
-            if (thisDoc[0] < otherDoc[0]) {
-                for (i = i + 1; i < _DocumentOffsets.size(); i++)
+            if (thisDoc < otherDoc) {
+                for (i = i + 1; i < thisCount; i++)
                 {
-                    thisDoc = _DocumentOffsets.get(i);
-
-                    if (thisDoc[0] >= otherDoc[0]) {
-                        thisDoc = _DocumentOffsets.get(i);
+                    if (thisList.DocId(i) >= otherDoc)
                         break;
-                    }
                 }
             }
             else
             {
-                for (otherIdx = otherIdx + 1; otherIdx < other._DocumentOffsets.size(); otherIdx++)
+                for (otherIdx = otherIdx + 1; otherIdx < otherCount; otherIdx++)
                 {
-                    otherDoc = other._DocumentOffsets.get(otherIdx);
-
-                    if (otherDoc[0] >= thisDoc[0])
-                    {
-                        otherDoc = other._DocumentOffsets.get(otherIdx);
+                    if (otherList.DocId(otherIdx) >= thisDoc)
                         break;
-                    }
                 }
             }
         }
@@ -149,14 +195,43 @@ public class WordDocumentOffests<T>
         return (resolvedDocOffsets);
     }
 
+    /**
+     * Gets the index of the first document/offset pair with a document id of at least {@param docId}
+     * (or the number of pairs if there is no such pair). Pairs are stored in ascending order of document ids.
+     * @param docId
+     * @return
+     */
+    public int LowerBound(final long docId)
+    {
+        int lo = 0, hi = _DocumentOffsets.Count();
+        while (lo < hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            if (_DocumentOffsets.DocId(mid) < docId)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+
+        return lo;
+    }
+
+    /**
+     * Gets the number of distinct documents of this collection (document frequency of the word)
+     * which is counted when document offsets are added (or stored in the dictionary of a disk index).
+     * @return
+     */
+    public long CountDocuments() { return _DocumentOffsets.Documents(); }
+
     public HashSet<Long> DocumentIds()
     {
         final HashSet<Long> docs = new HashSet<Long>();
 
-        for (long[] item : _DocumentOffsets)
+        for (int i = 0, count = _DocumentOffsets.Count(); i < count; i++)
         {
-            if (docs.contains(item[0]) == false)
-                docs.add(item[0]);
+            long docId = _DocumentOffsets.DocId(i);
+            if (docs.contains(docId) == false)
+                docs.add(docId);
         }
 
         return docs;
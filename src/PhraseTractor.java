@@ -1,20 +1,31 @@
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.regex.Matcher;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.regex.Pattern;
 
 import InvertedIndex.*;
+import InvertedIndex.Disk.KeyResultCache;
+import InvertedIndex.Postings.PostingArena;
 import CSV.*;
 import Documents.*;
 import ProgramObjects.*;
 import ProgramObjects.Errors.ErrorObject;
+import ProgramObjects.Events.KeywordQueryEvent;
+import Server.QueryConsole;
+import Server.QueryServer;
 
 class PhraseTractor
 {
@@ -28,9 +39,6 @@ class PhraseTractor
      */
     public static void main(String[] args) throws FileNotFoundException, IOException, Exception
 	{
-        Instant start = Instant.now();
-        HashMap<String, Keyword> keys = null;
-
         System.out.printf("\n\n    %s: %s\n", Tool.Name, Tool.Version); 
 
         ProgramArgs progArgs = ProgramArgs.readConfigFromPropertiesFile(args);
@@ -41,247 +49,969 @@ class PhraseTractor
             System.exit(-1);
         }
 
+        int exitCode = Run(progArgs, new RunMetrics());
+        if (exitCode != 0)
+            System.exit(exitCode);  // return error code to Operating System
+    }
+
+    /**
+     * Runs the complete processing (read keys, build index, query keys, write results) for the given
+     * program arguments and records the metrics of each processing phase in {@param metrics}.
+     *
+     * All key files are evaluated on the same index (built once) and each key file writes its own result files.
+     *
+     * @param progArgs
+     * @param metrics
+     * @return 0 if processing was successful or the (negative) exit code for the Operating System.
+     * @throws FileNotFoundException
+     * @throws IOException
+     * @throws Exception
+     */
+    public static int Run(ProgramArgs progArgs, RunMetrics metrics) throws FileNotFoundException, IOException, Exception
+    {
+        Instant start = Instant.now();
+        List<KeySet> keySets = new ArrayList<KeySet>();
+
+        ByteScanner.Select(progArgs.getByteScanMode());  // Select scalar or SWAR byte scanning for this run
+
         try
         {
             if (progArgs.getExtractKeys())
             {
-                System.out.printf("       Reading Key File: '%s'\n", progArgs.getKeyFileName()); 
-                keys = ReadKeywordsCSV(progArgs.getKeyFile().getFileInNamePath(), '|', true, "regex", "text");
+                metrics.StartPhase("ReadKeys");
+                for (FileImpl keyFile : progArgs.getKeyFiles())
+                {
+                    System.out.printf("       Reading Key File: '%s'\n", keyFile.getFileInNamePath()); 
+                    HashMap<String, Keyword> keys = ReadKeywordsCSV(keyFile.getFileInNamePath(), KeySet.SEPARATOR, true, "regex", "text",
+                                                                     progArgs.getFuzzyMaxEdits(), progArgs.getProximityWindow());
+
+                    if (keys == null)
+                        return -1;
 
-                if (keys == null)
-                    System.exit(-1);
+                    System.out.printf("             keys found: %d\n", keys.size());
+                    metrics.Count("keys", keys.size());
+
+                    KeySet keySet = new KeySet(keyFile, keys, progArgs.getBaseOutputDir());
+                    RegisterKeywordQueries(keys, keySet.getDocQueries(), progArgs.getRegexMask());
+
+                    // Measure costs per keyword for the profile file or a Flight Recorder recording
+                    if (progArgs.getProfileKeywords() || KeywordQueryEvent.IsEnabled())
+                    {
+                        for (Keyword item : keys.values())
+                            item.EnableProfile();
+                    }
 
-                System.out.printf("             keys found: %d\n", keys.size());
+                    keySets.add(keySet);
+                }
             }
         }
         catch (Exception e)
         {
             System.out.printf("An Exception: '%s' occurred when reading key file.\n", e.getMessage());
             e.printStackTrace();
-            System.exit(-1);
+            return -1;
         }
 
-        DocQueries docQueries = new DocQueries();
-
-        FromCSV df = new FromCSV(progArgs.getTextFile().getFileInNamePath(), '|', true);
+        metrics.StartPhase("CheckFormat");
+        FromCSV df = new FromCSV(progArgs.getTextFile().getFileInNamePath(), '|', true, progArgs.getReadThreads());
         int rows = df.CheckCSVFormat();
 
         if (rows <= 0)
-            System.exit(-3); // return to Operating System since data is unavailable (no data or badly formated)
+            return -3; // return to Operating System since data is unavailable (no data or badly formated)
         
+        long textBytes = FileBytes(progArgs.getTextFile().getFileInNamePath());
+        metrics.Count("rows", rows);
+        metrics.Count("bytes_read", textBytes);
+
         System.out.println();
         System.out.printf("              Processing %d data rows from '%s'\n", rows, progArgs.getTextFile().getFileInName());
 
+        // Take the results of unchanged keys from the last run if the text collection did not change since then
+        if (progArgs.getIncrementalKeys() && keySets.isEmpty() == false)
+        {
+            metrics.StartPhase("LoadKeyCache");
+            KeyResultCache.TextFingerprint fingerprint = new KeyResultCache.TextFingerprint(progArgs.getTextFile().getFileInNamePath(),
+                                                                                          (progArgs.getGenerateRowId() ? null : progArgs.getRowIdColumn()),
+                                                                                          progArgs.getTextColumn(), progArgs.getRegexMask());
+
+            boolean allCached = true;
+            for (KeySet keySet : keySets)
+            {
+                keySet.setCache(KeyResultCache.Load(keySet.getCacheFile(), fingerprint));
+                allCached = allCached && keySet.getCache() != null;
+            }
+
+            fingerprint.Checksum();  // Read the text file only if a cache is missing or the file was touched since the last run
+            metrics.Count("bytes_read", fingerprint.getBytesHashed());
+
+            if (allCached && CanSkipIndexBuild(progArgs))
+                return RunIncremental(progArgs, metrics, start, keySets, textBytes);
+
+            for (KeySet keySet : keySets)  // The index is built anyway, so all keys are evaluated on it
+            {
+                System.out.printf("  Evaluating all keys on a new index (no reusable results in '%s').\n", keySet.getCacheFile().getName());
+                keySet.setCache(new KeyResultCache(fingerprint));
+            }
+        }
+
+        metrics.StartPhase("IndexBuild");
         ErrorObject err = df.OpenFile();
         if (err != null)
         {
             err.printDetails();
-            System.exit(-3); // return to Operating System since data is unavailable (no data or badly formated)
+            return -3; // return to Operating System since data is unavailable (no data or badly formated)
         }
+
+        ArrayList<Keyword> allKeys = new ArrayList<Keyword>();  // Regular expressions of all key files are matched while indexing
+        for (KeySet keySet : keySets)
+            allKeys.addAll(keySet.getKeys().values());
 		
 		IndexDocumentResult invIdxRes = IIndex.IndexDocuments(                 // Build index structure(s)
 			  df
             , (progArgs.getGenerateRowId() ? null : progArgs.getRowIdColumn()), progArgs.getTextColumn()
             , progArgs.getRegexMask()
-            , docQueries, keys
+            , allKeys
             , progArgs.getWordPairFequencies()
+            , (progArgs.getOffHeapPostings() ? new PostingArena(progArgs.getOffHeapSlabMB()) : null)
+            , progArgs.getIndexMemoryMB() * 1024L * 1024L
+            , (ProgramArgs.IsEmpty(progArgs.getIndexSpillDir()) ? null : new File(progArgs.getIndexSpillDir()))
         );
         
-        System.out.printf("            Index build: %s\n", (invIdxRes.getSuccess() ? "Successful" : "UN-SUCCESSFUL"));
-        System.out.printf("       Documents parsed: %d\n", invIdxRes.getDocsParsed());
-        System.out.printf("     Unique words found: %d\n", invIdxRes.getInvertedIIndex().WordCount());
+        try
+        {
+            System.out.printf("            Index build: %s\n", (invIdxRes.getSuccess() ? "Successful" : "UN-SUCCESSFUL"));
+            System.out.printf("       Documents parsed: %d\n", invIdxRes.getDocsParsed());
+            System.out.printf("     Unique words found: %d\n", invIdxRes.getInvertedIIndex().WordCount());
 
-        if (progArgs.getWordPairFequencies())
-            System.out.printf("Unique word-pairs found: %d\n", invIdxRes.getNextWordIndex().WordCount());
+            if (invIdxRes.getArena() != null)
+                System.out.printf("  Off-heap posting size: %d MB\n", invIdxRes.getArena().getReservedBytes() / (1024 * 1024));
 
-        System.out.printf(" Regex Document Matches: %d\n", docQueries.DocumentCount());
+            if (invIdxRes.getInvertedIIndex().IsOnDisk())
+                System.out.printf("     Disk index (%d runs): %d MB\n", invIdxRes.getInvertedIIndex().SpilledRuns(), invIdxRes.getInvertedIIndex().PostingBytes() / (1024 * 1024));
 
-		// Print all those keys that are not present in document collection and write frequencies to CSV output
-		if (progArgs.getExtractKeys())
-		{
-			String keywordfrequencyfileName = progArgs.getBaseOutputDir() + progArgs.getKeyFile().getFileInNameWithoutExtension() + "_Keyword_Frequs.csv";
+            if (progArgs.getWordPairFequencies())
+                System.out.printf("Unique word-pairs found: %d\n", invIdxRes.getNextWordIndex().WordCount());
 
-			QueryKeysOnDocuments(invIdxRes.getInvertedIIndex(), keys, docQueries, progArgs.getRegexMask(), keywordfrequencyfileName);
-		}
+            System.out.printf(" Regex Document Matches: %d\n", invIdxRes.getRegexMatches());
 
-        String docResultFileName = progArgs.getBaseOutputDir() + progArgs.getKeyFile().getFileInNameWithoutExtension() + "_DocsWithKeywords.csv";
-        String docNoMatchResultFileName = progArgs.getBaseOutputDir() + progArgs.getKeyFile().getFileInNameWithoutExtension() + "_NoMatchDocsWithKeywords.csv";
-        
-        // Write document/keyword frequency results if there have been any document matches (otherwise results are trivial :-( )
-        if (docQueries.DocumentCount() > 0)
+            if (progArgs.getIndexPartitions() > 1)  // Evaluate each query on several document ranges at the same time
+            {
+                invIdxRes.getInvertedIIndex().Partition(progArgs.getIndexPartitions(), progArgs.getQueryThreads());
+                System.out.printf("       Index partitions: %d\n", invIdxRes.getInvertedIIndex().PartitionCount());
+            }
+
+            long postingBytes = invIdxRes.getInvertedIIndex().PostingBytes()   // Heap and off-heap postings (a budgeted index ignores the arena)
+                              + (progArgs.getWordPairFequencies() ? invIdxRes.getNextWordIndex().PostingBytes() : 0);
+            metrics.Count("rows", invIdxRes.getDocsParsed());
+            metrics.Count("bytes_read", textBytes);
+            metrics.Count("tokens_indexed", invIdxRes.getInvertedIIndex().PostingCount());
+            metrics.Count("distinct_terms", invIdxRes.getInvertedIIndex().WordCount());
+            metrics.Count("posting_bytes", postingBytes);
+            metrics.Count("regex_match_nanos", invIdxRes.getRegexNanos());
+            metrics.Count("regex_matches", invIdxRes.getRegexMatches());
+            if (invIdxRes.getInvertedIIndex().IsOnDisk())
+                metrics.Count("spilled_runs", invIdxRes.getInvertedIIndex().SpilledRuns());   // posting_bytes are the bytes of the index files
+
+            if (progArgs.getWordPairFequencies())
+                metrics.Set("distinct_word_pairs", invIdxRes.getNextWordIndex().WordCount());
+            if (invIdxRes.getInvertedIIndex().PartitionCount() > 1)
+                metrics.Set("index_partitions", invIdxRes.getInvertedIIndex().PartitionCount());
+
+			// Print all those keys that are not present in document collection and write frequencies to CSV output
+			if (keySets.isEmpty() == false)
+			{
+                metrics.StartPhase("QueryKeys");
+				QueryKeySets(invIdxRes.getInvertedIIndex(), keySets, progArgs.getRegexMask(), progArgs.getQueryThreads());
+
+                RecordKeyResults(progArgs, metrics, keySets);
+			}
+
+            if (WriteDocumentResults(progArgs, metrics, keySets, invIdxRes.getRowIds(), invIdxRes.getDocsParsed(), textBytes) != 0)
+                return -3;
+
+            String allWordFileName = progArgs.getBaseOutputDir() + progArgs.getTextFile().getFileInNameWithoutExtension() + "_AllWord_Frequs.csv";
+            metrics.StartPhase("WriteAllWordFrequs");
+			invIdxRes.getInvertedIIndex().WriteWordsSortedByFrequ2CSV(allWordFileName);
+            metrics.Count("bytes_written", FileBytes(allWordFileName));
+
+            if (progArgs.getWordPairFequencies())
+            {
+                String wordPairFileName = progArgs.getBaseOutputDir() + progArgs.getTextFile().getFileInNameWithoutExtension() + "_AllWord_WordPair_Frequs.csv";
+                metrics.StartPhase("WriteWordPairFrequs");
+                invIdxRes.getNextWordIndex().WriteWordsSortedByFrequ2CSV(wordPairFileName);
+                metrics.Count("bytes_written", FileBytes(wordPairFileName));
+            }
+
+            metrics.StartPhase("WriteRemainingWords");
+            List<String> words = invIdxRes.getInvertedIIndex().WordsSortedByAlpha();
+            WriteRemainingWords(metrics, keySets, words);
+
+            for (KeySet keySet : keySets)
+            {
+                if (keySet.getCache() != null)
+                {
+                    metrics.StartPhase("SaveKeyCache");
+                    keySet.getCache().SetCollection(invIdxRes.getDocsParsed(), words);
+                    keySet.getCache().Save(keySet.getCacheFile());
+                    metrics.Count("bytes_written", FileBytes(keySet.getCacheFile().getPath()));
+                }
+            }
+
+            WriteRunMetrics(progArgs, metrics, start);
+
+            if (progArgs.getInteractive() || progArgs.getServerPort() > 0)   // Keep the index resident and answer queries
+            {
+                QueryEngine engine = new QueryEngine(invIdxRes, progArgs.getTextFile().getFileInNamePath(), progArgs.getTextColumn(),
+                                                     progArgs.getRegexMask(), progArgs.getReadThreads(), progArgs.getFuzzyMaxEdits(),
+                                                     progArgs.getProximityWindow());
+
+                if (progArgs.getInteractive())     // until ':quit' on the console
+                    new QueryConsole(engine, System.in, System.out).Run();
+
+                if (progArgs.getServerPort() > 0)  // until shutdown
+                    new QueryServer(engine, progArgs.getServerPort(), progArgs.getServerThreads()).Run();
+            }
+
+            return 0;
+        }
+        finally
         {
-            System.out.printf("Writting %d documents retrieved via keyword queries into '%s' file.\n", docQueries.DocumentCount(), docResultFileName);
-            System.out.printf("Writting all other documents without match via keyword queries into '%s' file.\n", docNoMatchResultFileName);
-    
-            df = new FromCSV(progArgs.getTextFile().getFileInNamePath(), '|', true);
-            err = df.OpenFile();
+            invIdxRes.Release();  // Free off-heap postings and temporary index files (if any) even if the run fails
+        }
+    }
+
+    /**
+     * Runs the processing without an index build on a text collection that did not change since the last run:
+     * keys that were added or changed since then are evaluated with one pass over the text file (skipped if there are
+     * none), the results of all other keys are taken from the key cache of the last run. The word frequency files of the last run are kept.
+     * @param progArgs
+     * @param metrics
+     * @param start
+     * @param keySets Key sets with the key cache of the last run on the same text collection.
+     * @param textBytes
+     * @return 0 if processing was successful or the (negative) exit code for the Operating System.
+     * @throws Exception
+     */
+    private static int RunIncremental(ProgramArgs progArgs, RunMetrics metrics, Instant start,
+                                      List<KeySet> keySets, long textBytes) throws Exception
+    {
+        // Keys of all key files without a cached result are evaluated in one pass
+        ArrayList<Keyword> freshKeys = new ArrayList<Keyword>();
+        ArrayList<KeySet> freshKeySets = new ArrayList<KeySet>();
+        int keyCount = 0;
+        for (KeySet keySet : keySets)
+        {
+            keyCount += keySet.getKeys().size();
+            for (Map.Entry<Long, List<Keyword>> entryItem : SortKeywordsById(keySet.getKeys()).getColl().entrySet())
+            {
+                for (Keyword item : entryItem.getValue())
+                {
+                    if (keySet.getCache().Get(item) == null)
+                    {
+                        freshKeys.add(item);
+                        freshKeySets.add(keySet);
+                    }
+                }
+            }
+        }
+
+        System.out.printf("   Keys from last run: %d\n", keyCount - freshKeys.size());
+        System.out.printf("     Keys to evaluate: %d (skipping the index build)\n", freshKeys.size());
+        metrics.Set("keys_cached", keyCount - freshKeys.size());
+        metrics.Set("keys_evaluated", freshKeys.size());
+
+        List<String> words = keySets.get(0).getCache().getWords();  // All caches were written for the same text collection
+        long docsParsed = keySets.get(0).getCache().getDocuments();
+        RowIds rowIds = null;                                        // Collected while the documents are written if there is no scan
+
+        if (freshKeys.isEmpty() == false)
+        {
+            metrics.StartPhase("ScanKeys");
+            FromCSV df = new FromCSV(progArgs.getTextFile().getFileInNamePath(), '|', true, progArgs.getReadThreads());
+            ErrorObject err = df.OpenFile();
             if (err != null)
             {
                 err.printDetails();
-                System.exit(-3); // return to Operating System since data is unavailable (no data or badly formated)
+                return -3; // return to Operating System since data is unavailable (no data or badly formated)
             }
-                
-            StoreDocumentKeywordfreques(df, docResultFileName, docNoMatchResultFileName, progArgs.getTextFileName(),
-                                        (progArgs.getGenerateRowId() ? null : progArgs.getRowIdColumn()), progArgs.getTextColumn(), docQueries);
+
+            KeywordScan scan = new KeywordScan(freshKeys, progArgs.getRegexMask(), words);
+            scan.Scan(df, (progArgs.getGenerateRowId() ? null : progArgs.getRowIdColumn()), progArgs.getTextColumn());
+
+            List<QueryResult> results = scan.Results();  // in the order of freshKeys
+            for (int i = 0; i < results.size(); i++)
+                freshKeySets.get(i).getCache().Put(results.get(i).getKeyword(), results.get(i).getFrequency(), results.get(i).getDocIds());
+
+            docsParsed = scan.getDocsParsed();
+            rowIds = scan.getRowIds();
+            metrics.Count("rows", docsParsed);
+            metrics.Count("bytes_read", textBytes);
         }
-        else
+
+        metrics.Set("distinct_terms", words.size());
+
+        metrics.StartPhase("QueryKeys");
+        for (KeySet keySet : keySets)
+            QueryKeysFromCache(keySet, progArgs.getRegexMask());
+
+        RecordKeyResults(progArgs, metrics, keySets);
+
+        if (WriteDocumentResults(progArgs, metrics, keySets, rowIds, docsParsed, textBytes) != 0)
+            return -3;
+
+        metrics.StartPhase("WriteRemainingWords");
+        WriteRemainingWords(metrics, keySets, words);
+
+        metrics.StartPhase("SaveKeyCache");
+        for (KeySet keySet : keySets)
         {
-            System.out.printf(" Documents retrieved via keyword query is %d - writing no result files with or without matching documents.\n", docQueries.DocumentCount());
+            keySet.getCache().Retain(keySet.getKeys().values());  // Drop results of keys that were removed from the key file
+            keySet.getCache().Save(keySet.getCacheFile());
+            metrics.Count("bytes_written", FileBytes(keySet.getCacheFile().getPath()));
         }
 
-		invIdxRes.getInvertedIIndex().WriteWordsSortedByFrequ2CSV(progArgs.getBaseOutputDir() + progArgs.getTextFile().getFileInNameWithoutExtension() + "_AllWord_Frequs.csv");
+        WriteRunMetrics(progArgs, metrics, start);
 
-        if (progArgs.getWordPairFequencies())
-            invIdxRes.getNextWordIndex().WriteWordsSortedByFrequ2CSV(progArgs.getBaseOutputDir() + progArgs.getTextFile().getFileInNameWithoutExtension() + "_AllWord_WordPair_Frequs.csv");
+        return 0;
+    }
 
-        invIdxRes.getInvertedIIndex().WriteWordsSortedByAlpha2CSV(progArgs.getBaseOutputDir() + progArgs.getKeyFile().getFileInNameWithoutExtension() + "_AllWord_Remaining_Words.csv", keys);
+    /**
+     * Determines whether a run can take its key results from the key cache instead of building an index:
+     * the index is not needed after the run (console or query server) and the word frequency files of the
+     * last run (which do not depend on the keys) are available.
+     * @param progArgs
+     * @return
+     */
+    private static boolean CanSkipIndexBuild(ProgramArgs progArgs)
+    {
+        if (progArgs.getInteractive() || progArgs.getServerPort() > 0)
+            return false;
+
+        String baseFileName = progArgs.getBaseOutputDir() + progArgs.getTextFile().getFileInNameWithoutExtension();
+
+        return new File(baseFileName + "_AllWord_Frequs.csv").exists()
+            && (progArgs.getWordPairFequencies() == false || new File(baseFileName + "_AllWord_WordPair_Frequs.csv").exists());
+    }
+
+    /**
+     * Records the metrics of the keyword frequency file of each key set and writes the keyword profiles (if enabled).
+     * @param progArgs
+     * @param metrics
+     * @param keySets
+     * @throws IOException
+     */
+    private static void RecordKeyResults(ProgramArgs progArgs, RunMetrics metrics, List<KeySet> keySets) throws IOException
+    {
+        for (KeySet keySet : keySets)
+        {
+            metrics.Count("keys", keySet.getKeys().size());
+            metrics.Count("documents_matched", keySet.getDocQueries().DocumentCount());
+            metrics.Count("bytes_written", FileBytes(keySet.OutputFileName("_Keyword_Frequs.csv")));
+        }
+
+        if (progArgs.getProfileKeywords())
+        {
+            metrics.StartPhase("WriteKeywordProfile");
+            for (KeySet keySet : keySets)
+            {
+                String keywordProfileFileName = keySet.OutputFileName("_Keyword_Profile.csv");
+                System.out.printf("Writting keyword evaluation costs into '%s' file.\n", keywordProfileFileName);
+
+                WriteKeywordProfile(keySet.getKeys(), keywordProfileFileName);
+                metrics.Count("bytes_written", FileBytes(keywordProfileFileName));
+            }
+        }
+    }
+
+    /**
+     * Writes the documents with and without keyword matches of each key set (with one pass over the text file)
+     * and the label matrix of each key set (if configured).
+     * @param progArgs
+     * @param metrics
+     * @param keySets
+     * @param rowIds Row ids of the documents or null to collect them while the documents are written.
+     * @param docsParsed
+     * @param textBytes
+     * @return 0 if successful or the (negative) exit code for the Operating System.
+     * @throws Exception
+     */
+    private static int WriteDocumentResults(ProgramArgs progArgs, RunMetrics metrics, List<KeySet> keySets,
+                                            RowIds rowIds, long docsParsed, long textBytes) throws Exception
+    {
+        // Write document/keyword frequency results if there have been any document matches (otherwise results are trivial :-( )
+        ArrayList<KeySet> matchedKeySets = new ArrayList<KeySet>();
+        for (KeySet keySet : keySets)
+        {
+            if (keySet.getDocQueries().DocumentCount() > 0)
+            {
+                System.out.printf("Writting %d documents retrieved via keyword queries into '%s' file.\n", keySet.getDocQueries().DocumentCount(), keySet.OutputFileName("_DocsWithKeywords.csv"));
+                System.out.printf("Writting all other documents without match via keyword queries into '%s' file.\n", keySet.OutputFileName("_NoMatchDocsWithKeywords.csv"));
+                matchedKeySets.add(keySet);
+            }
+            else
+            {
+                System.out.printf(" Documents retrieved via keyword query is %d - writing no result files with or without matching documents.\n", keySet.getDocQueries().DocumentCount());
+            }
+        }
+
+        if (matchedKeySets.isEmpty())
+            return 0;
+
+        metrics.StartPhase("WriteDocuments");
+        FromCSV df = new FromCSV(progArgs.getTextFile().getFileInNamePath(), '|', true, progArgs.getReadThreads());
+        ErrorObject err = df.OpenFile();
+        if (err != null)
+        {
+            err.printDetails();
+            return -3; // return to Operating System since data is unavailable (no data or badly formated)
+        }
+            
+        RowIds collected = (rowIds == null ? new RowIds() : null);
+        StoreDocumentKeywordfreques(df, matchedKeySets, (progArgs.getGenerateRowId() ? null : progArgs.getRowIdColumn()), progArgs.getTextColumn(), collected);
+        if (collected != null)
+            rowIds = collected;
+
+        metrics.Count("rows", docsParsed);
+        metrics.Count("bytes_read", textBytes);
+        for (KeySet keySet : matchedKeySets)
+            metrics.Count("bytes_written", FileBytes(keySet.OutputFileName("_DocsWithKeywords.csv"), keySet.OutputFileName("_NoMatchDocsWithKeywords.csv")));
+
+        if (ProgramArgs.IsEmpty(progArgs.getLabelMatrixFormats()) == false)
+        {
+            metrics.StartPhase("WriteLabelMatrix");
+            for (KeySet keySet : matchedKeySets)
+            {
+                String labelMatrixFileName = keySet.OutputFileName("_Labels");
+                System.out.printf("Writting label matrix (%s) into '%s' files.\n", progArgs.getLabelMatrixFormats(), labelMatrixFileName);
+
+                new LabelMatrix(keySet.getDocQueries(), rowIds).Write(labelMatrixFileName, progArgs.getLabelMatrixFormats());
+
+                metrics.Count("bytes_written", FileBytes(labelMatrixFileName + ".csr", labelMatrixFileName + ".libsvm", labelMatrixFileName + ".mtx",
+                                                         labelMatrixFileName + "_Columns.csv", labelMatrixFileName + "_Rows.csv"));
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Writes the words of the index (in ascending order) with a flag for words that are keys of each key set.
+     * @param metrics
+     * @param keySets
+     * @param words
+     * @throws IOException
+     */
+    private static void WriteRemainingWords(RunMetrics metrics, List<KeySet> keySets, List<String> words) throws IOException
+    {
+        for (KeySet keySet : keySets)
+        {
+            String remainingWordsFileName = keySet.OutputFileName("_AllWord_Remaining_Words.csv");
+            IIndex.WriteWordsSortedByAlpha2CSV(remainingWordsFileName, words, keySet.getKeys());
+            metrics.Count("bytes_written", FileBytes(remainingWordsFileName));
+        }
+    }
+
+    /**
+     * Writes the run metrics and prints the elapsed processing time.
+     * @param progArgs
+     * @param metrics
+     * @param start
+     * @throws IOException
+     */
+    private static void WriteRunMetrics(ProgramArgs progArgs, RunMetrics metrics, Instant start) throws IOException
+    {
+        metrics.Finish();
+
+        String metricsFileName = progArgs.getBaseOutputDir() + progArgs.getTextFile().getFileInNameWithoutExtension() + "_Metrics.json";
+        System.out.printf("Writting run metrics into '%s' file.\n", metricsFileName);
+        metrics.WriteJson(metricsFileName, Tool.Name, Tool.Version);
 
         Instant finish = Instant.now();
         Duration duration = Duration.between(start, finish);
         long s = duration.getSeconds();
         System.out.printf("Elapsed processing time was: %d:%02d:%02d\n", s/3600, (s%3600)/60, (s%60));
-
-        return;
     }
 
     /**
-     * Queries contents from key CSV file on index build on text CSV file and returns search results
-     * as CSV file(s) containing frequencies of resolved terms.
+     * Queries the keys of all key sets on the index and writes the keyword frequency file of each key set.
+     *
+     * The keywords of all key sets are evaluated concurrently on {@param threads} threads of a fork-join pool
+     * (idle threads take over halves of the keyword ranges of busy threads, so a few expensive keywords do not
+     * hold up the rest) since queries only read the index. The matched documents are collected in the
+     * (synchronized) DocQueries of each key set and the frequencies are written in key file order.
      * @param iindex
-     * @param keys
-     * @param docQueries
+     * @param keySets
      * @param regexMask
-     * @param keywordfrequencyfileName Output CSV file name and path
+     * @param threads
      * @throws Exception
      */
-    private static void QueryKeysOnDocuments(
-        IIndex iindex,
-        HashMap<String, Keyword> keys,
-        DocQueries docQueries,
-        String regexMask,
-        String keywordfrequencyfileName) throws Exception
+    private static void QueryKeySets(IIndex iindex, List<KeySet> keySets, String regexMask, int threads) throws Exception
     {
-        ToCSV csvOut = new ToCSV(new String[] { "regex", "word_freq", "word" });
-
         // Sort entries by Id to spit keyword frequencies out in same order as they where read from input
-        Lists.SortedList<Long, Keyword> listKeys = new Lists.SortedList<Long, Keyword>();
-        for (Keyword item : keys.values())
-            listKeys.add(item.IdKeyword(), item);
+        ArrayList<Keyword> items = new ArrayList<Keyword>();
+        ArrayList<KeySet> itemKeySets = new ArrayList<KeySet>();
+        for (KeySet keySet : keySets)
+        {
+            for (Map.Entry<Long, List<Keyword>> entryItem : SortKeywordsById(keySet.getKeys()).getColl().entrySet())
+            {
+                for (Keyword item : entryItem.getValue())
+                {
+                    items.add(item);
+                    itemKeySets.add(keySet);
+                }
+            }
+        }
 
-        for (Map.Entry<Long, List<Keyword>> entryItem : listKeys.getColl().entrySet())
+        Pattern pattern = Pattern.compile(regexMask);
+        String[][] lines = new String[items.size()][];
+
+        if (threads <= 1 || items.size() <= 1)
         {
-            for (Keyword item : entryItem.getValue())
+            for (int i = 0; i < items.size(); i++)
+                lines[i] = QueryKeyword(iindex, itemKeySets.get(i), items.get(i), pattern);
+        }
+        else
+        {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try
+            {
+                pool.invoke(new KeywordQueryTask(iindex, items, itemKeySets, pattern, lines, 0, items.size()));
+            }
+            catch (RuntimeException e)
+            {
+                throw new Exception("Error querying keywords", e);
+            }
+            finally
             {
-                // Parse query string with same regex expression as it was used for document/word split
-                Pattern pattern = Pattern.compile(regexMask);
-                Matcher matcher = pattern.matcher((item.getWord() == null ? "" : item.getWord())); 
-                String textAlphaOnlyIn = matcher.replaceAll(" ");
-                
-                String[] words = textAlphaOnlyIn.toLowerCase().split("\\s+");
+                pool.shutdown();
+            }
+        }
 
-                if (item.getRegex() == true)
-                    csvOut.WriteLine(new String[] { "1", String.valueOf(item.getMatchedDocuments()), item.getWord() });
-                else
-                {
-                    WordDocumentOffests<String> dicItem = null;
-                    HashSet<Long> docIds = null;
-                    String QueryTypeId = "UNKNOWN";
-                    
-                    switch (item.getTypeOfQuery())
-                    {
-                        case PHRASE_QUERY:
-                            dicItem = iindex.PhraseQuery(words);
-                            QueryTypeId = "0";
-                        break;
+        int i = 0;
+        for (KeySet keySet : keySets)
+        {
+            ToCSV csvOut = new ToCSV(new String[] { "regex", "word_freq", "word" });
+            for (int n = keySet.getKeys().size(); n > 0; n--)
+                csvOut.WriteLine(lines[i++]);
 
-                        case BOOL_AND_QUERY:
-                            docIds = iindex.BoolAndQuery(words);
-                            QueryTypeId = "2";
-                        break;
+            csvOut.WriteFile(keySet.OutputFileName("_Keyword_Frequs.csv"));
+        }
+    }
 
-                        default: throw new IllegalArgumentException(String.format("Encountered unknown type of query '%s'", item.getTypeOfQuery()));
-                    }
+    /**
+     * Evaluates a range of keywords on the index and splits ranges of more than one keyword into two
+     * halves that are evaluated in parallel.
+     */
+    private static class KeywordQueryTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
 
-                    if (dicItem == null && docIds == null)
-                    {
-                        csvOut.WriteLine(new String[] { "0", "0", item.getWord() });
-                        System.out.printf("Item not found: '%s'\n", item.getWord());
-                    }
-                    else
-                    {
-                        long sizeOfResult = -1;
-                        if (docIds == null && dicItem != null)  // Retrieve result documents from either type of query
-                        {
-                            docIds = dicItem.DocumentIds();    // PhraseQuery or BOOL_AND_QUERY
-                            sizeOfResult = dicItem.CountOffsets();
-                        }
-                        else
-                            sizeOfResult = docIds.size();
+        private final IIndex _Index;
+        private final List<Keyword> _Items;
+        private final List<KeySet> _ItemKeySets;
+        private final Pattern _Pattern;
+        private final String[][] _Lines;
+        private final int _Start;
+        private final int _End;
 
-                        String query = String.join(" ", words);
-                        for (long docItem : docIds)
-                            docQueries.AddDocumentQuery(docItem, query);
+        /**
+         * Class constructor
+         * @param iindex
+         * @param items
+         * @param itemKeySets Key set of each keyword.
+         * @param pattern Compiled RegexMask
+         * @param lines Receives the frequency line of each keyword.
+         * @param start First keyword of the range.
+         * @param end End (exclusive) of the range.
+         */
+        KeywordQueryTask(IIndex iindex, List<Keyword> items, List<KeySet> itemKeySets, Pattern pattern, String[][] lines, int start, int end)
+        {
+            _Index = iindex;
+            _Items = items;
+            _ItemKeySets = itemKeySets;
+            _Pattern = pattern;
+            _Lines = lines;
+            _Start = start;
+            _End = end;
+        }
 
-                        csvOut.WriteLine(new String[] { QueryTypeId, String.valueOf(sizeOfResult), query });
+        @Override
+        protected void compute()
+        {
+            if (_End - _Start > 1)
+            {
+                int mid = (_Start + _End) >>> 1;
+                invokeAll(new KeywordQueryTask(_Index, _Items, _ItemKeySets, _Pattern, _Lines, _Start, mid),
+                          new KeywordQueryTask(_Index, _Items, _ItemKeySets, _Pattern, _Lines, mid, _End));
+                return;
+            }
 
-                        // Suggest alternative terms if a variation on phrase query is available and this keyword does not exists so far
-                        if (QueryTypeId.compareTo("0") == 0)
-                        {
-                            if (item.getWord().contains("-"))
-                            {
-                                String alternativeWord = String.join(" ", item.getWord().replace('-', ' ').trim().split("\\s+"));
+            try
+            {
+                _Lines[_Start] = QueryKeyword(_Index, _ItemKeySets.get(_Start), _Items.get(_Start), _Pattern);
+            }
+            catch (Exception e)
+            {
+                throw new RuntimeException(String.format("Error querying keyword '%s'", _Items.get(_Start).getWord()), e);
+            }
+        }
+    }
+
+    /**
+     * Queries one keyword of a key file on the index, records the documents it matched in the key set
+     * and returns its line of the keyword frequency CSV file (type of query, frequency and query string).
+     * @param iindex
+     * @param keySet Receives the matched documents and (if not null) the result of the keyword in its cache.
+     * @param item
+     * @param pattern Compiled RegexMask
+     * @return
+     * @throws Exception
+     */
+    private static String[] QueryKeyword(IIndex iindex, KeySet keySet, Keyword item, Pattern pattern) throws Exception
+    {
+        DocQueries docQueries = keySet.getDocQueries();
+        KeyResultCache keyCache = keySet.getCache();
+
+        QueryProfile profile = item.getProfile();
+        long keyStart = (profile != null ? System.nanoTime() : 0);
+        KeywordQueryEvent event = new KeywordQueryEvent();
+        event.begin();
+        String[] words = QueryWords(item, pattern);
+        String[] line;
+
+        if (item.getRegex() == true)
+        {
+            docQueries.AddDocumentQueries(item.getMatchedDocIds(), docQueries.QueryId(item.getWord()));  // matched while the index was built
+
+            line = new String[] { "1", String.valueOf(item.getMatchedDocuments()), item.getWord() };
+
+            if (keyCache != null)
+                keyCache.Put(item, item.getMatchedDocuments(), item.getMatchedDocIds());
+
+            if (profile != null)
+                profile.SetResultSize(item.getMatchedDocuments());
+        }
+        else
+        {
+            WordDocumentOffests<String> dicItem = null;
+            HashSet<Long> docIds = null;
+            String QueryTypeId = "UNKNOWN";
+            
+            switch (item.getTypeOfQuery())
+            {
+                case PHRASE_QUERY:
+                    dicItem = iindex.PhraseQuery(words, profile);
+                    QueryTypeId = "0";
+                break;
+
+                case BOOL_AND_QUERY:
+                    docIds = iindex.BoolAndQuery(words, profile);
+                    QueryTypeId = "2";
+                break;
+
+                case FUZZY_PHRASE_QUERY:
+                    dicItem = iindex.FuzzyPhraseQuery(words, item.getMaxEdits(), profile);
+                    QueryTypeId = "3";
+                break;
+
+                case FUZZY_BOOL_AND_QUERY:
+                    docIds = iindex.FuzzyBoolAndQuery(words, item.getMaxEdits(), profile);
+                    QueryTypeId = "4";
+                break;
+
+                case WILDCARD_PHRASE_QUERY:
+                    dicItem = iindex.WildcardPhraseQuery(words, profile);
+                    QueryTypeId = "5";
+                break;
+
+                case NEAR_QUERY:
+                    dicItem = iindex.NearQuery(words, item.getWindow(), false, profile);
+                    QueryTypeId = "6";
+                break;
+
+                case ORDERED_NEAR_QUERY:
+                    dicItem = iindex.NearQuery(words, item.getWindow(), true, profile);
+                    QueryTypeId = "7";
+                break;
+
+                case BOOL_QUERY:
+                    docIds = iindex.BoolQuery(BoolExpression.Parse(item.getWord(), pattern), profile);
+                    QueryTypeId = "8";
+                break;
+
+                default: throw new IllegalArgumentException(String.format("Encountered unknown type of query '%s'", item.getTypeOfQuery()));
+            }
+
+            if (dicItem == null && docIds == null)
+            {
+                line = new String[] { "0", "0", item.getWord() };
+                System.out.printf("Item not found: '%s'\n", item.getWord());
+
+                if (keyCache != null)
+                    keyCache.Put(item, 0, new int[0]);
+            }
+            else
+            {
+                long sizeOfResult = -1;
+                if (docIds == null && dicItem != null)  // Retrieve result documents from either type of query
+                {
+                    docIds = dicItem.DocumentIds();    // PhraseQuery or BOOL_AND_QUERY
+                    sizeOfResult = dicItem.CountOffsets();
+                }
+                else
+                    sizeOfResult = docIds.size();
+
+                if (profile != null)
+                    profile.SetResultSize(sizeOfResult);
+
+                String query = item.Query(words);
+                int[] sortedDocIds = QueryEngine.SortedIds(docIds);
+                docQueries.AddDocumentQueries(sortedDocIds, docQueries.QueryId(query));
+
+                line = new String[] { QueryTypeId, String.valueOf(sizeOfResult), query };
+
+                if (keyCache != null)
+                    keyCache.Put(item, sizeOfResult, sortedDocIds);
+
+                // Suggest alternative terms if a variation on phrase query is available and this keyword does not exists so far
+                if (QueryTypeId.compareTo("0") == 0)
+                {
+                    if (item.getWord().contains("-"))
+                    {
+                        String alternativeWord = String.join(" ", item.getWord().replace('-', ' ').trim().split("\\s+"));
     
-                                dicItem = iindex.PhraseQuery(alternativeWord.split( "\\s+"));
+                        dicItem = iindex.PhraseQuery(alternativeWord.split( "\\s+"));
     
-                                if (dicItem != null) // || nexFound == true)
-                                {
-                                    if (keys.containsKey(alternativeWord) == false)
-                                    {
-                                        //Console.WriteLine($"Proposed alternative term: '{alternativeWord}' with frequencies - inverted: {(dicItem == null ? 0 : dicItem.CountOffsets)} nextword: {(nxItem == null ? 0 : nxItem.CountOffsets)}");
-                                        System.out.printf("Proposed alternative term: '0|%s' with frequencies - inverted: %d\n", alternativeWord, (dicItem == null ? 0 : dicItem.CountOffsets()));
-                                    }
-                                }
+                        if (dicItem != null) // || nexFound == true)
+                        {
+                            if (keySet.getKeys().containsKey(new Keyword(0, 0, alternativeWord).Key()) == false)
+                            {
+                                //Console.WriteLine($"Proposed alternative term: '{alternativeWord}' with frequencies - inverted: {(dicItem == null ? 0 : dicItem.CountOffsets)} nextword: {(nxItem == null ? 0 : nxItem.CountOffsets)}");
+                                System.out.printf("Proposed alternative term: '0|%s' with frequencies - inverted: %d\n", alternativeWord, (dicItem == null ? 0 : dicItem.CountOffsets()));
                             }
                         }
                     }
                 }
             }
+        }
 
-            csvOut.WriteFile(keywordfrequencyfileName);
+        if (profile != null)
+            profile.AddNanos(System.nanoTime() - keyStart);
+
+        event.end();
+        if (event.shouldCommit())
+        {
+            event.keywordId = item.IdKeyword();
+            event.type = Integer.parseInt(QueryTypeId(item.getTypeOfQuery()));
+            event.keyword = item.getWord();
+            event.resultSize = (profile != null ? profile.getResultSize() : -1);
+            event.postingsTouched = (profile != null ? profile.getPostingsTouched() : -1);
+            event.regexMatchTime = (profile != null && item.getRegex() ? profile.getNanos() : 0);
+            event.commit();
         }
+
+        return line;
     }
 
     /**
-     * Store 2 CSV files:
+     * Writes the keyword frequencies of all keys of a key set from their results in its key cache (in the same
+     * format as {@link #QueryKeySets}) and records the documents matched by each key.
+     * @param keySet Key set with a cached result for each key.
+     * @param regexMask
+     * @throws IOException
+     */
+    private static void QueryKeysFromCache(KeySet keySet, String regexMask) throws IOException
+    {
+        KeyResultCache keyCache = keySet.getCache();
+        DocQueries docQueries = keySet.getDocQueries();
+        ToCSV csvOut = new ToCSV(new String[] { "regex", "word_freq", "word" });
+        Pattern pattern = Pattern.compile(regexMask);
+
+        for (Map.Entry<Long, List<Keyword>> entryItem : SortKeywordsById(keySet.getKeys()).getColl().entrySet())
+        {
+            for (Keyword item : entryItem.getValue())
+            {
+                KeyResultCache.CachedResult result = keyCache.Get(item);
+
+                if (item.getRegex() == true)
+                {
+                    docQueries.AddDocumentQueries(result.getDocIds(), docQueries.QueryId(item.getWord()));
+
+                    csvOut.WriteLine(new String[] { "1", String.valueOf(result.getFrequency()), item.getWord() });
+                }
+                else if (result.getFrequency() == 0)
+                {
+                    csvOut.WriteLine(new String[] { "0", "0", item.getWord() });
+                    System.out.printf("Item not found: '%s'\n", item.getWord());
+                }
+                else
+                {
+                    String query = item.Query(QueryWords(item, pattern));
+                    docQueries.AddDocumentQueries(result.getDocIds(), docQueries.QueryId(query));
+
+                    csvOut.WriteLine(new String[] { QueryTypeId(item.getTypeOfQuery()), String.valueOf(result.getFrequency()), query });
+                }
+
+                if (item.getProfile() != null)
+                    item.getProfile().SetResultSize(result.getFrequency());
+            }
+        }
+
+        csvOut.WriteFile(keySet.OutputFileName("_Keyword_Frequs.csv"));
+    }
+
+    /**
+     * Writes the evaluation cost of each keyword (most expensive keyword first) into a CSV file.
+     * The time of regular expression keys is spent while the index is built (matching each document).
+     * @param keys
+     * @param keywordProfileFileName
+     * @throws IOException
+     */
+    private static void WriteKeywordProfile(HashMap<String, Keyword> keys, String keywordProfileFileName) throws IOException
+    {
+        List<Keyword> items = new ArrayList<Keyword>(keys.values());
+        Collections.sort(items, new Comparator<Keyword>()
+        {
+            @Override
+            public int compare(Keyword a, Keyword b)
+            {
+                int cmp = Long.compare(b.getProfile().getNanos(), a.getProfile().getNanos());
+                return (cmp != 0 ? cmp : Long.compare(a.IdKeyword(), b.IdKeyword()));
+            }
+        });
+
+        ToCSV csvOut = new ToCSV(new String[] { "id", "regex", "time_ms", "postings_touched", "documents_scanned", "intermediate_sizes", "result_size", "word" });
+        for (Keyword item : items)
+        {
+            QueryProfile profile = item.getProfile();
+            csvOut.WriteLine(new String[] { String.valueOf(item.IdKeyword())
+                                          , QueryTypeId(item.getTypeOfQuery())
+                                          , String.format(Locale.ROOT, "%.3f", profile.getNanos() / 1e6)
+                                          , String.valueOf(profile.getPostingsTouched())
+                                          , String.valueOf(profile.getDocumentsScanned())
+                                          , profile.getIntermediateSizes()
+                                          , String.valueOf(profile.getResultSize())
+                                          , item.getWord() });
+        }
+
+        csvOut.WriteFile(keywordProfileFileName);
+    }
+
+    /**
+     * Gets the identifier of a type of query as it is used in the key file
+     * (0 = phrase, 1 = regex, 2 = bool AND, 3 = fuzzy phrase, 4 = fuzzy bool AND, 5 = wildcard phrase,
+     * 6 = near, 7 = ordered near, 8 = boolean expression).
+     * @param type
+     * @return
+     */
+    private static String QueryTypeId(QueryType type)
+    {
+        switch (type)
+        {
+            case PHRASE_QUERY:          return "0";
+            case REGULAR_EXPRESSION:    return "1";
+            case BOOL_AND_QUERY:        return "2";
+            case FUZZY_PHRASE_QUERY:    return "3";
+            case FUZZY_BOOL_AND_QUERY:  return "4";
+            case WILDCARD_PHRASE_QUERY: return "5";
+            case NEAR_QUERY:            return "6";
+            case ORDERED_NEAR_QUERY:    return "7";
+            case BOOL_QUERY:            return "8";
+            default:                    return "UNKNOWN";
+        }
+    }
+
+    /**
+     * Gets the sum of the sizes in bytes of the given files (files that do not exist count as 0 bytes).
+     * @param fileNames
+     * @return
+     */
+    private static long FileBytes(String... fileNames)
+    {
+        long bytes = 0;
+        for (String fileName : fileNames)
+            bytes += new File(fileName).length();
+
+        return bytes;
+    }
+
+    /**
+     * Registers the query string of each keyword in key file order so that query ids
+     * (and the columns of the label matrix) follow the order of the key file.
+     * @param keys
+     * @param docQueries
+     * @param regexMask
+     */
+    private static void RegisterKeywordQueries(HashMap<String, Keyword> keys, DocQueries docQueries, String regexMask)
+    {
+        Pattern pattern = Pattern.compile(regexMask);
+
+        for (Map.Entry<Long, List<Keyword>> entryItem : SortKeywordsById(keys).getColl().entrySet())
+        {
+            for (Keyword item : entryItem.getValue())
+                docQueries.QueryId(item.getRegex() ? item.getWord() : item.Query(QueryWords(item, pattern)));
+        }
+    }
+
+    /**
+     * Sorts keywords by their Id which is the order in which they were read from the key file.
+     * @param keys
+     * @return
+     */
+    private static Lists.SortedList<Long, Keyword> SortKeywordsById(HashMap<String, Keyword> keys)
+    {
+        Lists.SortedList<Long, Keyword> listKeys = new Lists.SortedList<Long, Keyword>();
+        for (Keyword item : keys.values())
+            listKeys.add(item.IdKeyword(), item);
+
+        return listKeys;
+    }
+
+    /**
+     * Parses the query string of a keyword with the same regex expression as it was used for document/word split.
+     * @param item
+     * @param pattern Compiled RegexMask
+     * @return
+     */
+    private static String[] QueryWords(Keyword item, Pattern pattern)
+    {
+        return QueryEngine.QueryWords(item, pattern);
+    }
+
+    /**
+     * Store 2 CSV files per key set:
      * 1) Indicating the keywords that triggered extraction of a document
      * 2) Remaining documents that were not matched by a keyword
      * 
      * @param df
-     * @param docResultFileName
-     * @param docNoMatchResultFileName
-     * @param textFileName
+     * @param keySets
      * @param rowIdColumn
      * @param textColumn
-     * @param docQueries
+     * @param rowIds Receives the row id of each document (null if the row ids are known already).
      * @throws IOException
      */
     private static void StoreDocumentKeywordfreques(
           FromCSV df
-        , String docResultFileName
-        , String docNoMatchResultFileName
-        , String textFileName
+        , List<KeySet> keySets
         , String rowIdColumn
         , String textColumn
-        , DocQueries docQueries) throws IOException
+        , RowIds rowIds) throws IOException
     {
-        ToCSV csvResOut = new ToCSV(new String[] { "rowid", "queries", "text" });
-        ToCSV csvNoMatchResOut = new ToCSV(new String[] { "rowid", "text" });
+        // Stream both files since they hold (a copy of) the complete text file
+        ToCSV[] csvResOut = new ToCSV[keySets.size()];
+        ToCSV[] csvNoMatchResOut = new ToCSV[keySets.size()];
+        for (int i = 0; i < keySets.size(); i++)
+        {
+            csvResOut[i] = new ToCSV(new String[] { "rowid", "queries", "text" }, '|', keySets.get(i).OutputFileName("_DocsWithKeywords.csv"));
+            csvNoMatchResOut[i] = new ToCSV(new String[] { "rowid", "text" }, '|', keySets.get(i).OutputFileName("_NoMatchDocsWithKeywords.csv"));
+        }
 
         // Retrieve all documents and write them into result CSV
         // if they where matched by a query
         // or if they were not matched by a query
         HashMap<String, String> dataRow = null;
         long docRow = 0;                      // Parse all documents
+        int docId = 0;                        // Dense document id in the same order as assigned by the indexer
         for( ; (dataRow = df.ReadLine()) != null; docRow++)
         {
             String docText = dataRow.get(textColumn);
@@ -295,23 +1025,35 @@ class PhraseTractor
             else
                 rowId = String.valueOf(docRow);
 
-            HashSet<String> docQueryStrings = docQueries.TryGetDocumentQuery(Long.parseLong(rowId));
-            if (docQueryStrings != null)
+            if (rowIds != null)   // Same dense document ids as in the index build
             {
-                String queryStrings = "";
-                for (String item : docQueryStrings)
-                    queryStrings = (queryStrings.length() > 0 ? queryStrings + ',' + item : item);
-
-                csvResOut.WriteLine(new String[] { rowId, queryStrings, docText });
+                if (rowIdColumn != null)
+                    rowIds.Add(rowId);
+                else
+                    rowIds.Add(docRow);
             }
-            else
+
+            for (int i = 0; i < keySets.size(); i++)
             {
-                csvNoMatchResOut.WriteLine(new String[] { rowId, docText });
+                String queryStrings = keySets.get(i).getDocQueries().TryGetDocumentQuery(docId, ',');
+                if (queryStrings != null)
+                {
+                    csvResOut[i].WriteLine(new String[] { rowId, queryStrings, docText });
+                }
+                else
+                {
+                    csvNoMatchResOut[i].WriteLine(new String[] { rowId, docText });
+                }
             }
+
+            docId++;
         }
 
-        csvResOut.WriteFile(docResultFileName);
-        csvNoMatchResOut.WriteFile(docNoMatchResultFileName);
+        for (int i = 0; i < keySets.size(); i++)
+        {
+            csvResOut[i].Close();
+            csvNoMatchResOut[i].Close();
+        }
     }
 
     /**
@@ -322,21 +1064,20 @@ class PhraseTractor
      * @param header
      * @param regexColumnName
      * @param dataColumnName
+     * @param fuzzyMaxEdits Maximum number of edits of the fuzzy queries in the key file.
+     * @param proximityWindow Window of the proximity queries in the key file.
      * @return
      * @throws IOException
      */
     static HashMap<String, Keyword> ReadKeywordsCSV(String keyFileName, char separator, boolean header
                                                     , String regexColumnName
-                                                    , String dataColumnName) throws IOException, Exception
+                                                    , String dataColumnName
+                                                    , int fuzzyMaxEdits
+                                                    , int proximityWindow) throws IOException, Exception
     {
-        HashMap<String, Keyword> keys = new HashMap<String, Keyword>();
-        HashMap<String, String> dataRow;
-
-        long rowId=1;
+        FromCSV srcCSV = new FromCSV(keyFileName, separator, header);
         try
         {
-            FromCSV srcCSV = new FromCSV(keyFileName, separator, header);
-            
             ErrorObject err = srcCSV.OpenFile();
             if (err != null)
             {
@@ -344,31 +1085,23 @@ class PhraseTractor
                 return null;
             }
 
-            // Read all keywords and return them in a dictionary structure
-            for(;(dataRow = srcCSV.ReadLine()) != null; rowId++)
-            {
-                String regex = dataRow.get(regexColumnName);
-                String text = dataRow.get(dataColumnName);
-
-                if (regex == null || text == null)
-                {
-                    System.out.printf("ERROR: Cannot retrieve values for '%s'='%s' or '%s'='%s' column in line %d\n", regexColumnName, regex, dataColumnName, text, rowId);
-                    System.out.printf("ERROR: Make sure column names are correct and present in CSV file.\n");
-                    return null;
-                }
-
-                Keyword key = new Keyword(rowId, Integer.parseInt(regex), text.toLowerCase());
-                keys.put(key.getWord(), key);
-            }
+            return KeySet.ReadKeys(srcCSV, regexColumnName, dataColumnName, fuzzyMaxEdits, proximityWindow);
+        }
+        catch(IllegalArgumentException e)
+        {
+            System.out.printf("ERROR: %s\n", e.getMessage());
+            return null;
         }
         catch(Exception e)
         {
-            System.out.printf("Error in line %d of file '%s'\n", rowId, keyFileName);
+            System.out.printf("Error in line %d of file '%s'\n", srcCSV.getLineNumber(), keyFileName);
             e.printStackTrace();
             return null;
         }
-
-        return keys;
+        finally
+        {
+            srcCSV.Close();
+        }
     }
 
     /***
@@ -0,0 +1,34 @@
+package ProgramObjects.Events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder event for decoding one chunk of a memory mapped CSV file (ReadThreads &gt; 1).
+ */
+@Name("PhraseTractor.CsvReadChunk")
+@Label("CSV Read Chunk")
+@Category({ "PhraseTractor", "CSV" })
+@Description("Decoding of one chunk of a memory mapped CSV file")
+@StackTrace(false)
+public class CsvReadChunkEvent extends jdk.jfr.Event
+{
+    @Label("File")
+    public String file;
+
+    @Label("Offset")
+    @Description("Position of the chunk in the file")
+    @DataAmount
+    public long offset;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Rows")
+    public int rows;
+}
@@ -0,0 +1,37 @@
+package ProgramObjects.Events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder event for indexing a batch of {@value #BATCH_SIZE} documents
+ * (tokenize, match regular expression keys and add postings).
+ */
+@Name("PhraseTractor.IndexBatch")
+@Label("Index Batch")
+@Category({ "PhraseTractor", "Index" })
+@Description("Indexing of a batch of documents")
+@StackTrace(false)
+public class IndexBatchEvent extends jdk.jfr.Event
+{
+    /** Number of documents per event */
+    public static final int BATCH_SIZE = 8192;
+
+    @Label("First Document")
+    @Description("Dense document id of the first document in the batch")
+    public long firstDocument;
+
+    @Label("Documents")
+    public int documents;
+
+    @Label("Tokens")
+    @Description("Number of words indexed in this batch")
+    public long tokens;
+
+    @Label("Regex Matches")
+    @Description("Number of document matches of regular expression keys in this batch")
+    public long regexMatches;
+}
@@ -0,0 +1,58 @@
+package ProgramObjects.Events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import InvertedIndex.Keyword;
+
+/**
+ * Java Flight Recorder event for the evaluation of one keyword (any type of query of a key file).
+ *
+ * Regular expressions are matched against each document while the index is built, so their event is committed
+ * when the keyword frequencies are written and carries the accumulated matching time in {@link #regexMatchTime}
+ * (measured only if this event was enabled when the run started).
+ */
+@Name("PhraseTractor.KeywordQuery")
+@Label("Keyword Query")
+@Category({ "PhraseTractor", "Query" })
+@Description("Evaluation of one keyword against the index")
+@StackTrace(false)
+public class KeywordQueryEvent extends jdk.jfr.Event
+{
+    @Label("Keyword Id")
+    @Description("Line of the keyword in the key file")
+    public long keywordId;
+
+    @Label("Type")
+    @Description("Type of query: " + Keyword.QUERY_TYPES)
+    public int type;
+
+    @Label("Keyword")
+    public String keyword;
+
+    @Label("Result Size")
+    @Description("Number of offsets (phrase query) or documents (other queries) in the result")
+    public long resultSize;
+
+    @Label("Postings Touched")
+    @Description("Number of postings read from the index")
+    public long postingsTouched;
+
+    @Label("Regex Match Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long regexMatchTime;
+
+    /**
+     * Gets whether this event is enabled in a running recording.
+     * @return
+     */
+    public static boolean IsEnabled()
+    {
+        return EventType.getEventType(KeywordQueryEvent.class).isEnabled();
+    }
+}
@@ -0,0 +1,27 @@
+package ProgramObjects.Events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder event for writing one output file.
+ */
+@Name("PhraseTractor.OutputWrite")
+@Label("Output Write")
+@Category({ "PhraseTractor", "Output" })
+@StackTrace(false)
+public class OutputWriteEvent extends jdk.jfr.Event
+{
+    @Label("File")
+    public String file;
+
+    @Label("Lines")
+    public long lines;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+}
@@ -0,0 +1,39 @@
+package ProgramObjects;
+
+/**
+ * Helpers to write JSON text (the tool writes small JSON documents by hand instead of using a library).
+ */
+public class Json
+{
+    /**
+     * Gets a string as JSON string literal.
+     * @param s
+     * @return
+     */
+    public static String Quote(String s)
+    {
+        if (s == null)
+            return "null";
+
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++)
+        {
+            char c = s.charAt(i);
+            switch (c)
+            {
+                case '"':  sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20)
+                        sb.append(String.format("\\u%04x", (int)c));
+                    else
+                        sb.append(c);
+            }
+        }
+
+        return sb.append('"').toString();
+    }
+}
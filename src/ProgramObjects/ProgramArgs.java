@@ -4,6 +4,8 @@ import java.util.*;
 
 import ProgramObjects.Errors.ErrorObject;
 import ProgramObjects.Errors.ErrorSeverity;
+import InvertedIndex.Keyword;
+import InvertedIndex.Postings.PostingArena;
 
 import java.io.IOException;
 import java.nio.file.*;
@@ -18,6 +20,7 @@ public class ProgramArgs
 	private final String _TextColumn;
 	private final String _KeyFileName;
 	private final FileImpl _KeyFile;
+	private final List<FileImpl> _KeyFiles;
 	private final String _BaseOutputDir;
 	
 	private final boolean _WordPairFequencies;
@@ -28,6 +31,24 @@ public class ProgramArgs
 	private boolean _ExtractKeys;
 	private String _RegexMask;
 
+	// Optional tuning parameters (set from properties file if present)
+	private int _ReadThreads = 1;
+	private String _ByteScanMode = "swar";
+	private boolean _OffHeapPostings = false;
+	private int _OffHeapSlabMB = 64;
+	private String _LabelMatrixFormats = "";
+	private boolean _ProfileKeywords = false;
+	private int _IndexMemoryMB = 0;
+	private String _IndexSpillDir = "";
+	private int _ServerPort = 0;
+	private int _ServerThreads = 4;
+	private boolean _Interactive = false;
+	private boolean _IncrementalKeys = false;
+	private int _QueryThreads = Runtime.getRuntime().availableProcessors();
+	private int _IndexPartitions = 1;
+	private int _FuzzyMaxEdits = Keyword.DEFAULT_MAX_EDITS;
+	private int _ProximityWindow = Keyword.DEFAULT_WINDOW;
+
 	private ErrorObject _Err = null;
 
 	//endregion fields
@@ -68,11 +89,15 @@ public class ProgramArgs
 		{
 			this._TextFile = null;
 			this._KeyFile = null;
+			this._KeyFiles = new ArrayList<FileImpl>();
 			return;
 		}
 
 		this._TextFile = new FileImpl(textFileName);
-		this._KeyFile = new FileImpl(keyFileName);
+		this._KeyFiles = ListKeyFiles(keyFileName);
+		this._KeyFile = (_KeyFiles.isEmpty() ? new FileImpl(keyFileName) : _KeyFiles.get(0));
+
+		_Err = this.CheckKeyFiles();
 	}
 
 	/**
@@ -153,6 +178,13 @@ public class ProgramArgs
 	 */
 	public FileImpl getKeyFile() { return _KeyFile; }
 
+	/**
+	 * Gets all key files of this run (the KeyFile property can list several files and/or directories separated by ';',
+	 * a directory stands for all CSV files in it). Each key file is evaluated on the same index.
+	 * @return
+	 */
+	public List<FileImpl> getKeyFiles() { return _KeyFiles; }
+
 	/**
 	 * Gets the path to the output directory that should be used to output result files.
 	 * @return
@@ -179,6 +211,113 @@ public class ProgramArgs
 	 */
 	public String getRegexMask() { return _RegexMask; }
 
+	/**
+	 * Gets the number of threads used to read and decode the text CSV file.
+	 * A value larger than 1 reads the file through a memory map in parallel chunks.
+	 * @return
+	 */
+	public int getReadThreads() { return _ReadThreads; }
+
+	/**
+	 * Gets the implementation ('swar' or 'scalar') used to locate separators and newlines
+	 * when the text CSV file is read through a memory map.
+	 * @return
+	 */
+	public String getByteScanMode() { return _ByteScanMode; }
+
+	/**
+	 * Gets whether postings of the index are stored outside of the Java heap (PostingStorage = offheap)
+	 * or on the Java heap (PostingStorage = heap, default). The word index keeps its postings on the heap
+	 * if it is built with a memory budget (IndexMemoryMB > 0).
+	 * @return
+	 */
+	public boolean getOffHeapPostings() { return _OffHeapPostings; }
+
+	/**
+	 * Gets the size in MB of one off-heap memory slab used to store postings.
+	 * @return
+	 */
+	public int getOffHeapSlabMB() { return _OffHeapSlabMB; }
+
+	/**
+	 * Gets a comma separated list of sparse label matrix formats (csr, libsvm, mtx) to export
+	 * in addition to the CSV result files (empty for no export).
+	 * @return
+	 */
+	public String getLabelMatrixFormats() { return _LabelMatrixFormats; }
+
+	/**
+	 * Gets whether the evaluation cost (time, postings touched, ...) of each keyword is measured
+	 * and written into a keyword profile CSV file sorted by cost.
+	 * @return
+	 */
+	public boolean getProfileKeywords() { return _ProfileKeywords; }
+
+	/**
+	 * Gets the number of MB of heap used to collect postings before they are written to a temporary
+	 * run file and merged into an index on disk (0 = build the complete index in memory).
+	 * Only the postings are bounded - the term dictionary, the word-pair index and the row ids stay on the heap.
+	 * @return
+	 */
+	public int getIndexMemoryMB() { return _IndexMemoryMB; }
+
+	/**
+	 * Gets the directory in which temporary index files are written (empty for the system temp directory).
+	 * @return
+	 */
+	public String getIndexSpillDir() { return _IndexSpillDir; }
+
+	/**
+	 * Gets the local port of the query server that keeps the index resident after the batch run
+	 * (0 = exit after the batch run).
+	 * @return
+	 */
+	public int getServerPort() { return _ServerPort; }
+
+	/**
+	 * Gets the number of requests the query server handles at the same time.
+	 * @return
+	 */
+	public int getServerThreads() { return _ServerThreads; }
+
+	/**
+	 * Gets whether queries are read from the console after the batch run (the index stays resident until ':quit').
+	 * @return
+	 */
+	public boolean getInteractive() { return _Interactive; }
+
+	/**
+	 * Gets whether the results of each key are kept in a cache file so that the next run on the same text file
+	 * only evaluates keys that were added or changed.
+	 * @return
+	 */
+	public boolean getIncrementalKeys() { return _IncrementalKeys; }
+
+	/**
+	 * Gets the number of threads that evaluate keys on the index.
+	 * @return
+	 */
+	public int getQueryThreads() { return _QueryThreads; }
+
+	/**
+	 * Gets the number of document id ranges of the index that evaluate each phrase and bool AND query
+	 * in parallel (1 = each query is evaluated on one thread).
+	 * @return
+	 */
+	public int getIndexPartitions() { return _IndexPartitions; }
+
+	/**
+	 * Gets the maximum number of edits between a word of a fuzzy query (type 3 or 4) and the indexed words it matches.
+	 * @return
+	 */
+	public int getFuzzyMaxEdits() { return _FuzzyMaxEdits; }
+
+	/**
+	 * Gets the maximum distance between the first and the last word of a match of a proximity query (type 6 or 7).
+	 * @return
+	 */
+	public int getProximityWindow() { return _ProximityWindow; }
+
 	/**
 	 * Get an error object (if any) to describe an error in the context of (missing) required program parameters.
 	 * @return
@@ -231,8 +370,14 @@ public class ProgramArgs
 		if (TextFile.startsWith(".") == true)
 			TextFile = convertRelative2AbsolutPath(path2ConfigFile, TextFile);
 
-		if (KeyFile.startsWith(".") == true)
-			KeyFile = convertRelative2AbsolutPath(path2ConfigFile, KeyFile);
+		String[] KeyFiles = KeyFile.split(";");   // A list of key files and/or directories
+		for (int i = 0; i < KeyFiles.length; i++)
+		{
+			KeyFiles[i] = KeyFiles[i].trim();
+			if (KeyFiles[i].startsWith(".") == true)
+				KeyFiles[i] = convertRelative2AbsolutPath(path2ConfigFile, KeyFiles[i]);
+		}
+		KeyFile = String.join(";", KeyFiles);
 
 		if (OutputDir.startsWith(".") == true)
 			OutputDir = convertRelative2AbsolutPath(path2ConfigFile, OutputDir);
@@ -247,6 +392,73 @@ public class ProgramArgs
 
 		ProgramArgs pargs = new ProgramArgs(TextFile, RowIDColumnName, TextColumnName, KeyFile, OutputDir, WordPairFrequency, RegexMask);
 
+		// Optional tuning parameters
+		pargs._ReadThreads = ParseInt(prop, "ReadThreads", 1);
+		pargs._ByteScanMode = (IsEmpty(prop.get("ByteScanMode")) ? "swar" : prop.get("ByteScanMode").trim());
+		if (pargs._Err == null && pargs._ByteScanMode.equalsIgnoreCase("swar") == false && pargs._ByteScanMode.equalsIgnoreCase("scalar") == false)
+			pargs._Err = new ErrorObject(String.format("ByteScanMode property '%s' must be 'swar' or 'scalar'.", pargs._ByteScanMode), ErrorSeverity.ERROR);
+
+		String PostingStorage = (IsEmpty(prop.get("PostingStorage")) ? "heap" : prop.get("PostingStorage").trim());
+		if (pargs._Err == null && PostingStorage.equalsIgnoreCase("offheap") == false && PostingStorage.equalsIgnoreCase("heap") == false)
+			pargs._Err = new ErrorObject(String.format("PostingStorage property '%s' must be 'heap' or 'offheap'.", PostingStorage), ErrorSeverity.ERROR);
+
+		pargs._OffHeapPostings = PostingStorage.equalsIgnoreCase("offheap");
+		pargs._OffHeapSlabMB = ParseInt(prop, "OffHeapSlabMB", PostingArena.DEFAULT_SLAB_MB);
+		pargs._LabelMatrixFormats = (IsEmpty(prop.get("LabelMatrixFormats")) ? "" : prop.get("LabelMatrixFormats").trim());
+		pargs._ProfileKeywords = Boolean.parseBoolean((IsEmpty(prop.get("ProfileKeywords")) ? "false" : prop.get("ProfileKeywords").trim()));
+		pargs._IndexMemoryMB = ParseInt(prop, "IndexMemoryMB", 0);
+		pargs._IndexSpillDir = (IsEmpty(prop.get("IndexSpillDir")) ? "" : prop.get("IndexSpillDir").trim());
+
+		pargs._ServerPort = ParseInt(prop, "ServerPort", 0);
+		pargs._ServerThreads = ParseInt(prop, "ServerThreads", 4);
+		pargs._Interactive = Boolean.parseBoolean((IsEmpty(prop.get("Interactive")) ? "false" : prop.get("Interactive").trim()));
+		pargs._IncrementalKeys = Boolean.parseBoolean((IsEmpty(prop.get("IncrementalKeys")) ? "false" : prop.get("IncrementalKeys").trim()));
+		pargs._QueryThreads = ParseInt(prop, "QueryThreads", Runtime.getRuntime().availableProcessors());
+		pargs._IndexPartitions = ParseInt(prop, "IndexPartitions", 1);
+		pargs._FuzzyMaxEdits = ParseInt(prop, "FuzzyMaxEdits", Keyword.DEFAULT_MAX_EDITS);
+		pargs._ProximityWindow = ParseInt(prop, "ProximityWindow", Keyword.DEFAULT_WINDOW);
+
+		if (pargs._Err == null && pargs._ServerThreads < 1)
+			pargs._Err = new ErrorObject(String.format("ServerThreads property '%d' must be at least 1.", pargs._ServerThreads), ErrorSeverity.ERROR);
+
+		if (pargs._Err == null && pargs._QueryThreads < 1)
+			pargs._Err = new ErrorObject(String.format("QueryThreads property '%d' must be at least 1.", pargs._QueryThreads), ErrorSeverity.ERROR);
+
+		if (pargs._Err == null && pargs._IndexPartitions < 1)
+			pargs._Err = new ErrorObject(String.format("IndexPartitions property '%d' must be at least 1.", pargs._IndexPartitions), ErrorSeverity.ERROR);
+
+		if (pargs._Err == null && (pargs._FuzzyMaxEdits < 0 || pargs._FuzzyMaxEdits > 2))
+			pargs._Err = new ErrorObject(String.format("FuzzyMaxEdits property '%d' must be 0, 1 or 2.", pargs._FuzzyMaxEdits), ErrorSeverity.ERROR);
+
+		if (pargs._Err == null && pargs._ProximityWindow < 1)
+			pargs._Err = new ErrorObject(String.format("ProximityWindow property '%d' must be at least 1.", pargs._ProximityWindow), ErrorSeverity.ERROR);
+
+		if (pargs._Err == null && (pargs._OffHeapSlabMB < 1 || pargs._OffHeapSlabMB > PostingArena.MAX_SLAB_MB))
+			pargs._Err = new ErrorObject(String.format("OffHeapSlabMB property '%d' must be between 1 and %d.", pargs._OffHeapSlabMB, PostingArena.MAX_SLAB_MB), ErrorSeverity.ERROR);
+
+		if (pargs._Err == null && pargs._IndexMemoryMB < 0)
+			pargs._Err = new ErrorObject(String.format("IndexMemoryMB property '%d' cannot be negative.", pargs._IndexMemoryMB), ErrorSeverity.ERROR);
+
+        System.out.printf("      ReadThreads: '%d'\n", pargs._ReadThreads);
+        System.out.printf("     ByteScanMode: '%s'\n", pargs._ByteScanMode);
+        System.out.printf("   PostingStorage: '%s'\n", PostingStorage);
+        System.out.printf("LabelMatrixFormats: '%s'\n", pargs._LabelMatrixFormats);
+        System.out.printf("  ProfileKeywords: '%b'\n", pargs._ProfileKeywords);
+        System.out.printf("    IndexMemoryMB: '%d'\n", pargs._IndexMemoryMB);
+        if (pargs._OffHeapPostings && pargs._IndexMemoryMB > 0)
+            System.out.printf("WARNING: PostingStorage 'offheap' is ignored for the word index since IndexMemoryMB measures its postings on the heap.\n");
+        System.out.printf("    IndexSpillDir: '%s'\n", pargs._IndexSpillDir);
+        System.out.printf("       ServerPort: '%d'\n", pargs._ServerPort);
+        System.out.printf("    ServerThreads: '%d'\n", pargs._ServerThreads);
+        System.out.printf("      Interactive: '%b'\n", pargs._Interactive);
+        System.out.printf("  IncrementalKeys: '%b'\n", pargs._IncrementalKeys);
+        System.out.printf("     QueryThreads: '%d'\n", pargs._QueryThreads);
+        System.out.printf("  IndexPartitions: '%d'\n", pargs._IndexPartitions);
+        System.out.printf("    FuzzyMaxEdits: '%d'\n", pargs._FuzzyMaxEdits);
+        System.out.printf("  ProximityWindow: '%d'\n", pargs._ProximityWindow);
+        if (pargs._KeyFiles.size() > 1)
+            System.out.printf("        Key files: %d\n", pargs._KeyFiles.size());
+
 		return pargs;
 	}
 
@@ -314,6 +526,26 @@ public class ProgramArgs
 		return false;
 	}
 
+	/**
+	 * Parses an optional integer property and returns its value or the {@param defaultValue}
+	 * if the property is not present or empty.
+	 * @param prop
+	 * @param key
+	 * @param defaultValue
+	 * @return
+	 * @throws NumberFormatException
+	 */
+	public static int ParseInt(HashMap<String, String> prop, String key, int defaultValue)
+		throws NumberFormatException
+	{
+		String value = prop.get(key);
+
+		if (IsEmpty(value))
+			return defaultValue;
+
+		return Integer.parseInt(value.trim());
+	}
+
 	/**
 	 * Converts a relative path to a directory or file (against an absolute path)
 	 * into an absolut path and returns the resulting absolute path to a directory or file.
@@ -363,6 +595,61 @@ public class ProgramArgs
 			_MapColumnName2Index.put(item, idx++);
 	}
 
+	/**
+	 * Gets the key files of a KeyFile property: a list of files and/or directories separated by ';' where
+	 * a directory stands for all CSV files in it (in the order of their names).
+	 * @param keyFileName
+	 * @return
+	 */
+	private static List<FileImpl> ListKeyFiles(String keyFileName)
+	{
+		ArrayList<FileImpl> keyFiles = new ArrayList<FileImpl>();
+		for (String item : keyFileName.split(";"))
+		{
+			String path = item.trim();
+			if (path.length() == 0)
+				continue;
+
+			java.io.File dir = new java.io.File(path);
+			java.io.File[] files = (dir.isDirectory() ? dir.listFiles() : null);
+			if (files == null)
+			{
+				keyFiles.add(new FileImpl(path));
+				continue;
+			}
+
+			Arrays.sort(files);
+			for (java.io.File file : files)
+			{
+				if (file.isFile() && file.getName().toLowerCase().endsWith(".csv"))
+					keyFiles.add(new FileImpl(file.getPath()));
+			}
+		}
+
+		return keyFiles;
+	}
+
+	/**
+	 * Check that there is at least one key file and that the outputs of key files do not overwrite each other
+	 * (outputs are named after the key file without its extension).
+	 * @return
+	 */
+	private ErrorObject CheckKeyFiles()
+	{
+		if (_KeyFiles.isEmpty())
+			return new ErrorObject(String.format("KeyFile property '%s' does not name a key file or a directory with CSV key files.", _KeyFileName), ErrorSeverity.ERROR);
+
+		HashMap<String, String> names = new HashMap<String, String>();
+		for (FileImpl keyFile : _KeyFiles)
+		{
+			String other = names.put(keyFile.getFileInNameWithoutExtension(), keyFile.getFileInNamePath());
+			if (other != null)
+				return new ErrorObject(String.format("Key files '%s' and '%s' would write the same output files.", other, keyFile.getFileInNamePath()), ErrorSeverity.ERROR);
+		}
+
+		return null;
+	}
+
 	/**
 	 * Check if required program options are present 
 	 * @return
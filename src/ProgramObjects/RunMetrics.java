@@ -0,0 +1,398 @@
+package ProgramObjects;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+/**
+ * Records the wall time, garbage collection time, peak heap and counters (rows, bytes, tokens, ...) of each
+ * processing phase of a run (in the order in which the phases were started) and writes them as a JSON report.
+ *
+ * A phase ends when the next phase is started or when {@link #EndPhase()} is called. Starting a phase
+ * with the name of an earlier phase adds to the values of the earlier phase. Counters of a phase measure the work
+ * of that phase, counters of the run ({@link #Set(String, long)}) hold values that belong to no single phase.
+ *
+ * The peak heap is the largest used size of the whole heap (all heap pools together): heap usage only grows
+ * between garbage collections, so it is taken from the usage before each collection and at the end of a phase.
+ */
+public class RunMetrics
+{
+    /** Metrics of one processing phase */
+    public static class Phase
+    {
+        private final String _Name;
+        private long _WallNanos = 0;
+        private long _GcNanos = 0;
+        private long _GcCount = 0;
+        private long _PeakHeapBytes = 0;
+        private final LinkedHashMap<String, Long> _Counters = new LinkedHashMap<String, Long>();
+
+        private Phase(String name) { _Name = name; }
+
+        public String getName() { return _Name; }
+
+        /** Gets the wall time of this phase in nanoseconds. */
+        public long getWallNanos() { return _WallNanos; }
+
+        /** Gets the time spent in garbage collection during this phase in nanoseconds. */
+        public long getGcNanos() { return _GcNanos; }
+
+        /** Gets the number of garbage collections during this phase. */
+        public long getGcCount() { return _GcCount; }
+
+        /** Gets the largest heap usage (all heap pools together) during this phase in bytes. */
+        public long getPeakHeapBytes() { return _PeakHeapBytes; }
+
+        /** Gets the counters (rows, bytes_read, ...) of this phase. */
+        public Map<String, Long> getCounters() { return _Counters; }
+    }
+
+    //region fields
+    private final LinkedHashMap<String, Phase> _Phases;
+    private final LinkedHashMap<String, Long> _Counters;
+
+    private Phase _Current = null;
+    private long _PhaseStart = 0;
+    private long _PhaseGcNanos = 0;
+    private long _PhaseGcCount = 0;
+    private final AtomicLong _PhasePeakHeapBytes = new AtomicLong(0);   // Updated by garbage collection notifications
+
+    private final Instant _Started;
+    private final long _Start;
+    private final long _GcNanosStart;
+    private final long _GcCountStart;
+    private long _Finish = -1;
+    private long _PeakHeapBytes = 0;
+
+    private final Set<String> _HeapPools;
+    private final NotificationListener _GcListener;
+    //endregion fields
+
+    //region ctors
+    /** Class constructor (starts the clock of the whole run) */
+    public RunMetrics()
+    {
+        _Phases = new LinkedHashMap<String, Phase>();
+        _Counters = new LinkedHashMap<String, Long>();
+
+        _Started = Instant.now();
+        _Start = System.nanoTime();
+        _GcNanosStart = GcNanos();
+        _GcCountStart = GcCount();
+
+        _HeapPools = new HashSet<String>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+        {
+            if (pool.getType() == MemoryType.HEAP)
+                _HeapPools.add(pool.getName());
+        }
+
+        _GcListener = this::OnGarbageCollection;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+        {
+            if (gc instanceof NotificationEmitter)
+                ((NotificationEmitter)gc).addNotificationListener(_GcListener, null, null);
+        }
+    }
+    //endregion ctors
+
+    //region properties
+    /**
+     * Gets the metrics of each phase in the order in which the phases were started.
+     * @return
+     */
+    public Collection<Phase> getPhases() { return _Phases.values(); }
+
+    /**
+     * Gets the wall time in nanoseconds of each phase in the order in which the phases were started.
+     * @return
+     */
+    public Map<String, Long> getPhaseNanos()
+    {
+        LinkedHashMap<String, Long> phaseNanos = new LinkedHashMap<String, Long>();
+        for (Phase phase : _Phases.values())
+            phaseNanos.put(phase.getName(), phase.getWallNanos());
+
+        return phaseNanos;
+    }
+
+    /**
+     * Gets the counters of the whole run (rows, bytes_read, distinct_terms, ...).
+     * @return
+     */
+    public Map<String, Long> getCounters() { return _Counters; }
+
+    /**
+     * Gets the wall time in nanoseconds of the whole run (up to now if the run was not finished).
+     * @return
+     */
+    public long getTotalNanos() { return (_Finish < 0 ? System.nanoTime() : _Finish) - _Start; }
+
+    /**
+     * Gets the time spent in garbage collection during the whole run in nanoseconds.
+     * @return
+     */
+    public long getGcNanos() { return GcNanos() - _GcNanosStart; }
+
+    /**
+     * Gets the number of garbage collections during the whole run.
+     * @return
+     */
+    public long getGcCount() { return GcCount() - _GcCountStart; }
+
+    /**
+     * Gets the largest heap usage of all (ended) phases in bytes.
+     * @return
+     */
+    public long getPeakHeapBytes() { return _PeakHeapBytes; }
+    //endregion properties
+
+    //region methods
+    /**
+     * Ends the current phase (if any) and starts to measure the phase with the given name.
+     * @param name
+     */
+    public void StartPhase(String name)
+    {
+        EndPhase();
+
+        _Current = _Phases.get(name);
+        if (_Current == null)
+        {
+            _Current = new Phase(name);
+            _Phases.put(name, _Current);
+        }
+
+        _PhasePeakHeapBytes.set(HeapUsed());
+        _PhaseGcNanos = GcNanos();
+        _PhaseGcCount = GcCount();
+        _PhaseStart = System.nanoTime();
+    }
+
+    /**
+     * Ends the current phase (if any) and adds its wall time, garbage collection time and peak heap to the phase.
+     */
+    public void EndPhase()
+    {
+        if (_Current == null)
+            return;
+
+        _Current._WallNanos += System.nanoTime() - _PhaseStart;
+        _Current._GcNanos += GcNanos() - _PhaseGcNanos;
+        _Current._GcCount += GcCount() - _PhaseGcCount;
+        _Current._PeakHeapBytes = Math.max(_Current._PeakHeapBytes, _PhasePeakHeapBytes.accumulateAndGet(HeapUsed(), Math::max));
+        _PeakHeapBytes = Math.max(_PeakHeapBytes, _Current._PeakHeapBytes);
+        _Current = null;
+    }
+
+    /**
+     * Ends the current phase (if any), stops the clock of the whole run and stops listening to garbage collections.
+     */
+    public void Finish()
+    {
+        EndPhase();
+        _Finish = System.nanoTime();
+
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+        {
+            if (gc instanceof NotificationEmitter)
+            {
+                try
+                {
+                    ((NotificationEmitter)gc).removeNotificationListener(_GcListener);
+                }
+                catch (ListenerNotFoundException e)
+                {
+                    // Finish was called before
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a value to a counter of the current phase (values are ignored if no phase is active).
+     * @param counter
+     * @param value
+     */
+    public void Count(String counter, long value)
+    {
+        if (_Current == null)
+            return;
+
+        Long previous = _Current._Counters.get(counter);
+        _Current._Counters.put(counter, (previous == null ? value : previous + value));
+    }
+
+    /**
+     * Sets a counter of the whole run.
+     * @param counter
+     * @param value
+     */
+    public void Set(String counter, long value)
+    {
+        _Counters.put(counter, value);
+    }
+
+    /**
+     * Writes all metrics as JSON into the given file.
+     *
+     * Times are in milliseconds and rows_per_s or mb_per_s are computed for each phase with a
+     * 'rows' or 'bytes_read' counter.
+     * @param fileName
+     * @param tool
+     * @param version
+     * @throws IOException
+     */
+    public void WriteJson(String fileName, String tool, String version) throws IOException
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n");
+        sb.append("  \"tool\": ").append(Quote(tool)).append(",\n");
+        sb.append("  \"version\": ").append(Quote(version)).append(",\n");
+        sb.append("  \"started\": ").append(Quote(_Started.toString())).append(",\n");
+        sb.append("  \"total_ms\": ").append(Millis(getTotalNanos())).append(",\n");
+        sb.append("  \"gc_ms\": ").append(Millis(getGcNanos())).append(",\n");
+        sb.append("  \"gc_count\": ").append(getGcCount()).append(",\n");
+        sb.append("  \"peak_heap_bytes\": ").append(_PeakHeapBytes).append(",\n");
+        sb.append("  \"counters\": ");
+        AppendCounters(sb, _Counters);
+        sb.append(",\n");
+        sb.append("  \"phases\": [");
+
+        boolean first = true;
+        for (Phase phase : _Phases.values())
+        {
+            sb.append(first ? "\n" : ",\n");
+            first = false;
+
+            sb.append("    { \"name\": ").append(Quote(phase.getName()));
+            sb.append(", \"wall_ms\": ").append(Millis(phase.getWallNanos()));
+            sb.append(", \"gc_ms\": ").append(Millis(phase.getGcNanos()));
+            sb.append(", \"gc_count\": ").append(phase.getGcCount());
+            sb.append(", \"peak_heap_bytes\": ").append(phase.getPeakHeapBytes());
+
+            double seconds = phase.getWallNanos() / 1e9;
+            Long rows = phase.getCounters().get("rows");
+            if (rows != null && seconds > 0)
+                sb.append(", \"rows_per_s\": ").append(String.format(Locale.ROOT, "%.1f", rows / seconds));
+
+            Long bytes = phase.getCounters().get("bytes_read");
+            if (bytes != null && seconds > 0)
+                sb.append(", \"mb_per_s\": ").append(String.format(Locale.ROOT, "%.3f", bytes / (1024.0 * 1024.0) / seconds));
+
+            sb.append(", \"counters\": ");
+            AppendCounters(sb, phase.getCounters());
+            sb.append(" }");
+        }
+
+        sb.append("\n  ]\n}\n");
+
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(fileName), StandardCharsets.UTF_8)))
+        {
+            writer.write(sb.toString());
+        }
+    }
+
+    private static void AppendCounters(StringBuilder sb, Map<String, Long> counters)
+    {
+        sb.append("{");
+        boolean first = true;
+        for (Map.Entry<String, Long> counter : counters.entrySet())
+        {
+            sb.append(first ? " " : ", ").append(Quote(counter.getKey())).append(": ").append(counter.getValue());
+            first = false;
+        }
+        sb.append(first ? "}" : " }");
+    }
+
+    private static String Millis(long nanos)
+    {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    private static String Quote(String s)
+    {
+        return Json.Quote(s);
+    }
+
+    /**
+     * Gets the accumulated time of all garbage collectors in nanoseconds.
+     * @return
+     */
+    private static long GcNanos()
+    {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            millis += Math.max(0, gc.getCollectionTime());
+
+        return millis * 1000000L;
+    }
+
+    /**
+     * Gets the accumulated number of collections of all garbage collectors.
+     * @return
+     */
+    private static long GcCount()
+    {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            count += Math.max(0, gc.getCollectionCount());
+
+        return count;
+    }
+
+    /**
+     * Raises the peak heap of the current phase to the heap usage before a garbage collection.
+     * @param notification
+     * @param handback
+     */
+    private void OnGarbageCollection(Notification notification, Object handback)
+    {
+        if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType()) == false)
+            return;
+
+        GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData)notification.getUserData());
+
+        long used = 0;
+        for (Map.Entry<String, MemoryUsage> pool : info.getGcInfo().getMemoryUsageBeforeGc().entrySet())
+        {
+            if (_HeapPools.contains(pool.getKey()))
+                used += pool.getValue().getUsed();
+        }
+
+        _PhasePeakHeapBytes.accumulateAndGet(used, Math::max);
+    }
+
+    /**
+     * Gets the current usage of the whole heap.
+     * @return
+     */
+    private static long HeapUsed()
+    {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+    //endregion methods
+}
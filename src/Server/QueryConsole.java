@@ -0,0 +1,338 @@
+package Server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Locale;
+
+import InvertedIndex.Keyword;
+import InvertedIndex.QueryEngine;
+import InvertedIndex.QueryPlan;
+import InvertedIndex.QueryResult;
+import InvertedIndex.Nx.NGram;
+import InvertedIndex.Nx.NxWord;
+
+/**
+ * Evaluates queries typed line by line on a resident index so that analysts can explore a corpus without
+ * paying for JVM startup and index build on every query.
+ *
+ * Each input line is a query in key file notation (type|text with 0 = phrase, 1 = regex, 2 = bool AND,
+ * 3 = fuzzy phrase, 4 = fuzzy bool AND, 5 = wildcard phrase, 6 = near, 7 = ordered near, 8 = boolean expression)
+ * or a phrase query if it has no type. The console prints the frequency, the number of documents and the
+ * evaluation time of each query, a few matching documents and the hyphen/space variants of phrase queries.
+ *
+ * Commands:
+ * <ul>
+ * <li>:samples n - number of matching documents shown per query (0 = none)</li>
+ * <li>:next words - most frequent words that follow the given words (requires WordPairFrequency = true)</li>
+ * <li>:explain expression - plan of a boolean query with the estimated and actual documents of each clause</li>
+ * <li>:help - lists the commands</li>
+ * <li>:quit - leaves the console (as does the end of the input)</li>
+ * </ul>
+ */
+public class QueryConsole
+{
+    private static final int MAX_SAMPLE_CHARS = 200;
+    private static final int MAX_CONTINUATIONS = 10;
+
+    //region fields
+    private final QueryEngine _Engine;
+    private final BufferedReader _In;
+    private final PrintStream _Out;
+    private int _Samples = 3;
+    private long _QueryCount = 0;
+    //endregion fields
+
+    //region ctors
+    /**
+     * Class constructor
+     * @param engine
+     * @param in Source of the queries (e.g. System.in).
+     * @param out
+     */
+    public QueryConsole(QueryEngine engine, InputStream in, PrintStream out)
+    {
+        _Engine = engine;
+        _In = new BufferedReader(new InputStreamReader(in));
+        _Out = out;
+    }
+    //endregion ctors
+
+    //region methods
+    /**
+     * Reads and evaluates queries until the input ends or the quit command is given.
+     * @throws IOException
+     */
+    public void Run() throws IOException
+    {
+        _Out.printf("Interactive query console on %d documents (':help' lists the commands, ':quit' leaves).\n",
+                    _Engine.getRowIds().Count());
+
+        for (;;)
+        {
+            _Out.print("query> ");
+            _Out.flush();
+
+            String line = _In.readLine();
+            if (line == null)
+                break;
+
+            line = line.trim();
+            if (line.length() == 0)
+                continue;
+
+            try
+            {
+                if (line.startsWith(":"))
+                {
+                    if (Command(line) == false)
+                        break;
+                }
+                else
+                    Query(line);
+            }
+            catch (IllegalArgumentException e)
+            {
+                _Out.printf("ERROR: %s\n", e.getMessage());
+            }
+            catch (Exception e)
+            {
+                _Out.printf("An Exception: '%s' occurred when evaluating '%s'.\n", e.getMessage(), line);
+                e.printStackTrace(_Out);
+            }
+        }
+
+        _Out.printf("Query console closed after %d queries.\n", _QueryCount);
+    }
+
+    /**
+     * Executes a console command.
+     * @param line
+     * @return false if the console should be closed.
+     */
+    private boolean Command(String line) throws IOException
+    {
+        String[] tokens = line.split("\\s+", 2);
+        String argument = (tokens.length > 1 ? tokens[1].trim() : "");
+
+        switch (tokens[0].toLowerCase())
+        {
+            case ":quit":
+            case ":exit":
+            case ":q":
+                return false;
+
+            case ":samples":
+                try
+                {
+                    _Samples = Math.max(Integer.parseInt(argument), 0);
+                }
+                catch (NumberFormatException e)
+                {
+                    throw new IllegalArgumentException(String.format("':samples' expects a number but got '%s'.", argument));
+                }
+
+                _Out.printf("Showing %d matching documents per query.\n", _Samples);
+            break;
+
+            case ":next":
+                Next(argument);
+            break;
+
+            case ":explain":
+                Explain(argument);
+            break;
+
+            case ":help":
+                _Out.printf("  text          phrase query (same as 0|text)\n");
+                _Out.printf("  0|text        phrase query\n");
+                _Out.printf("  1|regex       regular expression on the document texts\n");
+                _Out.printf("  2|words       bool AND query (all words in any order)\n");
+                _Out.printf("  3|text        fuzzy phrase query (words within %d edits)\n", _Engine.getFuzzyMaxEdits());
+                _Out.printf("  4|words       fuzzy bool AND query (words within %d edits)\n", _Engine.getFuzzyMaxEdits());
+                _Out.printf("  5|text        wildcard phrase query (* any characters, ? one character)\n");
+                _Out.printf("  6|words       near query (words within %d positions in any order)\n", _Engine.getProximityWindow());
+                _Out.printf("  7|words       ordered near query (words within %d positions in query order)\n", _Engine.getProximityWindow());
+                _Out.printf("  8|expression  boolean query (words, \"phrases\" and (...) with and, or, not)\n");
+                _Out.printf("  :samples n    number of matching documents shown per query\n");
+                _Out.printf("  :next words   most frequent words following the given words\n");
+                _Out.printf("  :explain expr plan of a boolean query with estimated and actual documents\n");
+                _Out.printf("  :quit         leave the console\n");
+            break;
+
+            default:
+                throw new IllegalArgumentException(String.format("Unknown command '%s' (':help' lists the commands).", tokens[0]));
+        }
+
+        return true;
+    }
+
+    /**
+     * Evaluates one query line (type|text or text only for a phrase query) and prints its result.
+     * @param line
+     * @throws Exception
+     */
+    private void Query(String line) throws Exception
+    {
+        int type = 0;
+        String text = line;
+
+        int idx = line.indexOf('|');
+        if (idx > 0 && idx <= 2 && line.substring(0, idx).trim().matches("[0-8]"))
+        {
+            type = Integer.parseInt(line.substring(0, idx).trim());
+            text = line.substring(idx + 1).trim();
+        }
+
+        if (text.length() == 0)
+            throw new IllegalArgumentException("Query text cannot be empty.");
+
+        Keyword keyword = new Keyword(++_QueryCount, type, text.toLowerCase(), _Engine.getFuzzyMaxEdits(),
+                                      _Engine.getProximityWindow());
+        QueryResult result = _Engine.Evaluate(keyword);
+        PrintResult(result);
+
+        if (_Samples > 0 && result.getDocIds().length > 0)
+        {
+            long start = System.nanoTime();
+            int[] docIds = result.getDocIds();
+            List<String> texts = _Engine.ReadDocuments(docIds, _Samples);
+
+            for (int i = 0; i < texts.size(); i++)
+                _Out.printf("    [%s] %s\n", _Engine.getRowIds().ExternalId(docIds[i]), Shorten(texts.get(i)));
+
+            _Out.printf("    (%d of %d documents read in %s ms)\n", texts.size(), docIds.length, Millis(System.nanoTime() - start));
+        }
+
+        if (type == 0)
+        {
+            for (String variant : Variants(result.getQuery()))
+            {
+                QueryResult variantResult = _Engine.Evaluate(new Keyword(_QueryCount, 0, variant));
+                if (variantResult.getFrequency() > 0)
+                {
+                    _Out.printf("  variant ");
+                    PrintResult(variantResult);
+                }
+            }
+        }
+    }
+
+    /**
+     * Prints the most frequent continuations of the given words from the word pair index.
+     * @param text
+     */
+    private void Next(String text)
+    {
+        NxWord nxIndex = _Engine.getNextWordIndex();
+        if (nxIndex == null)
+            throw new IllegalArgumentException("':next' requires the word pair index (set WordPairFrequency = true).");
+
+        if (text.length() == 0)
+            throw new IllegalArgumentException("':next' expects one or more words.");
+
+        long start = System.nanoTime();
+        List<NGram> grams = nxIndex.Continuations(text.toLowerCase().split("\\s+"), MAX_CONTINUATIONS);
+
+        for (NGram gram : grams)
+            _Out.printf("  %8d  %s\n", gram.getFrequency(), gram.getWordsString());
+
+        _Out.printf("  (%d continuations in %s ms)\n", grams.size(), Millis(System.nanoTime() - start));
+    }
+
+    /**
+     * Prints the plan of a boolean query expression with the estimated and actual documents of each clause.
+     * @param expression
+     * @throws IOException
+     */
+    private void Explain(String expression) throws IOException
+    {
+        if (expression.length() == 0)
+            throw new IllegalArgumentException("':explain' expects a boolean query expression.");
+
+        long start = System.nanoTime();
+        QueryPlan plan = _Engine.Explain(expression.toLowerCase());
+
+        for (String line : plan.Explain())
+            _Out.printf("  %s\n", line);
+
+        _Out.printf("  (%d documents in %s ms)\n", Math.max(plan.getActual(), 0), Millis(System.nanoTime() - start));
+    }
+
+    private void PrintResult(QueryResult result)
+    {
+        Keyword keyword = result.getKeyword();
+
+        if (CountsOccurrences(keyword.getQueryTypeId()))
+            _Out.printf("%s '%s': %d occurrences in %d documents (%s ms)\n", TypeName(keyword.getQueryTypeId()),
+                        result.getQuery(), result.getFrequency(), result.getDocIds().length, Millis(result.getNanos()));
+        else
+            _Out.printf("%s '%s': %d documents (%s ms)\n", TypeName(keyword.getQueryTypeId()),
+                        result.getQuery(), result.getFrequency(), Millis(result.getNanos()));
+    }
+
+    /**
+     * Gets the hyphen/space variants of a phrase query: words joined by hyphens are queried as separate
+     * words and separate words are queried as one hyphenated word.
+     * @param query Normalized query string (words separated by a single space).
+     * @return
+     */
+    private static String[] Variants(String query)
+    {
+        if (query.contains("-"))
+            return new String[] { String.join(" ", query.replace('-', ' ').trim().split("\\s+")) };
+
+        if (query.contains(" "))
+            return new String[] { query.replace(' ', '-') };
+
+        return new String[0];
+    }
+
+    /**
+     * Determines whether a type of query counts word occurrences (phrase and proximity queries) instead of documents.
+     * @param queryTypeId
+     * @return
+     */
+    private static boolean CountsOccurrences(int queryTypeId)
+    {
+        switch (queryTypeId)
+        {
+            case 0: case 3: case 5: case 6: case 7:
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+    private static String TypeName(int queryTypeId)
+    {
+        switch (queryTypeId)
+        {
+            case 0:  return "phrase";
+            case 1:  return "regex";
+            case 2:  return "and";
+            case 3:  return "fuzzy phrase";
+            case 4:  return "fuzzy and";
+            case 5:  return "wildcard phrase";
+            case 6:  return "near";
+            case 7:  return "ordered near";
+            case 8:  return "bool";
+            default: return "unknown";
+        }
+    }
+
+    private static String Shorten(String text)
+    {
+        return (text.length() > MAX_SAMPLE_CHARS ? text.substring(0, MAX_SAMPLE_CHARS) + "..." : text);
+    }
+
+    private static String Millis(long nanos)
+    {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+    //endregion methods
+}
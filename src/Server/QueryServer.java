@@ -0,0 +1,350 @@
+package Server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import CSV.FromCSV;
+import Documents.RowIds;
+import InvertedIndex.KeySet;
+import InvertedIndex.Keyword;
+import InvertedIndex.QueryEngine;
+import InvertedIndex.QueryResult;
+import ProgramObjects.Json;
+import ProgramObjects.Errors.ErrorObject;
+
+/**
+ * Answers queries over HTTP on a resident index so that key authors can iterate on their keys without
+ * paying for JVM startup and index build on every run. The server listens on the loopback interface only
+ * and handles requests concurrently (the index is read-only while the server runs).
+ *
+ * Endpoints (all responses are JSON, document ids are the external row ids):
+ * <ul>
+ * <li>GET /status - size of the index</li>
+ * <li>GET /query?q=text[&amp;type=0..8][&amp;limit=n] - evaluates one phrase (0, default), regex (1), bool AND (2),
+ * fuzzy phrase (3), fuzzy bool AND (4), wildcard phrase (5), near (6), ordered near (7) or boolean (8) query</li>
+ * <li>POST /keys[?limit=n] - evaluates all keys of a key file (regex|text) in the request body</li>
+ * <li>GET /keys?file=path[&amp;limit=n] - evaluates all keys of a key file on the local file system</li>
+ * <li>POST /shutdown - stops the server</li>
+ * </ul>
+ * The optional limit restricts the number of document ids returned per query (the frequencies are always complete).
+ */
+public class QueryServer
+{
+    //region fields
+    private final QueryEngine _Engine;
+    private final HttpServer _Server;
+    private final ExecutorService _Pool;
+    private final CountDownLatch _Stopped = new CountDownLatch(1);
+    //endregion fields
+
+    //region ctors
+    /**
+     * Class constructor
+     * @param engine
+     * @param port
+     * @param threads Number of requests that are handled at the same time (at least 1).
+     * @throws IOException
+     */
+    public QueryServer(QueryEngine engine, int port, int threads) throws IOException
+    {
+        _Engine = engine;
+        _Server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        _Pool = Executors.newFixedThreadPool(threads);
+        _Server.setExecutor(_Pool);
+        _Server.createContext("/", new HttpHandler()
+        {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException
+            {
+                Handle(exchange);
+            }
+        });
+    }
+    //endregion ctors
+
+    //region methods
+    /**
+     * Starts the server and blocks until it is stopped with a shutdown request.
+     * @throws InterruptedException
+     */
+    public void Run() throws InterruptedException
+    {
+        _Server.start();
+        System.out.printf("Serving queries on http://%s:%d/ (POST /shutdown to stop)\n",
+                          _Server.getAddress().getAddress().getHostAddress(), _Server.getAddress().getPort());
+
+        _Stopped.await();
+
+        _Server.stop(1);
+        _Pool.shutdown();
+        System.out.printf("Query server stopped.\n");
+    }
+
+    /**
+     * Gets the port the server listens on.
+     * @return
+     */
+    public int getPort() { return _Server.getAddress().getPort(); }
+
+    /**
+     * Dispatches a request and writes its response (status 400 for bad requests, 500 for errors).
+     * @param exchange
+     * @throws IOException
+     */
+    private void Handle(HttpExchange exchange) throws IOException
+    {
+        String path = exchange.getRequestURI().getPath();
+        String method = exchange.getRequestMethod();
+
+        try
+        {
+            HashMap<String, String> params = ParseParameters(exchange.getRequestURI().getRawQuery());
+
+            switch (path)
+            {
+                case "/status":
+                    Respond(exchange, 200, Status());
+                break;
+
+                case "/query":
+                    Respond(exchange, 200, Query(params));
+                break;
+
+                case "/keys":
+                    String content;
+                    if (params.containsKey("file"))
+                        content = new String(Files.readAllBytes(Paths.get(params.get("file"))), StandardCharsets.UTF_8);
+                    else if (method.equals("POST"))
+                        content = ReadBody(exchange.getRequestBody());
+                    else
+                        throw new IllegalArgumentException("Expected a key file in the request body (POST) or a 'file' parameter.");
+
+                    Respond(exchange, 200, Keys(content, ParseLimit(params)));
+                break;
+
+                case "/shutdown":
+                    if (method.equals("POST") == false)
+                        throw new IllegalArgumentException("Shutdown requires a POST request.");
+
+                    Respond(exchange, 200, "{ \"stopping\": true }\n");
+                    _Stopped.countDown();
+                break;
+
+                default:
+                    Respond(exchange, 404, Error(String.format("Unknown endpoint '%s'.", path)));
+            }
+        }
+        catch (IllegalArgumentException e)
+        {
+            Respond(exchange, 400, Error(e.getMessage()));
+        }
+        catch (Exception e)
+        {
+            System.out.printf("An Exception: '%s' occurred when handling '%s'.\n", e.getMessage(), exchange.getRequestURI());
+            e.printStackTrace();
+            Respond(exchange, 500, Error(String.valueOf(e.getMessage())));
+        }
+    }
+
+    private String Status()
+    {
+        return String.format("{ \"documents\": %d, \"words\": %d, \"postings\": %d, \"on_disk\": %b, \"partitions\": %d }\n",
+                             _Engine.getRowIds().Count(), _Engine.getIndex().WordCount(),
+                             _Engine.getIndex().PostingCount(), _Engine.getIndex().IsOnDisk(), _Engine.getIndex().PartitionCount());
+    }
+
+    /**
+     * Evaluates a single query given by the parameters q (query text), type and limit.
+     * @param params
+     * @return
+     * @throws Exception
+     */
+    private String Query(HashMap<String, String> params) throws Exception
+    {
+        String text = params.get("q");
+        if (text == null || text.trim().length() == 0)
+            throw new IllegalArgumentException("Missing query parameter 'q'.");
+
+        int type = Integer.parseInt(params.containsKey("type") ? params.get("type") : "0");
+        QueryResult result = _Engine.Evaluate(new Keyword(1, type, text.toLowerCase(), _Engine.getFuzzyMaxEdits(), _Engine.getProximityWindow()));
+
+        StringBuilder sb = new StringBuilder();
+        AppendResult(sb, result, ParseLimit(params));
+
+        return sb.append('\n').toString();
+    }
+
+    /**
+     * Evaluates all keys of a key file content (header line with 'regex' and 'text' columns).
+     * @param content
+     * @param limit
+     * @return
+     * @throws Exception
+     */
+    private String Keys(String content, int limit) throws Exception
+    {
+        long start = System.nanoTime();
+        List<Keyword> keys = ParseKeys(content, _Engine.getFuzzyMaxEdits(), _Engine.getProximityWindow());
+        List<QueryResult> results = _Engine.EvaluateAll(keys);
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("{ \"keys\": ").append(keys.size());
+        sb.append(", \"time_ms\": ").append(Millis(System.nanoTime() - start));
+        sb.append(", \"results\": [");
+        for (int i = 0; i < results.size(); i++)
+        {
+            sb.append(i > 0 ? ",\n  " : "\n  ");
+            AppendResult(sb, results.get(i), limit);
+        }
+
+        return sb.append("\n] }\n").toString();
+    }
+
+    /**
+     * Parses the keys of a key file in the same way as the batch mode (see {@link KeySet#ReadKeys}).
+     * @param content
+     * @param fuzzyMaxEdits Maximum number of edits of the fuzzy queries.
+     * @param proximityWindow Window of the proximity queries.
+     * @return Keys ordered by their id.
+     * @throws Exception
+     */
+    private static List<Keyword> ParseKeys(String content, int fuzzyMaxEdits, int proximityWindow) throws Exception
+    {
+        if (content.trim().length() == 0)
+            throw new IllegalArgumentException("Key file is empty.");
+
+        FromCSV srcCSV = new FromCSV(new StringReader(content), KeySet.SEPARATOR, true);
+        HashMap<String, Keyword> keys;
+        try
+        {
+            ErrorObject err = srcCSV.OpenFile();
+            if (err != null)
+                throw new IllegalArgumentException(err.getMessage());
+
+            keys = KeySet.ReadKeys(srcCSV, "regex", "text", fuzzyMaxEdits, proximityWindow);
+        }
+        finally
+        {
+            srcCSV.Close();
+        }
+
+        ArrayList<Keyword> sorted = new ArrayList<Keyword>(keys.values());
+        Collections.sort(sorted, new Comparator<Keyword>()
+        {
+            @Override
+            public int compare(Keyword a, Keyword b) { return Long.compare(a.IdKeyword(), b.IdKeyword()); }
+        });
+
+        return sorted;
+    }
+
+    /**
+     * Appends a query result as JSON object.
+     * @param sb
+     * @param result
+     * @param limit Maximum number of document ids (negative for all).
+     */
+    private void AppendResult(StringBuilder sb, QueryResult result, int limit)
+    {
+        Keyword keyword = result.getKeyword();
+        int[] docIds = result.getDocIds();
+        RowIds rowIds = _Engine.getRowIds();
+
+        sb.append("{ \"id\": ").append(keyword.IdKeyword());
+        sb.append(", \"type\": ").append(keyword.getQueryTypeId());
+        sb.append(", \"keyword\": ").append(Json.Quote(keyword.getWord()));
+        sb.append(", \"query\": ").append(Json.Quote(result.getQuery()));
+        sb.append(", \"frequency\": ").append(result.getFrequency());
+        sb.append(", \"documents\": ").append(docIds.length);
+        sb.append(", \"time_ms\": ").append(Millis(result.getNanos()));
+        sb.append(", \"doc_ids\": [");
+
+        int count = (limit < 0 ? docIds.length : Math.min(limit, docIds.length));
+        for (int i = 0; i < count; i++)
+            sb.append(i > 0 ? ", " : "").append(Json.Quote(rowIds.ExternalId(docIds[i])));
+
+        sb.append("] }");
+    }
+
+    private static String Error(String message)
+    {
+        return "{ \"error\": " + Json.Quote(message) + " }\n";
+    }
+
+    private static String Millis(long nanos)
+    {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    private static int ParseLimit(HashMap<String, String> params)
+    {
+        return (params.containsKey("limit") ? Integer.parseInt(params.get("limit")) : -1);
+    }
+
+    /**
+     * Parses the (URL encoded) parameters of a query string.
+     * @param rawQuery
+     * @return
+     * @throws IOException
+     */
+    private static HashMap<String, String> ParseParameters(String rawQuery) throws IOException
+    {
+        HashMap<String, String> params = new HashMap<String, String>();
+        if (rawQuery == null)
+            return params;
+
+        for (String pair : rawQuery.split("&"))
+        {
+            int idx = pair.indexOf('=');
+            if (idx > 0)
+                params.put(URLDecoder.decode(pair.substring(0, idx), "UTF-8"), URLDecoder.decode(pair.substring(idx + 1), "UTF-8"));
+        }
+
+        return params;
+    }
+
+    private static String ReadBody(InputStream in) throws IOException
+    {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        for (int n; (n = in.read(buf)) > 0; )
+            body.write(buf, 0, n);
+
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static void Respond(HttpExchange exchange, int status, String json) throws IOException
+    {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+
+        try (OutputStream out = exchange.getResponseBody())
+        {
+            out.write(bytes);
+        }
+    }
+    //endregion methods
+}
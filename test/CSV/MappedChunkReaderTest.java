@@ -0,0 +1,101 @@
+package CSV;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Compares the rows of the memory mapped parallel reader with reading the same file by a BufferedReader. */
+public class MappedChunkReaderTest
+{
+    private static final String[] TERMINATORS = { "\n", "\r", "\r\n" };
+
+    @Rule
+    public TemporaryFolder _Folder = new TemporaryFolder();
+
+    @Test
+    public void MixedLineEndingsGiveTheSameRows() throws Exception
+    {
+        File file = Write("id|sentence\n1|first part\r2|second part\n3|third\r\n4|fourth\r");
+
+        List<HashMap<String, String>> expected = ReadAll(file, 1);
+        assertEquals(4, expected.size());
+        assertEquals(expected, ReadAll(file, 4));
+    }
+
+    @Test
+    public void ChunkBoundariesDoNotSplitLines() throws Exception
+    {
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder();
+        for (int row = 0; text.length() < 1024 * 1024; row++)
+        {
+            text.append(row).append('|');
+            for (int i = random.nextInt(40); i > 0; i--)
+                text.append((char)('a' + random.nextInt(26))).append(random.nextInt(8) == 0 ? "|" : " ");
+
+            text.append(TERMINATORS[random.nextInt(TERMINATORS.length)]);
+            if (random.nextInt(50) == 0)
+                text.append(TERMINATORS[random.nextInt(TERMINATORS.length)]);   // Empty line
+        }
+
+        File file = Write(text.toString());
+        List<String[]> expected = new ArrayList<String[]>();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8))
+        {
+            for (String line; (line = reader.readLine()) != null; )
+                expected.add(line.split(FromCSV.SplitExpression('|')));
+        }
+
+        for (String mode : new String[] { "swar", "scalar" })
+        {
+            ByteScanner.Select(mode);
+            try
+            {
+                MappedChunkReader reader = new MappedChunkReader(file.getPath(), '|', 4, 1);   // Smallest chunks
+                int row = 0;
+                for (String[] tokens; (tokens = reader.NextRow()) != null; row++)
+                    assertArrayEquals(mode + " row " + row, expected.get(row), tokens);
+
+                reader.Close();
+                assertEquals(mode, expected.size(), row);
+            }
+            finally
+            {
+                ByteScanner.Select(null);
+            }
+        }
+    }
+
+    private File Write(String text) throws IOException
+    {
+        File file = _Folder.newFile();
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static List<HashMap<String, String>> ReadAll(File file, int readThreads) throws Exception
+    {
+        FromCSV csv = new FromCSV(file.getPath(), '|', true, readThreads);
+        assertEquals(null, csv.OpenFile());
+
+        List<HashMap<String, String>> rows = new ArrayList<HashMap<String, String>>();
+        for (HashMap<String, String> row; (row = csv.ReadLine()) != null; )
+            rows.add(row);
+
+        csv.Close();
+        return rows;
+    }
+}
@@ -0,0 +1,118 @@
+package InvertedIndex;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import CSV.FromCSV;
+
+/** Compares the results of the one pass keyword scan with the results of the same keywords on the index. */
+public class KeywordScanTest
+{
+    private static final String MASK = "[^a-zA-Z0-9-äüöÄÜÖß_#!]+";
+    private static final String[] WORDS = { "haus", "maus", "laus", "baum", "raum", "traum", "vertrag", "vortrag", "kündigung", "und" };
+
+    private static final List<Keyword> KEYS = Arrays.asList(
+          new Keyword(0, 0, "haus")
+        , new Keyword(1, 0, "haus maus")
+        , new Keyword(2, 0, "haus haus")
+        , new Keyword(3, 1, "r(au|ä)m")
+        , new Keyword(4, 2, "vertrag kündigung")
+        , new Keyword(5, 3, "hau", 1)
+        , new Keyword(6, 3, "vertrag raum", 2)
+        , new Keyword(7, 4, "bäum vortrag", 1)
+        , new Keyword(8, 5, "ma*")
+        , new Keyword(9, 5, "v*trag ha?s")
+        , new Keyword(10, 6, "haus raum", 1, 3)
+        , new Keyword(11, 6, "haus haus", 1, 4)
+        , new Keyword(12, 6, "maus baum traum", 1, 5)
+        , new Keyword(13, 7, "maus baum", 1, 2)
+        , new Keyword(14, 8, "(haus or baum) and not maus")
+        , new Keyword(15, 8, "\"vertrag kündigung\" or traum und"));
+
+    @Rule
+    public TemporaryFolder _Folder = new TemporaryFolder();
+
+    @Test
+    public void ScanGivesTheResultsOfTheHeapIndex() throws Exception
+    {
+        AssertSameResults(0);
+    }
+
+    @Test
+    public void ScanGivesTheResultsOfTheDiskIndex() throws Exception
+    {
+        AssertSameResults(16 * 1024);
+    }
+
+    private void AssertSameResults(long memoryBudget) throws Exception
+    {
+        File text = WriteText(new Random(7), 3000);
+
+        FromCSV df = new FromCSV(text.getPath(), '|', true);
+        assertNull(df.OpenFile());
+        IndexDocumentResult index = IIndex.IndexDocuments(df, "id", "sentence", MASK, KEYS, false, null, memoryBudget, _Folder.getRoot());
+        try
+        {
+            assertEquals(memoryBudget > 0, index.getInvertedIIndex().IsOnDisk());
+
+            QueryEngine engine = new QueryEngine(index, text.getPath(), "sentence", MASK, 1, 1, 3);
+            List<QueryResult> expected = engine.EvaluateAll(KEYS);
+
+            KeywordScan scan = new KeywordScan(KEYS, MASK, index.getInvertedIIndex().WordsSortedByAlpha());
+            df = new FromCSV(text.getPath(), '|', true);
+            assertNull(df.OpenFile());
+            scan.Scan(df, "id", "sentence");
+            List<QueryResult> actual = scan.Results();
+
+            assertEquals(index.getDocsParsed(), scan.getDocsParsed());
+            for (int k = 0; k < KEYS.size(); k++)
+            {
+                String key = KEYS.get(k).Key();
+                assertTrue(key, expected.get(k).getFrequency() > 0);
+                assertEquals(key, expected.get(k).getFrequency(), actual.get(k).getFrequency());
+                assertArrayEquals(key, expected.get(k).getDocIds(), actual.get(k).getDocIds());
+            }
+        }
+        finally
+        {
+            index.Release();
+        }
+    }
+
+    /**
+     * Writes a text file with random sentences over a small vocabulary (so that all types of queries match often).
+     * @param random
+     * @param rows
+     * @return
+     * @throws Exception
+     */
+    private File WriteText(Random random, int rows) throws Exception
+    {
+        StringBuilder text = new StringBuilder("id|sentence\n");
+        for (int row = 0; row < rows; row++)
+        {
+            text.append(1000 + row).append('|');
+            for (int i = 1 + random.nextInt(20); i > 0; i--)
+                text.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(10) == 0 ? ", " : " ");
+
+            text.append('\n');
+        }
+
+        File file = _Folder.newFile("text.csv");
+        Files.write(file.toPath(), text.toString().getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
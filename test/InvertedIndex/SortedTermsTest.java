@@ -0,0 +1,145 @@
+package InvertedIndex;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+/** Compares the fuzzy and wildcard expansions of the sorted terms with a test of each term. */
+public class SortedTermsTest
+{
+    private static final String LETTERS = "abcdäß";
+
+    @Test
+    public void FuzzyGivesAllTermsWithinTheEdits()
+    {
+        Random random = new Random(11);
+        TreeSet<String> terms = RandomTerms(random, 3000);
+        SortedTerms sorted = new SortedTerms(terms);
+
+        for (int q = 0; q < 500; q++)
+        {
+            String word = RandomWord(random, 1 + random.nextInt(7));
+            int maxEdits = random.nextInt(3);
+
+            List<String> expected = new ArrayList<String>();
+            for (String term : terms)
+            {
+                if (term.length() > 0 && Distance(word, term) <= maxEdits)   // The empty term is never expanded
+                    expected.add(term);
+            }
+
+            assertEquals(word + "~" + maxEdits, expected, sorted.Fuzzy(word, maxEdits));
+        }
+    }
+
+    @Test
+    public void WildcardGivesAllMatchingTerms()
+    {
+        Random random = new Random(13);
+        TreeSet<String> terms = RandomTerms(random, 3000);
+        SortedTerms sorted = new SortedTerms(terms);
+
+        for (int q = 0; q < 500; q++)
+        {
+            // A pattern starts with a character since its expansion reads the terms with that prefix
+            StringBuilder pattern = new StringBuilder(RandomWord(random, 1 + random.nextInt(2)));
+            for (int i = random.nextInt(5); i > 0; i--)
+            {
+                int r = random.nextInt(4);
+                pattern.append(r == 0 ? '*' : (r == 1 ? '?' : LETTERS.charAt(random.nextInt(LETTERS.length()))));
+            }
+
+            Pattern regex = Pattern.compile(Glob(pattern.toString()));
+            List<String> expected = new ArrayList<String>();
+            for (String term : terms)
+            {
+                if (regex.matcher(term).matches())
+                    expected.add(term);
+            }
+
+            assertEquals(pattern.toString(), expected, sorted.Wildcard(pattern.toString()));
+        }
+    }
+
+    /**
+     * Gets distinct random terms (including the empty term and a few terms longer than 16 characters).
+     * @param random
+     * @param count
+     * @return
+     */
+    private static TreeSet<String> RandomTerms(Random random, int count)
+    {
+        TreeSet<String> terms = new TreeSet<String>();
+        terms.add("");
+        while (terms.size() < count)
+            terms.add(RandomWord(random, (random.nextInt(50) == 0 ? 17 + random.nextInt(8) : 1 + random.nextInt(7))));
+
+        return terms;
+    }
+
+    private static String RandomWord(Random random, int length)
+    {
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < length; i++)
+            word.append(LETTERS.charAt(random.nextInt(LETTERS.length())));
+
+        return word.toString();
+    }
+
+    /**
+     * Gets the number of insertions, deletions or substitutions that turn {@param a} into {@param b}.
+     * @param a
+     * @param b
+     * @return
+     */
+    private static int Distance(String a, String b)
+    {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++)
+            previous[j] = j;
+
+        for (int i = 1; i <= a.length(); i++)
+        {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++)
+            {
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        return previous[b.length()];
+    }
+
+    /**
+     * Gets the regular expression of a wildcard pattern ('*' any characters, '?' one character).
+     * @param pattern
+     * @return
+     */
+    private static String Glob(String pattern)
+    {
+        StringBuilder regex = new StringBuilder();
+        for (char c : pattern.toCharArray())
+        {
+            if (c == '*')
+                regex.append(".*");
+            else if (c == '?')
+                regex.append('.');
+            else
+                regex.append(Pattern.quote(String.valueOf(c)));
+        }
+
+        return regex.toString();
+    }
+}
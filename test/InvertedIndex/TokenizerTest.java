@@ -0,0 +1,71 @@
+package InvertedIndex;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+/** Compares the single pass tokenizer with the regular expression split of the default RegexMask. */
+public class TokenizerTest
+{
+    /** Word characters, separators, characters that change case and characters outside of Latin-1 */
+    private static final String CHARACTERS = "aZz09-_#!äÄöÖüÜß .,;:?|\t\n\r\"'()éÉçÇ€ĀİΣσ😀";
+
+    @Test
+    public void FastPathSplitsLikeTheRegexMask()
+    {
+        Tokenizer tokenizer = new Tokenizer(Tokenizer.DEFAULT_REGEX_MASK);
+        assertTrue(tokenizer.getFastPath());
+
+        for (String text : new String[] { "", " ", "...", "Haus", " Haus  MAUS, Straße! ", "x-y_z#1!", "naïve İstanbul ΣΟΦΙΑ" })
+            assertArrayEquals(text, RegexSplit(text), tokenizer.Tokenize(text));
+
+        Random random = new Random(17);
+        for (int t = 0; t < 20000; t++)
+        {
+            String text = RandomText(random, random.nextInt(40));
+            assertArrayEquals(text, RegexSplit(text), tokenizer.Tokenize(text));
+        }
+    }
+
+    @Test
+    public void OtherMasksUseTheRegularExpression()
+    {
+        String mask = "[^a-z]+";
+        Tokenizer tokenizer = new Tokenizer(mask);
+        assertFalse(tokenizer.getFastPath());
+
+        Random random = new Random(19);
+        for (int t = 0; t < 1000; t++)
+        {
+            String text = RandomText(random, random.nextInt(40));
+            assertArrayEquals(text, Pattern.compile(mask).matcher(text).replaceAll(" ").toLowerCase().trim().split("\\s+"),
+                              tokenizer.Tokenize(text));
+        }
+    }
+
+    /**
+     * Splits a text with the regular expression of the default RegexMask (the implementation before the single pass).
+     * @param text
+     * @return
+     */
+    private static String[] RegexSplit(String text)
+    {
+        return Pattern.compile(Tokenizer.DEFAULT_REGEX_MASK).matcher(text).replaceAll(" ").toLowerCase().trim().split("\\s+");
+    }
+
+    private static String RandomText(Random random, int length)
+    {
+        int[] codePoints = CHARACTERS.codePoints().toArray();
+
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++)
+            text.appendCodePoint(codePoints[random.nextInt(codePoints.length)]);
+
+        return text.toString();
+    }
+}